@@ -0,0 +1,58 @@
+package com.example.loansystem.benchmarks;
+
+import com.example.loansystem.model.EMI;
+import com.example.loansystem.model.Loan;
+import com.example.loansystem.strategy.AmortizedEMIStrategy;
+import com.example.loansystem.strategy.EMISchedule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AmortizedEMIStrategy on a 450,000.00 home loan at 6.5%, measured the same way as
+ * EMIScheduleBenchmark does for FixedEMIStrategy. 360 months is a 30 year mortgage.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AmortizedScheduleBenchmark {
+
+    @Param({"12", "60", "360"})
+    private int termMonths;
+
+    private AmortizedEMIStrategy strategy;
+    private Loan loan;
+    private EMISchedule schedule;
+
+    @Setup
+    public void setUp() {
+        strategy = new AmortizedEMIStrategy();
+        loan = Fixtures.approvedHomeLoan(termMonths);
+        schedule = new EMISchedule();
+    }
+
+    @Benchmark
+    public EMISchedule fillSchedule() {
+        strategy.fillSchedule(loan, schedule);
+        return schedule;
+    }
+
+    @Benchmark
+    public List<EMI> generateEMIs() {
+        return strategy.generateEMIs(loan);
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.loansystem.benchmarks;
+
+import com.example.loansystem.repository.EMIScheduleWriter;
+import com.example.loansystem.strategy.FixedEMIStrategy;
+import org.flywaydb.core.Flyway;
+import org.h2.jdbcx.JdbcDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedule generation plus the batched insert approveLoan does, against in-memory H2 with the
+ * Flyway schema. Absolute numbers say little about MySQL; the slope over term length is the point.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ApprovalScheduleBenchmark {
+
+    @Param({"4", "52", "104", "260", "520"})
+    private int termWeeks;
+
+    private AnnotationConfigApplicationContext context;
+    private JdbcTemplate jdbcTemplate;
+    private EMIScheduleWriter emiScheduleWriter;
+    private FixedEMIStrategy strategy;
+
+    @Setup(Level.Trial)
+    public void startDatabase() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:approvals;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        Flyway.configure().dataSource(dataSource).load().migrate();
+
+        context = new AnnotationConfigApplicationContext();
+        context.registerBean(DataSource.class, () -> dataSource);
+        context.registerBean(JdbcTemplate.class, () -> new JdbcTemplate(dataSource));
+        context.registerBean(EMIScheduleWriter.class);
+        context.refresh();
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        emiScheduleWriter = context.getBean(EMIScheduleWriter.class);
+        strategy = new FixedEMIStrategy();
+    }
+
+    @Setup(Level.Iteration)
+    public void emptySchedules() {
+        jdbcTemplate.execute("TRUNCATE TABLE emi");
+    }
+
+    @TearDown(Level.Trial)
+    public void stopDatabase() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        context.close();
+    }
+
+    @Benchmark
+    public int generateAndWriteSchedule() {
+        return emiScheduleWriter.writeSchedule(strategy.generateEMIs(Fixtures.approvedLoan(termWeeks)));
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.loansystem.benchmarks;
+
+import com.example.loansystem.model.EMI;
+import com.example.loansystem.model.Loan;
+import com.example.loansystem.strategy.EMISchedule;
+import com.example.loansystem.strategy.FixedEMIStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FixedEMIStrategy schedule generation: into a reused primitive schedule, and converted to EMI
+ * entities as approveLoan does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EMIScheduleBenchmark {
+
+    @Param({"4", "52", "104", "260", "520"})
+    private int termWeeks;
+
+    private FixedEMIStrategy strategy;
+    private Loan loan;
+    private EMISchedule schedule;
+
+    @Setup
+    public void setUp() {
+        strategy = new FixedEMIStrategy();
+        loan = Fixtures.approvedLoan(termWeeks);
+        schedule = new EMISchedule();
+    }
+
+    @Benchmark
+    public EMISchedule fillSchedule() {
+        strategy.fillSchedule(loan, schedule);
+        return schedule;
+    }
+
+    @Benchmark
+    public List<EMI> generateEMIs() {
+        return strategy.generateEMIs(loan);
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.loansystem.benchmarks;
+
+import com.example.loansystem.model.EMI;
+import com.example.loansystem.model.EMIStatus;
+import com.example.loansystem.model.Loan;
+import com.example.loansystem.model.LoanStatus;
+import com.example.loansystem.model.LoanType;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+final class Fixtures {
+
+    static final long WEEKLY_INSTALLMENT_MINOR = 10_000;
+    static final long HOME_LOAN_PRINCIPAL_MINOR = 45_000_000;
+    private static final long START_MILLIS = 1_672_531_200_000L; // 2023-01-01T00:00:00Z
+    private static final long WEEK_MILLIS = 7L * 24 * 60 * 60 * 1000;
+
+    private Fixtures() {
+    }
+
+    static Loan approvedLoan(int termWeeks) {
+        Loan loan = new Loan();
+        loan.setId(1L);
+        loan.setUserId(2L);
+        loan.setLoanType(LoanType.PERSONAL);
+        loan.setStatus(LoanStatus.APPROVED);
+        loan.setLoanTerm(termWeeks);
+        loan.setAmountToBePaidMinor(termWeeks * WEEKLY_INSTALLMENT_MINOR);
+        loan.setStartDate(new Date(START_MILLIS));
+        return loan;
+    }
+
+    static Loan approvedHomeLoan(int termMonths) {
+        Loan loan = approvedLoan(termMonths);
+        loan.setLoanType(LoanType.HOME);
+        loan.setAmountRequiredMinor(HOME_LOAN_PRINCIPAL_MINOR);
+        loan.setInterestRate(6.5);
+        return loan;
+    }
+
+    static List<EMI> pendingSchedule(int termWeeks) {
+        List<EMI> emis = new ArrayList<>(termWeeks);
+        for (int week = 0; week < termWeeks; week++) {
+            EMI emi = new EMI(1L, 2L, WEEKLY_INSTALLMENT_MINOR, new Date(START_MILLIS + week * WEEK_MILLIS), EMIStatus.PENDING);
+            emi.setId((long) week + 1);
+            emis.add(emi);
+        }
+        return emis;
+    }
+}
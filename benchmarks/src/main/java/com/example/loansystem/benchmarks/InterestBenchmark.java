@@ -0,0 +1,68 @@
+package com.example.loansystem.benchmarks;
+
+import com.example.loansystem.factory.LoanFactory;
+import com.example.loansystem.factory.RateCard;
+import com.example.loansystem.factory.loaninterfaces.LoanTypeInfo;
+import com.example.loansystem.model.LoanType;
+import com.example.loansystem.model.RateTier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The rate lookup and interest calculation that createLoan runs for every application.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class InterestBenchmark {
+
+    @Param({"PERSONAL", "HOME", "CAR"})
+    private LoanType loanType;
+
+    @Param({"4", "52", "520"})
+    private int termWeeks;
+
+    private long principalMinor = 2_500_000;
+
+    private RateCard rateCard;
+
+    @Setup
+    public void setUp() {
+        //Base tiers plus amount and term tiers, so lookups walk past a few rows
+        rateCard = RateCard.of(List.of(
+                new RateTier(LoanType.PERSONAL, 0, 0, 0.10),
+                new RateTier(LoanType.PERSONAL, 1_000_000, 0, 0.095),
+                new RateTier(LoanType.PERSONAL, 5_000_000, 52, 0.09),
+                new RateTier(LoanType.CAR, 0, 0, 0.09),
+                new RateTier(LoanType.CAR, 0, 60, 0.095),
+                new RateTier(LoanType.HOME, 0, 0, 0.08),
+                new RateTier(LoanType.HOME, 10_000_000, 0, 0.075),
+                new RateTier(LoanType.HOME, 10_000_000, 240, 0.07)));
+    }
+
+    @Benchmark
+    public double rateFor() {
+        return rateCard.rateFor(loanType, principalMinor, termWeeks);
+    }
+
+    @Benchmark
+    public long getInterest() {
+        LoanTypeInfo loanTypeInfo = LoanFactory.getLoanTypeInfo(loanType);
+        return loanTypeInfo.getInterest(principalMinor, rateCard.rateFor(loanType, principalMinor, termWeeks), termWeeks);
+    }
+}
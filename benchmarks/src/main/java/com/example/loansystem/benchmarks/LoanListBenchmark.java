@@ -0,0 +1,119 @@
+package com.example.loansystem.benchmarks;
+
+import com.example.loansystem.model.Loan;
+import com.example.loansystem.model.LoanStatus;
+import com.example.loansystem.model.User;
+import com.example.loansystem.repository.LoanRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.flywaydb.core.Flyway;
+import org.h2.jdbcx.JdbcDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.persistenceunit.PersistenceManagedTypes;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The admin loan list the way the endpoint serves it: one read-only transaction that queries the
+ * loans and writes them as JSON. {@code entities} is the pre-projection path (managed Loan
+ * entities with their eagerly joined User), {@code summaries} the LoanSummary projection the
+ * service uses now. Runs against in-memory H2 with the Flyway schema.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoanListBenchmark {
+
+    private static final int USERS = 100;
+
+    @Param({"50", "500", "5000"})
+    private int loans;
+
+    private JdbcTemplate jdbcTemplate;
+    private LocalContainerEntityManagerFactoryBean entityManagerFactoryBean;
+    private TransactionTemplate readOnlyTransaction;
+    private LoanRepository loanRepository;
+    private ObjectMapper objectMapper;
+
+    @Setup(Level.Trial)
+    public void startDatabase() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        //Hibernate renders the user table unquoted
+        dataSource.setURL("jdbc:h2:mem:loanlist;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1");
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("INSERT INTO `user` (id, user_email, password, user_role) " +
+                "SELECT X, CONCAT('user', X, '@example.com'), 'hash', 0 FROM SYSTEM_RANGE(1, ?) r(x)", USERS);
+        jdbcTemplate.update("INSERT INTO loan (id, user_id, amount_required, loan_term, amount_to_be_paid, interest_rate, " +
+                "request_date, start_date, status, loan_type) SELECT X, MOD(X, ?) + 1, 1000, 52, 1100, 10, " +
+                "DATE '2023-01-01', NULL, 0, 0 FROM SYSTEM_RANGE(1, ?) r(x)", USERS, loans);
+
+        entityManagerFactoryBean = new LocalContainerEntityManagerFactoryBean();
+        entityManagerFactoryBean.setDataSource(dataSource);
+        //Listed rather than scanned, the shaded jar has no directory entries to scan
+        entityManagerFactoryBean.setManagedTypes(PersistenceManagedTypes.of(Loan.class.getName(), User.class.getName()));
+        entityManagerFactoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        //Spring Boot's defaults, so columns map to the Flyway names
+        entityManagerFactoryBean.setJpaPropertyMap(Map.of(
+                "hibernate.physical_naming_strategy", "org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy",
+                "hibernate.implicit_naming_strategy", "org.springframework.boot.orm.jpa.hibernate.SpringImplicitNamingStrategy"));
+        entityManagerFactoryBean.afterPropertiesSet();
+        EntityManagerFactory entityManagerFactory = entityManagerFactoryBean.getObject();
+
+        EntityManager entityManager = SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory);
+        loanRepository = new JpaRepositoryFactory(entityManager).getRepository(LoanRepository.class);
+        readOnlyTransaction = new TransactionTemplate(new JpaTransactionManager(entityManagerFactory));
+        readOnlyTransaction.setReadOnly(true);
+        objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    }
+
+    @TearDown(Level.Trial)
+    public void stopDatabase() {
+        entityManagerFactoryBean.destroy();
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    @Benchmark
+    public byte[] entities() {
+        return readOnlyTransaction.execute(status -> write(loanRepository.findAllByStatus(LoanStatus.PENDING)));
+    }
+
+    @Benchmark
+    public byte[] summaries() {
+        return readOnlyTransaction.execute(status -> write(loanRepository.findSummariesByStatus(LoanStatus.PENDING)));
+    }
+
+    private byte[] write(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
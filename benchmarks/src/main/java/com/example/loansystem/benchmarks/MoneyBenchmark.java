@@ -0,0 +1,116 @@
+package com.example.loansystem.benchmarks;
+
+import com.example.loansystem.model.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The money arithmetic of one loan in three representations: interest on the principal, the split
+ * into weekly installments with the remainder on the last one, and a repayment allocated over
+ * them oldest first. {@code minorUnits} is what the application does; {@code doubleWithEpsilon}
+ * is the cheapest way to get the same answers from doubles; {@code bigDecimal} is the textbook
+ * exact alternative. All three return the installments covered plus what is left on the next one.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MoneyBenchmark {
+
+    private static final double EPSILON = 0.005;
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+
+    @Param({"52", "520"})
+    private int termWeeks;
+
+    private final double rate = 0.10;
+    private final long principalMinor = 2_500_012;
+    private final double principal = 25_000.12;
+    private final BigDecimal principalDecimal = new BigDecimal("25000.12");
+
+    private long[] installmentsMinor;
+    private double[] installments;
+    private BigDecimal[] installmentsDecimal;
+
+    @Setup
+    public void setUp() {
+        installmentsMinor = new long[termWeeks];
+        installments = new double[termWeeks];
+        installmentsDecimal = new BigDecimal[termWeeks];
+    }
+
+    @Benchmark
+    public long minorUnits() {
+        long total = principalMinor + Money.multiply(principalMinor, rate * termWeeks / (100 * 52));
+        long installment = Money.installment(total, termWeeks);
+        for (int i = 0; i < termWeeks - 1; i++) {
+            installmentsMinor[i] = installment;
+        }
+        installmentsMinor[termWeeks - 1] = Money.lastInstallment(total, termWeeks);
+
+        long repayment = total / 2 + installment / 3;
+        int paid = 0;
+        while (paid < termWeeks && repayment >= installmentsMinor[paid]) {
+            repayment -= installmentsMinor[paid++];
+        }
+        return paid * 1_000_000_000L + repayment;
+    }
+
+    @Benchmark
+    public long doubleWithEpsilon() {
+        double total = round(principal + principal * rate * termWeeks / (100 * 52));
+        double installment = Math.floor(total * 100 / termWeeks) / 100;
+        for (int i = 0; i < termWeeks - 1; i++) {
+            installments[i] = installment;
+        }
+        installments[termWeeks - 1] = round(total - installment * (termWeeks - 1));
+
+        double repayment = round(Math.floor(total * 50 + EPSILON) / 100 + Math.floor(installment * 100 / 3 + EPSILON) / 100);
+        int paid = 0;
+        while (paid < termWeeks && repayment > installments[paid] - EPSILON) {
+            repayment = round(repayment - installments[paid++]);
+        }
+        return paid * 1_000_000_000L + Math.round(repayment * 100);
+    }
+
+    @Benchmark
+    public long bigDecimal() {
+        BigDecimal interest = principalDecimal.multiply(BigDecimal.valueOf(rate))
+                .multiply(BigDecimal.valueOf(termWeeks))
+                .divide(BigDecimal.valueOf(100 * 52), 2, RoundingMode.HALF_EVEN);
+        BigDecimal total = principalDecimal.add(interest);
+        BigDecimal weeks = BigDecimal.valueOf(termWeeks);
+        BigDecimal installment = total.divide(weeks, 2, RoundingMode.DOWN);
+        for (int i = 0; i < termWeeks - 1; i++) {
+            installmentsDecimal[i] = installment;
+        }
+        installmentsDecimal[termWeeks - 1] = total.subtract(installment.multiply(BigDecimal.valueOf(termWeeks - 1)));
+
+        BigDecimal repayment = total.divide(BigDecimal.valueOf(2), 2, RoundingMode.DOWN)
+                .add(installment.divide(BigDecimal.valueOf(3), 2, RoundingMode.DOWN));
+        int paid = 0;
+        while (paid < termWeeks && repayment.compareTo(installmentsDecimal[paid]) >= 0) {
+            repayment = repayment.subtract(installmentsDecimal[paid++]);
+        }
+        return paid * 1_000_000_000L + repayment.multiply(HUNDRED).longValueExact();
+    }
+
+    private static double round(double amount) {
+        return Math.round(amount * 100) / 100.0;
+    }
+}
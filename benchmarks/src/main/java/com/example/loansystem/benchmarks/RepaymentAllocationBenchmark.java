@@ -0,0 +1,47 @@
+package com.example.loansystem.benchmarks;
+
+import com.example.loansystem.model.EMI;
+import com.example.loansystem.service.RepaymentAllocation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The allocation loop of repayLoan: a payment covering half the schedule plus part of the next installment.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RepaymentAllocationBenchmark {
+
+    @Param({"4", "52", "104", "260", "520"})
+    private int termWeeks;
+
+    private List<EMI> pendingEmis;
+    private long repaymentMinor;
+
+    @Setup
+    public void setUp() {
+        pendingEmis = Fixtures.pendingSchedule(termWeeks);
+        repaymentMinor = (termWeeks / 2) * Fixtures.WEEKLY_INSTALLMENT_MINOR + Fixtures.WEEKLY_INSTALLMENT_MINOR / 2;
+    }
+
+    @Benchmark
+    public RepaymentAllocation allocate() {
+        return RepaymentAllocation.allocate(pendingEmis, repaymentMinor);
+    }
+}
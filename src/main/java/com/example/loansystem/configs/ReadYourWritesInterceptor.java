@@ -0,0 +1,48 @@
+package com.example.loansystem.configs;
+
+import com.example.loansystem.security.AuthTokenFilter;
+import com.example.loansystem.service.ReadYourWrites;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+/**
+ * Records the authenticated caller of every write request, and pins the caller's later reads to the
+ * primary while {@link ReadYourWrites} still remembers the write. The write is recorded before the
+ * handler runs, so a read sent as soon as the response arrives is already pinned.
+ */
+public class ReadYourWritesInterceptor implements AsyncHandlerInterceptor {
+
+    private final ReadYourWrites readYourWrites;
+
+    public ReadYourWritesInterceptor(ReadYourWrites readYourWrites) {
+        this.readYourWrites = readYourWrites;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!(request.getAttribute(AuthTokenFilter.USER_ID_ATTRIBUTE) instanceof Long userId)) {
+            return true;
+        }
+        if (HttpMethod.GET.matches(request.getMethod()) || HttpMethod.HEAD.matches(request.getMethod())) {
+            if (readYourWrites.wroteRecently(userId)) {
+                ReadWriteRoutingDataSource.requirePrimary();
+            }
+        } else {
+            readYourWrites.recordWrite(userId);
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        ReadWriteRoutingDataSource.clearPrimaryRequired();
+    }
+
+    //Streamed responses finish on another thread; this one goes back to the pool here
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        ReadWriteRoutingDataSource.clearPrimaryRequired();
+    }
+}
@@ -1,13 +1,26 @@
 package com.example.loansystem.configs;
 
+import com.example.loansystem.service.ReadYourWrites;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @Configuration
-public class WebConfig {
+public class WebConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private ReadYourWrites readYourWrites;
+
     @Bean
     public WebApplicationContext webApplicationContext() {
         return null;
     }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new ReadYourWritesInterceptor(readYourWrites)).addPathPatterns("/aspire/loans/**");
+    }
 }
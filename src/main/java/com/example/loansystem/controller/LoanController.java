@@ -1,16 +1,30 @@
 package com.example.loansystem.controller;
 
+import com.example.loansystem.dto.BatchItemResult;
+import com.example.loansystem.dto.CreatedLoan;
+import com.example.loansystem.dto.LoanBalance;
+import com.example.loansystem.dto.LoanPage;
 import com.example.loansystem.dto.LoanRequest;
+import com.example.loansystem.dto.LoanSummary;
+import com.example.loansystem.dto.RepaymentFileReport;
 import com.example.loansystem.dto.RepaymentRequest;
 import com.example.loansystem.exceptions.*;
-import com.example.loansystem.model.Loan;
 import com.example.loansystem.model.LoanStatus;
+import com.example.loansystem.security.AuthTokenFilter;
+import com.example.loansystem.service.IdempotencyService;
 import com.example.loansystem.service.LoanService;
+import com.example.loansystem.service.RepaymentFileService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 @RestController
@@ -20,18 +34,49 @@ public class LoanController {
     @Autowired
     private LoanService loanService;
 
+    @Autowired
+    private RepaymentFileService repaymentFileService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
     @PostMapping("/")
-    public ResponseEntity<String> createLoan(@RequestBody LoanRequest loanRequest) {
+    public ResponseEntity<String> createLoan(@RequestBody LoanRequest loanRequest,
+                                             @RequestAttribute(AuthTokenFilter.USER_ID_ATTRIBUTE) Long userId,
+                                             @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        String request = loanRequest.getLoanType() + "," + loanRequest.getAmountRequired() + "," + loanRequest.getLoanTerm();
+        return idempotencyService.execute(userId, "createLoan", idempotencyKey, request, () -> {
+            try {
+                //Loans are always created for the authenticated caller
+                loanRequest.setUserId(userId);
+                CreatedLoan createdLoan = loanService.createLoan(loanRequest);
+                if (createdLoan.isQueued()) {
+                    return ResponseEntity.status(HttpStatus.ACCEPTED).body("Loan request accepted, loan id " + createdLoan.getId());
+                }
+                return ResponseEntity.status(HttpStatus.CREATED).body("Loan request created successfully, loan id " + createdLoan.getId());
+            } catch (UserNotFoundException e) {
+                return ResponseEntity.notFound().build();
+            } catch (LoanIntakeFullException e) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Server busy, please retry");
+            }
+        });
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<List<BatchItemResult>> createLoans(@RequestBody List<LoanRequest> loanRequests,
+                                                             @RequestAttribute(AuthTokenFilter.USER_ID_ATTRIBUTE) Long userId) {
         try {
-            loanService.createLoan(loanRequest);
-            return ResponseEntity.status(HttpStatus.CREATED).body("Loan request created successfully");
-        } catch (UserNotFoundException e) {
-            return ResponseEntity.notFound().build();
+            return ResponseEntity.ok(loanService.createLoans(loanRequests, userId));
+        } catch (InvalidUserAuthority e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        } catch (BatchSizeExceededException e) {
+            return ResponseEntity.badRequest().build();
         }
     }
 
     @PostMapping("/{loanId}/approvals")
-    public ResponseEntity<String> approveLoan(@PathVariable Long loanId, @RequestBody Long userId) {
+    public ResponseEntity<String> approveLoan(@PathVariable Long loanId,
+                                              @RequestAttribute(AuthTokenFilter.USER_ID_ATTRIBUTE) Long userId) {
         try {
             loanService.approveLoan(loanId, userId);
             return ResponseEntity.ok("Loan approved successfully");
@@ -40,39 +85,119 @@ public class LoanController {
         }
     }
 
+    @PostMapping("/approvals")
+    public ResponseEntity<List<BatchItemResult>> approveLoans(@RequestBody List<Long> loanIds,
+                                                              @RequestAttribute(AuthTokenFilter.USER_ID_ATTRIBUTE) Long userId) {
+        try {
+            return ResponseEntity.ok(loanService.approveLoans(loanIds, userId));
+        } catch (InvalidUserAuthority e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        } catch (BatchSizeExceededException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/")
-    public ResponseEntity<List<Loan>> getMyLoans(
+    public ResponseEntity<List<LoanSummary>> getMyLoans(
             @RequestParam(value = "status", required = false) LoanStatus status,
-            @RequestParam(value = "userId", required = true) Long userId
+            @RequestAttribute(AuthTokenFilter.USER_ID_ATTRIBUTE) Long userId
     ) {
-        List<Loan> loans = loanService.getLoansForUser(userId,status);
+        List<LoanSummary> loans = loanService.getLoansForUser(userId,status);
         return ResponseEntity.ok(loans);
     }
 
     @GetMapping("/all-loans")
-    public ResponseEntity<List<Loan>> getUsersLoans(
+    public ResponseEntity<List<LoanSummary>> getUsersLoans(
             @RequestParam(value = "status", required = false) LoanStatus status,
-            @RequestParam(value = "userId", required = true) Long userId
+            @RequestAttribute(AuthTokenFilter.USER_ID_ATTRIBUTE) Long userId
     ) {
-        List<Loan> loans = loanService.getLoansForAdmin(userId,status);
+        List<LoanSummary> loans = loanService.getLoansForAdmin(userId,status);
         return ResponseEntity.ok(loans);
     }
 
+    @GetMapping("/all-loans/page")
+    public ResponseEntity<LoanPage> getUsersLoansPage(
+            @RequestParam(value = "status", required = false) LoanStatus status,
+            @RequestAttribute(AuthTokenFilter.USER_ID_ATTRIBUTE) Long userId,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "50") int size
+    ) {
+        try {
+            return ResponseEntity.ok(loanService.getLoansPageForAdmin(userId, status, cursor, size));
+        } catch (InvalidCursorException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/all-loans/stream")
+    public ResponseEntity<StreamingResponseBody> streamUsersLoans(
+            @RequestParam(value = "status", required = false) LoanStatus status,
+            @RequestAttribute(AuthTokenFilter.USER_ID_ATTRIBUTE) Long userId
+    ) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(loanService.streamLoansForAdmin(userId, status));
+    }
+
     @PostMapping("/{loanId}/repayments")
-    public ResponseEntity<String> repayLoan(@PathVariable Long loanId, @RequestBody RepaymentRequest repaymentRequest) {
+    public ResponseEntity<String> repayLoan(@PathVariable Long loanId, @RequestBody RepaymentRequest repaymentRequest,
+                                            @RequestAttribute(AuthTokenFilter.USER_ID_ATTRIBUTE) Long userId,
+                                            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        String request = String.valueOf(repaymentRequest.getRepaymentAmount());
+        return idempotencyService.execute(userId, "repayLoan:" + loanId, idempotencyKey, request, () -> {
+            try {
+                loanService.repayLoan(loanId, repaymentRequest.getRepaymentAmount());
+                return ResponseEntity.ok("Repayment successful");
+            } catch (LoanNotFoundException e) {
+                return ResponseEntity.notFound().build();
+            } catch (InvalidRepaymentAmountException e) {
+                return ResponseEntity.badRequest().body("Invalid repayment amount");
+            } catch (LoanAlreadyPaidException e) {
+                return ResponseEntity.badRequest().body("Loan is already paid");
+            } catch (EMINotFoundException e) {
+                return ResponseEntity.notFound().build();
+            } catch (RepaymentAmountException e) {
+                return ResponseEntity.badRequest().body("Repayment Amount should be greater than or equal to EMI Amount");
+            } catch (LoanBusyException e) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body("Another repayment on this loan is in progress, retry later");
+            }
+        });
+    }
+
+    @GetMapping("/{loanId}/balance")
+    public ResponseEntity<LoanBalance> getLoanBalance(@PathVariable Long loanId,
+                                                      @RequestAttribute(AuthTokenFilter.USER_ID_ATTRIBUTE) Long userId) {
         try {
-            loanService.repayLoan(loanId, repaymentRequest.getRepaymentAmount());
-            return ResponseEntity.ok("Repayment successful");
-        } catch (LoanNotFoundException e) {
-            return ResponseEntity.notFound().build();
-        } catch (InvalidRepaymentAmountException e) {
-            return ResponseEntity.badRequest().body("Invalid repayment amount");
-        } catch (LoanAlreadyPaidException e) {
-            return ResponseEntity.badRequest().body("Loan is already paid");
-        } catch (EMINotFoundException e) {
+            return ResponseEntity.ok(loanService.getLoanBalance(loanId, userId));
+        } catch (LoanNotFoundException | UserNotFoundException e) {
             return ResponseEntity.notFound().build();
-        } catch (RepaymentAmountException e) {
-            return ResponseEntity.badRequest().body("Repayment Amount should be greater than or equal to EMI Amount");
+        } catch (InvalidUserAuthority e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+    }
+
+    @PostMapping("/rate-cards/reload")
+    public ResponseEntity<String> reloadRateCard(@RequestAttribute(AuthTokenFilter.USER_ID_ATTRIBUTE) Long userId) {
+        try {
+            int tiers = loanService.reloadRateCard(userId);
+            return ResponseEntity.ok("Rate card reloaded with " + tiers + " tiers");
+        } catch (InvalidUserAuthority e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        } catch (InvalidRateCardException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @PostMapping(value = "/repayments/files", consumes = "text/csv", produces = "text/csv")
+    public ResponseEntity<StreamingResponseBody> ingestRepaymentFile(HttpServletRequest request,
+                                                                     @RequestAttribute(AuthTokenFilter.USER_ID_ATTRIBUTE) Long userId) {
+        try {
+            RepaymentFileReport report = repaymentFileService.ingest(request.getInputStream(), userId);
+            return ResponseEntity.ok(outputStream -> report.writeCsv(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8)));
+        } catch (InvalidUserAuthority e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        } catch (IOException e) {
+            return ResponseEntity.badRequest().build();
         }
     }
-}
\ No newline at end of file
+}
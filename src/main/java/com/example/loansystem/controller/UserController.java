@@ -3,13 +3,18 @@ package com.example.loansystem.controller;
 import com.example.loansystem.dto.LoginRequest;
 import com.example.loansystem.dto.UserDTO;
 import com.example.loansystem.exceptions.BadCredentialsException;
+import com.example.loansystem.exceptions.HashingCapacityExceededException;
 import com.example.loansystem.exceptions.UserAlreadyExistsException;
+import com.example.loansystem.security.LoginRateLimiter;
 import com.example.loansystem.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
 @RestController
 @RequestMapping("/aspire/auth")
 public class UserController {
@@ -17,23 +22,49 @@ public class UserController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private LoginRateLimiter loginRateLimiter;
+
     @PostMapping("/register")
-    public ResponseEntity<String> registerUser(@RequestBody UserDTO userDTO) {
-        try {
-            userService.registerUser(userDTO);
-            return ResponseEntity.status(HttpStatus.CREATED).body("User registered successfully");
-        } catch (UserAlreadyExistsException e) {
-            return ResponseEntity.badRequest().body("Username already exists");
-        }
+    public CompletableFuture<ResponseEntity<String>> registerUser(@RequestBody UserDTO userDTO) {
+        return userService.registerUser(userDTO).handle((result, error) -> {
+            if (error == null) {
+                return ResponseEntity.status(HttpStatus.CREATED).body("User registered successfully");
+            }
+            Throwable cause = unwrap(error);
+            if (cause instanceof UserAlreadyExistsException) {
+                return ResponseEntity.badRequest().body("Username already exists");
+            }
+            if (cause instanceof HashingCapacityExceededException) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Server busy, please retry");
+            }
+            throw new CompletionException(cause);
+        });
     }
 
     @PostMapping("/login")
-    public ResponseEntity<String> loginUser(@RequestBody LoginRequest loginRequest) {
-        try {
-            String token = userService.loginUser(loginRequest.getUsername(), loginRequest.getPassword());
-            return ResponseEntity.ok(token);
-        } catch (BadCredentialsException e) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid username or password");
+    public CompletableFuture<ResponseEntity<String>> loginUser(@RequestBody LoginRequest loginRequest) {
+        //Shed excess attempts before any hashing is queued
+        if (!loginRateLimiter.tryAcquire(loginRequest.getUsername())) {
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body("Too many login attempts"));
         }
+        return userService.loginUser(loginRequest.getUsername(), loginRequest.getPassword()).handle((token, error) -> {
+            if (error == null) {
+                return ResponseEntity.ok(token);
+            }
+            Throwable cause = unwrap(error);
+            if (cause instanceof BadCredentialsException) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid username or password");
+            }
+            if (cause instanceof HashingCapacityExceededException) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Server busy, please retry");
+            }
+            throw new CompletionException(cause);
+        });
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,53 @@
+package com.example.loansystem.dto;
+
+/**
+ * Outcome of one item of a batch request, identified by its position in the request.
+ */
+public class BatchItemResult {
+    private int index;
+    private Long id;
+    private BatchItemStatus status;
+    private String message;
+
+    public BatchItemResult() {
+    }
+
+    public BatchItemResult(int index, Long id, BatchItemStatus status, String message) {
+        this.index = index;
+        this.id = id;
+        this.status = status;
+        this.message = message;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public BatchItemStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(BatchItemStatus status) {
+        this.status = status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.loansystem.dto;
+
+public enum BatchItemStatus {
+    CREATED,
+    APPROVED,
+    REJECTED
+}
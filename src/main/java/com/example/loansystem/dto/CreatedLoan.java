@@ -0,0 +1,22 @@
+package com.example.loansystem.dto;
+
+/**
+ * Id of a new loan and whether it was only queued for the intake writer rather than stored.
+ */
+public class CreatedLoan {
+    private final Long id;
+    private final boolean queued;
+
+    public CreatedLoan(Long id, boolean queued) {
+        this.id = id;
+        this.queued = queued;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public boolean isQueued() {
+        return queued;
+    }
+}
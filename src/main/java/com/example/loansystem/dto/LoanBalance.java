@@ -0,0 +1,59 @@
+package com.example.loansystem.dto;
+
+import com.example.loansystem.model.Money;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.LocalDate;
+
+/**
+ * Outstanding balance of a loan and its next pending installment, as of ledger entry
+ * {@code ledgerSeq} (0 before the first repayment). Also the shape of a stored snapshot.
+ */
+public class LoanBalance {
+    private final long loanId;
+    private final long ledgerSeq;
+    private final long outstandingMinor;
+    private final LocalDate nextDueDate;
+    private final long nextInstallmentMinor;
+
+    public LoanBalance(long loanId, long ledgerSeq, long outstandingMinor, LocalDate nextDueDate, long nextInstallmentMinor) {
+        this.loanId = loanId;
+        this.ledgerSeq = ledgerSeq;
+        this.outstandingMinor = outstandingMinor;
+        this.nextDueDate = nextDueDate;
+        this.nextInstallmentMinor = nextInstallmentMinor;
+    }
+
+    public long getLoanId() {
+        return loanId;
+    }
+
+    public long getLedgerSeq() {
+        return ledgerSeq;
+    }
+
+    @JsonIgnore
+    public long getOutstandingMinor() {
+        return outstandingMinor;
+    }
+
+    /**
+     * Null once no installment is pending.
+     */
+    public LocalDate getNextDueDate() {
+        return nextDueDate;
+    }
+
+    @JsonIgnore
+    public long getNextInstallmentMinor() {
+        return nextInstallmentMinor;
+    }
+
+    public double getOutstanding() {
+        return Money.toMajor(outstandingMinor);
+    }
+
+    public double getNextInstallment() {
+        return Money.toMajor(nextInstallmentMinor);
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.loansystem.dto;
+
+import com.example.loansystem.exceptions.InvalidCursorException;
+import com.example.loansystem.model.LoanStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Keyset position in the admin loan listing: the (status, id) of the last loan returned.
+ * Encoded as an opaque url-safe token so clients just echo it back.
+ */
+public class LoanCursor {
+    private final LoanStatus status;
+    private final long id;
+
+    public LoanCursor(LoanStatus status, long id) {
+        this.status = status;
+        this.id = id;
+    }
+
+    public LoanStatus getStatus() {
+        return status;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String encode() {
+        String raw = status.name() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static LoanCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            return new LoanCursor(LoanStatus.valueOf(raw.substring(0, separator)), Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new InvalidCursorException("Invalid cursor: " + token);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.loansystem.dto;
+
+import java.util.List;
+
+public class LoanPage {
+    private List<LoanSummary> loans;
+    private String nextCursor;
+
+    public LoanPage() {
+    }
+
+    public LoanPage(List<LoanSummary> loans, String nextCursor) {
+        this.loans = loans;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<LoanSummary> getLoans() {
+        return loans;
+    }
+
+    public void setLoans(List<LoanSummary> loans) {
+        this.loans = loans;
+    }
+
+    /**
+     * Token for the next page, null once the listing is exhausted.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
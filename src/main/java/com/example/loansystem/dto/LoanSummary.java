@@ -0,0 +1,94 @@
+package com.example.loansystem.dto;
+
+import com.example.loansystem.model.LoanStatus;
+import com.example.loansystem.model.LoanType;
+import com.example.loansystem.model.Money;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Date;
+
+/**
+ * Read-only view of a loan for list endpoints. Used as a Spring Data DTO projection: queries
+ * select just the constructor's columns into plain objects, with no user join, no managed
+ * entities and no proxy per row. The constructor parameter names are the Loan properties read.
+ */
+public class LoanSummary {
+    private final Long id;
+    private final Long userId;
+    private final long amountRequiredMinor;
+    private final int loanTerm;
+    private final long amountToBePaidMinor;
+    private final double interestRate;
+    private final LocalDate requestDate;
+    private final Date startDate;
+    private final LoanStatus status;
+    private final LoanType loanType;
+
+    public LoanSummary(Long id, Long userId, long amountRequiredMinor, int loanTerm, long amountToBePaidMinor,
+                       double interestRate, LocalDate requestDate, Date startDate, LoanStatus status, LoanType loanType) {
+        this.id = id;
+        this.userId = userId;
+        this.amountRequiredMinor = amountRequiredMinor;
+        this.loanTerm = loanTerm;
+        this.amountToBePaidMinor = amountToBePaidMinor;
+        this.interestRate = interestRate;
+        this.requestDate = requestDate;
+        this.startDate = startDate;
+        this.status = status;
+        this.loanType = loanType;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    @JsonIgnore
+    public long getAmountRequiredMinor() {
+        return amountRequiredMinor;
+    }
+
+    public int getLoanTerm() {
+        return loanTerm;
+    }
+
+    @JsonIgnore
+    public long getAmountToBePaidMinor() {
+        return amountToBePaidMinor;
+    }
+
+    public double getInterestRate() {
+        return interestRate;
+    }
+
+    public LocalDate getRequestDate() {
+        return requestDate;
+    }
+
+    //An ISO-8601 instant in JSON, as the streaming export writes it
+    public Instant getStartDate() {
+        return startDate == null ? null : startDate.toInstant();
+    }
+
+    public LoanStatus getStatus() {
+        return status;
+    }
+
+    public LoanType getLoanType() {
+        return loanType;
+    }
+
+    //The API keeps reporting amounts in major units
+    public double getAmountRequired() {
+        return Money.toMajor(amountRequiredMinor);
+    }
+
+    public double getAmountToBePaid() {
+        return Money.toMajor(amountToBePaidMinor);
+    }
+}
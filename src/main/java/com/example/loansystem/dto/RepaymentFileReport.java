@@ -0,0 +1,63 @@
+package com.example.loansystem.dto;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Outcome of a repayment file. Applied lines are only counted; the rejected ones are listed in
+ * line order, which keeps the report small for a file that mostly goes through.
+ */
+public class RepaymentFileReport {
+    private int totalLines;
+    private int appliedLines;
+    private List<RepaymentRejection> rejections;
+
+    public RepaymentFileReport() {
+    }
+
+    public RepaymentFileReport(int totalLines, int appliedLines, List<RepaymentRejection> rejections) {
+        this.totalLines = totalLines;
+        this.appliedLines = appliedLines;
+        this.rejections = rejections;
+    }
+
+    /**
+     * Writes a totals row followed by one {@code line,loan_id,reason} row per rejected line.
+     */
+    public void writeCsv(Writer writer) throws IOException {
+        writer.write("total_lines,applied_lines,rejected_lines\n");
+        writer.write(totalLines + "," + appliedLines + "," + rejections.size() + "\n");
+        writer.write("line,loan_id,reason\n");
+        for (RepaymentRejection rejection : rejections) {
+            writer.write(rejection.getLineNumber() + ","
+                    + (rejection.getLoanId() == null ? "" : rejection.getLoanId()) + ","
+                    + rejection.getReason() + "\n");
+        }
+        writer.flush();
+    }
+
+    public int getTotalLines() {
+        return totalLines;
+    }
+
+    public void setTotalLines(int totalLines) {
+        this.totalLines = totalLines;
+    }
+
+    public int getAppliedLines() {
+        return appliedLines;
+    }
+
+    public void setAppliedLines(int appliedLines) {
+        this.appliedLines = appliedLines;
+    }
+
+    public List<RepaymentRejection> getRejections() {
+        return rejections;
+    }
+
+    public void setRejections(List<RepaymentRejection> rejections) {
+        this.rejections = rejections;
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.loansystem.dto;
+
+public enum RepaymentRejectReason {
+    MALFORMED,
+    LOAN_NOT_FOUND,
+    NO_PENDING_EMI,
+    BELOW_EMI_AMOUNT,
+    //The line's group of loans was rolled back; nothing of it was applied and it can be sent again
+    APPLY_FAILED
+}
@@ -0,0 +1,43 @@
+package com.example.loansystem.dto;
+
+/**
+ * A repayment file line that was not applied. The loan id is null for lines that did not parse.
+ */
+public class RepaymentRejection {
+    private int lineNumber;
+    private Long loanId;
+    private RepaymentRejectReason reason;
+
+    public RepaymentRejection() {
+    }
+
+    public RepaymentRejection(int lineNumber, Long loanId, RepaymentRejectReason reason) {
+        this.lineNumber = lineNumber;
+        this.loanId = loanId;
+        this.reason = reason;
+    }
+
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    public void setLineNumber(int lineNumber) {
+        this.lineNumber = lineNumber;
+    }
+
+    public Long getLoanId() {
+        return loanId;
+    }
+
+    public void setLoanId(Long loanId) {
+        this.loanId = loanId;
+    }
+
+    public RepaymentRejectReason getReason() {
+        return reason;
+    }
+
+    public void setReason(RepaymentRejectReason reason) {
+        this.reason = reason;
+    }
+}
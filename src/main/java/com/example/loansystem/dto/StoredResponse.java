@@ -0,0 +1,37 @@
+package com.example.loansystem.dto;
+
+/**
+ * Status and body of a response kept for an idempotency key, with the hash of the request that
+ * produced it. A status code of 0 marks a key whose request is still running.
+ */
+public class StoredResponse {
+    private final String requestHash;
+    private final int statusCode;
+    private final String body;
+
+    public StoredResponse(String requestHash, int statusCode, String body) {
+        this.requestHash = requestHash;
+        this.statusCode = statusCode;
+        this.body = body;
+    }
+
+    public static StoredResponse inProgress(String requestHash) {
+        return new StoredResponse(requestHash, 0, null);
+    }
+
+    public boolean isInProgress() {
+        return statusCode == 0;
+    }
+
+    public String getRequestHash() {
+        return requestHash;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public String getBody() {
+        return body;
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.loansystem.exceptions;
+
+public class BatchSizeExceededException extends RuntimeException{
+    public BatchSizeExceededException(String message) {
+        super(message);
+    }
+}
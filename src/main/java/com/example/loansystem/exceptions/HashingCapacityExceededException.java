@@ -0,0 +1,7 @@
+package com.example.loansystem.exceptions;
+
+public class HashingCapacityExceededException extends RuntimeException{
+    public HashingCapacityExceededException(String message) {
+        super(message);
+    }
+}
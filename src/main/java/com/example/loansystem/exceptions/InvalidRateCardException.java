@@ -0,0 +1,7 @@
+package com.example.loansystem.exceptions;
+
+public class InvalidRateCardException extends RuntimeException{
+    public InvalidRateCardException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.loansystem.exceptions;
+
+public class LoanBusyException extends RuntimeException{
+    public LoanBusyException(String message) {
+        super(message);
+    }
+}
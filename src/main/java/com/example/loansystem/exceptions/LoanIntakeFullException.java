@@ -0,0 +1,7 @@
+package com.example.loansystem.exceptions;
+
+public class LoanIntakeFullException extends RuntimeException{
+    public LoanIntakeFullException(String message) {
+        super(message);
+    }
+}
@@ -4,14 +4,19 @@ import com.example.loansystem.factory.loaninterfaces.LoanTypeInfo;
 import com.example.loansystem.model.LoanType;
 
 public class LoanFactory {
-    public static LoanTypeInfo getInterestRate(LoanType loanType) {
+    //Stateless, so one instance per type is shared by every caller
+    private static final LoanTypeInfo PERSONAL_LOAN = new PersonalLoan();
+    private static final LoanTypeInfo HOME_LOAN = new HomeLoan();
+    private static final LoanTypeInfo CAR_LOAN = new CarLoan();
+
+    public static LoanTypeInfo getLoanTypeInfo(LoanType loanType) {
         switch (loanType) {
             case PERSONAL:
-                return new PersonalLoan();
+                return PERSONAL_LOAN;
             case HOME:
-                return new HomeLoan();
+                return HOME_LOAN;
             case CAR:
-                return new CarLoan();
+                return CAR_LOAN;
             default:
                 throw new IllegalArgumentException("Invalid loan type: " + loanType);
         }
@@ -1,14 +1,11 @@
 package com.example.loansystem.factory;
 
 import com.example.loansystem.factory.loaninterfaces.LoanTypeInfo;
+import com.example.loansystem.model.Money;
 
 public class PersonalLoan implements LoanTypeInfo {
     @Override
-    public double getInterestRate() {
-        return 0.10;
-    }
-    @Override
-    public double getInterest(double principal, double rateOfInterest, int duration) {
-        return principal*rateOfInterest*duration/(100*52);
+    public long getInterest(long principalMinor, double rateOfInterest, int duration) {
+        return Money.multiply(principalMinor, rateOfInterest*duration/(100*52));
     }
 }
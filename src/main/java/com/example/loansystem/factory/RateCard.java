@@ -0,0 +1,94 @@
+package com.example.loansystem.factory;
+
+import com.example.loansystem.exceptions.InvalidRateCardException;
+import com.example.loansystem.model.LoanType;
+import com.example.loansystem.model.RateTier;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable snapshot of the interest rates per loan type. Each type has a base tier (amount and
+ * term 0) and may have tiers for larger amounts or longer terms. Of the tiers a loan reaches on
+ * both amount and term, it gets the one with the highest minimum amount, then highest minimum term.
+ * Tiers are held in primitive arrays, so a lookup neither locks nor allocates.
+ */
+public final class RateCard {
+
+    private final long[][] minAmountsMinor;
+    private final int[][] minTerms;
+    private final double[][] rates;
+    private final int tierCount;
+
+    private RateCard(long[][] minAmountsMinor, int[][] minTerms, double[][] rates, int tierCount) {
+        this.minAmountsMinor = minAmountsMinor;
+        this.minTerms = minTerms;
+        this.rates = rates;
+        this.tierCount = tierCount;
+    }
+
+    /**
+     * Validates the tiers and builds a card from them.
+     *
+     * @throws InvalidRateCardException if a tier is out of range, two tiers of a type overlap
+     *                                  exactly or a type has no base tier
+     */
+    public static RateCard of(List<RateTier> tiers) {
+        LoanType[] loanTypes = LoanType.values();
+        long[][] minAmountsMinor = new long[loanTypes.length][];
+        int[][] minTerms = new int[loanTypes.length][];
+        double[][] rates = new double[loanTypes.length][];
+        for (LoanType loanType : loanTypes) {
+            List<RateTier> ofType = new ArrayList<>();
+            for (RateTier tier : tiers) {
+                if (tier.getLoanType() == null || tier.getMinAmountMinor() < 0 || tier.getMinTerm() < 0
+                        || !Double.isFinite(tier.getInterestRate()) || tier.getInterestRate() < 0) {
+                    throw new InvalidRateCardException("Invalid rate tier for " + tier.getLoanType());
+                }
+                if (tier.getLoanType() == loanType) {
+                    ofType.add(tier);
+                }
+            }
+            //Most specific first, so the first tier a loan reaches is its tier
+            ofType.sort(Comparator.comparingLong(RateTier::getMinAmountMinor)
+                    .thenComparingInt(RateTier::getMinTerm)
+                    .reversed());
+            int size = ofType.size();
+            if (size == 0 || ofType.get(size - 1).getMinAmountMinor() != 0 || ofType.get(size - 1).getMinTerm() != 0) {
+                throw new InvalidRateCardException("No base rate for " + loanType);
+            }
+            int ordinal = loanType.ordinal();
+            minAmountsMinor[ordinal] = new long[size];
+            minTerms[ordinal] = new int[size];
+            rates[ordinal] = new double[size];
+            for (int i = 0; i < size; i++) {
+                RateTier tier = ofType.get(i);
+                if (i > 0 && tier.getMinAmountMinor() == minAmountsMinor[ordinal][i - 1] && tier.getMinTerm() == minTerms[ordinal][i - 1]) {
+                    throw new InvalidRateCardException("Duplicate rate tier for " + loanType);
+                }
+                minAmountsMinor[ordinal][i] = tier.getMinAmountMinor();
+                minTerms[ordinal][i] = tier.getMinTerm();
+                rates[ordinal][i] = tier.getInterestRate();
+            }
+        }
+        return new RateCard(minAmountsMinor, minTerms, rates, tiers.size());
+    }
+
+    public double rateFor(LoanType loanType, long amountMinor, int term) {
+        int ordinal = loanType.ordinal();
+        long[] amounts = minAmountsMinor[ordinal];
+        int[] terms = minTerms[ordinal];
+        for (int i = 0; i < amounts.length; i++) {
+            if (amountMinor >= amounts[i] && term >= terms[i]) {
+                return rates[ordinal][i];
+            }
+        }
+        //Unreachable for valid input, the base tier matches every amount and term
+        return rates[ordinal][amounts.length - 1];
+    }
+
+    public int getTierCount() {
+        return tierCount;
+    }
+}
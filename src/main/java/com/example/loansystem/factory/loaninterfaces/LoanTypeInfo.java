@@ -1,6 +1,11 @@
 package com.example.loansystem.factory.loaninterfaces;
 
+/**
+ * How interest accrues for a loan type. The rate itself always comes from the rate card.
+ */
 public interface LoanTypeInfo {
-    double getInterestRate();
-    double getInterest(double principal, double rateOfInterest, int duration);
+    /**
+     * Interest on a principal in minor units, rounded half-even to a whole minor unit.
+     */
+    long getInterest(long principalMinor, double rateOfInterest, int duration);
 }
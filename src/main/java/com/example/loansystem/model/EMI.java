@@ -1,11 +1,21 @@
 package com.example.loansystem.model;
 
+import jakarta.persistence.*;
+
+
 import java.util.Date;
 
+@Entity
 public class EMI {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
     private long loanId;
     private long userId;
-    private double amount;
+    @Column(name = "amount")
+    @Convert(converter = MoneyConverter.class)
+    private long amountMinor;
     private Date dueDate;
 
     private EMIStatus emiStatus;
@@ -14,14 +24,22 @@ public class EMI {
 
     }
 
-    public EMI(long loanId, long userId, double amount, Date dueDate, EMIStatus emiStatus) {
+    public EMI(long loanId, long userId, long amountMinor, Date dueDate, EMIStatus emiStatus) {
         this.loanId = loanId;
         this.userId = userId;
-        this.amount = amount;
+        this.amountMinor = amountMinor;
         this.dueDate = dueDate;
         this.emiStatus = emiStatus;
     }
 
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
     public long getLoanId() {
         return loanId;
     }
@@ -38,12 +56,12 @@ public class EMI {
         this.userId = userId;
     }
 
-    public double getAmount() {
-        return amount;
+    public long getAmountMinor() {
+        return amountMinor;
     }
 
-    public void setAmount(double amount) {
-        this.amount = amount;
+    public void setAmountMinor(long amountMinor) {
+        this.amountMinor = amountMinor;
     }
 
     public Date getDueDate() {
@@ -0,0 +1,55 @@
+package com.example.loansystem.model;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
+
+public enum InstallmentFrequency {
+    WEEKLY {
+        @Override
+        public int dueEpochDay(int firstDueDay, int index) {
+            return firstDueDay + index * 7;
+        }
+    },
+    MONTHLY {
+        @Override
+        public int dueEpochDay(int firstDueDay, int index) {
+            LocalDate first = LocalDate.ofEpochDay(firstDueDay);
+            return plusMonths(first.getYear(), first.getMonthValue(), first.getDayOfMonth(), index);
+        }
+    };
+
+    private static final int DAYS_0000_TO_1970 = 719_528;
+
+    public abstract int dueEpochDay(int firstDueDay, int index);
+
+    /**
+     * Epoch day of the same day of month {@code months} later, or of that month's last day when it
+     * is shorter. Same result as {@link LocalDate#plusMonths} without creating a date per call.
+     */
+    public static int plusMonths(int year, int month, int dayOfMonth, int months) {
+        int monthCount = year * 12 + month - 1 + months;
+        int targetYear = Math.floorDiv(monthCount, 12);
+        int targetMonth = Math.floorMod(monthCount, 12) + 1;
+        boolean leapYear = Year.isLeap(targetYear);
+        int day = Math.min(dayOfMonth, Month.of(targetMonth).length(leapYear));
+
+        //LocalDate.toEpochDay, inlined
+        long y = targetYear;
+        long total = 365 * y;
+        if (y >= 0) {
+            total += (y + 3) / 4 - (y + 99) / 100 + (y + 399) / 400;
+        } else {
+            total -= y / -4 - y / -100 + y / -400;
+        }
+        total += (367 * targetMonth - 362) / 12;
+        total += day - 1;
+        if (targetMonth > 2) {
+            total--;
+            if (!leapYear) {
+                total--;
+            }
+        }
+        return (int) (total - DAYS_0000_TO_1970);
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.loansystem.model;
+
+import java.time.LocalDate;
+
+/**
+ * One row of a loan's ledger. The due date is the installment an ALLOCATION went to, or the next
+ * pending installment after a REPAYMENT, with what is left on it; both are empty otherwise.
+ */
+public class LedgerEvent {
+    private final long loanId;
+    private final long seq;
+    private final LedgerEventType type;
+    private final long amountMinor;
+    private final LocalDate dueDate;
+    private final long installmentMinor;
+
+    public LedgerEvent(long loanId, long seq, LedgerEventType type, long amountMinor, LocalDate dueDate, long installmentMinor) {
+        this.loanId = loanId;
+        this.seq = seq;
+        this.type = type;
+        this.amountMinor = amountMinor;
+        this.dueDate = dueDate;
+        this.installmentMinor = installmentMinor;
+    }
+
+    public long getLoanId() {
+        return loanId;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public LedgerEventType getType() {
+        return type;
+    }
+
+    public long getAmountMinor() {
+        return amountMinor;
+    }
+
+    public LocalDate getDueDate() {
+        return dueDate;
+    }
+
+    public long getInstallmentMinor() {
+        return installmentMinor;
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.loansystem.model;
+
+public enum LedgerEventType {
+    OPENING,
+    ALLOCATION,
+    REPAYMENT
+}
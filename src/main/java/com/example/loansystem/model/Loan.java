@@ -1,8 +1,6 @@
 package com.example.loansystem.model;
 
-import org.springframework.data.annotation.Id;
-
-import javax.persistence.*;
+import jakarta.persistence.*;
 import java.time.LocalDate;
 import java.util.Date;
 
@@ -12,11 +10,16 @@ public class Loan {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    @Column(name = "user_id")
     private Long userId;
-    private double amountRequired;
+    @Column(name = "amount_required")
+    @Convert(converter = MoneyConverter.class)
+    private long amountRequiredMinor;
     private int loanTerm;
 
-    private double amountToBePaid;
+    @Column(name = "amount_to_be_paid")
+    @Convert(converter = MoneyConverter.class)
+    private long amountToBePaidMinor;
 
     private double interestRate;
     private LocalDate requestDate;
@@ -26,18 +29,18 @@ public class Loan {
     private LoanType loanType;
 
     @ManyToOne
-    @JoinColumn(name = "user_id")
+    @JoinColumn(name = "user_id", insertable = false, updatable = false)
     private User user;
 
     public Loan() {
     }
 
-    public Loan(double amountRequired, int loanTerm, LocalDate requestDate, LoanStatus status, double amountToBePaid, double interestRate, Date startDate, LoanType loanType) {
-        this.amountRequired = amountRequired;
+    public Loan(long amountRequiredMinor, int loanTerm, LocalDate requestDate, LoanStatus status, long amountToBePaidMinor, double interestRate, Date startDate, LoanType loanType) {
+        this.amountRequiredMinor = amountRequiredMinor;
         this.loanTerm = loanTerm;
         this.requestDate = requestDate;
         this.status = status;
-        this.amountToBePaid = amountToBePaid;
+        this.amountToBePaidMinor = amountToBePaidMinor;
         this.interestRate = interestRate;
         this.startDate = startDate;
         this.loanType = loanType;
@@ -56,27 +59,27 @@ public class Loan {
     }
 
     public Long getUserId() {
-        return id;
+        return userId;
     }
 
     public void setUserId(Long userId) {
         this.userId = userId;
     }
 
-    public double getAmountRequired() {
-        return amountRequired;
+    public long getAmountRequiredMinor() {
+        return amountRequiredMinor;
     }
 
-    public void setAmountRequired(double amountRequired) {
-        this.amountRequired = amountRequired;
+    public void setAmountRequiredMinor(long amountRequiredMinor) {
+        this.amountRequiredMinor = amountRequiredMinor;
     }
 
-    public double getAmountToBePaid() {
-        return amountToBePaid;
+    public long getAmountToBePaidMinor() {
+        return amountToBePaidMinor;
     }
 
-    public void setAmountToBePaid(double amountToBePaid) {
-        this.amountToBePaid = amountToBePaid;
+    public void setAmountToBePaidMinor(long amountToBePaidMinor) {
+        this.amountToBePaidMinor = amountToBePaidMinor;
     }
 
 
@@ -130,17 +133,17 @@ public class Loan {
     }
 
     public static class LoanBuilder {
-        private double amountRequired;
+        private long amountRequiredMinor;
         private int loanTerm;
         private long userId;
         private LoanStatus status;
-        private double amountToBePaid;
+        private long amountToBePaidMinor;
         private double interestRate;
         private LoanType loanType;
         // Other fields...
 
-        public LoanBuilder amountRequired(double amountRequired) {
-            this.amountRequired = amountRequired;
+        public LoanBuilder amountRequiredMinor(long amountRequiredMinor) {
+            this.amountRequiredMinor = amountRequiredMinor;
             return this;
         }
 
@@ -159,8 +162,8 @@ public class Loan {
             return this;
         }
 
-        public LoanBuilder amountToBePaid(double amountToBePaid) {
-            this.amountToBePaid = amountToBePaid;
+        public LoanBuilder amountToBePaidMinor(long amountToBePaidMinor) {
+            this.amountToBePaidMinor = amountToBePaidMinor;
             return this;
         }
 
@@ -175,11 +178,11 @@ public class Loan {
         }
         public Loan build() {
             Loan loan = new Loan();
-            loan.amountRequired = this.amountRequired;
+            loan.amountRequiredMinor = this.amountRequiredMinor;
             loan.loanTerm = this.loanTerm;
             loan.userId = this.userId;
             loan.status = this.status;
-            loan.amountToBePaid = this.amountToBePaid;
+            loan.amountToBePaidMinor = this.amountToBePaidMinor;
             loan.interestRate = this.interestRate;
             loan.loanType = this.loanType;
 
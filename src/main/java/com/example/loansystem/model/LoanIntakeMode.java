@@ -0,0 +1,10 @@
+package com.example.loansystem.model;
+
+/**
+ * How a single loan application is stored: inserted before the request returns, or given an id
+ * and queued for a background writer that inserts queued loans in batches.
+ */
+public enum LoanIntakeMode {
+    SYNC,
+    QUEUED
+}
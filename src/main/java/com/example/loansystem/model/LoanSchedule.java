@@ -0,0 +1,139 @@
+package com.example.loansystem.model;
+
+import com.example.loansystem.strategy.EMISchedule;
+
+/**
+ * The parameters of a uniform installment schedule plus the total repaid so far, all amounts in
+ * minor units. Installments are not stored: installment i falls due {@code i} periods after the
+ * first due day, every installment but the last has the same amount, and repayments cover them
+ * in due order, so the state of any installment follows from the repaid total.
+ */
+public class LoanSchedule {
+    private Long loanId;
+    private Long userId;
+    private int firstDueDay;
+    private int term;
+    private long installmentMinor;
+    private long lastInstallmentMinor;
+    private InstallmentFrequency frequency;
+    private long amountRepaidMinor;
+
+    public LoanSchedule(Long loanId, Long userId, int firstDueDay, int term, long installmentMinor,
+                        long lastInstallmentMinor, InstallmentFrequency frequency, long amountRepaidMinor) {
+        this.loanId = loanId;
+        this.userId = userId;
+        this.firstDueDay = firstDueDay;
+        this.term = term;
+        this.installmentMinor = installmentMinor;
+        this.lastInstallmentMinor = lastInstallmentMinor;
+        this.frequency = frequency;
+        this.amountRepaidMinor = amountRepaidMinor;
+    }
+
+    /**
+     * Compacts a freshly generated schedule, or returns null if it cannot be described by its
+     * parameters alone and has to be stored as rows.
+     */
+    public static LoanSchedule fromSchedule(Loan loan, EMISchedule schedule) {
+        int term = schedule.size();
+        if (term == 0) {
+            return null;
+        }
+        InstallmentFrequency frequency = null;
+        if (term > 1) {
+            for (InstallmentFrequency candidate : InstallmentFrequency.values()) {
+                if (candidate.dueEpochDay(schedule.dueEpochDay(0), 1) == schedule.dueEpochDay(1)) {
+                    frequency = candidate;
+                }
+            }
+            if (frequency == null) {
+                return null;
+            }
+        } else {
+            frequency = InstallmentFrequency.WEEKLY;
+        }
+        for (int i = 0; i < term; i++) {
+            if (schedule.status(i) != EMIStatus.PENDING
+                    || schedule.dueEpochDay(i) != frequency.dueEpochDay(schedule.dueEpochDay(0), i)
+                    || (i < term - 1 && schedule.amountMinor(i) != schedule.amountMinor(0))) {
+                return null;
+            }
+        }
+        return new LoanSchedule(loan.getId(), loan.getUserId(), schedule.dueEpochDay(0), term,
+                schedule.amountMinor(0), schedule.amountMinor(term - 1), frequency, 0);
+    }
+
+    public int dueEpochDay(int index) {
+        return frequency.dueEpochDay(firstDueDay, index);
+    }
+
+    public long installmentMinor(int index) {
+        return index == term - 1 ? lastInstallmentMinor : installmentMinor;
+    }
+
+    public long totalMinor() {
+        return installmentMinor * (term - 1) + lastInstallmentMinor;
+    }
+
+    public long outstandingMinor() {
+        return totalMinor() - amountRepaidMinor;
+    }
+
+    /**
+     * Index of the oldest installment not yet fully covered, or the term if the loan is repaid.
+     */
+    public int firstUnpaidIndex() {
+        if (outstandingMinor() <= 0) {
+            return term;
+        }
+        if (installmentMinor > 0 && amountRepaidMinor < installmentMinor * (term - 1)) {
+            return (int) (amountRepaidMinor / installmentMinor);
+        }
+        return term - 1;
+    }
+
+    /**
+     * What is still owed on the given installment after repayments spilled into it.
+     */
+    public long remainingMinor(int index) {
+        long coveredByRepayments = amountRepaidMinor - installmentMinor * index;
+        long amount = installmentMinor(index);
+        return coveredByRepayments <= 0 ? amount : Math.max(0, amount - coveredByRepayments);
+    }
+
+    public Long getLoanId() {
+        return loanId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public int getFirstDueDay() {
+        return firstDueDay;
+    }
+
+    public int getTerm() {
+        return term;
+    }
+
+    public long getInstallmentMinor() {
+        return installmentMinor;
+    }
+
+    public long getLastInstallmentMinor() {
+        return lastInstallmentMinor;
+    }
+
+    public InstallmentFrequency getFrequency() {
+        return frequency;
+    }
+
+    public long getAmountRepaidMinor() {
+        return amountRepaidMinor;
+    }
+
+    public void setAmountRepaidMinor(long amountRepaidMinor) {
+        this.amountRepaidMinor = amountRepaidMinor;
+    }
+}
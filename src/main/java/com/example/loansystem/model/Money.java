@@ -0,0 +1,59 @@
+package com.example.loansystem.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Helpers for amounts held as a primitive {@code long} of minor units (cents). Arithmetic on
+ * loans and installments is plain integer arithmetic; rounding only happens where a fraction of a
+ * cent can appear (scaling by a rate, or an amount coming in as a decimal), and always half-even.
+ * BigDecimal is only used at the edges, to parse API amounts and to bind DECIMAL columns.
+ */
+public final class Money {
+
+    public static final int SCALE = 2;
+    public static final long MINOR_PER_MAJOR = 100;
+
+    private Money() {
+    }
+
+    /**
+     * Converts an amount in major units, rounding half-even on its shortest decimal form, so 0.285
+     * is 28 cents and not whatever {@code 0.285 * 100} happens to round to.
+     */
+    public static long ofMajor(double amount) {
+        return BigDecimal.valueOf(amount).setScale(SCALE, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+    }
+
+    public static double toMajor(long minor) {
+        return (double) minor / MINOR_PER_MAJOR;
+    }
+
+    public static BigDecimal toDecimal(long minor) {
+        return BigDecimal.valueOf(minor, SCALE);
+    }
+
+    public static long fromDecimal(BigDecimal amount) {
+        return amount.setScale(SCALE, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+    }
+
+    /**
+     * The amount scaled by a factor such as an interest rate, rounded half-even to a whole cent.
+     */
+    public static long multiply(long minor, double factor) {
+        return (long) Math.rint(minor * factor);
+    }
+
+    /**
+     * The regular installment when a total is split into equal parts. The remainder, always less
+     * than one cent per part, goes on the last installment (see {@link #lastInstallment}), so every
+     * installment but the last is identical and the parts add up to the total exactly.
+     */
+    public static long installment(long totalMinor, int parts) {
+        return totalMinor / parts;
+    }
+
+    public static long lastInstallment(long totalMinor, int parts) {
+        return totalMinor / parts + totalMinor % parts;
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.loansystem.model;
+
+/**
+ * One row of the rate card: the rate for loans of a type from a minimum amount and term upwards.
+ */
+public class RateTier {
+    private final LoanType loanType;
+    private final long minAmountMinor;
+    private final int minTerm;
+    private final double interestRate;
+
+    public RateTier(LoanType loanType, long minAmountMinor, int minTerm, double interestRate) {
+        this.loanType = loanType;
+        this.minAmountMinor = minAmountMinor;
+        this.minTerm = minTerm;
+        this.interestRate = interestRate;
+    }
+
+    public LoanType getLoanType() {
+        return loanType;
+    }
+
+    public long getMinAmountMinor() {
+        return minAmountMinor;
+    }
+
+    public int getMinTerm() {
+        return minTerm;
+    }
+
+    public double getInterestRate() {
+        return interestRate;
+    }
+}
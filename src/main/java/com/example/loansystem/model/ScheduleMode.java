@@ -0,0 +1,10 @@
+package com.example.loansystem.model;
+
+/**
+ * How an approved loan's installments are stored: one emi row each, or only the schedule
+ * parameters in loan_schedule with installments computed when they are read.
+ */
+public enum ScheduleMode {
+    ROWS,
+    VIRTUAL
+}
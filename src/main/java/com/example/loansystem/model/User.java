@@ -1,8 +1,9 @@
 package com.example.loansystem.model;
 
-import javax.persistence.*;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import jakarta.persistence.*;
 
-import org.springframework.data.annotation.Id;
 
 @Entity
 public class User {
@@ -38,6 +39,7 @@ public class User {
         this.userEmail = userEmail;
     }
 
+    @JsonIgnore
     public String getPassword() {
         return password;
     }
@@ -2,14 +2,28 @@ package com.example.loansystem.repository;
 
 import com.example.loansystem.model.EMI;
 import com.example.loansystem.model.EMIStatus;
-import com.example.loansystem.model.Loan;
-import com.example.loansystem.model.LoanStatus;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Date;
 import java.util.List;
 
 public interface EMIRepository extends JpaRepository<EMI, Long> {
     List<EMI> findByUserId(Long userId);
-    List<EMI> findByLoanIdAndEmiStatusOrderByDueDateAsc(Long loanId, EMIStatus emiStatus);
+    //Open installments of a loan, pending and overdue alike, oldest first; pageable only carries the limit
+    List<EMI> findByLoanIdAndEmiStatusNotOrderByDueDateAscIdAsc(Long loanId, EMIStatus emiStatus, Pageable pageable);
     List<EMI> findByLoanId(Long loanId);
+
+    @Modifying
+    @Query("UPDATE EMI e SET e.emiStatus = com.example.loansystem.model.EMIStatus.PAID " +
+            "WHERE e.loanId = :loanId AND e.emiStatus <> com.example.loansystem.model.EMIStatus.PAID " +
+            "AND e.dueDate <= :dueDate")
+    int markOpenPaidThrough(@Param("loanId") Long loanId, @Param("dueDate") Date dueDate);
+
+    @Modifying
+    @Query("UPDATE EMI e SET e.amountMinor = e.amountMinor - :amountMinor WHERE e.id = :emiId")
+    int deductFromAmount(@Param("emiId") Long emiId, @Param("amountMinor") long amountMinor);
 }
@@ -0,0 +1,46 @@
+package com.example.loansystem.repository;
+
+import com.example.loansystem.model.EMI;
+import com.example.loansystem.model.Money;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.CollectionUtils;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Writes a whole EMI schedule as JDBC batches instead of one INSERT per installment.
+ * Generated keys are never read back, so the IDENTITY column on emi does not stop the
+ * driver from batching (or rewriting the batch into multi-row inserts).
+ */
+@Repository
+@Timed("aspire.repository")
+public class EMIScheduleWriter {
+
+    private static final String INSERT_EMI_SQL =
+            "INSERT INTO emi (loan_id, user_id, amount, due_date, emi_status) VALUES (?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${aspire.emi.batch-size:500}")
+    private int batchSize;
+
+    public int writeSchedule(List<EMI> emis) {
+        if (CollectionUtils.isEmpty(emis)) {
+            return 0;
+        }
+        jdbcTemplate.batchUpdate(INSERT_EMI_SQL, emis, batchSize, (ps, emi) -> {
+            ps.setLong(1, emi.getLoanId());
+            ps.setLong(2, emi.getUserId());
+            ps.setBigDecimal(3, Money.toDecimal(emi.getAmountMinor()));
+            ps.setTimestamp(4, new Timestamp(emi.getDueDate().getTime()));
+            ps.setInt(5, emi.getEmiStatus().ordinal());
+        });
+        return emis.size();
+    }
+}
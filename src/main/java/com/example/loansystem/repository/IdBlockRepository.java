@@ -0,0 +1,31 @@
+package com.example.loansystem.repository;
+
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Reserves blocks of loan ids from the id_block row. Call it in its own transaction: the UPDATE
+ * holds the row lock until commit, which is what keeps two nodes' blocks apart.
+ */
+@Repository
+@Timed("aspire.repository")
+public class IdBlockRepository {
+
+    private static final String ADVANCE_LOAN_SQL =
+            "UPDATE id_block SET next_id = GREATEST(next_id, (SELECT COALESCE(MAX(id), 0) + 1 FROM loan)) + ? " +
+                    "WHERE name = 'loan'";
+    private static final String NEXT_LOAN_ID_SQL = "SELECT next_id FROM id_block WHERE name = 'loan'";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Reserves {@code count} consecutive loan ids and returns the first.
+     */
+    public long reserveLoanIds(int count) {
+        jdbcTemplate.update(ADVANCE_LOAN_SQL, count);
+        return jdbcTemplate.queryForObject(NEXT_LOAN_ID_SQL, Long.class) - count;
+    }
+}
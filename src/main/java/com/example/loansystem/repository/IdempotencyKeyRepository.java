@@ -0,0 +1,85 @@
+package com.example.loansystem.repository;
+
+import com.example.loansystem.dto.StoredResponse;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+@Timed("aspire.repository")
+public class IdempotencyKeyRepository {
+
+    private static final String FIND_SQL =
+            "SELECT request_hash, status_code, response_body FROM idempotency_key " +
+                    "WHERE user_id = ? AND operation = ? AND idempotency_key = ? AND created_at >= ?";
+    private static final String RESERVE_SQL =
+            "INSERT INTO idempotency_key (user_id, operation, idempotency_key, request_hash, created_at) VALUES (?, ?, ?, ?, ?)";
+    private static final String COMPLETE_SQL =
+            "UPDATE idempotency_key SET status_code = ?, response_body = ? " +
+                    "WHERE user_id = ? AND operation = ? AND idempotency_key = ? AND status_code IS NULL";
+    private static final String RELEASE_SQL =
+            "DELETE FROM idempotency_key WHERE user_id = ? AND operation = ? AND idempotency_key = ? AND status_code IS NULL";
+    private static final String DELETE_EXPIRED_SQL =
+            "DELETE FROM idempotency_key WHERE user_id = ? AND operation = ? AND idempotency_key = ? AND created_at < ?";
+    private static final String DELETE_SQL = "DELETE FROM idempotency_key WHERE created_at < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public IdempotencyKeyRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * The stored response for the key, if it was reserved at or after {@code createdAfter}. A key
+     * whose request has not finished comes back as {@link StoredResponse#isInProgress()}.
+     */
+    public Optional<StoredResponse> find(long userId, String operation, String idempotencyKey, Timestamp createdAfter) {
+        List<StoredResponse> rows = jdbcTemplate.query(FIND_SQL, (resultSet, rowNum) -> new StoredResponse(
+                resultSet.getString("request_hash"),
+                resultSet.getInt("status_code"),
+                resultSet.getString("response_body")), userId, operation, idempotencyKey, createdAfter);
+        return rows.stream().findFirst();
+    }
+
+    /**
+     * Claims the key for a request about to run; returns false if the key is already held, by a
+     * request on any node or an expired row that has not been purged yet.
+     */
+    public boolean reserve(long userId, String operation, String idempotencyKey, String requestHash, Timestamp createdAt) {
+        try {
+            jdbcTemplate.update(RESERVE_SQL, userId, operation, idempotencyKey, requestHash, createdAt);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Stores the response of a reserved key; returns false if the reservation was gone.
+     */
+    public boolean complete(long userId, String operation, String idempotencyKey, int statusCode, String body) {
+        return jdbcTemplate.update(COMPLETE_SQL, statusCode, body, userId, operation, idempotencyKey) == 1;
+    }
+
+    /**
+     * Drops a reservation whose request left nothing to replay, so a retry runs again.
+     */
+    public void release(long userId, String operation, String idempotencyKey) {
+        jdbcTemplate.update(RELEASE_SQL, userId, operation, idempotencyKey);
+    }
+
+    public int deleteExpired(long userId, String operation, String idempotencyKey, Timestamp cutoff) {
+        return jdbcTemplate.update(DELETE_EXPIRED_SQL, userId, operation, idempotencyKey, cutoff);
+    }
+
+    public int deleteCreatedBefore(Timestamp cutoff) {
+        return jdbcTemplate.update(DELETE_SQL, cutoff);
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.loansystem.repository;
+
+import com.example.loansystem.model.Loan;
+import com.example.loansystem.model.Money;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.CollectionUtils;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * Inserts new loans as JDBC batches. Unlike a JPA save on an IDENTITY column, reading the
+ * generated keys back here does not break the batch up.
+ */
+@Repository
+@Timed("aspire.repository")
+public class LoanBatchWriter {
+
+    private static final String INSERT_LOAN_SQL =
+            "INSERT INTO loan (user_id, amount_required, loan_term, amount_to_be_paid, interest_rate, " +
+                    "request_date, status, loan_type) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_LOAN_WITH_ID_SQL =
+            "INSERT INTO loan (id, user_id, amount_required, loan_term, amount_to_be_paid, interest_rate, " +
+                    "request_date, status, loan_type) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_INTAKE_FAILURE_SQL =
+            "INSERT INTO loan_intake_failure (loan_id, user_id, amount_required, loan_term, amount_to_be_paid, interest_rate, " +
+                    "request_date, status, loan_type, error, failed_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final int MAX_ERROR_LENGTH = 1024;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${aspire.loans.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * Inserts the loans and sets each one's generated id.
+     */
+    public int insertLoans(List<Loan> loans) {
+        if (CollectionUtils.isEmpty(loans)) {
+            return 0;
+        }
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_LOAN_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                for (int from = 0; from < loans.size(); from += batchSize) {
+                    List<Loan> batch = loans.subList(from, Math.min(from + batchSize, loans.size()));
+                    for (Loan loan : batch) {
+                        setColumns(ps, 1, loan);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                    //Keys come back in insert order, one per row
+                    try (ResultSet keys = ps.getGeneratedKeys()) {
+                        for (Loan loan : batch) {
+                            if (!keys.next()) {
+                                throw new IllegalStateException("Fewer generated keys than inserted loans");
+                            }
+                            loan.setId(keys.getLong(1));
+                        }
+                    }
+                }
+            }
+            return null;
+        });
+        return loans.size();
+    }
+
+    /**
+     * Inserts loans whose ids were assigned up front, see LoanIdAllocator.
+     */
+    public int insertLoansWithIds(List<Loan> loans) {
+        if (CollectionUtils.isEmpty(loans)) {
+            return 0;
+        }
+        jdbcTemplate.batchUpdate(INSERT_LOAN_WITH_ID_SQL, loans, batchSize, (ps, loan) -> {
+            ps.setLong(1, loan.getId());
+            setColumns(ps, 2, loan);
+        });
+        return loans.size();
+    }
+
+    /**
+     * Sets aside a queued loan the intake writer could not insert, with the error it got.
+     */
+    public void insertIntakeFailure(Loan loan, String error, Timestamp failedAt) {
+        String message = error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+        jdbcTemplate.update(INSERT_INTAKE_FAILURE_SQL, ps -> {
+            ps.setLong(1, loan.getId());
+            setColumns(ps, 2, loan);
+            ps.setString(10, message);
+            ps.setTimestamp(11, failedAt);
+        });
+    }
+
+    private static void setColumns(PreparedStatement ps, int first, Loan loan) throws SQLException {
+        ps.setLong(first, loan.getUserId());
+        ps.setBigDecimal(first + 1, Money.toDecimal(loan.getAmountRequiredMinor()));
+        ps.setInt(first + 2, loan.getLoanTerm());
+        ps.setBigDecimal(first + 3, Money.toDecimal(loan.getAmountToBePaidMinor()));
+        ps.setDouble(first + 4, loan.getInterestRate());
+        if (loan.getRequestDate() != null) {
+            ps.setDate(first + 5, Date.valueOf(loan.getRequestDate()));
+        } else {
+            ps.setNull(first + 5, Types.DATE);
+        }
+        ps.setInt(first + 6, loan.getStatus().ordinal());
+        ps.setInt(first + 7, loan.getLoanType().ordinal());
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.loansystem.repository;
+
+import com.example.loansystem.dto.LoanBalance;
+import com.example.loansystem.model.LedgerEvent;
+import com.example.loansystem.model.LedgerEventType;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Inserts into loan_ledger and loan_balance_snapshot, and the two keyed reads a balance needs:
+ * the latest snapshot of a loan and the ledger entries after it.
+ */
+@Repository
+@Timed("aspire.repository")
+public class LoanLedgerRepository {
+
+    private static final String LAST_SEQ_SQL =
+            "SELECT loan_id, MAX(seq) AS last_seq FROM loan_ledger WHERE loan_id IN (:ids) GROUP BY loan_id";
+    private static final String INSERT_EVENT_SQL =
+            "INSERT INTO loan_ledger (loan_id, seq, event_type, amount_minor, due_date, installment_minor, created_at) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String EVENTS_AFTER_SQL =
+            "SELECT loan_id, seq, event_type, amount_minor, due_date, installment_minor FROM loan_ledger " +
+                    "WHERE loan_id = :loanId AND seq > :seq ORDER BY seq";
+    private static final String LATEST_SNAPSHOT_SQL =
+            "SELECT loan_id, seq, outstanding_minor, next_due_date, next_installment_minor FROM loan_balance_snapshot " +
+                    "WHERE loan_id = :loanId ORDER BY seq DESC LIMIT 1";
+    private static final String INSERT_SNAPSHOT_SQL =
+            "INSERT INTO loan_balance_snapshot (loan_id, seq, outstanding_minor, next_due_date, next_installment_minor, created_at) " +
+                    "VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final LedgerEventType[] EVENT_TYPES = LedgerEventType.values();
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * Seq of the last ledger entry per loan; loans without entries are left out.
+     */
+    public Map<Long, Long> lastSeqs(Collection<Long> loanIds) {
+        Map<Long, Long> lastSeqs = new HashMap<>();
+        jdbcTemplate.query(LAST_SEQ_SQL, new MapSqlParameterSource("ids", loanIds),
+                resultSet -> {
+            lastSeqs.put(resultSet.getLong("loan_id"), resultSet.getLong("last_seq"));
+        });
+        return lastSeqs;
+    }
+
+    public void append(List<LedgerEvent> events, Timestamp createdAt) {
+        jdbcTemplate.getJdbcTemplate().batchUpdate(INSERT_EVENT_SQL, events, events.size(), (ps, event) -> {
+            ps.setLong(1, event.getLoanId());
+            ps.setLong(2, event.getSeq());
+            ps.setInt(3, event.getType().ordinal());
+            ps.setLong(4, event.getAmountMinor());
+            setInstallment(ps, 5, event.getDueDate(), event.getInstallmentMinor());
+            ps.setTimestamp(7, createdAt);
+        });
+    }
+
+    public List<LedgerEvent> eventsAfter(long loanId, long seq) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("loanId", loanId)
+                .addValue("seq", seq);
+        return jdbcTemplate.query(EVENTS_AFTER_SQL, params, (resultSet, rowNum) -> new LedgerEvent(
+                resultSet.getLong("loan_id"),
+                resultSet.getLong("seq"),
+                EVENT_TYPES[resultSet.getInt("event_type")],
+                resultSet.getLong("amount_minor"),
+                resultSet.getObject("due_date", LocalDate.class),
+                resultSet.getLong("installment_minor")));
+    }
+
+    public Optional<LoanBalance> latestSnapshot(long loanId) {
+        List<LoanBalance> rows = jdbcTemplate.query(LATEST_SNAPSHOT_SQL, new MapSqlParameterSource("loanId", loanId),
+                (resultSet, rowNum) -> new LoanBalance(
+                        resultSet.getLong("loan_id"),
+                        resultSet.getLong("seq"),
+                        resultSet.getLong("outstanding_minor"),
+                        resultSet.getObject("next_due_date", LocalDate.class),
+                        resultSet.getLong("next_installment_minor")));
+        return rows.stream().findFirst();
+    }
+
+    public void insertSnapshots(List<LoanBalance> snapshots, Timestamp createdAt) {
+        jdbcTemplate.getJdbcTemplate().batchUpdate(INSERT_SNAPSHOT_SQL, snapshots, snapshots.size(), (ps, snapshot) -> {
+            ps.setLong(1, snapshot.getLoanId());
+            ps.setLong(2, snapshot.getLedgerSeq());
+            ps.setLong(3, snapshot.getOutstandingMinor());
+            setInstallment(ps, 4, snapshot.getNextDueDate(), snapshot.getNextInstallmentMinor());
+            ps.setTimestamp(6, createdAt);
+        });
+    }
+
+    private static void setInstallment(PreparedStatement ps, int index, LocalDate dueDate, long installmentMinor) throws SQLException {
+        if (dueDate == null) {
+            ps.setNull(index, Types.DATE);
+            ps.setNull(index + 1, Types.BIGINT);
+        } else {
+            ps.setObject(index, dueDate);
+            ps.setLong(index + 1, installmentMinor);
+        }
+    }
+}
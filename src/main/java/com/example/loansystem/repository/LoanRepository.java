@@ -1,9 +1,18 @@
 package com.example.loansystem.repository;
 
+import com.example.loansystem.dto.LoanSummary;
 import com.example.loansystem.model.Loan;
 import com.example.loansystem.model.LoanStatus;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,5 +23,25 @@ public interface LoanRepository extends JpaRepository<Loan, Long> {
     List<Loan> findAllByStatus(LoanStatus status);
     List<Loan> findAll();
     Optional<Loan> findById(Long loanId);
+    //Repayment read: holds the row until commit so other nodes and repayment files wait
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
     Optional<Loan> findByIdAndStatus(Long loanId, LoanStatus status);
+
+    //Projection queries for list endpoints, select only LoanSummary columns
+    List<LoanSummary> findSummariesByUserId(Long userId);
+    List<LoanSummary> findSummariesByUserIdAndStatus(Long userId, LoanStatus status);
+    List<LoanSummary> findSummariesBy();
+    List<LoanSummary> findSummariesByStatus(LoanStatus status);
+
+    //Keyset page on (status, id); pageable only carries the limit
+    List<LoanSummary> findSummariesByStatusAndIdGreaterThanOrderByIdAsc(LoanStatus status, Long id, Pageable pageable);
+
+    //Bulk approval: lock the requested rows, then move every still-pending one in a single statement
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<Loan> findByIdIn(Collection<Long> ids);
+
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Loan l SET l.status = com.example.loansystem.model.LoanStatus.APPROVED, l.startDate = :startDate " +
+            "WHERE l.id IN :ids AND l.status = com.example.loansystem.model.LoanStatus.PENDING")
+    int approvePending(@Param("ids") Collection<Long> ids, @Param("startDate") Date startDate);
 }
@@ -0,0 +1,97 @@
+package com.example.loansystem.repository;
+
+import com.example.loansystem.model.InstallmentFrequency;
+import com.example.loansystem.model.LoanSchedule;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * One loan_schedule row per virtually scheduled loan, replacing its emi rows. Reads used by
+ * repayments lock the row, since the repaid total is read, extended and written back.
+ */
+@Repository
+@Timed("aspire.repository")
+public class LoanScheduleRepository {
+
+    private static final String COLUMNS = "loan_id, user_id, first_due_date, term, installment_amount_minor, " +
+            "last_installment_amount_minor, frequency, amount_repaid_minor";
+    private static final String INSERT_SQL =
+            "INSERT INTO loan_schedule (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String FIND_ONE_SQL =
+            "SELECT " + COLUMNS + " FROM loan_schedule WHERE loan_id = :loanId";
+    private static final String LOCK_ONE_SQL =
+            "SELECT " + COLUMNS + " FROM loan_schedule WHERE loan_id = :loanId FOR UPDATE";
+    private static final String LOCK_MANY_SQL =
+            "SELECT " + COLUMNS + " FROM loan_schedule WHERE loan_id IN (:ids) FOR UPDATE";
+    private static final String SET_REPAID_SQL = "UPDATE loan_schedule SET amount_repaid_minor = ? WHERE loan_id = ?";
+
+    private static final InstallmentFrequency[] FREQUENCIES = InstallmentFrequency.values();
+
+    private static final RowMapper<LoanSchedule> ROW_MAPPER = (resultSet, rowNum) -> new LoanSchedule(
+            resultSet.getLong("loan_id"),
+            resultSet.getLong("user_id"),
+            (int) resultSet.getObject("first_due_date", LocalDate.class).toEpochDay(),
+            resultSet.getInt("term"),
+            resultSet.getLong("installment_amount_minor"),
+            resultSet.getLong("last_installment_amount_minor"),
+            FREQUENCIES[resultSet.getInt("frequency")],
+            resultSet.getLong("amount_repaid_minor"));
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    public void insertSchedules(List<LoanSchedule> schedules) {
+        jdbcTemplate.getJdbcTemplate().batchUpdate(INSERT_SQL, schedules, schedules.size(), (ps, schedule) -> {
+            ps.setLong(1, schedule.getLoanId());
+            ps.setLong(2, schedule.getUserId());
+            ps.setObject(3, LocalDate.ofEpochDay(schedule.getFirstDueDay()));
+            ps.setInt(4, schedule.getTerm());
+            ps.setLong(5, schedule.getInstallmentMinor());
+            ps.setLong(6, schedule.getLastInstallmentMinor());
+            ps.setInt(7, schedule.getFrequency().ordinal());
+            ps.setLong(8, schedule.getAmountRepaidMinor());
+        });
+    }
+
+    /**
+     * The loan's schedule row for reading, or empty if the loan keeps its installments as emi rows.
+     */
+    public Optional<LoanSchedule> findByLoanId(Long loanId) {
+        List<LoanSchedule> schedules = jdbcTemplate.query(FIND_ONE_SQL, new MapSqlParameterSource("loanId", loanId), ROW_MAPPER);
+        return schedules.isEmpty() ? Optional.empty() : Optional.of(schedules.get(0));
+    }
+
+    /**
+     * The loan's schedule row, locked, or empty if the loan keeps its installments as emi rows.
+     */
+    public Optional<LoanSchedule> lockByLoanId(Long loanId) {
+        List<LoanSchedule> schedules = jdbcTemplate.query(LOCK_ONE_SQL, new MapSqlParameterSource("loanId", loanId), ROW_MAPPER);
+        return schedules.isEmpty() ? Optional.empty() : Optional.of(schedules.get(0));
+    }
+
+    public Map<Long, LoanSchedule> lockByLoanIds(Collection<Long> loanIds) {
+        Map<Long, LoanSchedule> schedules = new HashMap<>();
+        for (LoanSchedule schedule : jdbcTemplate.query(LOCK_MANY_SQL, new MapSqlParameterSource("ids", loanIds), ROW_MAPPER)) {
+            schedules.put(schedule.getLoanId(), schedule);
+        }
+        return schedules;
+    }
+
+    public void updateAmountsRepaid(List<LoanSchedule> schedules) {
+        jdbcTemplate.getJdbcTemplate().batchUpdate(SET_REPAID_SQL, schedules, schedules.size(), (ps, schedule) -> {
+            ps.setLong(1, schedule.getAmountRepaidMinor());
+            ps.setLong(2, schedule.getLoanId());
+        });
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.loansystem.repository;
+
+import com.example.loansystem.model.LoanStatus;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+
+/**
+ * Reads the loan table through a fetch-size limited cursor and hands rows to the caller one
+ * at a time, so a full export never holds more than one fetch window in memory.
+ */
+@Repository
+@Timed("aspire.repository")
+public class LoanStreamRepository {
+
+    private static final String SELECT_LOANS_SQL =
+            "SELECT id, user_id, amount_required, loan_term, amount_to_be_paid, interest_rate, " +
+                    "request_date, start_date, status, loan_type FROM loan";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public LoanStreamRepository(DataSource dataSource, @Value("${aspire.loans.stream-fetch-size:500}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+    }
+
+    public void streamLoans(LoanStatus status, RowCallbackHandler rowHandler) {
+        if (status == null) {
+            jdbcTemplate.query(SELECT_LOANS_SQL + " ORDER BY status, id", rowHandler);
+        } else {
+            jdbcTemplate.query(SELECT_LOANS_SQL + " WHERE status = ? ORDER BY id", rowHandler, status.ordinal());
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.loansystem.repository;
+
+import com.example.loansystem.model.EMIStatus;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+
+/**
+ * Keyset walk over pending EMIs in (due_date, id) order. Both statements bound due_date by a
+ * range, so they stay range scans on an (emi_status, due_date) index however large emi grows.
+ */
+@Repository
+@Timed("aspire.repository")
+public class OverdueEmiRepository {
+
+    private static final String SCAN_PENDING_SQL =
+            "SELECT id, due_date FROM emi WHERE emi_status = ? AND due_date >= ? AND due_date < ? " +
+                    "AND (due_date > ? OR id > ?) ORDER BY due_date, id LIMIT ?";
+    private static final String MARK_OVERDUE_SQL =
+            "UPDATE emi SET emi_status = ? WHERE emi_status = ? AND due_date >= ? AND due_date <= ? " +
+                    "AND (due_date > ? OR id > ?) AND (due_date < ? OR id <= ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public OverdueEmiRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Reads up to {@code limit} pending EMIs after the key (afterDueDate, afterId) and due before
+     * {@code dueBefore}, returning the number read and the last key.
+     */
+    public Chunk scanPending(Timestamp afterDueDate, long afterId, Timestamp dueBefore, int limit) {
+        Chunk chunk = new Chunk();
+        jdbcTemplate.query(SCAN_PENDING_SQL, resultSet -> {
+            chunk.rows++;
+            chunk.lastId = resultSet.getLong("id");
+            chunk.lastDueDate = resultSet.getTimestamp("due_date");
+        }, EMIStatus.PENDING.ordinal(), afterDueDate, dueBefore, afterDueDate, afterId, limit);
+        return chunk;
+    }
+
+    /**
+     * Marks the pending EMIs after (fromDueDate, fromId) up to and including (toDueDate, toId) as overdue.
+     */
+    public int markOverdue(Timestamp fromDueDate, long fromId, Timestamp toDueDate, long toId) {
+        return jdbcTemplate.update(MARK_OVERDUE_SQL, EMIStatus.OVERDUE.ordinal(), EMIStatus.PENDING.ordinal(),
+                fromDueDate, toDueDate, fromDueDate, fromId, toDueDate, toId);
+    }
+
+    public static class Chunk {
+        private int rows;
+        private Timestamp lastDueDate;
+        private long lastId;
+
+        public int getRows() {
+            return rows;
+        }
+
+        public Timestamp getLastDueDate() {
+            return lastDueDate;
+        }
+
+        public long getLastId() {
+            return lastId;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.loansystem.repository;
+
+import com.example.loansystem.exceptions.InvalidRateCardException;
+import com.example.loansystem.model.LoanType;
+import com.example.loansystem.model.Money;
+import com.example.loansystem.model.RateTier;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+@Timed("aspire.repository")
+public class RateCardRepository {
+
+    private static final String FIND_ALL_SQL = "SELECT loan_type, min_amount, min_term, interest_rate FROM rate_card";
+
+    private static final LoanType[] LOAN_TYPES = LoanType.values();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public List<RateTier> findAll() {
+        return jdbcTemplate.query(FIND_ALL_SQL, (resultSet, rowNum) -> new RateTier(
+                loanType(resultSet.getInt("loan_type")),
+                Money.fromDecimal(resultSet.getBigDecimal("min_amount")),
+                resultSet.getInt("min_term"),
+                resultSet.getDouble("interest_rate")));
+    }
+
+    private static LoanType loanType(int ordinal) {
+        if (ordinal < 0 || ordinal >= LOAN_TYPES.length) {
+            throw new InvalidRateCardException("Unknown loan type " + ordinal);
+        }
+        return LOAN_TYPES[ordinal];
+    }
+}
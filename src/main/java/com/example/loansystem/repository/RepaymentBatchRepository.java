@@ -0,0 +1,120 @@
+package com.example.loansystem.repository;
+
+import com.example.loansystem.model.EMI;
+import com.example.loansystem.model.EMIStatus;
+import com.example.loansystem.model.LoanStatus;
+import com.example.loansystem.model.Money;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Set-based reads and JDBC batch writes for applying many repayments at once. Every read takes a
+ * whole group of loans, so a chunk of a repayment file costs a fixed number of round trips.
+ */
+@Repository
+@Timed("aspire.repository")
+public class RepaymentBatchRepository {
+
+    private static final String LOCK_LOANS_SQL =
+            "SELECT id FROM loan WHERE status = :status AND id IN (:ids) FOR UPDATE";
+    private static final String OPEN_EMIS_SQL =
+            "SELECT id, loan_id, user_id, amount, due_date, emi_status FROM emi " +
+                    "WHERE loan_id IN (:ids) AND emi_status <> :paid ORDER BY loan_id, due_date";
+    private static final String OPEN_BALANCE_SQL =
+            "SELECT COALESCE(SUM(amount), 0) FROM emi WHERE loan_id = :loanId AND emi_status <> :paid";
+    private static final String MARK_EMI_PAID_SQL = "UPDATE emi SET emi_status = ? WHERE id = ?";
+    private static final String SET_EMI_AMOUNT_SQL = "UPDATE emi SET amount = ? WHERE id = ?";
+    private static final String SET_LOAN_STATUS_SQL = "UPDATE loan SET status = ? WHERE id = ?";
+    private static final EMIStatus[] EMI_STATUSES = EMIStatus.values();
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * Locks the given loans that are in the given status and returns their ids.
+     */
+    public Set<Long> lockLoansInStatus(Collection<Long> loanIds, LoanStatus status) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("status", status.ordinal())
+                .addValue("ids", loanIds);
+        return new HashSet<>(jdbcTemplate.queryForList(LOCK_LOANS_SQL, params, Long.class));
+    }
+
+    /**
+     * Every EMI of the given loans that is not yet paid, grouped by loan and ordered by due date.
+     */
+    public Map<Long, List<EMI>> findOpenEmis(Collection<Long> loanIds) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("ids", loanIds)
+                .addValue("paid", EMIStatus.PAID.ordinal());
+        Map<Long, List<EMI>> emisByLoan = new HashMap<>();
+        jdbcTemplate.query(OPEN_EMIS_SQL, params, resultSet -> {
+            EMI emi = new EMI(resultSet.getLong("loan_id"), resultSet.getLong("user_id"), Money.fromDecimal(resultSet.getBigDecimal("amount")),
+                    resultSet.getTimestamp("due_date"), emiStatus(resultSet.getInt("emi_status")));
+            emi.setId(resultSet.getLong("id"));
+            emisByLoan.computeIfAbsent(emi.getLoanId(), loanId -> new ArrayList<>()).add(emi);
+        });
+        return emisByLoan;
+    }
+
+    /**
+     * What is still owed on a loan's EMIs, summed in the database rather than read row by row.
+     */
+    public long sumOpenAmountMinor(Long loanId) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("loanId", loanId)
+                .addValue("paid", EMIStatus.PAID.ordinal());
+        return Money.fromDecimal(jdbcTemplate.queryForObject(OPEN_BALANCE_SQL, params, BigDecimal.class));
+    }
+
+    /**
+     * Marks the given EMIs paid in one JDBC batch.
+     */
+    public void markEmisPaid(List<Long> emiIds) {
+        jdbcTemplate.getJdbcTemplate().batchUpdate(MARK_EMI_PAID_SQL, emiIds, emiIds.size(), (ps, emiId) -> {
+            ps.setInt(1, EMIStatus.PAID.ordinal());
+            ps.setLong(2, emiId);
+        });
+    }
+
+    /**
+     * Sets what is still owed on partly paid EMIs, keyed by EMI id, in one JDBC batch.
+     */
+    public void updateEmiAmounts(Map<Long, Long> amountsByEmiId) {
+        List<Map.Entry<Long, Long>> amounts = new ArrayList<>(amountsByEmiId.entrySet());
+        jdbcTemplate.getJdbcTemplate().batchUpdate(SET_EMI_AMOUNT_SQL, amounts, amounts.size(), (ps, entry) -> {
+            ps.setBigDecimal(1, Money.toDecimal(entry.getValue()));
+            ps.setLong(2, entry.getKey());
+        });
+    }
+
+    /**
+     * Moves the given loans to one status in one JDBC batch.
+     */
+    public void updateLoanStatus(List<Long> loanIds, LoanStatus status) {
+        jdbcTemplate.getJdbcTemplate().batchUpdate(SET_LOAN_STATUS_SQL, loanIds, loanIds.size(), (ps, loanId) -> {
+            ps.setInt(1, status.ordinal());
+            ps.setLong(2, loanId);
+        });
+    }
+
+    private static EMIStatus emiStatus(int ordinal) {
+        if (ordinal < 0 || ordinal >= EMI_STATUSES.length) {
+            throw new DataRetrievalFailureException("Unknown emi_status " + ordinal);
+        }
+        return EMI_STATUSES[ordinal];
+    }
+}
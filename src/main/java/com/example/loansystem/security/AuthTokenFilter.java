@@ -0,0 +1,48 @@
+package com.example.loansystem.security;
+
+import com.example.loansystem.exceptions.InvalidTokenException;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Verifies the bearer token on loan endpoints and exposes the caller's id as a request attribute
+ * for the controllers. Requests without a valid token are rejected with 401.
+ */
+public class AuthTokenFilter extends OncePerRequestFilter {
+
+    public static final String USER_ID_ATTRIBUTE = "aspire.auth.userId";
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final TokenService tokenService;
+
+    public AuthTokenFilter(TokenService tokenService) {
+        this.tokenService = tokenService;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String authorization = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (authorization == null || !authorization.startsWith(BEARER_PREFIX)) {
+            response.sendError(HttpStatus.UNAUTHORIZED.value(), "Missing bearer token");
+            return;
+        }
+        AuthenticatedUser user;
+        try {
+            user = tokenService.verifyToken(authorization.substring(BEARER_PREFIX.length()));
+        } catch (InvalidTokenException e) {
+            response.sendError(HttpStatus.UNAUTHORIZED.value(), e.getMessage());
+            return;
+        }
+        request.setAttribute(USER_ID_ATTRIBUTE, user.getUserId());
+        filterChain.doFilter(request, response);
+    }
+}
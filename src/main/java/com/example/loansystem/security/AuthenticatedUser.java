@@ -0,0 +1,16 @@
+package com.example.loansystem.security;
+
+/**
+ * Caller identity carried by a verified access token.
+ */
+public class AuthenticatedUser {
+    private final Long userId;
+
+    public AuthenticatedUser(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+}
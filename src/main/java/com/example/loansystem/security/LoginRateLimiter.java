@@ -0,0 +1,84 @@
+package com.example.loansystem.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Admission control for /aspire/auth/login, checked before any BCrypt work. Each username has
+ * its own bucket and all attempts also share one global bucket. Per-user buckets live in a
+ * bounded Caffeine map and are dropped after they have been idle for a while.
+ */
+@Component
+public class LoginRateLimiter {
+
+    private final TokenBucket globalBucket;
+    private final Cache<String, TokenBucket> userBuckets;
+    private final double userPermitsPerSecond;
+    private final int userBurst;
+    private final LongSupplier nanoClock;
+    private final AtomicLong shedAttempts = new AtomicLong();
+    private final Counter userShedCounter;
+    private final Counter globalShedCounter;
+
+    @Autowired
+    public LoginRateLimiter(MeterRegistry meterRegistry,
+                            @Value("${aspire.login-limit.global-per-second:200}") double globalPermitsPerSecond,
+                            @Value("${aspire.login-limit.global-burst:400}") int globalBurst,
+                            @Value("${aspire.login-limit.user-per-second:0.1}") double userPermitsPerSecond,
+                            @Value("${aspire.login-limit.user-burst:5}") int userBurst,
+                            @Value("${aspire.login-limit.max-tracked-users:100000}") long maxTrackedUsers,
+                            @Value("${aspire.login-limit.idle-expiry:PT10M}") Duration idleExpiry) {
+        this(meterRegistry, globalPermitsPerSecond, globalBurst, userPermitsPerSecond, userBurst,
+                maxTrackedUsers, idleExpiry, System::nanoTime);
+    }
+
+    LoginRateLimiter(MeterRegistry meterRegistry, double globalPermitsPerSecond, int globalBurst,
+                     double userPermitsPerSecond, int userBurst, long maxTrackedUsers, Duration idleExpiry,
+                     LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+        this.globalBucket = new TokenBucket(globalPermitsPerSecond, globalBurst, nanoClock.getAsLong());
+        this.userPermitsPerSecond = userPermitsPerSecond;
+        this.userBurst = userBurst;
+        this.userBuckets = Caffeine.newBuilder()
+                .maximumSize(maxTrackedUsers)
+                .expireAfterAccess(idleExpiry)
+                .build();
+        this.userShedCounter = Counter.builder("aspire.login.shed").tag("scope", "user").register(meterRegistry);
+        this.globalShedCounter = Counter.builder("aspire.login.shed").tag("scope", "global").register(meterRegistry);
+    }
+
+    /**
+     * @return false if the attempt must be shed
+     */
+    public boolean tryAcquire(String username) {
+        long now = nanoClock.getAsLong();
+        String key = username == null ? "" : username.toLowerCase(Locale.ROOT);
+        //Per-user bucket first, so one noisy principal cannot drain the global budget
+        TokenBucket userBucket = userBuckets.get(key, k -> new TokenBucket(userPermitsPerSecond, userBurst, now));
+        if (!userBucket.tryAcquire(now)) {
+            shedAttempts.incrementAndGet();
+            userShedCounter.increment();
+            return false;
+        }
+        if (!globalBucket.tryAcquire(now)) {
+            shedAttempts.incrementAndGet();
+            globalShedCounter.increment();
+            return false;
+        }
+        return true;
+    }
+
+    public long getShedAttempts() {
+        return shedAttempts.get();
+    }
+}
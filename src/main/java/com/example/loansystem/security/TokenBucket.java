@@ -0,0 +1,40 @@
+package com.example.loansystem.security;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket. It is kept in the GCRA form, a single "theoretical arrival time", so
+ * that the whole state fits in one AtomicLong and is updated with a CAS, with no lock and no
+ * separate refill step.
+ */
+public class TokenBucket {
+    private final long emissionIntervalNanos;
+    private final long capacityNanos;
+    private final AtomicLong theoreticalArrivalNanos;
+
+    /**
+     * @param permitsPerSecond sustained refill rate
+     * @param capacity         burst size, permits available to an idle bucket
+     */
+    public TokenBucket(double permitsPerSecond, int capacity, long nowNanos) {
+        if (permitsPerSecond <= 0 || capacity < 1) {
+            throw new IllegalArgumentException("Rate and capacity must be positive");
+        }
+        this.emissionIntervalNanos = (long) (1_000_000_000L / permitsPerSecond);
+        this.capacityNanos = emissionIntervalNanos * capacity;
+        this.theoreticalArrivalNanos = new AtomicLong(nowNanos);
+    }
+
+    public boolean tryAcquire(long nowNanos) {
+        while (true) {
+            long arrival = theoreticalArrivalNanos.get();
+            long nextArrival = Math.max(arrival, nowNanos) + emissionIntervalNanos;
+            if (nextArrival - nowNanos > capacityNanos) {
+                return false;
+            }
+            if (theoreticalArrivalNanos.compareAndSet(arrival, nextArrival)) {
+                return true;
+            }
+        }
+    }
+}
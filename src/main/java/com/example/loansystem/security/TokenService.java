@@ -0,0 +1,103 @@
+package com.example.loansystem.security;
+
+import com.example.loansystem.exceptions.InvalidTokenException;
+import com.example.loansystem.model.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+
+/**
+ * Issues and verifies compact HMAC-SHA256 signed access tokens of the form
+ * base64url(userId.expiresAtMillis).base64url(signature). Verification is pure CPU work, no
+ * lookup of the user is needed. The role is not carried: admin checks read it from
+ * {@link com.example.loansystem.service.UserRoleCache}, so a role change applies before the token expires.
+ */
+@Component
+public class TokenService {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final int MIN_SECRET_BYTES = 32;
+
+    private final SecretKeySpec signingKey;
+    private final Duration tokenTtl;
+    private final Clock clock;
+    private final ThreadLocal<Mac> macs;
+
+    @Autowired
+    public TokenService(@Value("${aspire.auth.token-secret:}") String secret,
+                        @Value("${aspire.auth.token-ttl:PT1H}") Duration tokenTtl) {
+        this(secret, tokenTtl, Clock.systemUTC());
+    }
+
+    TokenService(String secret, Duration tokenTtl, Clock clock) {
+        if (secret.isBlank()) {
+            throw new IllegalArgumentException("aspire.auth.token-secret is not set, provide it through ASPIRE_AUTH_TOKEN_SECRET");
+        }
+        byte[] secretBytes = secret.getBytes(StandardCharsets.UTF_8);
+        if (secretBytes.length < MIN_SECRET_BYTES) {
+            throw new IllegalArgumentException("aspire.auth.token-secret must be at least " + MIN_SECRET_BYTES + " bytes");
+        }
+        this.signingKey = new SecretKeySpec(secretBytes, HMAC_ALGORITHM);
+        this.tokenTtl = tokenTtl;
+        this.clock = clock;
+        this.macs = ThreadLocal.withInitial(this::newMac);
+    }
+
+    public String issueToken(User user) {
+        long expiresAt = clock.millis() + tokenTtl.toMillis();
+        String payload = user.getId() + "." + expiresAt;
+        String encodedPayload = encode(payload.getBytes(StandardCharsets.UTF_8));
+        return encodedPayload + "." + encode(sign(encodedPayload));
+    }
+
+    public AuthenticatedUser verifyToken(String token) {
+        int separator = token == null ? -1 : token.indexOf('.');
+        if (separator <= 0) {
+            throw new InvalidTokenException("Malformed token");
+        }
+        String encodedPayload = token.substring(0, separator);
+        try {
+            byte[] signature = Base64.getUrlDecoder().decode(token.substring(separator + 1));
+            if (!MessageDigest.isEqual(signature, sign(encodedPayload))) {
+                throw new InvalidTokenException("Invalid token signature");
+            }
+            String[] claims = new String(Base64.getUrlDecoder().decode(encodedPayload), StandardCharsets.UTF_8).split("\\.");
+            if (claims.length != 2) {
+                throw new InvalidTokenException("Malformed token");
+            }
+            if (Long.parseLong(claims[1]) <= clock.millis()) {
+                throw new InvalidTokenException("Token expired");
+            }
+            return new AuthenticatedUser(Long.valueOf(claims[0]));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidTokenException("Malformed token");
+        }
+    }
+
+    private byte[] sign(String encodedPayload) {
+        return macs.get().doFinal(encodedPayload.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(signingKey);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to initialise " + HMAC_ALGORITHM, e);
+        }
+    }
+
+    private static String encode(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.loansystem.service;
+
+import com.example.loansystem.model.EMI;
+import com.example.loansystem.model.Loan;
+import com.example.loansystem.strategy.RepaymentStrategy;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Generates the EMI schedules of many loans at once on its own fork-join pool. Bulk approvals
+ * stay off the common pool, so a large backlog cannot starve other parallel streams.
+ */
+@Component
+public class EMIScheduleGenerator implements DisposableBean {
+
+    private final ForkJoinPool pool;
+
+    public EMIScheduleGenerator(@Value("${aspire.approvals.parallelism:0}") int parallelism) {
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Returns every installment of the given loans, grouped by loan in input order.
+     */
+    public List<EMI> generateAll(List<Loan> loans, Function<Loan, RepaymentStrategy> strategyForLoan) {
+        //A parallel stream started from inside the pool forks onto that pool's workers
+        List<List<EMI>> schedules = pool.submit(() -> loans.parallelStream()
+                .map(loan -> strategyForLoan.apply(loan).generateEMIs(loan))
+                .collect(Collectors.toList())).join();
+
+        int total = 0;
+        for (List<EMI> schedule : schedules) {
+            total += schedule.size();
+        }
+        List<EMI> emis = new ArrayList<>(total);
+        for (List<EMI> schedule : schedules) {
+            emis.addAll(schedule);
+        }
+        return emis;
+    }
+
+    @Override
+    public void destroy() {
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.loansystem.service;
+
+import com.example.loansystem.dto.StoredResponse;
+import com.example.loansystem.repository.IdempotencyKeyRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Runs a POST at most once per Idempotency-Key within the retention window. The key is reserved
+ * in the idempotency_key table before the request runs and the response is stored on the same row
+ * afterwards, with a bounded in-memory cache in front, so a retry gets the first response back
+ * without the request being executed again. Duplicates on the same node wait for the running
+ * request and share its response; a duplicate that finds the key reserved by another node gets 409
+ * and retries. A reservation whose request never finished, say because the node died, keeps
+ * answering 409 until it is purged: the request may have gone through, so it is not run again.
+ * Keys are scoped by user and operation. Reusing a key for a different request gets 422.
+ */
+@Component
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final int MAX_STORED_BODY_LENGTH = 1024;
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final Cache<String, StoredResponse> responses;
+    private final ConcurrentHashMap<String, CompletableFuture<StoredResponse>> inFlight = new ConcurrentHashMap<>();
+    private final Duration retention;
+    private final Clock clock;
+
+    @Autowired
+    public IdempotencyService(IdempotencyKeyRepository idempotencyKeyRepository, MeterRegistry meterRegistry,
+                              @Value("${aspire.idempotency.maximum-size:100000}") long maximumSize,
+                              @Value("${aspire.idempotency.retention:PT24H}") Duration retention) {
+        this(idempotencyKeyRepository, meterRegistry, maximumSize, retention, Clock.systemUTC());
+    }
+
+    IdempotencyService(IdempotencyKeyRepository idempotencyKeyRepository, MeterRegistry meterRegistry,
+                       long maximumSize, Duration retention, Clock clock) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.retention = retention;
+        this.clock = clock;
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(retention)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, responses, "idempotentResponses");
+    }
+
+    /**
+     * Returns the stored response for the key, or runs the action and stores its response.
+     * Without a key the action simply runs.
+     *
+     * @param operation the endpoint plus the path variables that identify its target
+     * @param request   the request body fields, used to tell a retry from a different request
+     */
+    public ResponseEntity<String> execute(Long userId, String operation, String idempotencyKey, String request,
+                                          Supplier<ResponseEntity<String>> action) {
+        if (idempotencyKey == null) {
+            return action.get();
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            return ResponseEntity.badRequest().body("Invalid " + HEADER + " header");
+        }
+        String requestHash = sha256(request);
+        String cacheKey = userId + ":" + operation + ":" + idempotencyKey;
+
+        StoredResponse stored = responses.getIfPresent(cacheKey);
+        if (stored != null) {
+            return replay(stored, requestHash);
+        }
+        CompletableFuture<StoredResponse> execution = new CompletableFuture<>();
+        CompletableFuture<StoredResponse> running = inFlight.putIfAbsent(cacheKey, execution);
+        if (running != null) {
+            return replay(await(running), requestHash);
+        }
+        try {
+            //Checked again now that this call owns the key, the previous owner caches before letting go
+            stored = responses.getIfPresent(cacheKey);
+            Optional<StoredResponse> held = stored != null ? Optional.of(stored) : reserve(userId, operation, idempotencyKey, requestHash);
+            if (held.isPresent()) {
+                stored = held.get();
+                if (!stored.isInProgress()) {
+                    responses.put(cacheKey, stored);
+                }
+                execution.complete(stored);
+                return replay(stored, requestHash);
+            }
+
+            ResponseEntity<String> response;
+            try {
+                response = action.get();
+            } catch (RuntimeException e) {
+                release(userId, operation, idempotencyKey);
+                throw e;
+            }
+            stored = new StoredResponse(requestHash, response.getStatusCode().value(), response.getBody());
+            if (isFinal(stored.getStatusCode())) {
+                complete(userId, operation, idempotencyKey, stored);
+                responses.put(cacheKey, stored);
+            } else {
+                release(userId, operation, idempotencyKey);
+            }
+            execution.complete(stored);
+            return response;
+        } catch (RuntimeException e) {
+            execution.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(cacheKey, execution);
+        }
+    }
+
+    /**
+     * Deletes stored responses older than the retention window and returns how many went.
+     */
+    @Scheduled(fixedDelayString = "${aspire.idempotency.purge-interval:PT1H}")
+    public int purgeExpired() {
+        return idempotencyKeyRepository.deleteCreatedBefore(cutoff());
+    }
+
+    /**
+     * Reserves the key for this request and returns empty, or returns what is already held under
+     * it. A database error is not caught: without the reservation the request must not run.
+     */
+    private Optional<StoredResponse> reserve(Long userId, String operation, String idempotencyKey, String requestHash) {
+        Timestamp now = new Timestamp(clock.millis());
+        if (idempotencyKeyRepository.reserve(userId, operation, idempotencyKey, requestHash, now)) {
+            return Optional.empty();
+        }
+        Optional<StoredResponse> held = idempotencyKeyRepository.find(userId, operation, idempotencyKey, cutoff());
+        if (held.isPresent()) {
+            return held;
+        }
+        //The row is past retention but not purged yet
+        idempotencyKeyRepository.deleteExpired(userId, operation, idempotencyKey, cutoff());
+        if (idempotencyKeyRepository.reserve(userId, operation, idempotencyKey, requestHash, now)) {
+            return Optional.empty();
+        }
+        return Optional.of(idempotencyKeyRepository.find(userId, operation, idempotencyKey, cutoff())
+                .orElseThrow(() -> new IllegalStateException("Could not reserve " + HEADER + " " + idempotencyKey)));
+    }
+
+    private void complete(Long userId, String operation, String idempotencyKey, StoredResponse stored) {
+        //An oversized body is not replayed, the status code still is
+        String body = stored.getBody() != null && stored.getBody().length() > MAX_STORED_BODY_LENGTH ? null : stored.getBody();
+        try {
+            idempotencyKeyRepository.complete(userId, operation, idempotencyKey, stored.getStatusCode(), body);
+        } catch (DataAccessException e) {
+            //The request went through and its reservation stays, so no node runs it again: retries
+            //here replay the cached copy, retries elsewhere get 409 until the row is purged
+        }
+    }
+
+    private void release(Long userId, String operation, String idempotencyKey) {
+        try {
+            idempotencyKeyRepository.release(userId, operation, idempotencyKey);
+        } catch (DataAccessException e) {
+            //A reservation left behind only turns retries away with 409 until it is purged
+        }
+    }
+
+    private ResponseEntity<String> replay(StoredResponse stored, String requestHash) {
+        if (!stored.getRequestHash().equals(requestHash)) {
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                    .body(HEADER + " was already used for a different request");
+        }
+        if (stored.isInProgress()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body("A request with this " + HEADER + " is still in progress, retry later");
+        }
+        return ResponseEntity.status(stored.getStatusCode())
+                .header(REPLAYED_HEADER, "true")
+                .body(stored.getBody());
+    }
+
+    private StoredResponse await(CompletableFuture<StoredResponse> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Outcomes a retry would get again. Conflicts, throttling and server errors are left for the
+     * client to retry.
+     */
+    private static boolean isFinal(int statusCode) {
+        return (statusCode >= 200 && statusCode < 300)
+                || (statusCode >= 400 && statusCode < 500 && statusCode != 409 && statusCode != 429);
+    }
+
+    private Timestamp cutoff() {
+        return new Timestamp(clock.millis() - retention.toMillis());
+    }
+
+    private static String sha256(String request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(request.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
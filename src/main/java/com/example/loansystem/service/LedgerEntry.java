@@ -0,0 +1,127 @@
+package com.example.loansystem.service;
+
+import com.example.loansystem.model.EMI;
+import com.example.loansystem.model.LoanSchedule;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * One repayment as the ledger records it: the installments it went to and the next pending
+ * installment after it. Built from the state before the repayment is applied.
+ */
+public class LedgerEntry {
+    private final long loanId;
+    private final LongSupplier outstandingBefore;
+    private final List<LocalDate> allocationDueDates = new ArrayList<>();
+    private final List<Long> allocationAmountsMinor = new ArrayList<>();
+    private long amountMinor;
+    private LocalDate nextDueDate;
+    private long nextInstallmentMinor;
+
+    /**
+     * @param outstandingBefore balance before this repayment; only read for a loan's first entry
+     */
+    LedgerEntry(long loanId, LongSupplier outstandingBefore) {
+        this.loanId = loanId;
+        this.outstandingBefore = outstandingBefore;
+    }
+
+    /**
+     * A repayment spread over emi rows by {@link RepaymentAllocation}.
+     *
+     * @param pendingEmis the installments the allocation was worked out on, not yet updated
+     */
+    static LedgerEntry forInstallments(long loanId, List<EMI> pendingEmis, RepaymentAllocation allocation,
+                                       LongSupplier outstandingBefore) {
+        LedgerEntry entry = new LedgerEntry(loanId, outstandingBefore);
+        int paid = allocation.getPaidInstallments();
+        for (int i = 0; i < paid; i++) {
+            EMI emi = pendingEmis.get(i);
+            entry.allocate(toLocalDate(emi), emi.getAmountMinor());
+        }
+        EMI partial = allocation.getPartialInstallment();
+        if (partial != null) {
+            entry.allocate(toLocalDate(partial), allocation.getPartialAmountMinor());
+            entry.next(toLocalDate(partial), partial.getAmountMinor() - allocation.getPartialAmountMinor());
+        } else if (paid < pendingEmis.size()) {
+            EMI next = pendingEmis.get(paid);
+            entry.next(toLocalDate(next), next.getAmountMinor());
+        }
+        return entry;
+    }
+
+    /**
+     * A repayment of {@code amountMinor} against a virtual schedule, at most its outstanding balance.
+     */
+    static LedgerEntry forSchedule(LoanSchedule schedule, long amountMinor) {
+        long outstanding = schedule.outstandingMinor();
+        LedgerEntry entry = new LedgerEntry(schedule.getLoanId(), () -> outstanding);
+        long left = Math.min(amountMinor, outstanding);
+        int index = schedule.firstUnpaidIndex();
+        for (; left > 0 && index < schedule.getTerm(); index++) {
+            long remaining = schedule.remainingMinor(index);
+            long taken = Math.min(left, remaining);
+            entry.allocate(LocalDate.ofEpochDay(schedule.dueEpochDay(index)), taken);
+            left -= taken;
+            if (taken < remaining) {
+                entry.next(LocalDate.ofEpochDay(schedule.dueEpochDay(index)), remaining - taken);
+                return entry;
+            }
+        }
+        if (index < schedule.getTerm()) {
+            entry.next(LocalDate.ofEpochDay(schedule.dueEpochDay(index)), schedule.remainingMinor(index));
+        }
+        return entry;
+    }
+
+    private void allocate(LocalDate dueDate, long amountMinor) {
+        allocationDueDates.add(dueDate);
+        allocationAmountsMinor.add(amountMinor);
+        this.amountMinor += amountMinor;
+    }
+
+    private void next(LocalDate dueDate, long remainingMinor) {
+        this.nextDueDate = dueDate;
+        this.nextInstallmentMinor = remainingMinor;
+    }
+
+    private static LocalDate toLocalDate(EMI emi) {
+        return emi.getDueDate().toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    long getLoanId() {
+        return loanId;
+    }
+
+    long outstandingBefore() {
+        return outstandingBefore.getAsLong();
+    }
+
+    int getAllocationCount() {
+        return allocationDueDates.size();
+    }
+
+    LocalDate getAllocationDueDate(int index) {
+        return allocationDueDates.get(index);
+    }
+
+    long getAllocationAmountMinor(int index) {
+        return allocationAmountsMinor.get(index);
+    }
+
+    long getAmountMinor() {
+        return amountMinor;
+    }
+
+    LocalDate getNextDueDate() {
+        return nextDueDate;
+    }
+
+    long getNextInstallmentMinor() {
+        return nextInstallmentMinor;
+    }
+}
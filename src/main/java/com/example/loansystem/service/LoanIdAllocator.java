@@ -0,0 +1,43 @@
+package com.example.loansystem.service;
+
+import com.example.loansystem.repository.IdBlockRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Hands out loan ids from a block reserved in id_block, so only one id in {@code blockSize}
+ * costs a round trip. Blocks are reserved in their own transaction and stay used even if the
+ * caller rolls back; ids left in a block when the node stops are skipped.
+ */
+@Component
+public class LoanIdAllocator {
+
+    private final IdBlockRepository idBlockRepository;
+    private final TransactionTemplate reserveTransaction;
+    private final int blockSize;
+
+    private long nextId;
+    private long blockEnd;
+
+    @Autowired
+    public LoanIdAllocator(IdBlockRepository idBlockRepository, PlatformTransactionManager transactionManager,
+                           @Value("${aspire.loan-intake.id-block-size:1000}") int blockSize) {
+        this.idBlockRepository = idBlockRepository;
+        this.reserveTransaction = new TransactionTemplate(transactionManager);
+        this.reserveTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.blockSize = blockSize;
+    }
+
+    public synchronized long nextId() {
+        if (nextId == blockEnd) {
+            long first = reserveTransaction.execute(status -> idBlockRepository.reserveLoanIds(blockSize));
+            nextId = first;
+            blockEnd = first + blockSize;
+        }
+        return nextId++;
+    }
+}
@@ -0,0 +1,247 @@
+package com.example.loansystem.service;
+
+import com.example.loansystem.exceptions.LoanIntakeFullException;
+import com.example.loansystem.model.Loan;
+import com.example.loansystem.model.LoanIntakeMode;
+import com.example.loansystem.repository.LoanBatchWriter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind intake for new loans. In QUEUED mode a validated loan that already has its id is
+ * put on a bounded queue and the request returns; one writer thread drains the queue and inserts
+ * up to {@code batchSize} loans per transaction, waiting at most {@code maxDelay} for a batch to
+ * fill. When the queue is full, or the node is shutting down, {@link #submit} fails with
+ * {@link LoanIntakeFullException} instead of blocking the request thread. On shutdown the writer
+ * stops taking loans and flushes what is queued; loans it has not reached by {@code shutdownTimeout},
+ * and a batch in hand when it is interrupted, are set aside in loan_intake_failure. A batch that hits a constraint, or still fails
+ * after {@code maxAttempts}, is retried one loan at a time so a bad row cannot sink the others.
+ * A loan that fails on its own is set aside in loan_intake_failure with its error, ready to be
+ * replayed. Only if that write fails too, the database being down, is the loan dropped: it is
+ * logged in full and counted in {@code aspire.loan.intake.dropped}.
+ */
+@Component
+public class LoanIntakeQueue implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(LoanIntakeQueue.class);
+
+    private final LoanBatchWriter loanBatchWriter;
+    private final TransactionTemplate transactionTemplate;
+    private final LoanIntakeMode mode;
+    private final BlockingQueue<Loan> queue;
+    private final int batchSize;
+    private final long maxDelayNanos;
+    private final int maxAttempts;
+    private final Duration shutdownTimeout;
+    private final Counter writtenLoans;
+    private final Counter failedLoans;
+    private final Counter droppedLoans;
+    private final Timer flushDuration;
+    private final Thread writer;
+
+    private volatile boolean closed;
+
+    @Autowired
+    public LoanIntakeQueue(LoanBatchWriter loanBatchWriter, PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                           @Value("${aspire.loan-intake.mode:SYNC}") LoanIntakeMode mode,
+                           @Value("${aspire.loan-intake.capacity:10000}") int capacity,
+                           @Value("${aspire.loan-intake.batch-size:500}") int batchSize,
+                           @Value("${aspire.loan-intake.max-delay:PT0.05S}") Duration maxDelay,
+                           @Value("${aspire.loan-intake.max-attempts:5}") int maxAttempts,
+                           @Value("${aspire.loan-intake.shutdown-timeout:PT30S}") Duration shutdownTimeout) {
+        this.loanBatchWriter = loanBatchWriter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.mode = mode;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.maxAttempts = maxAttempts;
+        this.shutdownTimeout = shutdownTimeout;
+
+        Gauge.builder("aspire.loan.intake.queue.depth", queue, BlockingQueue::size)
+                .description("Loans accepted but not yet inserted")
+                .register(meterRegistry);
+        this.writtenLoans = Counter.builder("aspire.loan.intake.written")
+                .register(meterRegistry);
+        this.failedLoans = Counter.builder("aspire.loan.intake.failed")
+                .description("Queued loans set aside in loan_intake_failure")
+                .register(meterRegistry);
+        this.droppedLoans = Counter.builder("aspire.loan.intake.dropped")
+                .description("Queued loans that could neither be inserted nor set aside")
+                .register(meterRegistry);
+        this.flushDuration = Timer.builder("aspire.loan.intake.flush.duration")
+                .register(meterRegistry);
+
+        this.writer = new CustomizableThreadFactory("loan-intake-").newThread(this::drain);
+        if (isEnabled()) {
+            writer.start();
+        }
+    }
+
+    public boolean isEnabled() {
+        return mode == LoanIntakeMode.QUEUED;
+    }
+
+    /**
+     * Queues a loan whose id is already assigned.
+     */
+    public void submit(Loan loan) {
+        //Offers and close() share the lock, so nothing is queued after the writer's last drain
+        synchronized (this) {
+            if (closed || !queue.offer(loan)) {
+                throw new LoanIntakeFullException("Loan intake queue is full");
+            }
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        synchronized (this) {
+            closed = true;
+        }
+        if (writer.isAlive()) {
+            writer.join(shutdownTimeout.toMillis());
+        }
+        if (writer.isAlive()) {
+            //Ends a retry backoff or a wait for more loans; the writer sets its batch aside on the way out
+            writer.interrupt();
+        }
+        //Taken one by one, so a loan the writer is still draining is not set aside as well
+        List<Loan> left = new ArrayList<>();
+        queue.drainTo(left);
+        if (!left.isEmpty()) {
+            log.warn("Setting aside {} queued loans not inserted within the shutdown timeout of {}", left.size(), shutdownTimeout);
+            setAsideAll(left, "Not inserted before shutdown");
+        }
+    }
+
+    int queued() {
+        return queue.size();
+    }
+
+    private void drain() {
+        List<Loan> batch = new ArrayList<>(batchSize);
+        try {
+            while (!closed || !queue.isEmpty()) {
+                Loan first = queue.poll(maxDelayNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < batchSize) {
+                    if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long wait = deadline - System.nanoTime();
+                    Loan next = wait > 0 ? queue.poll(wait, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            if (!batch.isEmpty()) {
+                log.warn("Intake writer interrupted, setting aside the {} loans in hand", batch.size());
+                setAsideAll(batch, "Intake writer interrupted before insert");
+            }
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void flush(List<Loan> batch) throws InterruptedException {
+        long backoffMillis = 100;
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            try {
+                insert(batch);
+                return;
+            } catch (DataIntegrityViolationException e) {
+                //The same row fails the batch on every attempt
+                break;
+            } catch (DataAccessException e) {
+                if (attempt < maxAttempts) {
+                    Thread.sleep(backoffMillis);
+                    backoffMillis *= 2;
+                }
+            }
+        }
+        boolean failuresStored = true;
+        for (Loan loan : batch) {
+            if (!failuresStored) {
+                drop(loan, null);
+                continue;
+            }
+            try {
+                insert(List.of(loan));
+            } catch (DataAccessException e) {
+                failuresStored = setAside(loan, e.getMostSpecificCause().toString());
+            }
+        }
+    }
+
+    private void insert(List<Loan> loans) {
+        flushDuration.record(() -> transactionTemplate.executeWithoutResult(status -> loanBatchWriter.insertLoansWithIds(loans)));
+        writtenLoans.increment(loans.size());
+    }
+
+    /**
+     * Sets aside loans that were never tried, dropping the rest once the failure table cannot be written.
+     */
+    private void setAsideAll(List<Loan> loans, String error) {
+        boolean failuresStored = true;
+        for (Loan loan : loans) {
+            if (failuresStored) {
+                failuresStored = setAside(loan, error);
+            } else {
+                drop(loan, null);
+            }
+        }
+    }
+
+    /**
+     * Returns false, after dropping the loan, when the failure could not be stored either.
+     */
+    private boolean setAside(Loan loan, String error) {
+        try {
+            loanBatchWriter.insertIntakeFailure(loan, error, new Timestamp(System.currentTimeMillis()));
+            failedLoans.increment();
+            return true;
+        } catch (DataAccessException e) {
+            drop(loan, e);
+            return false;
+        }
+    }
+
+    private void drop(Loan loan, DataAccessException cause) {
+        //The log line is all that is left of the loan, so it carries every column needed to replay it
+        log.error("Dropped queued loan id={} userId={} amountRequiredMinor={} loanTerm={} amountToBePaidMinor={} " +
+                        "interestRate={} requestDate={} status={} loanType={}", loan.getId(), loan.getUserId(),
+                loan.getAmountRequiredMinor(), loan.getLoanTerm(), loan.getAmountToBePaidMinor(), loan.getInterestRate(),
+                loan.getRequestDate(), loan.getStatus(), loan.getLoanType(), cause);
+        droppedLoans.increment();
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.loansystem.service;
+
+import com.example.loansystem.dto.LoanBalance;
+import com.example.loansystem.model.LedgerEvent;
+import com.example.loansystem.model.LedgerEventType;
+import com.example.loansystem.repository.LoanLedgerRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Appends repayments to the loan_ledger and reads balances back from it. A loan's ledger opens
+ * with its balance at the first repayment. Every {@code snapshotEvery} entries the folded balance
+ * is stored, so a balance read is the latest snapshot plus a short tail however long the history.
+ * Callers hold the loan's row lock, which keeps a loan's sequence numbers gap-free.
+ */
+@Component
+public class LoanLedger {
+
+    private final LoanLedgerRepository loanLedgerRepository;
+    private final int snapshotEvery;
+    private final Clock clock;
+
+    @Autowired
+    public LoanLedger(LoanLedgerRepository loanLedgerRepository,
+                      @Value("${aspire.ledger.snapshot-every:64}") int snapshotEvery) {
+        this(loanLedgerRepository, snapshotEvery, Clock.systemUTC());
+    }
+
+    LoanLedger(LoanLedgerRepository loanLedgerRepository, int snapshotEvery, Clock clock) {
+        this.loanLedgerRepository = loanLedgerRepository;
+        this.snapshotEvery = snapshotEvery;
+        this.clock = clock;
+    }
+
+    /**
+     * Appends the entries in order, with one batch insert for all of them.
+     */
+    public void record(List<LedgerEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        Set<Long> loanIds = new LinkedHashSet<>();
+        for (LedgerEntry entry : entries) {
+            loanIds.add(entry.getLoanId());
+        }
+        Map<Long, Long> lastSeqs = loanLedgerRepository.lastSeqs(loanIds);
+
+        List<LedgerEvent> events = new ArrayList<>();
+        Set<Long> snapshotDue = new LinkedHashSet<>();
+        for (LedgerEntry entry : entries) {
+            long loanId = entry.getLoanId();
+            long seq = lastSeqs.getOrDefault(loanId, 0L);
+            long firstSeq = seq;
+            if (seq == 0) {
+                events.add(new LedgerEvent(loanId, ++seq, LedgerEventType.OPENING, entry.outstandingBefore(), null, 0));
+            }
+            for (int i = 0; i < entry.getAllocationCount(); i++) {
+                events.add(new LedgerEvent(loanId, ++seq, LedgerEventType.ALLOCATION,
+                        entry.getAllocationAmountMinor(i), entry.getAllocationDueDate(i), 0));
+            }
+            events.add(new LedgerEvent(loanId, ++seq, LedgerEventType.REPAYMENT, entry.getAmountMinor(),
+                    entry.getNextDueDate(), entry.getNextInstallmentMinor()));
+            if (seq / snapshotEvery > firstSeq / snapshotEvery) {
+                snapshotDue.add(loanId);
+            }
+            lastSeqs.put(loanId, seq);
+        }
+        Timestamp now = new Timestamp(clock.millis());
+        loanLedgerRepository.append(events, now);
+
+        if (!snapshotDue.isEmpty()) {
+            List<LoanBalance> snapshots = new ArrayList<>(snapshotDue.size());
+            for (Long loanId : snapshotDue) {
+                snapshots.add(balance(loanId).orElseThrow());
+            }
+            loanLedgerRepository.insertSnapshots(snapshots, now);
+        }
+    }
+
+    /**
+     * Balance after the last recorded repayment, or empty if the loan has no ledger yet.
+     */
+    public Optional<LoanBalance> balance(long loanId) {
+        Optional<LoanBalance> snapshot = loanLedgerRepository.latestSnapshot(loanId);
+        long seq = snapshot.map(LoanBalance::getLedgerSeq).orElse(0L);
+        long outstandingMinor = snapshot.map(LoanBalance::getOutstandingMinor).orElse(0L);
+        LocalDate nextDueDate = snapshot.map(LoanBalance::getNextDueDate).orElse(null);
+        long nextInstallmentMinor = snapshot.map(LoanBalance::getNextInstallmentMinor).orElse(0L);
+
+        List<LedgerEvent> tail = loanLedgerRepository.eventsAfter(loanId, seq);
+        if (snapshot.isEmpty() && tail.isEmpty()) {
+            return Optional.empty();
+        }
+        for (LedgerEvent event : tail) {
+            seq = event.getSeq();
+            switch (event.getType()) {
+                case OPENING:
+                    outstandingMinor = event.getAmountMinor();
+                    break;
+                case REPAYMENT:
+                    outstandingMinor -= event.getAmountMinor();
+                    nextDueDate = event.getDueDate();
+                    nextInstallmentMinor = event.getInstallmentMinor();
+                    break;
+                default:
+                    //Allocations are history; their sum is already on the REPAYMENT
+                    break;
+            }
+        }
+        return Optional.of(new LoanBalance(loanId, seq, outstandingMinor, nextDueDate, nextInstallmentMinor));
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.loansystem.service;
+
+import com.example.loansystem.exceptions.LoanBusyException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed set of locks striped by loan id, so calls on the same loan on this node run one at a time.
+ * Waiting callers queue here rather than on a database row lock, each holding a pooled connection.
+ * The wait is bounded; a caller that does not get the lock in time gets LoanBusyException.
+ * Two loans may share a stripe, which only costs them some parallelism.
+ */
+@Component
+public class LoanLocks {
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+    private final long timeoutNanos;
+
+    @Autowired
+    public LoanLocks(@Value("${aspire.loan-locks.stripes:1024}") int stripes,
+                     @Value("${aspire.loan-locks.timeout:PT2S}") Duration timeout) {
+        //Rounded up to a power of two so the stripe is a mask of the hash
+        int size = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+        this.timeoutNanos = timeout.toNanos();
+    }
+
+    /**
+     * Runs the action while holding the loan's stripe.
+     */
+    public void withLock(long loanId, Runnable action) {
+        ReentrantLock lock = stripes[stripe(loanId)];
+        try {
+            if (!lock.tryLock(timeoutNanos, TimeUnit.NANOSECONDS)) {
+                throw new LoanBusyException("Loan is busy, retry later: " + loanId);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LoanBusyException("Interrupted waiting for loan: " + loanId);
+        }
+        try {
+            action.run();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int stripe(long loanId) {
+        //Spreads sequential ids over the stripes
+        long hash = loanId * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    int stripeCount() {
+        return stripes.length;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.loansystem.service;
+
+import com.example.loansystem.dto.RepaymentRejectReason;
+import com.example.loansystem.model.EMI;
+import com.example.loansystem.model.Loan;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Business counters for loans. Repayments are counted in {@code aspire.repayments} by source
+ * ({@code api} or {@code file}) and outcome: {@code applied}, the exception a rejected API
+ * repayment failed with, or the reason a file line was rejected for.
+ */
+@Component
+public class LoanMetrics {
+
+    private static final String REPAYMENTS = "aspire.repayments";
+
+    private final MeterRegistry meterRegistry;
+    private final DistributionSummary emisPerApproval;
+
+    public LoanMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.emisPerApproval = DistributionSummary.builder("aspire.approval.emis")
+                .description("EMI rows written per approved loan, 0 for a virtual schedule")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    public void repaymentApplied() {
+        meterRegistry.counter(REPAYMENTS, "source", "api", "outcome", "applied").increment();
+    }
+
+    public void repaymentFailed(RuntimeException e) {
+        meterRegistry.counter(REPAYMENTS, "source", "api", "outcome", e.getClass().getSimpleName()).increment();
+    }
+
+    public void fileRepaymentsApplied(int lines) {
+        meterRegistry.counter(REPAYMENTS, "source", "file", "outcome", "applied").increment(lines);
+    }
+
+    public void fileRepaymentRejected(RepaymentRejectReason reason) {
+        meterRegistry.counter(REPAYMENTS, "source", "file", "outcome", reason.name()).increment();
+    }
+
+    /**
+     * Records one sample per approved loan with the number of its installments in {@code emis}.
+     */
+    public void emisWritten(List<Loan> approvedLoans, List<EMI> emis) {
+        Map<Long, Integer> emisPerLoan = new HashMap<>();
+        for (EMI emi : emis) {
+            emisPerLoan.merge(emi.getLoanId(), 1, Integer::sum);
+        }
+        for (Loan loan : approvedLoans) {
+            emisPerApproval.record(emisPerLoan.getOrDefault(loan.getId(), 0));
+        }
+    }
+}
@@ -1,59 +1,199 @@
 package com.example.loansystem.service;
 
+import com.example.loansystem.dto.BatchItemResult;
+import com.example.loansystem.dto.BatchItemStatus;
+import com.example.loansystem.dto.CreatedLoan;
+import com.example.loansystem.dto.LoanBalance;
+import com.example.loansystem.dto.LoanCursor;
+import com.example.loansystem.dto.LoanPage;
 import com.example.loansystem.dto.LoanRequest;
+import com.example.loansystem.dto.LoanSummary;
 import com.example.loansystem.exceptions.*;
 import com.example.loansystem.factory.LoanFactory;
 import com.example.loansystem.factory.loaninterfaces.LoanTypeInfo;
 import com.example.loansystem.model.*;
 import com.example.loansystem.repository.EMIRepository;
+import com.example.loansystem.repository.EMIScheduleWriter;
+import com.example.loansystem.repository.LoanBatchWriter;
 import com.example.loansystem.repository.LoanRepository;
+import com.example.loansystem.repository.LoanScheduleRepository;
+import com.example.loansystem.repository.LoanStreamRepository;
+import com.example.loansystem.repository.RepaymentBatchRepository;
 import com.example.loansystem.repository.UserRepository;
+import com.example.loansystem.strategy.AmortizedEMIStrategy;
+import com.example.loansystem.strategy.EMISchedule;
 import com.example.loansystem.strategy.FixedEMIStrategy;
 import com.example.loansystem.strategy.RepaymentStrategy;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.CollectionUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 
 
 @Service
+@Timed("aspire.service")
 public class LoanService {
 
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final int MAX_BATCH_SIZE = 5000;
+    //Open installments read for a repayment at first; doubled while the payment covers all of them
+    private static final int OPEN_EMI_PAGE_SIZE = 16;
+
     @Autowired
     private LoanRepository loanRepository;
 
+    @Autowired
+    private UserRoleCache userRoleCache;
+
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private LoanBatchWriter loanBatchWriter;
+
     @Autowired
     private EMIRepository emiRepository;
 
-    public void createLoan(LoanRequest loanRequest) {
-        User user = userRepository.findById(loanRequest.getUserId()).orElseThrow(() ->new UserNotFoundException("User not found with given email"));
-        LoanTypeInfo loanTypeInfo = LoanFactory.getInterestRate(loanRequest.getLoanType());
-        double interestRate = loanTypeInfo.getInterestRate();
-        double amountToBePaid = loanTypeInfo.getInterest(loanRequest.getAmountRequired(), interestRate, loanRequest.getLoanTerm());
-        Loan loan = Loan.builder()
-                .amountRequired(loanRequest.getAmountRequired())
-                .loanTerm(loanRequest.getLoanTerm())
-                .userId(user.getId())
-                .status(LoanStatus.PENDING)
-                .amountToBePaid(amountToBePaid)
-                .interestRate(interestRate)
-                .loanType(loanRequest.getLoanType())
-                .build();
+    @Autowired
+    private EMIScheduleWriter emiScheduleWriter;
+
+    @Autowired
+    private EMIScheduleGenerator emiScheduleGenerator;
+
+    @Autowired
+    private LoanScheduleRepository loanScheduleRepository;
+
+    @Autowired
+    private LoanStreamRepository loanStreamRepository;
+
+    @Autowired
+    private RateCardRegistry rateCardRegistry;
+
+    @Autowired
+    private LoanLocks loanLocks;
+
+    @Autowired
+    private LoanLedger loanLedger;
+
+    @Autowired
+    private RepaymentBatchRepository repaymentBatchRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private LoanIntakeQueue loanIntakeQueue;
+
+    @Autowired
+    private LoanIdAllocator loanIdAllocator;
+
+    @Autowired
+    private LoanMetrics loanMetrics;
+
+    @Value("${aspire.repayments.max-attempts:3}")
+    private int maxRepaymentAttempts;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${aspire.emi.schedule-mode:ROWS}")
+    private ScheduleMode scheduleMode;
+
+    /**
+     * Stores the loan, or queues it for the intake writer in QUEUED mode. Either way the loan's
+     * id is known by the time this returns.
+     */
+    public CreatedLoan createLoan(LoanRequest loanRequest) {
+        if (!userRoleCache.exists(loanRequest.getUserId())) {
+            throw new UserNotFoundException("User not found with given email");
+        }
+        Loan loan = buildPendingLoan(loanRequest);
+        if (loanIntakeQueue.isEnabled()) {
+            loan.setId(loanIdAllocator.nextId());
+            loanIntakeQueue.submit(loan);
+            return new CreatedLoan(loan.getId(), true);
+        }
+        //A new entity is persisted in place, so the loan has its generated id after the save
         loanRepository.save(loan);
+        return new CreatedLoan(loan.getId(), false);
     }
 
+    /**
+     * Bulk intake for partners: one IN query validates every user id, valid loans are inserted in
+     * JDBC batches and each request gets its own result. Only admins may file loans for others.
+     */
     @Transactional
-    public void approveLoan(Long loanId, Long userId) {
-        User user = userRepository.findById(userId).orElseThrow(()->new UserNotFoundException("User Not Found with given email"));
-        if (user.getUserRole() != UserRole.ADMIN) {
-            throw new InvalidUserAuthority("You dont have access for this feature");
+    public List<BatchItemResult> createLoans(List<LoanRequest> loanRequests, Long userId) {
+        validateAdmin(userId);
+        if (loanRequests.size() > MAX_BATCH_SIZE) {
+            throw new BatchSizeExceededException("At most " + MAX_BATCH_SIZE + " loan requests per batch");
+        }
+        Set<Long> requestedUserIds = new HashSet<>();
+        for (LoanRequest loanRequest : loanRequests) {
+            if (loanRequest.getUserId() != null) {
+                requestedUserIds.add(loanRequest.getUserId());
+            }
+        }
+        Set<Long> existingUserIds = requestedUserIds.isEmpty() ? Set.of() : userRepository.findExistingIds(requestedUserIds);
+
+        List<BatchItemResult> results = new ArrayList<>(loanRequests.size());
+        List<BatchItemResult> created = new ArrayList<>(loanRequests.size());
+        List<Loan> loans = new ArrayList<>(loanRequests.size());
+        for (int index = 0; index < loanRequests.size(); index++) {
+            LoanRequest loanRequest = loanRequests.get(index);
+            String rejection = validateLoanRequest(loanRequest, existingUserIds);
+            if (rejection != null) {
+                results.add(new BatchItemResult(index, null, BatchItemStatus.REJECTED, rejection));
+                continue;
+            }
+            loans.add(buildPendingLoan(loanRequest));
+            BatchItemResult result = new BatchItemResult(index, null, BatchItemStatus.CREATED, null);
+            created.add(result);
+            results.add(result);
         }
+        if (loanIntakeQueue.isEnabled()) {
+            //Queued loans take explicit ids, so these must come from the same blocks
+            for (Loan loan : loans) {
+                loan.setId(loanIdAllocator.nextId());
+            }
+            loanBatchWriter.insertLoansWithIds(loans);
+        } else {
+            loanBatchWriter.insertLoans(loans);
+        }
+        for (int i = 0; i < loans.size(); i++) {
+            created.get(i).setId(loans.get(i).getId());
+        }
+        return results;
+    }
+
+    @Transactional
+    public void approveLoan(Long loanId, Long userId) {
+        validateAdmin(userId);
         Loan loan = loanRepository.findById(loanId)
                 .orElseThrow(() -> new LoanNotFoundException("Loan Not Found for: "+loanId));
 
@@ -62,70 +202,419 @@ public class LoanService {
 
         //When Loan is approved, then only emis need to be created
         RepaymentStrategy repaymentStrategy = getRepaymentStrategyBasedOnLoanType((loan.getLoanType()));
+        loanRepository.save(loan);
+        if (scheduleMode == ScheduleMode.VIRTUAL && writeVirtualSchedules(List.of(loan)).isEmpty()) {
+            loanMetrics.emisWritten(List.of(loan), List.of());
+            return;
+        }
         List<EMI> emis = repaymentStrategy.generateEMIs(loan);
+        emiScheduleWriter.writeSchedule(emis);
+        loanMetrics.emisWritten(List.of(loan), emis);
+    }
 
-        loanRepository.save(loan);
-        emiRepository.saveAll(emis);
+    /**
+     * Approves many loans in one transaction. The requested rows are locked and read once, every
+     * pending one is moved to APPROVED by a single conditional update, and the schedules are
+     * generated in parallel before being written as one set of JDBC batches.
+     */
+    @Transactional
+    public List<BatchItemResult> approveLoans(List<Long> loanIds, Long userId) {
+        validateAdmin(userId);
+        if (loanIds.size() > MAX_BATCH_SIZE) {
+            throw new BatchSizeExceededException("At most " + MAX_BATCH_SIZE + " loans per approval batch");
+        }
+        Set<Long> requestedIds = new HashSet<>();
+        for (Long loanId : loanIds) {
+            if (loanId != null) {
+                requestedIds.add(loanId);
+            }
+        }
+        Map<Long, Loan> loansById = new HashMap<>();
+        if (!requestedIds.isEmpty()) {
+            for (Loan loan : loanRepository.findByIdIn(requestedIds)) {
+                loansById.put(loan.getId(), loan);
+            }
+        }
+
+        List<BatchItemResult> results = new ArrayList<>(loanIds.size());
+        List<Loan> approvable = new ArrayList<>(loanIds.size());
+        Set<Long> approvableIds = new HashSet<>();
+        Set<Long> seenIds = new HashSet<>();
+        for (int index = 0; index < loanIds.size(); index++) {
+            Long loanId = loanIds.get(index);
+            String rejection = validateApproval(loanId, loansById.get(loanId), seenIds);
+            if (rejection != null) {
+                results.add(new BatchItemResult(index, loanId, BatchItemStatus.REJECTED, rejection));
+                continue;
+            }
+            approvable.add(loansById.get(loanId));
+            approvableIds.add(loanId);
+            results.add(new BatchItemResult(index, loanId, BatchItemStatus.APPROVED, null));
+        }
+        if (approvable.isEmpty()) {
+            return results;
+        }
 
+        Date startDate = new Date();
+        int approved = loanRepository.approvePending(approvableIds, startDate);
+        if (approved != approvable.size()) {
+            //Rows are locked above, so this only happens if the lock was not honoured
+            throw new IllegalStateException("Expected to approve " + approvable.size() + " loans but updated " + approved);
+        }
+        //The update cleared the persistence context, so these copies are detached and only feed the schedule
+        for (Loan loan : approvable) {
+            loan.setStatus(LoanStatus.APPROVED);
+            loan.setStartDate(startDate);
+        }
+        List<Loan> needEmiRows = scheduleMode == ScheduleMode.VIRTUAL ? writeVirtualSchedules(approvable) : approvable;
+        List<EMI> emis = List.of();
+        if (!needEmiRows.isEmpty()) {
+            emis = emiScheduleGenerator.generateAll(needEmiRows,
+                    loan -> getRepaymentStrategyBasedOnLoanType(loan.getLoanType()));
+            emiScheduleWriter.writeSchedule(emis);
+        }
+        loanMetrics.emisWritten(approvable, emis);
+        return results;
     }
 
-    public List<Loan> getLoansForUser(Long userId, LoanStatus status) {
+    @Transactional(readOnly = true)
+    public List<LoanSummary> getLoansForUser(Long userId, LoanStatus status) {
         //Validating user
-        userRepository.findById(userId).orElseThrow(() ->new UserNotFoundException("User not found with given email"));
+        if (!userRoleCache.exists(userId)) {
+            throw new UserNotFoundException("User not found with given email");
+        }
         if(status == null) {
-            return loanRepository.findByUserId(userId);
+            return loanRepository.findSummariesByUserId(userId);
         }
-        return loanRepository.findByUserIdAndStatus(userId, status);
+        return loanRepository.findSummariesByUserIdAndStatus(userId, status);
     }
 
-    public List<Loan> getLoansForAdmin(Long userId, LoanStatus status) {
-        User user = userRepository.findById(userId).orElseThrow(() ->new UserNotFoundException("User not found with given email"));
-        if (user.getUserRole() != UserRole.ADMIN) {
-            throw new InvalidUserAuthority("You dont have access for this feature");
-        }
+    @Transactional(readOnly = true)
+    public List<LoanSummary> getLoansForAdmin(Long userId, LoanStatus status) {
+        validateAdmin(userId);
         if(status == null) {
-            return loanRepository.findAll();
+            return loanRepository.findSummariesBy();
         }
-        return loanRepository.findAllByStatus(status);
+        return loanRepository.findSummariesByStatus(status);
     }
 
-    @Transactional
+    /**
+     * Keyset-paginated admin listing ordered by (status, id). Without a status filter the walk
+     * moves on to the next status once the current one is exhausted, so every query stays a
+     * bounded range scan on (status, id).
+     */
+    @Transactional(readOnly = true)
+    public LoanPage getLoansPageForAdmin(Long userId, LoanStatus status, String cursor, int pageSize) {
+        validateAdmin(userId);
+        int limit = Math.max(1, Math.min(pageSize, MAX_PAGE_SIZE));
+        LoanCursor position = cursor == null ? null : LoanCursor.decode(cursor);
+        if (position != null && status != null && position.getStatus() != status) {
+            throw new InvalidCursorException("Cursor does not belong to status: " + status);
+        }
+
+        LoanStatus currentStatus = position != null ? position.getStatus() : (status != null ? status : LoanStatus.values()[0]);
+        long afterId = position != null ? position.getId() : 0L;
+        List<LoanSummary> loans = new ArrayList<>(limit);
+        while (true) {
+            loans.addAll(loanRepository.findSummariesByStatusAndIdGreaterThanOrderByIdAsc(currentStatus, afterId,
+                    PageRequest.of(0, limit - loans.size())));
+            if (loans.size() == limit || status != null || currentStatus.ordinal() == LoanStatus.values().length - 1) {
+                break;
+            }
+            currentStatus = LoanStatus.values()[currentStatus.ordinal() + 1];
+            afterId = 0L;
+        }
+
+        String nextCursor = null;
+        if (loans.size() == limit) {
+            LoanSummary last = loans.get(loans.size() - 1);
+            nextCursor = new LoanCursor(last.getStatus(), last.getId()).encode();
+        }
+        return new LoanPage(loans, nextCursor);
+    }
+
+    /**
+     * Admin listing written straight to the response as a JSON array while rows come off the
+     * database cursor. The admin check runs before anything is streamed.
+     */
+    public StreamingResponseBody streamLoansForAdmin(Long userId, LoanStatus status) {
+        validateAdmin(userId);
+        return outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.writeStartArray();
+                loanStreamRepository.streamLoans(status, resultSet -> {
+                    try {
+                        writeLoanRow(generator, resultSet);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+    }
+
+    /**
+     * Repayments on one loan run one at a time: the loan's stripe in {@link LoanLocks} is held
+     * across the whole transaction, commit included, and the loan row is locked for other nodes.
+     * A lock conflict in the database is retried a bounded number of times.
+     */
     public void repayLoan(Long loanId, double repaymentAmount) {
+        try {
+            repay(loanId, repaymentAmount);
+        } catch (RuntimeException e) {
+            loanMetrics.repaymentFailed(e);
+            throw e;
+        }
+        loanMetrics.repaymentApplied();
+    }
+
+    private void repay(Long loanId, double repaymentAmount) {
+        if (!Double.isFinite(repaymentAmount) || repaymentAmount <= 0) {
+            throw new InvalidRepaymentAmountException("Repayment amount must be positive: " + repaymentAmount);
+        }
+        //Converted once at the edge; every comparison below is on whole minor units
+        long repaymentMinor = Money.ofMajor(repaymentAmount);
+        loanLocks.withLock(loanId, () -> {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> applyRepayment(loanId, repaymentMinor));
+                    return;
+                } catch (ConcurrencyFailureException e) {
+                    //Deadlock or lock wait timeout against another node or a repayment file
+                    if (attempt >= maxRepaymentAttempts) {
+                        throw new LoanBusyException("Loan is busy, retry later: " + loanId);
+                    }
+                }
+            }
+        });
+    }
+
+    private void applyRepayment(Long loanId, long repaymentMinor) {
         Loan loan = loanRepository.findByIdAndStatus(loanId, LoanStatus.PENDING)
                 .orElseThrow(() -> new LoanNotFoundException("No Pending Loan Found for: " + loanId));
-        List<EMI> emiList = emiRepository.findByLoanIdAndEmiStatusOrderByDueDateAsc(loanId, EMIStatus.PENDING);
-        if (CollectionUtils.isEmpty(emiList)) {
-            throw new EMINotFoundException("No pending EMIs for this loan does not exists: "+loanId);
+        Optional<LoanSchedule> schedule = loanScheduleRepository.lockByLoanId(loanId);
+        if (schedule.isPresent()) {
+            repayVirtualSchedule(loan, schedule.get(), repaymentMinor);
+            return;
         }
-        //If repayment amount is less than first pending emi then throw error
-        EMI firstPendingEMI = emiList.get(0);
-        if (firstPendingEMI.getAmount()>repaymentAmount) {
+        //Overdue installments are the oldest open ones and are paid first. Only as many are read as
+        //the payment reaches, plus the one after it, so the cost follows the payment, not the term
+        List<EMI> emiList;
+        RepaymentAllocation allocation;
+        for (int limit = OPEN_EMI_PAGE_SIZE; ; limit *= 2) {
+            emiList = emiRepository.findByLoanIdAndEmiStatusNotOrderByDueDateAscIdAsc(loanId, EMIStatus.PAID, PageRequest.of(0, limit));
+            if (CollectionUtils.isEmpty(emiList)) {
+                throw new EMINotFoundException("No pending EMIs for this loan does not exists: "+loanId);
+            }
+            //If repayment amount is less than first open emi then throw error
+            EMI firstPendingEMI = emiList.get(0);
+            if (firstPendingEMI.getAmountMinor()>repaymentMinor) {
+                throw new RepaymentAmountException("Repayment Amount should be greater than or equal to EMI Amount");
+            }
+            allocation = RepaymentAllocation.allocate(emiList, repaymentMinor);
+            if (!allocation.isAllPaid() || emiList.size() < limit) {
+                break;
+            }
+        }
+        //Recorded ahead of the updates, so a loan's first entry can still read the balance before them
+        loanLedger.record(List.of(LedgerEntry.forInstallments(loanId, emiList, allocation, () -> repaymentBatchRepository.sumOpenAmountMinor(loanId))));
+        if (allocation.getPaidInstallments() > 0) {
+            emiRepository.markOpenPaidThrough(loanId, allocation.getPaidThroughDueDate());
+        }
+        if (allocation.getPartialInstallment() != null) {
+            //if amount is less than emi amount then less that amount from emi and keep emi in its status
+            emiRepository.deductFromAmount(allocation.getPartialInstallment().getId(), allocation.getPartialAmountMinor());
+        }
+        //The last read returned every open emi under the loan lock, so covering them all pays the loan
+        if (allocation.isAllPaid()) {
+            loan.setStatus(LoanStatus.PAID);
+            loanRepository.save(loan);
+        }
+    }
+
+    /**
+     * Same checks and messages as the row based path, worked out from the repaid total. Installments
+     * past their due date are simply the oldest unpaid ones here and are covered first; nothing
+     * beyond the outstanding balance is taken.
+     */
+    private void repayVirtualSchedule(Loan loan, LoanSchedule schedule, long repaymentMinor) {
+        if (schedule.outstandingMinor() <= 0) {
+            throw new EMINotFoundException("No pending EMIs for this loan does not exists: " + loan.getId());
+        }
+        if (schedule.remainingMinor(schedule.firstUnpaidIndex()) > repaymentMinor) {
             throw new RepaymentAmountException("Repayment Amount should be greater than or equal to EMI Amount");
         }
+        loanLedger.record(List.of(LedgerEntry.forSchedule(schedule, repaymentMinor)));
+        schedule.setAmountRepaidMinor(schedule.getAmountRepaidMinor() + Math.min(repaymentMinor, schedule.outstandingMinor()));
+        loanScheduleRepository.updateAmountsRepaid(List.of(schedule));
+        if (schedule.outstandingMinor() == 0) {
+            loan.setStatus(LoanStatus.PAID);
+            loanRepository.save(loan);
+        }
+    }
 
+    /**
+     * Outstanding balance and next pending installment of a loan, for its borrower or an admin.
+     * Read from the ledger's latest snapshot and the entries after it; a loan with no repayment
+     * yet is read from its schedule.
+     */
+    @Transactional(readOnly = true)
+    public LoanBalance getLoanBalance(Long loanId, Long userId) {
+        Loan loan = loanRepository.findById(loanId)
+                .orElseThrow(() -> new LoanNotFoundException("Loan Not Found for: " + loanId));
+        if (!Objects.equals(loan.getUserId(), userId)) {
+            validateAdmin(userId);
+        }
+        return loanLedger.balance(loanId).orElseGet(() -> scheduledBalance(loanId));
+    }
 
-        for (EMI emi : emiList) {
-            if (repaymentAmount >= emi.getAmount()) {
-                emi.setEmiStatus(EMIStatus.PAID);
-                repaymentAmount -= emi.getAmount();
+    private LoanBalance scheduledBalance(Long loanId) {
+        Optional<LoanSchedule> virtualSchedule = loanScheduleRepository.findByLoanId(loanId);
+        if (virtualSchedule.isPresent()) {
+            LoanSchedule schedule = virtualSchedule.get();
+            int next = schedule.firstUnpaidIndex();
+            if (next == schedule.getTerm()) {
+                return new LoanBalance(loanId, 0, schedule.outstandingMinor(), null, 0);
+            }
+            return new LoanBalance(loanId, 0, schedule.outstandingMinor(),
+                    LocalDate.ofEpochDay(schedule.dueEpochDay(next)), schedule.remainingMinor(next));
+        }
+        List<EMI> openEmis = repaymentBatchRepository.findOpenEmis(List.of(loanId)).getOrDefault(loanId, List.of());
+        long outstandingMinor = 0;
+        EMI nextPending = null;
+        for (EMI emi : openEmis) {
+            outstandingMinor += emi.getAmountMinor();
+            if (nextPending == null && emi.getEmiStatus() == EMIStatus.PENDING) {
+                nextPending = emi;
+            }
+        }
+        if (nextPending == null) {
+            return new LoanBalance(loanId, 0, outstandingMinor, null, 0);
+        }
+        return new LoanBalance(loanId, 0, outstandingMinor,
+                nextPending.getDueDate().toInstant().atZone(ZoneId.systemDefault()).toLocalDate(), nextPending.getAmountMinor());
+    }
+
+    /**
+     * Stores only the parameters of each loan's schedule and returns the loans whose schedule is
+     * not uniform and still needs emi rows.
+     */
+    private List<Loan> writeVirtualSchedules(List<Loan> loans) {
+        EMISchedule schedule = new EMISchedule();
+        List<LoanSchedule> virtualSchedules = new ArrayList<>(loans.size());
+        List<Loan> needEmiRows = new ArrayList<>();
+        for (Loan loan : loans) {
+            getRepaymentStrategyBasedOnLoanType(loan.getLoanType()).fillSchedule(loan, schedule);
+            LoanSchedule virtualSchedule = LoanSchedule.fromSchedule(loan, schedule);
+            if (virtualSchedule == null) {
+                needEmiRows.add(loan);
             } else {
-                //if amount is less than emi amount then less that amount from emi and keep emi in pending status
-                emi.setAmount(emi.getAmount()-repaymentAmount);
-                repaymentAmount=0;
+                virtualSchedules.add(virtualSchedule);
             }
-            emiRepository.save(emi);
         }
-        List<EMI> allEmisListForLoan = emiRepository.findByLoanId(loanId);
-        if (allEmisListForLoan.stream().allMatch(emi -> emi.getEmiStatus() == EMIStatus.PAID)) {
-            loan.setStatus(LoanStatus.PAID);
+        if (!virtualSchedules.isEmpty()) {
+            loanScheduleRepository.insertSchedules(virtualSchedules);
         }
-        loanRepository.save(loan);
+        return needEmiRows;
+    }
+
+    private Loan buildPendingLoan(LoanRequest loanRequest) {
+        LoanTypeInfo loanTypeInfo = LoanFactory.getLoanTypeInfo(loanRequest.getLoanType());
+        long amountRequiredMinor = Money.ofMajor(loanRequest.getAmountRequired());
+        double interestRate = rateCardRegistry.rateFor(loanRequest.getLoanType(), amountRequiredMinor, loanRequest.getLoanTerm());
+        long amountToBePaidMinor = loanTypeInfo.getInterest(amountRequiredMinor, interestRate, loanRequest.getLoanTerm());
+        Loan loan = Loan.builder()
+                .amountRequiredMinor(amountRequiredMinor)
+                .loanTerm(loanRequest.getLoanTerm())
+                .userId(loanRequest.getUserId())
+                .status(LoanStatus.PENDING)
+                .amountToBePaidMinor(amountToBePaidMinor)
+                .interestRate(interestRate)
+                .loanType(loanRequest.getLoanType())
+                .build();
+        //Reducing-balance loans owe the sum of their installments, not the factory's simple interest
+        if (getRepaymentStrategyBasedOnLoanType(loan.getLoanType()) instanceof AmortizedEMIStrategy amortized) {
+            loan.setAmountToBePaidMinor(amortized.totalMinor(loan));
+        }
+        return loan;
+    }
+
+    private String validateLoanRequest(LoanRequest loanRequest, Set<Long> existingUserIds) {
+        if (loanRequest.getUserId() == null || !existingUserIds.contains(loanRequest.getUserId())) {
+            return "User not found: " + loanRequest.getUserId();
+        }
+        if (loanRequest.getLoanType() == null) {
+            return "Loan type is required";
+        }
+        if (!Double.isFinite(loanRequest.getAmountRequired()) || loanRequest.getAmountRequired() <= 0 || loanRequest.getLoanTerm() <= 0) {
+            return "Amount and term must be positive";
+        }
+        return null;
+    }
+
+    private String validateApproval(Long loanId, Loan loan, Set<Long> seenIds) {
+        if (loanId == null) {
+            return "Loan id is required";
+        }
+        if (!seenIds.add(loanId)) {
+            return "Duplicate loan id: " + loanId;
+        }
+        if (loan == null) {
+            return "Loan Not Found for: " + loanId;
+        }
+        if (loan.getStatus() != LoanStatus.PENDING) {
+            return "Loan is not pending: " + loan.getStatus();
+        }
+        try {
+            getRepaymentStrategyBasedOnLoanType(loan.getLoanType());
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+        return null;
+    }
+
+    /**
+     * Publishes the rates currently in the rate_card table and returns the number of tiers.
+     */
+    public int reloadRateCard(Long userId) {
+        validateAdmin(userId);
+        return rateCardRegistry.reload().getTierCount();
+    }
+
+    private void validateAdmin(Long userId) {
+        if (!userRoleCache.exists(userId)) {
+            throw new UserNotFoundException("User not found with given email");
+        }
+        if (userRoleCache.getRole(userId) != UserRole.ADMIN) {
+            throw new InvalidUserAuthority("You dont have access for this feature");
+        }
+    }
+
+    private void writeLoanRow(JsonGenerator generator, ResultSet resultSet) throws SQLException, IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("id", resultSet.getLong("id"));
+        generator.writeNumberField("userId", resultSet.getLong("user_id"));
+        generator.writeNumberField("amountRequired", resultSet.getDouble("amount_required"));
+        generator.writeNumberField("loanTerm", resultSet.getInt("loan_term"));
+        generator.writeNumberField("amountToBePaid", resultSet.getDouble("amount_to_be_paid"));
+        generator.writeNumberField("interestRate", resultSet.getDouble("interest_rate"));
+        LocalDate requestDate = resultSet.getObject("request_date", LocalDate.class);
+        generator.writeStringField("requestDate", requestDate == null ? null : requestDate.toString());
+        Timestamp startDate = resultSet.getTimestamp("start_date");
+        generator.writeStringField("startDate", startDate == null ? null : startDate.toInstant().toString());
+        generator.writeStringField("status", LoanStatus.values()[resultSet.getInt("status")].name());
+        generator.writeStringField("loanType", LoanType.values()[resultSet.getInt("loan_type")].name());
+        generator.writeEndObject();
     }
 
     private RepaymentStrategy getRepaymentStrategyBasedOnLoanType(LoanType loanType) {
         switch (loanType) {
             case PERSONAL:
                 return new FixedEMIStrategy();
+            case HOME:
+            case CAR:
+                return new AmortizedEMIStrategy();
             default:
                 throw new IllegalArgumentException("Unsupported loan type: " + loanType);
         }
@@ -0,0 +1,98 @@
+package com.example.loansystem.service;
+
+import com.example.loansystem.repository.OverdueEmiRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Periodically marks pending EMIs whose due date has passed as OVERDUE. Each run starts a lag
+ * window below the previous run's cut-off (the high-water mark), so it reads installments that
+ * fell due since then plus any inserted late with an older due date, such as a schedule's first
+ * installment, due at the start of the approval day. Installments already marked have left the
+ * PENDING range of the index, so the window costs only the late rows it finds. Every chunk is one
+ * short UPDATE of a key range. The mark lives in memory; the first run after a restart sweeps
+ * everything that is due, which by the same argument reads only rows that still need marking.
+ */
+@Component
+public class OverdueEmiSweeper {
+
+    private final OverdueEmiRepository overdueEmiRepository;
+    private final Clock clock;
+    private final int chunkSize;
+    private final Duration lag;
+    private final Counter scannedRows;
+    private final Counter updatedRows;
+    private final Timer runDuration;
+
+    private Timestamp highWaterMark = new Timestamp(0);
+
+    @Autowired
+    public OverdueEmiSweeper(OverdueEmiRepository overdueEmiRepository, MeterRegistry meterRegistry,
+                             @Value("${aspire.overdue-sweep.chunk-size:5000}") int chunkSize,
+                             @Value("${aspire.overdue-sweep.lag:P2D}") Duration lag) {
+        this(overdueEmiRepository, meterRegistry, chunkSize, lag, Clock.systemUTC());
+    }
+
+    OverdueEmiSweeper(OverdueEmiRepository overdueEmiRepository, MeterRegistry meterRegistry, int chunkSize, Duration lag, Clock clock) {
+        this.overdueEmiRepository = overdueEmiRepository;
+        this.chunkSize = chunkSize;
+        this.lag = lag;
+        this.clock = clock;
+        this.scannedRows = Counter.builder("aspire.emi.overdue.sweep.scanned")
+                .description("Pending EMIs read by the overdue sweep")
+                .register(meterRegistry);
+        this.updatedRows = Counter.builder("aspire.emi.overdue.sweep.updated")
+                .description("EMIs marked overdue")
+                .register(meterRegistry);
+        this.runDuration = Timer.builder("aspire.emi.overdue.sweep.duration")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${aspire.overdue-sweep.interval:PT15M}")
+    public void scheduledSweep() {
+        sweep();
+    }
+
+    /**
+     * Runs one sweep up to the current time and returns the number of EMIs marked overdue.
+     */
+    public synchronized int sweep() {
+        return runDuration.record(() -> {
+            Timestamp cutoff = new Timestamp(clock.millis());
+            Timestamp afterDueDate = new Timestamp(Math.max(0, highWaterMark.getTime() - lag.toMillis()));
+            long afterId = 0;
+            int marked = 0;
+            while (true) {
+                OverdueEmiRepository.Chunk chunk = overdueEmiRepository.scanPending(afterDueDate, afterId, cutoff, chunkSize);
+                if (chunk.getRows() == 0) {
+                    break;
+                }
+                scannedRows.increment(chunk.getRows());
+                int updated = overdueEmiRepository.markOverdue(afterDueDate, afterId, chunk.getLastDueDate(), chunk.getLastId());
+                updatedRows.increment(updated);
+                marked += updated;
+                afterDueDate = chunk.getLastDueDate();
+                afterId = chunk.getLastId();
+                if (chunk.getRows() < chunkSize) {
+                    break;
+                }
+            }
+            //Only advanced after a complete run, a failed run is retried from the old mark
+            highWaterMark = cutoff;
+            return marked;
+        });
+    }
+
+    Timestamp getHighWaterMark() {
+        return highWaterMark;
+    }
+}
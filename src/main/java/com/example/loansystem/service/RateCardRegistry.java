@@ -0,0 +1,47 @@
+package com.example.loansystem.service;
+
+import com.example.loansystem.factory.RateCard;
+import com.example.loansystem.model.LoanType;
+import com.example.loansystem.repository.RateCardRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Current rate card, loaded from the rate_card table. Readers take the snapshot with one volatile
+ * read; {@link #reload()} builds a new card off to the side and swaps it in, so a lookup in flight
+ * finishes on the card it started with. A card that fails validation is never published.
+ * The card is held per node: a reload only changes the node that runs it.
+ */
+@Component
+public class RateCardRegistry {
+
+    private final RateCardRepository rateCardRepository;
+    private final AtomicReference<RateCard> current = new AtomicReference<>();
+
+    @Autowired
+    public RateCardRegistry(RateCardRepository rateCardRepository) {
+        this.rateCardRepository = rateCardRepository;
+        reload();
+    }
+
+    public double rateFor(LoanType loanType, long amountMinor, int term) {
+        return current.get().rateFor(loanType, amountMinor, term);
+    }
+
+    public RateCard current() {
+        return current.get();
+    }
+
+    /**
+     * Reads the rate_card table and publishes it as the current card. Throws
+     * InvalidRateCardException, keeping the previous card, if the table is not a valid card.
+     */
+    public synchronized RateCard reload() {
+        //Serialized so a slower reload cannot publish an older read over a newer one
+        RateCard rateCard = RateCard.of(rateCardRepository.findAll());
+        current.set(rateCard);
+        return rateCard;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.loansystem.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Users who sent a write within the last {@code window}, on this node. Their reads go to the
+ * primary so they see their own changes. This is best effort: replica lag is not measured, so a
+ * replica further behind than the window, or a read served by another node, can still miss the
+ * write, and reads of other users are as stale as the replica is. The window should cover the
+ * replica's normal lag. {@code maximumSize} bounds how many writers are tracked at once; when it
+ * is exceeded some are forgotten early and read from the replica.
+ */
+@Component
+public class ReadYourWrites {
+
+    private final Cache<Long, Boolean> recentWriters;
+
+    @Autowired
+    public ReadYourWrites(@Value("${aspire.datasource.read-your-writes.window:PT5S}") Duration window,
+                          @Value("${aspire.datasource.read-your-writes.maximum-size:100000}") long maximumSize) {
+        this.recentWriters = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(window)
+                .build();
+    }
+
+    public void recordWrite(Long userId) {
+        recentWriters.put(userId, Boolean.TRUE);
+    }
+
+    public boolean wroteRecently(Long userId) {
+        return recentWriters.getIfPresent(userId) != null;
+    }
+}
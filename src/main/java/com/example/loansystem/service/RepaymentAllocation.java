@@ -0,0 +1,74 @@
+package com.example.loansystem.service;
+
+import com.example.loansystem.model.EMI;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Works out how a repayment spreads over the open installments of a loan, oldest first,
+ * without touching the database. LoanService then applies the result with a fixed number
+ * of set-based statements however many installments the payment covers.
+ */
+public class RepaymentAllocation {
+    private final int paidInstallments;
+    private final Date paidThroughDueDate;
+    private final EMI partialInstallment;
+    private final long partialAmountMinor;
+    private final boolean allPaid;
+
+    private RepaymentAllocation(int paidInstallments, Date paidThroughDueDate, EMI partialInstallment,
+                                long partialAmountMinor, boolean allPaid) {
+        this.paidInstallments = paidInstallments;
+        this.paidThroughDueDate = paidThroughDueDate;
+        this.partialInstallment = partialInstallment;
+        this.partialAmountMinor = partialAmountMinor;
+        this.allPaid = allPaid;
+    }
+
+    /**
+     * @param openEmis pending and overdue installments ordered by due date
+     */
+    public static RepaymentAllocation allocate(List<EMI> openEmis, long repaymentMinor) {
+        int paidInstallments = 0;
+        Date paidThroughDueDate = null;
+        for (EMI emi : openEmis) {
+            if (repaymentMinor >= emi.getAmountMinor()) {
+                paidInstallments++;
+                paidThroughDueDate = emi.getDueDate();
+                repaymentMinor -= emi.getAmountMinor();
+            } else {
+                //Remaining amount is taken off this installment, which stays open
+                EMI partialInstallment = repaymentMinor > 0 ? emi : null;
+                return new RepaymentAllocation(paidInstallments, paidThroughDueDate, partialInstallment, repaymentMinor, false);
+            }
+        }
+        return new RepaymentAllocation(paidInstallments, paidThroughDueDate, null, 0, true);
+    }
+
+    public int getPaidInstallments() {
+        return paidInstallments;
+    }
+
+    /**
+     * Due date of the last installment fully covered, or null if none was.
+     */
+    public Date getPaidThroughDueDate() {
+        return paidThroughDueDate;
+    }
+
+    /**
+     * Installment that is only partly covered, or null if the payment ended on an installment boundary.
+     */
+    public EMI getPartialInstallment() {
+        return partialInstallment;
+    }
+
+    public long getPartialAmountMinor() {
+        return partialAmountMinor;
+    }
+
+    public boolean isAllPaid() {
+        return allPaid;
+    }
+}
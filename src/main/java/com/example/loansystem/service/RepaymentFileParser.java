@@ -0,0 +1,176 @@
+package com.example.loansystem.service;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Incremental parser for bank repayment files with lines of the form {@code loanId,amount[,...]}.
+ * Bytes are consumed straight off the buffer and accumulated into primitive columns, so no String
+ * is created per line or field and a line may span two buffers. Amounts are kept in minor units
+ * (at most two decimals); columns after the amount, such as a bank reference, are ignored.
+ * Blanks may surround a field but not split it. Every line that does not parse, a header
+ * included, is reported as malformed.
+ */
+public class RepaymentFileParser {
+
+    private static final int MAX_ID_DIGITS = 18;
+    private static final int MAX_AMOUNT_DIGITS = 15;
+    private static final int MAX_FRACTION_DIGITS = 2;
+
+    private long[] loanIds = new long[1024];
+    private long[] amountsMinor = new long[1024];
+    private int[] lineNumbers = new int[1024];
+    private int size;
+
+    private int[] malformedLines = new int[16];
+    private int malformedCount;
+
+    private int lineNumber = 1;
+    private boolean lineHasContent;
+    private boolean malformed;
+    private int field;
+    //A blank followed the id or amount, so only blanks may come before the next comma
+    private boolean fieldClosed;
+    private long loanId;
+    private int loanIdDigits;
+    private long amountMinor;
+    private int amountDigits;
+    private int fractionDigits;
+    private boolean inFraction;
+
+    public void feed(ByteBuffer buffer) {
+        while (buffer.hasRemaining()) {
+            accept(buffer.get());
+        }
+    }
+
+    /**
+     * Completes a trailing line that has no newline.
+     */
+    public void finish() {
+        if (lineHasContent) {
+            endLine();
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long loanId(int index) {
+        return loanIds[index];
+    }
+
+    public long amountMinor(int index) {
+        return amountsMinor[index];
+    }
+
+    public int lineNumber(int index) {
+        return lineNumbers[index];
+    }
+
+    public int[] malformedLineNumbers() {
+        return Arrays.copyOf(malformedLines, malformedCount);
+    }
+
+    private void accept(byte b) {
+        if (b == '\n') {
+            if (lineHasContent) {
+                endLine();
+            }
+            lineNumber++;
+            return;
+        }
+        if (b == '\r' || b == ' ' || b == '\t') {
+            if ((field == 0 && loanIdDigits > 0) || (field == 1 && (amountDigits > 0 || inFraction))) {
+                fieldClosed = true;
+            }
+            return;
+        }
+        lineHasContent = true;
+        if (malformed) {
+            return;
+        }
+        if (b == ',') {
+            field++;
+            fieldClosed = false;
+            return;
+        }
+        if (fieldClosed) {
+            malformed = true;
+            return;
+        }
+        if (field == 0) {
+            acceptLoanId(b);
+        } else if (field == 1) {
+            acceptAmount(b);
+        }
+    }
+
+    private void acceptLoanId(byte b) {
+        if (b < '0' || b > '9' || loanIdDigits == MAX_ID_DIGITS) {
+            malformed = true;
+            return;
+        }
+        loanId = loanId * 10 + (b - '0');
+        loanIdDigits++;
+    }
+
+    private void acceptAmount(byte b) {
+        if (b == '.' && !inFraction) {
+            inFraction = true;
+            return;
+        }
+        if (b < '0' || b > '9' || amountDigits == MAX_AMOUNT_DIGITS
+                || (inFraction && fractionDigits == MAX_FRACTION_DIGITS)) {
+            malformed = true;
+            return;
+        }
+        amountMinor = amountMinor * 10 + (b - '0');
+        amountDigits++;
+        if (inFraction) {
+            fractionDigits++;
+        }
+    }
+
+    private void endLine() {
+        if (malformed || loanIdDigits == 0 || amountDigits == 0 || field < 1) {
+            recordMalformed();
+        } else {
+            for (int i = fractionDigits; i < MAX_FRACTION_DIGITS; i++) {
+                amountMinor *= 10;
+            }
+            recordLine();
+        }
+        lineHasContent = false;
+        malformed = false;
+        field = 0;
+        fieldClosed = false;
+        loanId = 0;
+        loanIdDigits = 0;
+        amountMinor = 0;
+        amountDigits = 0;
+        fractionDigits = 0;
+        inFraction = false;
+    }
+
+    private void recordLine() {
+        if (size == loanIds.length) {
+            int capacity = size * 2;
+            loanIds = Arrays.copyOf(loanIds, capacity);
+            amountsMinor = Arrays.copyOf(amountsMinor, capacity);
+            lineNumbers = Arrays.copyOf(lineNumbers, capacity);
+        }
+        loanIds[size] = loanId;
+        amountsMinor[size] = amountMinor;
+        lineNumbers[size] = lineNumber;
+        size++;
+    }
+
+    private void recordMalformed() {
+        if (malformedCount == malformedLines.length) {
+            malformedLines = Arrays.copyOf(malformedLines, malformedCount * 2);
+        }
+        malformedLines[malformedCount++] = lineNumber;
+    }
+}
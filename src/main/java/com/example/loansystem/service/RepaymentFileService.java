@@ -0,0 +1,287 @@
+package com.example.loansystem.service;
+
+import com.example.loansystem.dto.RepaymentFileReport;
+import com.example.loansystem.dto.RepaymentRejectReason;
+import com.example.loansystem.dto.RepaymentRejection;
+import com.example.loansystem.exceptions.InvalidUserAuthority;
+import com.example.loansystem.exceptions.UserNotFoundException;
+import com.example.loansystem.model.EMI;
+import com.example.loansystem.model.LoanSchedule;
+import com.example.loansystem.model.LoanStatus;
+import com.example.loansystem.model.UserRole;
+import com.example.loansystem.repository.LoanScheduleRepository;
+import com.example.loansystem.repository.RepaymentBatchRepository;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Applies a bank repayment file in one call. The file is parsed as it streams in, lines are grouped
+ * by loan, and groups of loans are applied in parallel, each group in its own short transaction with
+ * set-based reads and batched writes. A loan's lines always land in the same group and are applied
+ * in file order with the same rules as {@link LoanService#repayLoan}. A group that fails is rolled
+ * back on its own and its lines are reported as {@link RepaymentRejectReason#APPLY_FAILED}, so only
+ * those lines need to be sent again.
+ */
+@Service
+public class RepaymentFileService implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(RepaymentFileService.class);
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final RepaymentBatchRepository repaymentBatchRepository;
+    private final LoanScheduleRepository loanScheduleRepository;
+    private final LoanLedger loanLedger;
+    private final LoanMetrics loanMetrics;
+    private final UserRoleCache userRoleCache;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService executor;
+    private final int chunkSize;
+
+    @Autowired
+    public RepaymentFileService(RepaymentBatchRepository repaymentBatchRepository, LoanScheduleRepository loanScheduleRepository,
+                                LoanLedger loanLedger, LoanMetrics loanMetrics, UserRoleCache userRoleCache,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${aspire.repayment-files.threads:0}") int threads,
+                                @Value("${aspire.repayment-files.loans-per-chunk:500}") int chunkSize) {
+        this.repaymentBatchRepository = repaymentBatchRepository;
+        this.loanScheduleRepository = loanScheduleRepository;
+        this.loanLedger = loanLedger;
+        this.loanMetrics = loanMetrics;
+        this.userRoleCache = userRoleCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.executor = Executors.newFixedThreadPool(poolSize, new CustomizableThreadFactory("repayment-file-"));
+        this.chunkSize = chunkSize;
+    }
+
+    @Timed("aspire.service")
+    public RepaymentFileReport ingest(InputStream file, Long userId) throws IOException {
+        if (!userRoleCache.exists(userId)) {
+            throw new UserNotFoundException("User not found with given email");
+        }
+        if (userRoleCache.getRole(userId) != UserRole.ADMIN) {
+            throw new InvalidUserAuthority("You dont have access for this feature");
+        }
+        RepaymentFileParser lines = parse(file);
+
+        //Per loan, the first and last line index; next[] chains the rest in file order
+        Map<Long, int[]> linesByLoan = new LinkedHashMap<>();
+        int[] next = new int[lines.size()];
+        for (int i = 0; i < lines.size(); i++) {
+            next[i] = -1;
+            int[] headAndTail = linesByLoan.get(lines.loanId(i));
+            if (headAndTail == null) {
+                linesByLoan.put(lines.loanId(i), new int[]{i, i});
+            } else {
+                next[headAndTail[1]] = i;
+                headAndTail[1] = i;
+            }
+        }
+
+        List<Long> loanIds = new ArrayList<>(linesByLoan.keySet());
+        List<List<Long>> chunkLoanIds = new ArrayList<>();
+        List<CompletableFuture<ChunkResult>> chunks = new ArrayList<>();
+        for (int from = 0; from < loanIds.size(); from += chunkSize) {
+            List<Long> chunk = loanIds.subList(from, Math.min(from + chunkSize, loanIds.size()));
+            chunkLoanIds.add(chunk);
+            chunks.add(CompletableFuture.supplyAsync(
+                    () -> transactionTemplate.execute(status -> applyChunk(chunk, lines, linesByLoan, next)), executor));
+        }
+
+        List<RepaymentRejection> rejections = new ArrayList<>();
+        for (int lineNumber : lines.malformedLineNumbers()) {
+            rejections.add(new RepaymentRejection(lineNumber, null, RepaymentRejectReason.MALFORMED));
+        }
+        int applied = 0;
+        //Other chunks may have committed already, so a failure is reported per line and never rethrown
+        for (int c = 0; c < chunks.size(); c++) {
+            ChunkResult result;
+            try {
+                result = chunks.get(c).join();
+            } catch (CompletionException e) {
+                log.warn("Repayment file chunk of {} loans rolled back", chunkLoanIds.get(c).size(), e.getCause());
+                for (Long loanId : chunkLoanIds.get(c)) {
+                    for (int line = linesByLoan.get(loanId)[0]; line != -1; line = next[line]) {
+                        rejections.add(new RepaymentRejection(lines.lineNumber(line), loanId, RepaymentRejectReason.APPLY_FAILED));
+                    }
+                }
+                continue;
+            }
+            applied += result.applied;
+            rejections.addAll(result.rejections);
+        }
+        rejections.sort(Comparator.comparingInt(RepaymentRejection::getLineNumber));
+        loanMetrics.fileRepaymentsApplied(applied);
+        for (RepaymentRejection rejection : rejections) {
+            loanMetrics.fileRepaymentRejected(rejection.getReason());
+        }
+        return new RepaymentFileReport(lines.size() + lines.malformedLineNumbers().length, applied, rejections);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    private RepaymentFileParser parse(InputStream file) throws IOException {
+        RepaymentFileParser parser = new RepaymentFileParser();
+        ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        try (ReadableByteChannel channel = Channels.newChannel(file)) {
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                parser.feed(buffer);
+                buffer.clear();
+            }
+        }
+        parser.finish();
+        return parser;
+    }
+
+    private ChunkResult applyChunk(List<Long> loanIds, RepaymentFileParser lines, Map<Long, int[]> linesByLoan, int[] next) {
+        //Locked like repayLoan's read; only pending loans take repayments
+        Set<Long> pendingLoans = repaymentBatchRepository.lockLoansInStatus(loanIds, LoanStatus.PENDING);
+        Map<Long, List<EMI>> openEmis = pendingLoans.isEmpty() ? Map.of() : repaymentBatchRepository.findOpenEmis(pendingLoans);
+        Map<Long, LoanSchedule> virtualSchedules = pendingLoans.isEmpty() ? Map.of() : loanScheduleRepository.lockByLoanIds(pendingLoans);
+
+        ChunkResult result = new ChunkResult();
+        List<Long> paidEmiIds = new ArrayList<>();
+        Map<Long, Long> emiAmounts = new HashMap<>();
+        List<LoanSchedule> repaidSchedules = new ArrayList<>();
+        List<Long> paidLoanIds = new ArrayList<>();
+        List<LedgerEntry> ledgerEntries = new ArrayList<>();
+        for (Long loanId : loanIds) {
+            int line = linesByLoan.get(loanId)[0];
+            if (!pendingLoans.contains(loanId)) {
+                for (; line != -1; line = next[line]) {
+                    result.reject(lines.lineNumber(line), loanId, RepaymentRejectReason.LOAN_NOT_FOUND);
+                }
+                continue;
+            }
+            LoanSchedule virtualSchedule = virtualSchedules.get(loanId);
+            if (virtualSchedule != null) {
+                int appliedToLoan = applyToVirtualSchedule(virtualSchedule, line, lines, next, result, ledgerEntries);
+                if (appliedToLoan > 0) {
+                    result.applied += appliedToLoan;
+                    repaidSchedules.add(virtualSchedule);
+                    if (virtualSchedule.outstandingMinor() == 0) {
+                        paidLoanIds.add(loanId);
+                    }
+                }
+                continue;
+            }
+            //Pending and overdue installments alike, oldest first
+            List<EMI> open = openEmis.getOrDefault(loanId, List.of());
+            long openBalanceMinor = 0;
+            for (EMI emi : open) {
+                openBalanceMinor += emi.getAmountMinor();
+            }
+            long outstandingBefore = openBalanceMinor;
+
+            int firstUnpaid = 0;
+            int appliedToLoan = 0;
+            for (; line != -1; line = next[line]) {
+                if (firstUnpaid == open.size()) {
+                    result.reject(lines.lineNumber(line), loanId, RepaymentRejectReason.NO_PENDING_EMI);
+                    continue;
+                }
+                long amountMinor = lines.amountMinor(line);
+                List<EMI> remaining = open.subList(firstUnpaid, open.size());
+                if (remaining.get(0).getAmountMinor() > amountMinor) {
+                    result.reject(lines.lineNumber(line), loanId, RepaymentRejectReason.BELOW_EMI_AMOUNT);
+                    continue;
+                }
+                RepaymentAllocation allocation = RepaymentAllocation.allocate(remaining, amountMinor);
+                ledgerEntries.add(LedgerEntry.forInstallments(loanId, remaining, allocation, () -> outstandingBefore));
+                for (int k = 0; k < allocation.getPaidInstallments(); k++) {
+                    Long emiId = remaining.get(k).getId();
+                    paidEmiIds.add(emiId);
+                    emiAmounts.remove(emiId);
+                }
+                EMI partial = allocation.getPartialInstallment();
+                if (partial != null) {
+                    partial.setAmountMinor(partial.getAmountMinor() - allocation.getPartialAmountMinor());
+                    emiAmounts.put(partial.getId(), partial.getAmountMinor());
+                }
+                firstUnpaid += allocation.getPaidInstallments();
+                appliedToLoan++;
+            }
+            result.applied += appliedToLoan;
+            if (appliedToLoan > 0 && firstUnpaid == open.size()) {
+                paidLoanIds.add(loanId);
+            }
+        }
+
+        loanLedger.record(ledgerEntries);
+        if (!paidEmiIds.isEmpty()) {
+            repaymentBatchRepository.markEmisPaid(paidEmiIds);
+        }
+        if (!emiAmounts.isEmpty()) {
+            repaymentBatchRepository.updateEmiAmounts(emiAmounts);
+        }
+        if (!repaidSchedules.isEmpty()) {
+            loanScheduleRepository.updateAmountsRepaid(repaidSchedules);
+        }
+        if (!paidLoanIds.isEmpty()) {
+            repaymentBatchRepository.updateLoanStatus(paidLoanIds, LoanStatus.PAID);
+        }
+        return result;
+    }
+
+    /**
+     * Applies a loan's lines to its repaid total with the checks of {@link LoanService#repayLoan}
+     * and returns how many were applied.
+     */
+    private int applyToVirtualSchedule(LoanSchedule schedule, int line, RepaymentFileParser lines, int[] next, ChunkResult result,
+                                       List<LedgerEntry> ledgerEntries) {
+        int applied = 0;
+        for (; line != -1; line = next[line]) {
+            if (schedule.outstandingMinor() <= 0) {
+                result.reject(lines.lineNumber(line), schedule.getLoanId(), RepaymentRejectReason.NO_PENDING_EMI);
+                continue;
+            }
+            long amountMinor = lines.amountMinor(line);
+            if (schedule.remainingMinor(schedule.firstUnpaidIndex()) > amountMinor) {
+                result.reject(lines.lineNumber(line), schedule.getLoanId(), RepaymentRejectReason.BELOW_EMI_AMOUNT);
+                continue;
+            }
+            ledgerEntries.add(LedgerEntry.forSchedule(schedule, amountMinor));
+            schedule.setAmountRepaidMinor(schedule.getAmountRepaidMinor() + Math.min(amountMinor, schedule.outstandingMinor()));
+            applied++;
+        }
+        return applied;
+    }
+
+    private static class ChunkResult {
+        private int applied;
+        private final List<RepaymentRejection> rejections = new ArrayList<>();
+
+        private void reject(int lineNumber, Long loanId, RepaymentRejectReason reason) {
+            rejections.add(new RepaymentRejection(lineNumber, loanId, reason));
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.loansystem.service;
+
+import com.example.loansystem.model.UserRole;
+import com.example.loansystem.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Bounded, TTL-evicted cache of user id to existence and role, so authorization checks in
+ * LoanService do not go to the users table on every request. Missing users are not cached: a
+ * lookup may run on a replica that has not seen a registration yet, and caching that answer would
+ * hide the new user for the whole TTL. Writers (registration) must call {@link #invalidate(Long)}.
+ */
+@Component
+public class UserRoleCache {
+
+    private static final Entry MISSING = new Entry(false, null);
+
+    private final LoadingCache<Long, Entry> cache;
+
+    @Autowired
+    public UserRoleCache(UserRepository userRepository, MeterRegistry meterRegistry,
+                         @Value("${aspire.user-cache.maximum-size:100000}") long maximumSize,
+                         @Value("${aspire.user-cache.ttl:PT5M}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build(userId -> userRepository.findById(userId)
+                        .map(user -> new Entry(true, user.getUserRole()))
+                        .orElse(null));
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "userRoles");
+    }
+
+    public boolean exists(Long userId) {
+        return entry(userId).exists;
+    }
+
+    /**
+     * Role of the user, or null if the user does not exist or has no role.
+     */
+    public UserRole getRole(Long userId) {
+        return entry(userId).role;
+    }
+
+    public void invalidate(Long userId) {
+        if (userId != null) {
+            cache.invalidate(userId);
+        }
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    //The loader returns null for a missing user, which Caffeine does not store
+    private Entry entry(Long userId) {
+        Entry entry = cache.get(userId);
+        return entry != null ? entry : MISSING;
+    }
+
+    private static final class Entry {
+        private final boolean exists;
+        private final UserRole role;
+
+        private Entry(boolean exists, UserRole role) {
+            this.exists = exists;
+            this.role = role;
+        }
+    }
+}
@@ -6,44 +6,81 @@ import com.example.loansystem.exceptions.UserAlreadyExistsException;
 import com.example.loansystem.model.UserRole;
 import com.example.loansystem.model.User;
 import com.example.loansystem.repository.UserRepository;
+import com.example.loansystem.security.TokenService;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
 @Service
+@Timed("aspire.service")
 public class UserService {
 
     @Autowired
     private UserRepository userRepository;
 
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private PasswordHashingService passwordHashingService;
+
+    @Autowired
+    private UserRoleCache userRoleCache;
+
+    @Autowired
+    private TokenService tokenService;
 
-    public void registerUser(UserDTO userDTO) {
+    //Runs the insert after hashing, so database latency does not hold a hashing thread
+    @Autowired
+    @Qualifier("applicationTaskExecutor")
+    private Executor taskExecutor;
+
+    /**
+     * Hashing runs on the PasswordHashingService pool and the insert on the application task
+     * executor; failures, including an existing username, complete the returned future exceptionally.
+     */
+    public CompletableFuture<Void> registerUser(UserDTO userDTO) {
         // Check if the username already exists
         if (userRepository.findByUserEmail(userDTO.getUserEmail()).isPresent()) {
-            throw new UserAlreadyExistsException("Username already exists.");
+            return CompletableFuture.failedFuture(new UserAlreadyExistsException("Username already exists."));
         }
 
-        // Create a new user
-        User user = new User();
-        user.setUserEmail(userDTO.getUserEmail());
-        user.setUserRole(UserRole.BORROWER);
-        user.setPassword(passwordEncoder.encode(userDTO.getPassword())); // Hash and store the password securely
+        // Hash and store the password securely
+        return passwordHashingService.encode(userDTO.getPassword()).thenAcceptAsync(encodedPassword -> {
+            // Create a new user
+            User user = new User();
+            user.setUserEmail(userDTO.getUserEmail());
+            user.setUserRole(UserRole.BORROWER);
+            user.setPassword(encodedPassword);
 
-        userRepository.save(user);
+            User savedUser;
+            try {
+                savedUser = userRepository.save(user);
+            } catch (DataIntegrityViolationException e) {
+                //A concurrent registration of the same email got past the check above
+                throw new UserAlreadyExistsException("Username already exists.");
+            }
+            //A lookup for this id may have cached it as missing
+            userRoleCache.invalidate(savedUser.getId());
+        }, taskExecutor);
     }
 
-    public String loginUser(String username, String password) {
+    public CompletableFuture<String> loginUser(String username, String password) {
         // Find the user by username
-        User user = userRepository.findByUserEmail(username)
-                .orElseThrow(() -> new BadCredentialsException("Invalid username or password"));
-
-        // Check if the provided password matches the stored password (after hashing)
-        if (!passwordEncoder.matches(password, user.getPassword())) {
-            throw new BadCredentialsException("Invalid username or password");
+        Optional<User> user = userRepository.findByUserEmail(username);
+        if (user.isEmpty()) {
+            return CompletableFuture.failedFuture(new BadCredentialsException("Invalid username or password"));
         }
 
-        return "Authentication_Token";
+        // Check if the provided password matches the stored password (after hashing)
+        return passwordHashingService.matches(password, user.get().getPassword()).thenApply(matches -> {
+            if (!matches) {
+                throw new BadCredentialsException("Invalid username or password");
+            }
+            return tokenService.issueToken(user.get());
+        });
     }
-}
\ No newline at end of file
+}
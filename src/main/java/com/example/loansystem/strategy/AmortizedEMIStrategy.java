@@ -0,0 +1,80 @@
+package com.example.loansystem.strategy;
+
+import com.example.loansystem.model.EMIStatus;
+import com.example.loansystem.model.InstallmentFrequency;
+import com.example.loansystem.model.Loan;
+import com.example.loansystem.model.Money;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+/**
+ * Reducing-balance (annuity) schedule for HOME and CAR loans: {@code loanTerm} monthly installments
+ * of equal amount on {@code amountRequired}, each paying the month's interest on the outstanding
+ * balance and the rest off the principal. The first installment falls due a month after the start
+ * date. Interest is rounded per installment and the last one clears whatever balance is left, so
+ * the principal parts add up to the amount lent to the cent.
+ */
+public class AmortizedEMIStrategy implements RepaymentStrategy {
+
+    private static final int MONTHS_PER_YEAR = 12;
+
+    @Override
+    public void fillSchedule(Loan loan, EMISchedule schedule) {
+        schedule.clear();
+        int months = loan.getLoanTerm();
+        if (months <= 0) {
+            return;
+        }
+        schedule.ensureCapacity(months);
+
+        //interestRate is an annual percentage, as in HomeLoan and CarLoan
+        double monthlyRate = loan.getInterestRate() / 100 / MONTHS_PER_YEAR;
+        long balance = loan.getAmountRequiredMinor();
+        long payment = payment(balance, monthlyRate, months);
+        LocalDate firstDue = loan.getStartDate().toInstant().atZone(ZoneId.systemDefault()).toLocalDate().plusMonths(1);
+        int year = firstDue.getYear();
+        int monthOfYear = firstDue.getMonthValue();
+        int dayOfMonth = firstDue.getDayOfMonth();
+
+        for (int month = 0; month < months; month++) {
+            long interest = Money.multiply(balance, monthlyRate);
+            long principal = month == months - 1 ? balance : Math.min(payment - interest, balance);
+            balance -= principal;
+            int dueDay = InstallmentFrequency.plusMonths(year, monthOfYear, dayOfMonth, month);
+            schedule.add(dueDay, principal + interest, interest, EMIStatus.PENDING);
+        }
+    }
+
+    /**
+     * What the borrower repays in all: the sum of the installments {@link #fillSchedule} writes.
+     * Due dates play no part in it, so it is known before the loan has a start date.
+     */
+    public long totalMinor(Loan loan) {
+        int months = loan.getLoanTerm();
+        if (months <= 0) {
+            return 0;
+        }
+        double monthlyRate = loan.getInterestRate() / 100 / MONTHS_PER_YEAR;
+        long balance = loan.getAmountRequiredMinor();
+        long payment = payment(balance, monthlyRate, months);
+        long total = 0;
+        for (int month = 0; month < months; month++) {
+            long interest = Money.multiply(balance, monthlyRate);
+            long principal = month == months - 1 ? balance : Math.min(payment - interest, balance);
+            balance -= principal;
+            total += principal + interest;
+        }
+        return total;
+    }
+
+    /**
+     * The level installment {@code P·r / (1 − (1 + r)^−n)}, rounded to the cent.
+     */
+    static long payment(long principalMinor, double monthlyRate, int months) {
+        if (monthlyRate == 0) {
+            return Money.installment(principalMinor, months);
+        }
+        return Money.multiply(principalMinor, monthlyRate / (1 - Math.pow(1 + monthlyRate, -months)));
+    }
+}
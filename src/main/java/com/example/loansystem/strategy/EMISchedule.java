@@ -0,0 +1,114 @@
+package com.example.loansystem.strategy;
+
+import com.example.loansystem.model.EMI;
+import com.example.loansystem.model.EMIStatus;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * An installment schedule held as parallel primitive columns: due date as an epoch day, amount
+ * and its interest part in minor units, and status ordinal. The arrays only grow, so a schedule that is cleared and
+ * refilled for loans of similar length allocates nothing. EMI objects are only built by
+ * {@link #toEMIs} when a schedule is handed to persistence.
+ */
+public class EMISchedule {
+
+    private static final EMIStatus[] STATUSES = EMIStatus.values();
+
+    private int[] dueEpochDays;
+    private long[] amountsMinor;
+    private long[] interestsMinor;
+    private byte[] statuses;
+    private int size;
+
+    public EMISchedule() {
+        this(0);
+    }
+
+    public EMISchedule(int capacity) {
+        this.dueEpochDays = new int[capacity];
+        this.amountsMinor = new long[capacity];
+        this.interestsMinor = new long[capacity];
+        this.statuses = new byte[capacity];
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public void ensureCapacity(int capacity) {
+        if (capacity > dueEpochDays.length) {
+            dueEpochDays = Arrays.copyOf(dueEpochDays, capacity);
+            amountsMinor = Arrays.copyOf(amountsMinor, capacity);
+            interestsMinor = Arrays.copyOf(interestsMinor, capacity);
+            statuses = Arrays.copyOf(statuses, capacity);
+        }
+    }
+
+    public void add(int dueEpochDay, long amountMinor, EMIStatus status) {
+        add(dueEpochDay, amountMinor, 0, status);
+    }
+
+    public void add(int dueEpochDay, long amountMinor, long interestMinor, EMIStatus status) {
+        if (size == dueEpochDays.length) {
+            ensureCapacity(Math.max(8, size * 2));
+        }
+        dueEpochDays[size] = dueEpochDay;
+        amountsMinor[size] = amountMinor;
+        interestsMinor[size] = interestMinor;
+        statuses[size] = (byte) status.ordinal();
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int dueEpochDay(int index) {
+        return dueEpochDays[index];
+    }
+
+    public long amountMinor(int index) {
+        return amountsMinor[index];
+    }
+
+    /**
+     * Part of the installment that is interest; zero for schedules that do not split it out.
+     */
+    public long interestMinor(int index) {
+        return interestsMinor[index];
+    }
+
+    public long principalMinor(int index) {
+        return amountsMinor[index] - interestsMinor[index];
+    }
+
+    public EMIStatus status(int index) {
+        return STATUSES[statuses[index]];
+    }
+
+    public long totalMinor() {
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            total += amountsMinor[i];
+        }
+        return total;
+    }
+
+    /**
+     * Materializes the schedule as EMI entities, due at the start of each due day in the given zone.
+     */
+    public List<EMI> toEMIs(Long loanId, Long userId, ZoneId zone) {
+        List<EMI> emis = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Date dueDate = Date.from(LocalDate.ofEpochDay(dueEpochDays[i]).atStartOfDay(zone).toInstant());
+            emis.add(new EMI(loanId, userId, amountsMinor[i], dueDate, STATUSES[statuses[i]]));
+        }
+        return emis;
+    }
+}
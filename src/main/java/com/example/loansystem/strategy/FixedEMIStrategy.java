@@ -1,33 +1,32 @@
 package com.example.loansystem.strategy;
 
-import com.example.loansystem.model.EMI;
 import com.example.loansystem.model.EMIStatus;
 import com.example.loansystem.model.Loan;
+import com.example.loansystem.model.Money;
 
-import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Date;
-import java.util.List;
+import java.time.ZoneId;
 
 public class FixedEMIStrategy implements RepaymentStrategy {
+
+    private static final int DAYS_PER_WEEK = 7;
+
     @Override
-    public List<EMI> generateEMIs(Loan loan) {
-        List<EMI> emis = new ArrayList<>();
-        double amountToBePaid = loan.getAmountToBePaid();
+    public void fillSchedule(Loan loan, EMISchedule schedule) {
+        schedule.clear();
         int loanTermInWeeks = loan.getLoanTerm();
-        double emiAmount = amountToBePaid / loanTermInWeeks;
+        if (loanTermInWeeks <= 0) {
+            return;
+        }
+        schedule.ensureCapacity(loanTermInWeeks);
 
-        Calendar calendar = Calendar.getInstance();
-        calendar.setTime(loan.getStartDate());
+        //Equal weekly installments in minor units; the last one takes the rounding remainder
+        long emiAmount = Money.installment(loan.getAmountToBePaidMinor(), loanTermInWeeks);
+        long lastEmiAmount = Money.lastInstallment(loan.getAmountToBePaidMinor(), loanTermInWeeks);
+        int firstDueDay = (int) loan.getStartDate().toInstant().atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
 
         for (int week = 0; week < loanTermInWeeks; week++) {
-            Date dueDate = calendar.getTime();
-            emis.add(new EMI(loan.getId(), loan.getUserId(),emiAmount, dueDate, EMIStatus.PENDING));
-
-            // Increment the calendar by 7 days (1 week)
-            calendar.add(Calendar.DAY_OF_YEAR, 7);
+            long amount = week == loanTermInWeeks - 1 ? lastEmiAmount : emiAmount;
+            schedule.add(firstDueDay + week * DAYS_PER_WEEK, amount, EMIStatus.PENDING);
         }
-
-        return emis;
     }
 }
@@ -3,8 +3,19 @@ package com.example.loansystem.strategy;
 import com.example.loansystem.model.EMI;
 import com.example.loansystem.model.Loan;
 
+import java.time.ZoneId;
 import java.util.List;
 
 public interface RepaymentStrategy {
-    List<EMI> generateEMIs(Loan loan);
+
+    /**
+     * Writes the installments of the loan into the schedule, replacing whatever it held.
+     */
+    void fillSchedule(Loan loan, EMISchedule schedule);
+
+    default List<EMI> generateEMIs(Loan loan) {
+        EMISchedule schedule = new EMISchedule(Math.max(loan.getLoanTerm(), 0));
+        fillSchedule(loan, schedule);
+        return schedule.toEMIs(loan.getId(), loan.getUserId(), ZoneId.systemDefault());
+    }
 }
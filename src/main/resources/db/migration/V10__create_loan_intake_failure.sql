@@ -0,0 +1,16 @@
+-- Queued loans the intake writer could not insert, kept with the error so they can be replayed
+-- into loan once the cause is fixed. loan_id is the id the client was already given.
+CREATE TABLE loan_intake_failure (
+    loan_id           BIGINT         NOT NULL,
+    user_id           BIGINT         NOT NULL,
+    amount_required   DECIMAL(19, 2) NOT NULL,
+    loan_term         INT            NOT NULL,
+    amount_to_be_paid DECIMAL(19, 2) NOT NULL,
+    interest_rate     DOUBLE         NOT NULL,
+    request_date      DATE,
+    status            INT            NOT NULL,
+    loan_type         INT            NOT NULL,
+    error             VARCHAR(1024),
+    failed_at         TIMESTAMP      NOT NULL,
+    PRIMARY KEY (loan_id)
+);
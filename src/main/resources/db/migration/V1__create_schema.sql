@@ -0,0 +1,32 @@
+CREATE TABLE `user` (
+    id         BIGINT       NOT NULL AUTO_INCREMENT,
+    user_email VARCHAR(255) NOT NULL,
+    password   VARCHAR(255) NOT NULL,
+    user_role  INT,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE loan (
+    id                BIGINT      NOT NULL AUTO_INCREMENT,
+    user_id           BIGINT      NOT NULL,
+    amount_required   DOUBLE      NOT NULL,
+    loan_term         INT         NOT NULL,
+    amount_to_be_paid DOUBLE      NOT NULL,
+    interest_rate     DOUBLE      NOT NULL,
+    request_date      DATE,
+    start_date        DATETIME(6),
+    status            INT         NOT NULL,
+    loan_type         INT         NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_loan_user FOREIGN KEY (user_id) REFERENCES `user` (id)
+);
+
+CREATE TABLE emi (
+    id         BIGINT      NOT NULL AUTO_INCREMENT,
+    loan_id    BIGINT      NOT NULL,
+    user_id    BIGINT      NOT NULL,
+    amount     DOUBLE      NOT NULL,
+    due_date   DATETIME(6) NOT NULL,
+    emi_status INT         NOT NULL,
+    PRIMARY KEY (id)
+);
@@ -0,0 +1,20 @@
+-- One index per access path in the repositories; see SchemaIndexTest for the queries each one serves.
+
+-- UserRepository.findByUserEmail, and one account per email
+ALTER TABLE `user` ADD CONSTRAINT uk_user_email UNIQUE (user_email);
+
+-- LoanRepository.findByUserId / findByUserIdAndStatus and their summary projections
+CREATE INDEX idx_loan_user_status ON loan (user_id, status);
+
+-- LoanRepository.findAllByStatus, keyset pages on (status, id) and the status-ordered export
+CREATE INDEX idx_loan_status_id ON loan (status, id);
+
+-- EMIRepository.findByLoanIdAndEmiStatusNotOrderByDueDateAscIdAsc, findByLoanId, markOpenPaidThrough,
+-- and the open-EMI read and open balance of repayment batches
+CREATE INDEX idx_emi_loan_status_due ON emi (loan_id, emi_status, due_date);
+
+-- EMIRepository.findByUserId
+CREATE INDEX idx_emi_user ON emi (user_id);
+
+-- OverdueEmiRepository keyset walk over pending installments
+CREATE INDEX idx_emi_status_due_id ON emi (emi_status, due_date, id);
@@ -0,0 +1,14 @@
+-- Virtual schedules (aspire.emi.schedule-mode=VIRTUAL): the parameters of a loan's installments
+-- instead of one emi row per installment. Amounts are in minor units.
+CREATE TABLE loan_schedule (
+    loan_id                       BIGINT NOT NULL,
+    user_id                       BIGINT NOT NULL,
+    first_due_date                DATE   NOT NULL,
+    term                          INT    NOT NULL,
+    installment_amount_minor      BIGINT NOT NULL,
+    last_installment_amount_minor BIGINT NOT NULL,
+    frequency                     INT    NOT NULL,
+    amount_repaid_minor           BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (loan_id),
+    CONSTRAINT fk_loan_schedule_loan FOREIGN KEY (loan_id) REFERENCES loan (id)
+);
@@ -0,0 +1,5 @@
+-- Amounts become exact decimals; the entities hold them as long minor units through MoneyConverter.
+-- Existing values are rounded to the cent on conversion.
+ALTER TABLE loan MODIFY COLUMN amount_required DECIMAL(19, 2) NOT NULL;
+ALTER TABLE loan MODIFY COLUMN amount_to_be_paid DECIMAL(19, 2) NOT NULL;
+ALTER TABLE emi MODIFY COLUMN amount DECIMAL(19, 2) NOT NULL;
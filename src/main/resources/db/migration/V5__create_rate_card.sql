@@ -0,0 +1,15 @@
+-- Interest rates per loan type, tiered by amount and term. Loaded into RateCardRegistry at startup
+-- and again on POST /aspire/loans/rate-cards/reload. Each type needs a tier at amount and term 0.
+CREATE TABLE rate_card (
+    loan_type     INT            NOT NULL,
+    min_amount    DECIMAL(19, 2) NOT NULL,
+    min_term      INT            NOT NULL,
+    interest_rate DOUBLE         NOT NULL,
+    PRIMARY KEY (loan_type, min_amount, min_term)
+);
+
+-- The rates LoanFactory used to hardcode (PERSONAL, CAR, HOME)
+INSERT INTO rate_card (loan_type, min_amount, min_term, interest_rate) VALUES
+    (0, 0, 0, 0.10),
+    (1, 0, 0, 0.09),
+    (2, 0, 0, 0.08);
@@ -0,0 +1,15 @@
+-- Responses to POSTs sent with an Idempotency-Key, kept for the retention window so a retry
+-- after a restart or cache eviction still gets the original response.
+CREATE TABLE idempotency_key (
+    user_id         BIGINT       NOT NULL,
+    operation       VARCHAR(64)  NOT NULL,
+    idempotency_key VARCHAR(255) NOT NULL,
+    request_hash    CHAR(64)     NOT NULL,
+    status_code     INT          NOT NULL,
+    response_body   VARCHAR(1024),
+    created_at      DATETIME(6)  NOT NULL,
+    PRIMARY KEY (user_id, operation, idempotency_key)
+);
+
+-- IdempotencyKeyRepository.deleteCreatedBefore
+CREATE INDEX idx_idempotency_key_created_at ON idempotency_key (created_at);
@@ -0,0 +1,26 @@
+-- Append-only history of repayments per loan, numbered by seq within the loan. OPENING holds the
+-- balance when the ledger starts, ALLOCATION the part of a repayment taken by one installment and
+-- REPAYMENT the amount applied plus the next pending installment after it. Amounts in minor units.
+CREATE TABLE loan_ledger (
+    loan_id           BIGINT      NOT NULL,
+    seq               BIGINT      NOT NULL,
+    event_type        INT         NOT NULL,
+    amount_minor      BIGINT      NOT NULL,
+    due_date          DATE,
+    installment_minor BIGINT,
+    created_at        DATETIME(6) NOT NULL,
+    PRIMARY KEY (loan_id, seq),
+    CONSTRAINT fk_loan_ledger_loan FOREIGN KEY (loan_id) REFERENCES loan (id)
+);
+
+-- The ledger folded up to seq, written every aspire.ledger.snapshot-every events
+CREATE TABLE loan_balance_snapshot (
+    loan_id                BIGINT      NOT NULL,
+    seq                    BIGINT      NOT NULL,
+    outstanding_minor      BIGINT      NOT NULL,
+    next_due_date          DATE,
+    next_installment_minor BIGINT,
+    created_at             DATETIME(6) NOT NULL,
+    PRIMARY KEY (loan_id, seq),
+    CONSTRAINT fk_loan_balance_snapshot_loan FOREIGN KEY (loan_id) REFERENCES loan (id)
+);
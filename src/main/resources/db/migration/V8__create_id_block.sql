@@ -0,0 +1,9 @@
+-- High-water mark of ids handed out in blocks, so a queued loan has its id before it is inserted.
+-- Each reservation moves next_id past the block and past any id already in the table.
+CREATE TABLE id_block (
+    name    VARCHAR(64) NOT NULL,
+    next_id BIGINT      NOT NULL,
+    PRIMARY KEY (name)
+);
+
+INSERT INTO id_block (name, next_id) VALUES ('loan', 1);
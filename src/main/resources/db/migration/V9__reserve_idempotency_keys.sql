@@ -0,0 +1,3 @@
+-- A key is reserved before its request runs. Until the response is stored the row has no
+-- status_code, and duplicates from any node see the request as in progress instead of running it.
+ALTER TABLE idempotency_key MODIFY COLUMN status_code INT NULL;
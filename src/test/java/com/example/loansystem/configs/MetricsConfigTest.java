@@ -0,0 +1,38 @@
+package com.example.loansystem.configs;
+
+import com.example.loansystem.repository.IdBlockRepository;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class MetricsConfigTest {
+
+    @Test
+    public void testClassLevelTimedCoversEveryRepositoryMethod() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(1001L);
+        IdBlockRepository target = new IdBlockRepository();
+        ReflectionTestUtils.setField(target, "jdbcTemplate", jdbcTemplate);
+
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(target);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAspect(new MetricsConfig().timedAspect(meterRegistry));
+        IdBlockRepository repository = proxyFactory.getProxy();
+
+        assertEquals(1, repository.reserveLoanIds(1000));
+
+        Timer timer = meterRegistry.get("aspire.repository")
+                .tag("class", IdBlockRepository.class.getName())
+                .tag("method", "reserveLoanIds")
+                .timer();
+        assertEquals(1, timer.count());
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.loansystem.configs;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Two embedded H2 databases stand in for the primary and the replica; each has a one-row table
+ * naming itself, so a query shows which pool served it.
+ */
+public class ReadWriteRoutingDataSourceTest {
+
+    private static JdbcDataSource primary;
+    private static JdbcDataSource replica;
+    private static JdbcTemplate jdbcTemplate;
+    private static TransactionTemplate readWrite;
+    private static TransactionTemplate readOnly;
+
+    @BeforeAll
+    public static void createDatabases() {
+        primary = database("primary");
+        replica = database("replica");
+        DataSource routing = ReadWriteRoutingDataSource.create(primary, replica);
+        jdbcTemplate = new JdbcTemplate(routing);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(routing);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @AfterAll
+    public static void dropDatabases() {
+        new JdbcTemplate(primary).execute("DROP ALL OBJECTS");
+        new JdbcTemplate(replica).execute("DROP ALL OBJECTS");
+    }
+
+    @AfterEach
+    public void clearPin() {
+        ReadWriteRoutingDataSource.clearPrimaryRequired();
+    }
+
+    @Test
+    public void testReadOnlyTransactionsGoToReplica() {
+        assertEquals("replica", readOnly.execute(status -> servedBy()));
+    }
+
+    @Test
+    public void testWritesAndPlainCallsGoToPrimary() {
+        assertEquals("primary", readWrite.execute(status -> servedBy()));
+        assertEquals("primary", servedBy());
+    }
+
+    @Test
+    public void testPinnedReadsGoToPrimary() {
+        ReadWriteRoutingDataSource.requirePrimary();
+
+        assertEquals("primary", readOnly.execute(status -> servedBy()));
+
+        ReadWriteRoutingDataSource.clearPrimaryRequired();
+        assertEquals("replica", readOnly.execute(status -> servedBy()));
+    }
+
+    private static String servedBy() {
+        return jdbcTemplate.queryForObject("SELECT name FROM served_by", String.class);
+    }
+
+    private static JdbcDataSource database(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        JdbcTemplate setup = new JdbcTemplate(dataSource);
+        setup.execute("CREATE TABLE served_by (name VARCHAR(16))");
+        setup.update("INSERT INTO served_by VALUES (?)", name);
+        return dataSource;
+    }
+}
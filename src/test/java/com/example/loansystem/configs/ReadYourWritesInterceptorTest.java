@@ -0,0 +1,85 @@
+package com.example.loansystem.configs;
+
+import com.example.loansystem.security.AuthTokenFilter;
+import com.example.loansystem.service.ReadYourWrites;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReadYourWritesInterceptorTest {
+
+    private ReadYourWrites readYourWrites;
+    private ReadYourWritesInterceptor interceptor;
+
+    @BeforeEach
+    public void setUp() {
+        readYourWrites = new ReadYourWrites(Duration.ofMinutes(1), 100);
+        interceptor = new ReadYourWritesInterceptor(readYourWrites);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        ReadWriteRoutingDataSource.clearPrimaryRequired();
+    }
+
+    @Test
+    public void testReadsAfterOwnWriteArePinnedToPrimary() {
+        interceptor.preHandle(request("POST", 7L), new MockHttpServletResponse(), null);
+        assertTrue(readYourWrites.wroteRecently(7L));
+        assertFalse(pinned());
+
+        interceptor.preHandle(request("GET", 7L), new MockHttpServletResponse(), null);
+        assertTrue(pinned());
+
+        interceptor.afterCompletion(request("GET", 7L), new MockHttpServletResponse(), null, null);
+        assertFalse(pinned());
+    }
+
+    @Test
+    public void testOtherUsersReadFromReplica() {
+        interceptor.preHandle(request("POST", 7L), new MockHttpServletResponse(), null);
+
+        interceptor.preHandle(request("GET", 8L), new MockHttpServletResponse(), null);
+
+        assertFalse(pinned());
+    }
+
+    @Test
+    public void testPinEndsAfterStalenessTolerance() {
+        readYourWrites = new ReadYourWrites(Duration.ZERO, 100);
+        interceptor = new ReadYourWritesInterceptor(readYourWrites);
+        interceptor.preHandle(request("POST", 7L), new MockHttpServletResponse(), null);
+
+        interceptor.preHandle(request("GET", 7L), new MockHttpServletResponse(), null);
+
+        assertFalse(pinned());
+    }
+
+    @Test
+    public void testPinIsClearedWhenResponseIsStreamedElsewhere() {
+        interceptor.preHandle(request("POST", 7L), new MockHttpServletResponse(), null);
+        interceptor.preHandle(request("GET", 7L), new MockHttpServletResponse(), null);
+
+        interceptor.afterConcurrentHandlingStarted(request("GET", 7L), new MockHttpServletResponse(), null);
+
+        assertFalse(pinned());
+    }
+
+    private static MockHttpServletRequest request(String method, Long userId) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, "/aspire/loans/");
+        request.setAttribute(AuthTokenFilter.USER_ID_ATTRIBUTE, userId);
+        return request;
+    }
+
+    private static boolean pinned() {
+        ThreadLocal<?> primaryRequired = (ThreadLocal<?>) ReflectionTestUtils.getField(ReadWriteRoutingDataSource.class, "PRIMARY_REQUIRED");
+        return primaryRequired.get() != null;
+    }
+}
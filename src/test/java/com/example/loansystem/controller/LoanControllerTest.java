@@ -1,12 +1,20 @@
 package com.example.loansystem.controller;
 
 import com.example.loansystem.controller.LoanController;
+import com.example.loansystem.dto.BatchItemResult;
+import com.example.loansystem.dto.BatchItemStatus;
+import com.example.loansystem.dto.CreatedLoan;
+import com.example.loansystem.dto.LoanBalance;
+import com.example.loansystem.dto.LoanPage;
 import com.example.loansystem.dto.LoanRequest;
+import com.example.loansystem.dto.LoanSummary;
+import com.example.loansystem.dto.RepaymentFileReport;
 import com.example.loansystem.dto.RepaymentRequest;
 import com.example.loansystem.exceptions.*;
-import com.example.loansystem.model.Loan;
 import com.example.loansystem.model.LoanStatus;
+import com.example.loansystem.service.IdempotencyService;
 import com.example.loansystem.service.LoanService;
+import com.example.loansystem.service.RepaymentFileService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
@@ -14,9 +22,16 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -30,9 +45,17 @@ public class LoanControllerTest {
     @Mock
     private LoanService loanService;
 
+    @Mock
+    private RepaymentFileService repaymentFileService;
+
+    @Mock
+    private IdempotencyService idempotencyService;
+
     @BeforeEach
     public void setUp() {
         MockitoAnnotations.openMocks(this);
+        when(idempotencyService.execute(any(), anyString(), any(), anyString(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<ResponseEntity<String>>>getArgument(4).get());
     }
 
     @Test
@@ -40,12 +63,45 @@ public class LoanControllerTest {
         LoanRequest loanRequest = new LoanRequest();
         loanRequest.setUserId(1L);
 
-        doNothing().when(loanService).createLoan(loanRequest);
+        when(loanService.createLoan(loanRequest)).thenReturn(new CreatedLoan(7L, false));
 
-        ResponseEntity<String> response = loanController.createLoan(loanRequest);
+        ResponseEntity<String> response = loanController.createLoan(loanRequest, 1L, null);
 
         assertEquals(HttpStatus.CREATED, response.getStatusCode());
-        assertEquals("Loan request created successfully", response.getBody());
+        assertEquals("Loan request created successfully, loan id 7", response.getBody());
+    }
+
+    @Test
+    public void testCreateLoan_Queued() {
+        LoanRequest loanRequest = new LoanRequest();
+        when(loanService.createLoan(loanRequest)).thenReturn(new CreatedLoan(4001L, true));
+
+        ResponseEntity<String> response = loanController.createLoan(loanRequest, 1L, null);
+
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        assertEquals("Loan request accepted, loan id 4001", response.getBody());
+    }
+
+    @Test
+    public void testCreateLoan_IntakeFull() {
+        LoanRequest loanRequest = new LoanRequest();
+        when(loanService.createLoan(loanRequest)).thenThrow(new LoanIntakeFullException("Loan intake queue is full"));
+
+        ResponseEntity<String> response = loanController.createLoan(loanRequest, 1L, null);
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+    }
+
+    @Test
+    public void testCreateLoan_UsesAuthenticatedUser() {
+        LoanRequest loanRequest = new LoanRequest();
+        loanRequest.setUserId(99L);
+        when(loanService.createLoan(loanRequest)).thenReturn(new CreatedLoan(7L, false));
+
+        loanController.createLoan(loanRequest, 1L, null);
+
+        assertEquals(1L, loanRequest.getUserId());
+        verify(loanService, times(1)).createLoan(loanRequest);
     }
 
     @Test
@@ -55,7 +111,7 @@ public class LoanControllerTest {
 
         doThrow((new UserNotFoundException("User not found"))).when(loanService).createLoan(loanRequest);
 
-        ResponseEntity<String> response = loanController.createLoan(loanRequest);
+        ResponseEntity<String> response = loanController.createLoan(loanRequest, 1L, null);
 
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
         assertNull(response.getBody());
@@ -92,10 +148,10 @@ public class LoanControllerTest {
         Long userId = 1L;
         LoanStatus status = LoanStatus.PENDING;
 
-        List<Loan> loans = new ArrayList<>();
+        List<LoanSummary> loans = new ArrayList<>();
         when(loanService.getLoansForUser(userId, status)).thenReturn(loans);
 
-        ResponseEntity<List<Loan>> response = loanController.getMyLoans(status, userId);
+        ResponseEntity<List<LoanSummary>> response = loanController.getMyLoans(status, userId);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertSame(loans, response.getBody());
@@ -106,10 +162,10 @@ public class LoanControllerTest {
         Long userId = 1L;
         LoanStatus status = LoanStatus.PENDING;
 
-        List<Loan> loans = new ArrayList<>();
+        List<LoanSummary> loans = new ArrayList<>();
         when(loanService.getLoansForAdmin(userId, status)).thenReturn(loans);
 
-        ResponseEntity<List<Loan>> response = loanController.getUsersLoans(status, userId);
+        ResponseEntity<List<LoanSummary>> response = loanController.getUsersLoans(status, userId);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertSame(loans, response.getBody());
@@ -125,7 +181,7 @@ public class LoanControllerTest {
         RepaymentRequest repaymentRequest = new RepaymentRequest();
         repaymentRequest.setRepaymentAmount(repaymentAmount);
 
-        ResponseEntity<String> response = loanController.repayLoan(loanId, repaymentRequest);
+        ResponseEntity<String> response = loanController.repayLoan(loanId, repaymentRequest, 1L, null);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals("Repayment successful", response.getBody());
@@ -141,7 +197,7 @@ public class LoanControllerTest {
         RepaymentRequest repaymentRequest = new RepaymentRequest();
         repaymentRequest.setRepaymentAmount(repaymentAmount);
 
-        ResponseEntity<String> response = loanController.repayLoan(loanId, repaymentRequest);
+        ResponseEntity<String> response = loanController.repayLoan(loanId, repaymentRequest, 1L, null);
 
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
         assertNull(response.getBody());
@@ -157,7 +213,7 @@ public class LoanControllerTest {
         RepaymentRequest repaymentRequest = new RepaymentRequest();
         repaymentRequest.setRepaymentAmount(repaymentAmount);
 
-        ResponseEntity<String> response = loanController.repayLoan(loanId, repaymentRequest);
+        ResponseEntity<String> response = loanController.repayLoan(loanId, repaymentRequest, 1L, null);
 
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
         assertEquals("Invalid repayment amount", response.getBody());
@@ -173,7 +229,7 @@ public class LoanControllerTest {
         RepaymentRequest repaymentRequest = new RepaymentRequest();
         repaymentRequest.setRepaymentAmount(repaymentAmount);
 
-        ResponseEntity<String> response = loanController.repayLoan(loanId, repaymentRequest);
+        ResponseEntity<String> response = loanController.repayLoan(loanId, repaymentRequest, 1L, null);
 
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
         assertEquals("Loan is already paid", response.getBody());
@@ -189,7 +245,7 @@ public class LoanControllerTest {
         RepaymentRequest repaymentRequest = new RepaymentRequest();
         repaymentRequest.setRepaymentAmount(repaymentAmount);
 
-        ResponseEntity<String> response = loanController.repayLoan(loanId, repaymentRequest);
+        ResponseEntity<String> response = loanController.repayLoan(loanId, repaymentRequest, 1L, null);
 
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
         assertNull(response.getBody());
@@ -203,11 +259,192 @@ public class LoanControllerTest {
         double repaymentAmount = 100000;
         repaymentRequest.setRepaymentAmount(repaymentAmount); // Less than the first pending EMI amount
         doThrow(new RepaymentAmountException("Repayment Amount should be greater than or equal to EMI Amount")).when(loanService).repayLoan(loanId, repaymentAmount);
-        ResponseEntity<String> response = loanController.repayLoan(loanId, repaymentRequest);
+        ResponseEntity<String> response = loanController.repayLoan(loanId, repaymentRequest, 1L, null);
 
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
         assertEquals("Repayment Amount should be greater than or equal to EMI Amount",response.getBody());
     }
 
-}
+    @Test
+    public void testRepayLoanBusy() {
+        Long loanId = 1L;
+        RepaymentRequest repaymentRequest = new RepaymentRequest();
+        repaymentRequest.setRepaymentAmount(100.0);
+        doThrow(new LoanBusyException("Loan is busy, retry later: 1")).when(loanService).repayLoan(loanId, 100.0);
+
+        ResponseEntity<String> response = loanController.repayLoan(loanId, repaymentRequest, 1L, null);
+
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+    }
+
+    @Test
+    public void testGetUsersLoansPage() {
+        Long userId = 1L;
+        LoanPage page = new LoanPage(new ArrayList<>(), null);
+        when(loanService.getLoansPageForAdmin(userId, LoanStatus.PENDING, null, 50)).thenReturn(page);
 
+        ResponseEntity<LoanPage> response = loanController.getUsersLoansPage(LoanStatus.PENDING, userId, null, 50);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertSame(page, response.getBody());
+    }
+
+    @Test
+    public void testGetUsersLoansPage_InvalidCursor() {
+        Long userId = 1L;
+        when(loanService.getLoansPageForAdmin(userId, null, "bad", 50)).thenThrow(new InvalidCursorException("Invalid cursor: bad"));
+
+        ResponseEntity<LoanPage> response = loanController.getUsersLoansPage(null, userId, "bad", 50);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    public void testCreateLoans() {
+        Long userId = 1L;
+        List<LoanRequest> loanRequests = List.of(new LoanRequest());
+        List<BatchItemResult> results = List.of(new BatchItemResult(0, null, BatchItemStatus.CREATED, null));
+        when(loanService.createLoans(loanRequests, userId)).thenReturn(results);
+
+        ResponseEntity<List<BatchItemResult>> response = loanController.createLoans(loanRequests, userId);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertSame(results, response.getBody());
+    }
+
+    @Test
+    public void testCreateLoans_NotAdmin() {
+        Long userId = 2L;
+        List<LoanRequest> loanRequests = List.of(new LoanRequest());
+        when(loanService.createLoans(loanRequests, userId)).thenThrow(new InvalidUserAuthority("You dont have access for this feature"));
+
+        ResponseEntity<List<BatchItemResult>> response = loanController.createLoans(loanRequests, userId);
+
+        assertEquals(HttpStatus.FORBIDDEN, response.getStatusCode());
+    }
+
+    @Test
+    public void testApproveLoans() {
+        Long userId = 1L;
+        List<Long> loanIds = List.of(1L, 2L);
+        List<BatchItemResult> results = List.of(
+                new BatchItemResult(0, 1L, BatchItemStatus.APPROVED, null),
+                new BatchItemResult(1, 2L, BatchItemStatus.REJECTED, "Loan Not Found for: 2"));
+        when(loanService.approveLoans(loanIds, userId)).thenReturn(results);
+
+        ResponseEntity<List<BatchItemResult>> response = loanController.approveLoans(loanIds, userId);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertSame(results, response.getBody());
+    }
+
+    @Test
+    public void testApproveLoans_TooMany() {
+        Long userId = 1L;
+        List<Long> loanIds = List.of(1L);
+        when(loanService.approveLoans(loanIds, userId)).thenThrow(new BatchSizeExceededException("At most 5000 loans per approval batch"));
+
+        ResponseEntity<List<BatchItemResult>> response = loanController.approveLoans(loanIds, userId);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    public void testIngestRepaymentFile() throws IOException {
+        Long userId = 1L;
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setContent("10,100\n".getBytes());
+        when(repaymentFileService.ingest(any(InputStream.class), eq(userId)))
+                .thenReturn(new RepaymentFileReport(1, 1, new ArrayList<>()));
+
+        ResponseEntity<StreamingResponseBody> response = loanController.ingestRepaymentFile(request, userId);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        response.getBody().writeTo(body);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertTrue(body.toString().startsWith("total_lines,applied_lines,rejected_lines\n1,1,0\n"));
+    }
+
+    @Test
+    public void testIngestRepaymentFile_NotAdmin() throws IOException {
+        Long userId = 2L;
+        when(repaymentFileService.ingest(any(InputStream.class), eq(userId)))
+                .thenThrow(new InvalidUserAuthority("You dont have access for this feature"));
+
+        ResponseEntity<StreamingResponseBody> response = loanController.ingestRepaymentFile(new MockHttpServletRequest(), userId);
+
+        assertEquals(HttpStatus.FORBIDDEN, response.getStatusCode());
+    }
+
+    @Test
+    public void testGetLoanBalance() {
+        LoanBalance balance = new LoanBalance(1L, 3, 25_000, LocalDate.of(2024, 1, 8), 5_000);
+        when(loanService.getLoanBalance(1L, 7L)).thenReturn(balance);
+
+        ResponseEntity<LoanBalance> response = loanController.getLoanBalance(1L, 7L);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertSame(balance, response.getBody());
+    }
+
+    @Test
+    public void testGetLoanBalance_LoanNotFound() {
+        when(loanService.getLoanBalance(1L, 7L)).thenThrow(new LoanNotFoundException("Loan Not Found for: 1"));
+
+        ResponseEntity<LoanBalance> response = loanController.getLoanBalance(1L, 7L);
+
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+
+    @Test
+    public void testGetLoanBalance_NotOwnerOrAdmin() {
+        when(loanService.getLoanBalance(1L, 8L)).thenThrow(new InvalidUserAuthority("You dont have access for this feature"));
+
+        ResponseEntity<LoanBalance> response = loanController.getLoanBalance(1L, 8L);
+
+        assertEquals(HttpStatus.FORBIDDEN, response.getStatusCode());
+    }
+
+    @Test
+    public void testReloadRateCard() {
+        Long userId = 1L;
+        when(loanService.reloadRateCard(userId)).thenReturn(3);
+
+        ResponseEntity<String> response = loanController.reloadRateCard(userId);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("Rate card reloaded with 3 tiers", response.getBody());
+    }
+
+    @Test
+    public void testReloadRateCard_Invalid() {
+        Long userId = 1L;
+        when(loanService.reloadRateCard(userId)).thenThrow(new InvalidRateCardException("No base rate for HOME"));
+
+        ResponseEntity<String> response = loanController.reloadRateCard(userId);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    public void testReloadRateCard_NotAdmin() {
+        Long userId = 2L;
+        when(loanService.reloadRateCard(userId)).thenThrow(new InvalidUserAuthority("You dont have access for this feature"));
+
+        ResponseEntity<String> response = loanController.reloadRateCard(userId);
+
+        assertEquals(HttpStatus.FORBIDDEN, response.getStatusCode());
+    }
+
+    @Test
+    public void testRepayLoanIdempotencyKeyIsScopedToLoan() {
+        RepaymentRequest repaymentRequest = new RepaymentRequest();
+        repaymentRequest.setRepaymentAmount(100.0);
+
+        ResponseEntity<String> response = loanController.repayLoan(7L, repaymentRequest, 1L, "retry-1");
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        verify(idempotencyService).execute(eq(1L), eq("repayLoan:7"), eq("retry-1"), eq("100.0"), any());
+        verify(loanService).repayLoan(7L, 100.0);
+    }
+}
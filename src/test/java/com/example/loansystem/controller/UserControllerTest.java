@@ -4,6 +4,8 @@ import com.example.loansystem.dto.UserDTO;
 import com.example.loansystem.dto.LoginRequest;
 import com.example.loansystem.exceptions.UserAlreadyExistsException;
 import com.example.loansystem.exceptions.BadCredentialsException;
+import com.example.loansystem.exceptions.HashingCapacityExceededException;
+import com.example.loansystem.security.LoginRateLimiter;
 import com.example.loansystem.service.UserService;
 import com.example.loansystem.controller.UserController;
 import org.junit.jupiter.api.Test;
@@ -13,7 +15,10 @@ import org.mockito.MockitoAnnotations;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
+import java.util.concurrent.CompletableFuture;
+
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 public class UserControllerTest {
@@ -21,11 +26,15 @@ public class UserControllerTest {
     @Mock
     private UserService userService;
 
+    @Mock
+    private LoginRateLimiter loginRateLimiter;
+
     @InjectMocks
     private UserController userController;
 
     public UserControllerTest() {
         MockitoAnnotations.openMocks(this);
+        when(loginRateLimiter.tryAcquire(anyString())).thenReturn(true);
     }
 
     @Test
@@ -36,10 +45,10 @@ public class UserControllerTest {
         userDTO.setPassword("password");
 
         // Mock the userService to return success
-        doNothing().when(userService).registerUser(userDTO);
+        when(userService.registerUser(userDTO)).thenReturn(CompletableFuture.completedFuture(null));
 
         // Call the controller method
-        ResponseEntity<String> response = userController.registerUser(userDTO);
+        ResponseEntity<String> response = userController.registerUser(userDTO).join();
 
         // Assert that the response is a success (HTTP Status 201)
         assertEquals(HttpStatus.CREATED, response.getStatusCode());
@@ -54,10 +63,10 @@ public class UserControllerTest {
         userDTO.setPassword("password");
 
         // Mock the userService to throw UserAlreadyExistsException
-        doThrow(UserAlreadyExistsException.class).when(userService).registerUser(userDTO);
+        when(userService.registerUser(userDTO)).thenReturn(CompletableFuture.failedFuture(new UserAlreadyExistsException("Username already exists.")));
 
         // Call the controller method
-        ResponseEntity<String> response = userController.registerUser(userDTO);
+        ResponseEntity<String> response = userController.registerUser(userDTO).join();
 
         // Assert that the response indicates a conflict (HTTP Status 400)
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
@@ -72,10 +81,10 @@ public class UserControllerTest {
         loginRequest.setPassword("password");
 
         // Mock the userService to return a token
-        when(userService.loginUser(loginRequest.getUsername(), loginRequest.getPassword())).thenReturn("valid-token");
+        when(userService.loginUser(loginRequest.getUsername(), loginRequest.getPassword())).thenReturn(CompletableFuture.completedFuture("valid-token"));
 
         // Call the controller method
-        ResponseEntity<String> response = userController.loginUser(loginRequest);
+        ResponseEntity<String> response = userController.loginUser(loginRequest).join();
 
         // Assert that the response contains a valid token and has HTTP Status 200 (OK)
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -91,13 +100,42 @@ public class UserControllerTest {
         loginRequest.setPassword("invalid-password");
 
         // Mock the userService to throw BadCredentialsException
-        when(userService.loginUser(loginRequest.getUsername(), loginRequest.getPassword())).thenThrow(BadCredentialsException.class);
+        when(userService.loginUser(loginRequest.getUsername(), loginRequest.getPassword()))
+                .thenReturn(CompletableFuture.failedFuture(new BadCredentialsException("Invalid username or password")));
 
         // Call the controller method
-        ResponseEntity<String> response = userController.loginUser(loginRequest);
+        ResponseEntity<String> response = userController.loginUser(loginRequest).join();
 
         // Assert that the response indicates unauthorized (HTTP Status 401)
         assertEquals(HttpStatus.UNAUTHORIZED, response.getStatusCode());
         assertEquals("Invalid username or password", response.getBody());
     }
+
+    @Test
+    public void testLoginUser_HashingQueueFull() {
+        LoginRequest loginRequest = new LoginRequest();
+        loginRequest.setUsername("test@example.com");
+        loginRequest.setPassword("password");
+
+        when(userService.loginUser(loginRequest.getUsername(), loginRequest.getPassword()))
+                .thenReturn(CompletableFuture.failedFuture(new HashingCapacityExceededException("Password hashing queue is full")));
+
+        ResponseEntity<String> response = userController.loginUser(loginRequest).join();
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+    }
+
+    @Test
+    public void testLoginUser_ShedByRateLimiter() {
+        LoginRequest loginRequest = new LoginRequest();
+        loginRequest.setUsername("victim@example.com");
+        loginRequest.setPassword("guess");
+
+        when(loginRateLimiter.tryAcquire("victim@example.com")).thenReturn(false);
+
+        ResponseEntity<String> response = userController.loginUser(loginRequest).join();
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, response.getStatusCode());
+        verifyNoInteractions(userService);
+    }
 }
@@ -0,0 +1,60 @@
+package com.example.loansystem.dto;
+
+import com.example.loansystem.model.Loan;
+import com.example.loansystem.model.LoanStatus;
+import com.example.loansystem.model.LoanType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.BeanUtils;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.lang.reflect.Parameter;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoanSummaryTest {
+
+    @Test
+    public void testConstructorParametersNameLoanProperties() {
+        //Spring Data selects the Loan properties named by the constructor parameters
+        Parameter[] parameters = LoanSummary.class.getConstructors()[0].getParameters();
+
+        assertEquals(List.of("id", "userId", "amountRequiredMinor", "loanTerm", "amountToBePaidMinor", "interestRate",
+                "requestDate", "startDate", "status", "loanType"), Arrays.stream(parameters).map(Parameter::getName).toList());
+        for (Parameter parameter : parameters) {
+            assertNotNull(BeanUtils.getPropertyDescriptor(Loan.class, parameter.getName()), parameter.getName());
+        }
+    }
+
+    @Test
+    public void testJsonKeepsMajorUnitAmounts() throws Exception {
+        LoanSummary summary = new LoanSummary(1L, 2L, 100050L, 52, 1001L, 0.1, null, null, LoanStatus.PENDING, LoanType.PERSONAL);
+
+        JsonNode json = new ObjectMapper().valueToTree(summary);
+
+        assertEquals(1000.5, json.get("amountRequired").asDouble());
+        assertEquals(10.01, json.get("amountToBePaid").asDouble());
+        assertFalse(json.has("amountRequiredMinor"));
+    }
+
+    @Test
+    public void testStartDateIsWrittenLikeTheStreamingExport() throws Exception {
+        Timestamp startDate = Timestamp.from(Instant.parse("2024-03-01T10:15:30.250Z"));
+        LoanSummary summary = new LoanSummary(1L, 2L, 100000L, 52, 110000L, 0.1, LocalDate.of(2024, 2, 28), startDate,
+                LoanStatus.APPROVED, LoanType.PERSONAL);
+
+        //Built like Spring Boot's own ObjectMapper
+        JsonNode json = Jackson2ObjectMapperBuilder.json().featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build().valueToTree(summary);
+
+        assertEquals(startDate.toInstant().toString(), json.get("startDate").asText());
+        assertEquals("2024-02-28", json.get("requestDate").asText());
+    }
+}
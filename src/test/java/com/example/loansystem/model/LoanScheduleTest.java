@@ -0,0 +1,85 @@
+package com.example.loansystem.model;
+
+import com.example.loansystem.strategy.EMISchedule;
+import com.example.loansystem.strategy.FixedEMIStrategy;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoanScheduleTest {
+
+    @Test
+    public void testFixedScheduleCompactsToItsParameters() {
+        Loan loan = loan(3, 100000);
+        EMISchedule schedule = new EMISchedule();
+        new FixedEMIStrategy().fillSchedule(loan, schedule);
+
+        LoanSchedule loanSchedule = LoanSchedule.fromSchedule(loan, schedule);
+
+        assertEquals(3, loanSchedule.getTerm());
+        assertEquals(33333, loanSchedule.getInstallmentMinor());
+        assertEquals(33334, loanSchedule.getLastInstallmentMinor());
+        assertEquals(schedule.dueEpochDay(0), loanSchedule.getFirstDueDay());
+        assertEquals(InstallmentFrequency.WEEKLY, loanSchedule.getFrequency());
+        assertEquals(100000, loanSchedule.totalMinor());
+    }
+
+    @Test
+    public void testIrregularScheduleIsNotCompacted() {
+        EMISchedule schedule = new EMISchedule();
+        schedule.add(100, 5000, EMIStatus.PENDING);
+        schedule.add(107, 4000, EMIStatus.PENDING);
+        schedule.add(114, 5000, EMIStatus.PENDING);
+        assertNull(LoanSchedule.fromSchedule(loan(3, 14000), schedule));
+
+        schedule.clear();
+        schedule.add(100, 5000, EMIStatus.PENDING);
+        schedule.add(110, 5000, EMIStatus.PENDING);
+        assertNull(LoanSchedule.fromSchedule(loan(2, 10000), schedule));
+
+        schedule.clear();
+        assertNull(LoanSchedule.fromSchedule(loan(0, 0), schedule));
+    }
+
+    @Test
+    public void testRepaidTotalSpreadsOverInstallmentsInDueOrder() {
+        LoanSchedule loanSchedule = new LoanSchedule(1L, 7L, 100, 3, 33333, 33334, InstallmentFrequency.WEEKLY, 40000);
+
+        assertEquals(1, loanSchedule.firstUnpaidIndex());
+        assertEquals(0, loanSchedule.remainingMinor(0));
+        assertEquals(26666, loanSchedule.remainingMinor(1));
+        assertEquals(33334, loanSchedule.remainingMinor(2));
+        assertEquals(60000, loanSchedule.outstandingMinor());
+
+        loanSchedule.setAmountRepaidMinor(66666);
+        assertEquals(2, loanSchedule.firstUnpaidIndex());
+
+        loanSchedule.setAmountRepaidMinor(100000);
+        assertEquals(3, loanSchedule.firstUnpaidIndex());
+    }
+
+    @Test
+    public void testMonthlyDueDaysMatchLocalDate() {
+        LocalDate[] firsts = {LocalDate.of(2024, 1, 31), LocalDate.of(2023, 2, 28), LocalDate.of(1999, 12, 15), LocalDate.of(1969, 8, 30)};
+        for (LocalDate first : firsts) {
+            for (int months = 0; months < 600; months++) {
+                assertEquals(first.plusMonths(months).toEpochDay(),
+                        InstallmentFrequency.plusMonths(first.getYear(), first.getMonthValue(), first.getDayOfMonth(), months),
+                        first + " + " + months);
+            }
+        }
+    }
+
+    private Loan loan(int term, long amountToBePaidMinor) {
+        Loan loan = new Loan();
+        loan.setId(1L);
+        loan.setUserId(7L);
+        loan.setLoanTerm(term);
+        loan.setAmountToBePaidMinor(amountToBePaidMinor);
+        loan.setStartDate(new Date());
+        return loan;
+    }
+}
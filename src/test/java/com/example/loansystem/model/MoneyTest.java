@@ -0,0 +1,49 @@
+package com.example.loansystem.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MoneyTest {
+
+    @Test
+    public void testMajorAmountsRoundHalfEvenOnTheirDecimalForm() {
+        assertEquals(28, Money.ofMajor(0.285));
+        assertEquals(30, Money.ofMajor(0.1 + 0.2));
+        assertEquals(1004, Money.ofMajor(10.045));
+        assertEquals(1006, Money.ofMajor(10.055));
+        assertEquals(-250, Money.ofMajor(-2.5));
+    }
+
+    @Test
+    public void testInstallmentsAddUpToTheTotal() {
+        long total = 100000;
+        for (int parts = 1; parts <= 520; parts++) {
+            long sum = Money.installment(total, parts) * (parts - 1) + Money.lastInstallment(total, parts);
+            assertEquals(total, sum, "parts=" + parts);
+        }
+        assertEquals(33333, Money.installment(total, 3));
+        assertEquals(33334, Money.lastInstallment(total, 3));
+    }
+
+    @Test
+    public void testMultiplyRoundsToWholeMinorUnits() {
+        assertEquals(2, Money.multiply(5, 0.5));
+        assertEquals(8, Money.multiply(15, 0.5));
+        //Personal loan interest on 1000.00 over 52 weeks at 0.10
+        assertEquals(100, Money.multiply(100000, 0.10 * 52 / (100 * 52)));
+    }
+
+    @Test
+    public void testConverterKeepsAmountsExact() {
+        MoneyConverter converter = new MoneyConverter();
+
+        assertEquals(new BigDecimal("1234567890123.45"), converter.convertToDatabaseColumn(123456789012345L));
+        assertEquals(123456789012345L, converter.convertToEntityAttribute(new BigDecimal("1234567890123.45")));
+        assertEquals(1050L, converter.convertToEntityAttribute(new BigDecimal("10.5")));
+        assertNull(converter.convertToDatabaseColumn(null));
+        assertNull(converter.convertToEntityAttribute(null));
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.loansystem.repository;
+
+import com.example.loansystem.model.Loan;
+import com.example.loansystem.model.LoanStatus;
+import com.example.loansystem.model.LoanType;
+import org.flywaydb.core.Flyway;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Inserts loans into the migrated schema in H2 and checks every loan gets the id of its own row,
+ * across more than one JDBC batch, and that a failed intake loan is kept with its error.
+ */
+public class LoanBatchWriterTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private LoanBatchWriter loanBatchWriter;
+
+    @BeforeEach
+    public void setUp() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:loan-batch-writer;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("INSERT INTO `user` (id, user_email, password, user_role) VALUES (1, 'borrower@example.com', 'hash', 1)");
+
+        loanBatchWriter = new LoanBatchWriter();
+        ReflectionTestUtils.setField(loanBatchWriter, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(loanBatchWriter, "batchSize", 2);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    public void testInsertLoansSetsGeneratedIds() {
+        List<Loan> loans = new ArrayList<>();
+        for (int term = 1; term <= 5; term++) {
+            loans.add(Loan.builder().userId(1L).amountRequiredMinor(100_00).loanTerm(term).amountToBePaidMinor(110_00)
+                    .interestRate(10).status(LoanStatus.PENDING).loanType(LoanType.PERSONAL).build());
+        }
+
+        assertEquals(5, loanBatchWriter.insertLoans(loans));
+
+        for (Loan loan : loans) {
+            assertNotNull(loan.getId());
+            assertEquals(loan.getLoanTerm(), jdbcTemplate.queryForObject("SELECT loan_term FROM loan WHERE id = ?", Integer.class, loan.getId()));
+        }
+    }
+
+    @Test
+    public void testInsertIntakeFailureKeepsTheLoanAndItsError() {
+        Loan loan = Loan.builder().userId(1L).amountRequiredMinor(100_00).loanTerm(52).amountToBePaidMinor(110_00)
+                .interestRate(10).status(LoanStatus.PENDING).loanType(LoanType.PERSONAL).build();
+        loan.setId(4001L);
+
+        loanBatchWriter.insertIntakeFailure(loan, "x".repeat(2000), new Timestamp(0));
+
+        assertEquals(52, jdbcTemplate.queryForObject("SELECT loan_term FROM loan_intake_failure WHERE loan_id = 4001", Integer.class));
+        assertEquals(1024, jdbcTemplate.queryForObject("SELECT LENGTH(error) FROM loan_intake_failure WHERE loan_id = 4001", Integer.class));
+    }
+}
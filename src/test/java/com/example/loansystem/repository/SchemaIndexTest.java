@@ -0,0 +1,138 @@
+package com.example.loansystem.repository;
+
+import org.flywaydb.core.Flyway;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Applies the Flyway migrations to H2 in MySQL mode and checks the plan of the SQL behind every
+ * keyed repository query. Derived queries are written out the way Hibernate renders them.
+ * findAll() and findSummariesBy() read the whole table by design and are not listed.
+ */
+public class SchemaIndexTest {
+
+    private static JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    public static void migrate() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:schema;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        Flyway.configure().dataSource(dataSource).load().migrate();
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("INSERT INTO `user` (id, user_email, password, user_role) " +
+                "SELECT X, CONCAT('user', X, '@example.com'), 'hash', MOD(X, 2) FROM SYSTEM_RANGE(1, 1000) r(x)");
+        jdbcTemplate.execute("INSERT INTO loan (id, user_id, amount_required, loan_term, amount_to_be_paid, interest_rate, " +
+                "request_date, start_date, status, loan_type) SELECT X, MOD(X, 1000) + 1, 1000, 52, 1100, 10, " +
+                "DATE '2023-01-01', TIMESTAMP '2023-01-01 00:00:00', MOD(X, 5), MOD(X, 3) FROM SYSTEM_RANGE(1, 20000) r(x)");
+        jdbcTemplate.execute("INSERT INTO emi (id, loan_id, user_id, amount, due_date, emi_status) " +
+                "SELECT X, MOD(X, 20000) + 1, MOD(X, 1000) + 1, 21, DATEADD('DAY', MOD(X, 52) * 7, TIMESTAMP '2023-01-01 00:00:00'), " +
+                "MOD(X, 3) FROM SYSTEM_RANGE(1, 100000) r(x)");
+        jdbcTemplate.execute("INSERT INTO loan_schedule (loan_id, user_id, first_due_date, term, installment_amount_minor, " +
+                "last_installment_amount_minor, frequency, amount_repaid_minor) SELECT X, MOD(X, 1000) + 1, DATE '2023-01-01', " +
+                "52, 2115, 2135, 0, 0 FROM SYSTEM_RANGE(1, 20000) r(x)");
+        jdbcTemplate.execute("INSERT INTO loan_ledger (loan_id, seq, event_type, amount_minor, created_at) " +
+                "SELECT MOD(X, 20000) + 1, X / 20000 + 1, 1, 2115, TIMESTAMP '2023-01-01 00:00:00' FROM SYSTEM_RANGE(0, 99999) r(x)");
+        jdbcTemplate.execute("INSERT INTO loan_balance_snapshot (loan_id, seq, outstanding_minor, created_at) " +
+                "SELECT X, 4, 100000, TIMESTAMP '2023-01-01 00:00:00' FROM SYSTEM_RANGE(1, 20000) r(x)");
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @AfterAll
+    public static void dropSchema() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    static Stream<Arguments> repositoryQueries() {
+        String loanColumns = "SELECT id, user_id, amount_required, loan_term, amount_to_be_paid, interest_rate, " +
+                "request_date, start_date, status, loan_type FROM loan";
+        String emiColumns = "SELECT id, loan_id, user_id, amount, due_date, emi_status FROM emi";
+        String scheduleColumns = "SELECT loan_id, user_id, first_due_date, term, installment_amount_minor, " +
+                "last_installment_amount_minor, frequency, amount_repaid_minor FROM loan_schedule";
+        return Stream.of(
+                Arguments.of("LoanRepository.findByUserId", loanColumns + " WHERE user_id = 7"),
+                Arguments.of("LoanRepository.findByUserIdAndStatus", loanColumns + " WHERE user_id = 7 AND status = 1"),
+                Arguments.of("LoanRepository.findAllByStatus", loanColumns + " WHERE status = 1"),
+                Arguments.of("LoanRepository.findById", loanColumns + " WHERE id = 42"),
+                Arguments.of("LoanRepository.findByIdAndStatus", loanColumns + " WHERE id = 42 AND status = 0 FOR UPDATE"),
+                Arguments.of("LoanRepository.findSummariesByStatusAndIdGreaterThanOrderByIdAsc",
+                        loanColumns + " WHERE status = 1 AND id > 500 ORDER BY id LIMIT 50"),
+                Arguments.of("LoanRepository.findByIdIn", loanColumns + " WHERE id IN (1, 2, 3) FOR UPDATE"),
+                Arguments.of("LoanRepository.approvePending",
+                        "UPDATE loan SET status = 1, start_date = TIMESTAMP '2024-01-01 00:00:00' WHERE id IN (1, 2, 3) AND status = 0"),
+                Arguments.of("LoanStreamRepository.streamLoans", loanColumns + " WHERE status = 2 ORDER BY id"),
+                Arguments.of("EMIRepository.findByUserId", emiColumns + " WHERE user_id = 7"),
+                Arguments.of("EMIRepository.findByLoanId", emiColumns + " WHERE loan_id = 7"),
+                Arguments.of("EMIRepository.findByLoanIdAndEmiStatusNotOrderByDueDateAscIdAsc",
+                        emiColumns + " WHERE loan_id = 7 AND emi_status <> 1 ORDER BY due_date, id LIMIT 16"),
+                Arguments.of("EMIRepository.markOpenPaidThrough",
+                        "UPDATE emi SET emi_status = 1 WHERE loan_id = 7 AND emi_status <> 1 AND due_date <= TIMESTAMP '2023-03-01 00:00:00'"),
+                Arguments.of("EMIRepository.deductFromAmount", "UPDATE emi SET amount = amount - 5 WHERE id = 42"),
+                Arguments.of("RepaymentBatchRepository.lockLoansInStatus",
+                        "SELECT id FROM loan WHERE status = 0 AND id IN (1, 2, 3) FOR UPDATE"),
+                Arguments.of("RepaymentBatchRepository.findOpenEmis",
+                        emiColumns + " WHERE loan_id IN (1, 2, 3) AND emi_status <> 1 ORDER BY loan_id, due_date"),
+                Arguments.of("RepaymentBatchRepository.sumOpenAmountMinor",
+                        "SELECT COALESCE(SUM(amount), 0) FROM emi WHERE loan_id = 7 AND emi_status <> 1"),
+                Arguments.of("LoanScheduleRepository.findByLoanId", scheduleColumns + " WHERE loan_id = 7"),
+                Arguments.of("LoanScheduleRepository.lockByLoanId", scheduleColumns + " WHERE loan_id = 7 FOR UPDATE"),
+                Arguments.of("LoanScheduleRepository.lockByLoanIds", scheduleColumns + " WHERE loan_id IN (1, 2, 3) FOR UPDATE"),
+                Arguments.of("LoanScheduleRepository.updateAmountsRepaid",
+                        "UPDATE loan_schedule SET amount_repaid_minor = 500 WHERE loan_id = 7"),
+                Arguments.of("OverdueEmiRepository.scanPending",
+                        "SELECT id, due_date FROM emi WHERE emi_status = 0 AND due_date >= TIMESTAMP '2023-01-01 00:00:00' " +
+                                "AND due_date < TIMESTAMP '2023-02-01 00:00:00' AND (due_date > TIMESTAMP '2023-01-01 00:00:00' OR id > 0) " +
+                                "ORDER BY due_date, id LIMIT 5000"),
+                Arguments.of("OverdueEmiRepository.markOverdue",
+                        "UPDATE emi SET emi_status = 2 WHERE emi_status = 0 AND due_date >= TIMESTAMP '2023-01-01 00:00:00' " +
+                                "AND due_date <= TIMESTAMP '2023-01-08 00:00:00' AND (due_date > TIMESTAMP '2023-01-01 00:00:00' OR id > 0) " +
+                                "AND (due_date < TIMESTAMP '2023-01-08 00:00:00' OR id <= 900)"),
+                Arguments.of("LoanLedgerRepository.lastSeqs",
+                        "SELECT loan_id, MAX(seq) AS last_seq FROM loan_ledger WHERE loan_id IN (1, 2, 3) GROUP BY loan_id"),
+                Arguments.of("LoanLedgerRepository.eventsAfter",
+                        "SELECT loan_id, seq, event_type, amount_minor, due_date, installment_minor FROM loan_ledger " +
+                                "WHERE loan_id = 7 AND seq > 4 ORDER BY seq"),
+                Arguments.of("LoanLedgerRepository.latestSnapshot",
+                        "SELECT loan_id, seq, outstanding_minor, next_due_date, next_installment_minor FROM loan_balance_snapshot " +
+                                "WHERE loan_id = 7 ORDER BY seq DESC LIMIT 1"),
+                Arguments.of("IdempotencyKeyRepository.find",
+                        "SELECT request_hash, status_code, response_body FROM idempotency_key WHERE user_id = 7 " +
+                                "AND operation = 'repayLoan:42' AND idempotency_key = 'k-1' AND created_at >= TIMESTAMP '2023-01-01 00:00:00'"),
+                Arguments.of("IdempotencyKeyRepository.complete",
+                        "UPDATE idempotency_key SET status_code = 200, response_body = 'ok' WHERE user_id = 7 " +
+                                "AND operation = 'repayLoan:42' AND idempotency_key = 'k-1' AND status_code IS NULL"),
+                Arguments.of("IdempotencyKeyRepository.release",
+                        "DELETE FROM idempotency_key WHERE user_id = 7 AND operation = 'repayLoan:42' " +
+                                "AND idempotency_key = 'k-1' AND status_code IS NULL"),
+                Arguments.of("IdempotencyKeyRepository.deleteExpired",
+                        "DELETE FROM idempotency_key WHERE user_id = 7 AND operation = 'repayLoan:42' " +
+                                "AND idempotency_key = 'k-1' AND created_at < TIMESTAMP '2023-01-01 00:00:00'"),
+                Arguments.of("IdempotencyKeyRepository.deleteCreatedBefore",
+                        "DELETE FROM idempotency_key WHERE created_at < TIMESTAMP '2023-01-01 00:00:00'"),
+                Arguments.of("IdBlockRepository.reserveLoanIds",
+                        "UPDATE id_block SET next_id = GREATEST(next_id, (SELECT COALESCE(MAX(id), 0) + 1 FROM loan)) + 1000 " +
+                                "WHERE name = 'loan'"),
+                Arguments.of("UserRepository.findByUserEmail",
+                        "SELECT id, user_email, password, user_role FROM `user` WHERE user_email = 'user7@example.com'"),
+                Arguments.of("UserRepository.findById", "SELECT id, user_email, password, user_role FROM `user` WHERE id = 7"),
+                Arguments.of("UserRepository.findExistingIds", "SELECT id FROM `user` WHERE id IN (1, 2, 3)")
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("repositoryQueries")
+    public void testQueryUsesAnIndex(String repositoryMethod, String sql) {
+        String plan = jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class);
+
+        assertFalse(plan.contains("tableScan"), repositoryMethod + " scans the whole table:\n" + plan);
+    }
+}
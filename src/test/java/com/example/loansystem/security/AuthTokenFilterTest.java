@@ -0,0 +1,69 @@
+package com.example.loansystem.security;
+
+import com.example.loansystem.exceptions.InvalidTokenException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class AuthTokenFilterTest {
+
+    @Mock
+    private TokenService tokenService;
+
+    private AuthTokenFilter authTokenFilter;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        authTokenFilter = new AuthTokenFilter(tokenService);
+    }
+
+    @Test
+    public void testValidTokenPopulatesCallerAttributes() throws Exception {
+        when(tokenService.verifyToken("good")).thenReturn(new AuthenticatedUser(3L));
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/aspire/loans/");
+        request.addHeader("Authorization", "Bearer good");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        authTokenFilter.doFilter(request, response, chain);
+
+        assertSame(request, chain.getRequest());
+        assertEquals(3L, request.getAttribute(AuthTokenFilter.USER_ID_ATTRIBUTE));
+    }
+
+    @Test
+    public void testMissingTokenIsUnauthorized() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/aspire/loans/");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        authTokenFilter.doFilter(request, response, chain);
+
+        assertEquals(HttpStatus.UNAUTHORIZED.value(), response.getStatus());
+        assertNull(chain.getRequest());
+        verifyNoInteractions(tokenService);
+    }
+
+    @Test
+    public void testInvalidTokenIsUnauthorized() throws Exception {
+        when(tokenService.verifyToken("bad")).thenThrow(new InvalidTokenException("Invalid token signature"));
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/aspire/loans/");
+        request.addHeader("Authorization", "Bearer bad");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        authTokenFilter.doFilter(request, response, chain);
+
+        assertEquals(HttpStatus.UNAUTHORIZED.value(), response.getStatus());
+        assertNull(chain.getRequest());
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.loansystem.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoginRateLimiterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    public void testPerUserBurstThenRefill() {
+        LoginRateLimiter limiter = new LoginRateLimiter(meterRegistry, 1000, 1000, 1, 3,
+                100, Duration.ofMinutes(10), clock::get);
+
+        assertTrue(limiter.tryAcquire("alice@example.com"));
+        assertTrue(limiter.tryAcquire("alice@example.com"));
+        assertTrue(limiter.tryAcquire("ALICE@example.com"));
+        assertFalse(limiter.tryAcquire("alice@example.com"));
+        //Other principals are unaffected
+        assertTrue(limiter.tryAcquire("bob@example.com"));
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertTrue(limiter.tryAcquire("alice@example.com"));
+        assertFalse(limiter.tryAcquire("alice@example.com"));
+
+        assertEquals(2, limiter.getShedAttempts());
+        assertEquals(2.0, meterRegistry.get("aspire.login.shed").tag("scope", "user").counter().count());
+    }
+
+    @Test
+    public void testGlobalBucketShedsAcrossUsers() {
+        LoginRateLimiter limiter = new LoginRateLimiter(meterRegistry, 1, 2, 10, 10,
+                100, Duration.ofMinutes(10), clock::get);
+
+        assertTrue(limiter.tryAcquire("a"));
+        assertTrue(limiter.tryAcquire("b"));
+        assertFalse(limiter.tryAcquire("c"));
+
+        assertEquals(1.0, meterRegistry.get("aspire.login.shed").tag("scope", "global").counter().count());
+    }
+
+    @Test
+    public void testConcurrentCallersNeverExceedCapacity() throws Exception {
+        TokenBucket bucket = new TokenBucket(1, 100, 0L);
+        AtomicInteger granted = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int i = 0; i < 8; i++) {
+            pool.submit(() -> {
+                start.await();
+                for (int attempt = 0; attempt < 1000; attempt++) {
+                    if (bucket.tryAcquire(0L)) {
+                        granted.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(100, granted.get());
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.loansystem.security;
+
+import com.example.loansystem.exceptions.InvalidTokenException;
+import com.example.loansystem.model.User;
+import com.example.loansystem.model.UserRole;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenServiceTest {
+
+    private static final String SECRET = "0123456789abcdef0123456789abcdef";
+
+    private final Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+    @Test
+    public void testIssuedTokenVerifiesToSameUser() {
+        TokenService tokenService = new TokenService(SECRET, Duration.ofHours(1), Clock.fixed(now, ZoneOffset.UTC));
+
+        AuthenticatedUser user = tokenService.verifyToken(tokenService.issueToken(user(7L, UserRole.ADMIN)));
+
+        assertEquals(7L, user.getUserId());
+    }
+
+    @Test
+    public void testTamperedTokenIsRejected() {
+        TokenService tokenService = new TokenService(SECRET, Duration.ofHours(1), Clock.fixed(now, ZoneOffset.UTC));
+        String borrowerToken = tokenService.issueToken(user(7L, UserRole.BORROWER));
+        String adminToken = tokenService.issueToken(user(8L, UserRole.ADMIN));
+
+        //Borrower payload with a signature taken from another user's token
+        String forged = borrowerToken.substring(0, borrowerToken.indexOf('.')) + adminToken.substring(adminToken.indexOf('.'));
+
+        assertThrows(InvalidTokenException.class, () -> tokenService.verifyToken(forged));
+        assertThrows(InvalidTokenException.class, () -> tokenService.verifyToken("garbage"));
+        assertThrows(InvalidTokenException.class, () -> tokenService.verifyToken("a.%%%"));
+    }
+
+    @Test
+    public void testTokenFromOtherSecretIsRejected() {
+        Clock clock = Clock.fixed(now, ZoneOffset.UTC);
+        TokenService tokenService = new TokenService(SECRET, Duration.ofHours(1), clock);
+        TokenService otherService = new TokenService("fedcba9876543210fedcba9876543210", Duration.ofHours(1), clock);
+
+        String token = otherService.issueToken(user(7L, UserRole.ADMIN));
+
+        assertThrows(InvalidTokenException.class, () -> tokenService.verifyToken(token));
+    }
+
+    @Test
+    public void testExpiredTokenIsRejected() {
+        String token = new TokenService(SECRET, Duration.ofHours(1), Clock.fixed(now, ZoneOffset.UTC))
+                .issueToken(user(7L, UserRole.BORROWER));
+        TokenService later = new TokenService(SECRET, Duration.ofHours(1), Clock.fixed(now.plusSeconds(3601), ZoneOffset.UTC));
+
+        InvalidTokenException e = assertThrows(InvalidTokenException.class, () -> later.verifyToken(token));
+        assertEquals("Token expired", e.getMessage());
+    }
+
+    @Test
+    public void testShortSecretIsRefused() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenService("short", Duration.ofHours(1)));
+    }
+
+    @Test
+    public void testMissingSecretIsRefused() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenService("", Duration.ofHours(1)));
+    }
+
+    private User user(Long id, UserRole role) {
+        User user = new User();
+        user.setId(id);
+        user.setUserRole(role);
+        return user;
+    }
+}
@@ -0,0 +1,276 @@
+package com.example.loansystem.service;
+
+import com.example.loansystem.dto.StoredResponse;
+import com.example.loansystem.repository.IdempotencyKeyRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class IdempotencyServiceTest {
+
+    private static final Instant NOW = Instant.parse("2024-03-01T10:00:00Z");
+
+    @Mock
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    private IdempotencyService idempotencyService;
+    private AtomicInteger executions;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(idempotencyKeyRepository.find(anyLong(), anyString(), anyString(), any())).thenReturn(Optional.empty());
+        when(idempotencyKeyRepository.reserve(anyLong(), anyString(), anyString(), anyString(), any())).thenReturn(true);
+        when(idempotencyKeyRepository.complete(anyLong(), anyString(), anyString(), anyInt(), any())).thenReturn(true);
+        idempotencyService = new IdempotencyService(idempotencyKeyRepository, new SimpleMeterRegistry(), 1000,
+                Duration.ofHours(24), Clock.fixed(NOW, ZoneOffset.UTC));
+        executions = new AtomicInteger();
+    }
+
+    @Test
+    public void testWithoutKeyEveryCallRuns() {
+        idempotencyService.execute(1L, "repayLoan:7", null, "100.0", repayment(HttpStatus.OK));
+        idempotencyService.execute(1L, "repayLoan:7", null, "100.0", repayment(HttpStatus.OK));
+
+        assertEquals(2, executions.get());
+        verifyNoInteractions(idempotencyKeyRepository);
+    }
+
+    @Test
+    public void testRetryGetsStoredResponse() {
+        ResponseEntity<String> first = idempotencyService.execute(1L, "repayLoan:7", "k-1", "100.0", repayment(HttpStatus.OK));
+        ResponseEntity<String> retry = idempotencyService.execute(1L, "repayLoan:7", "k-1", "100.0", repayment(HttpStatus.OK));
+
+        assertEquals(1, executions.get());
+        assertEquals(HttpStatus.OK, retry.getStatusCode());
+        assertEquals(first.getBody(), retry.getBody());
+        assertEquals("true", retry.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertNull(first.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+
+        //Reserved before the request ran, completed with its response after
+        InOrder inOrder = inOrder(idempotencyKeyRepository);
+        inOrder.verify(idempotencyKeyRepository).reserve(eq(1L), eq("repayLoan:7"), eq("k-1"), eq(sha256("100.0")), eq(Timestamp.from(NOW)));
+        inOrder.verify(idempotencyKeyRepository).complete(1L, "repayLoan:7", "k-1", 200, "Repayment 1");
+    }
+
+    @Test
+    public void testKeysAreScopedByUserAndOperation() {
+        idempotencyService.execute(1L, "repayLoan:7", "k-1", "100.0", repayment(HttpStatus.OK));
+        idempotencyService.execute(2L, "repayLoan:7", "k-1", "100.0", repayment(HttpStatus.OK));
+        idempotencyService.execute(1L, "repayLoan:8", "k-1", "100.0", repayment(HttpStatus.OK));
+
+        assertEquals(3, executions.get());
+    }
+
+    @Test
+    public void testSameKeyForDifferentRequestIsRejected() {
+        idempotencyService.execute(1L, "repayLoan:7", "k-1", "100.0", repayment(HttpStatus.OK));
+        ResponseEntity<String> reused = idempotencyService.execute(1L, "repayLoan:7", "k-1", "250.0", repayment(HttpStatus.OK));
+
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, reused.getStatusCode());
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    public void testStoredRowAnswersAfterRestart() {
+        ResponseEntity<String> original = idempotencyService.execute(1L, "repayLoan:7", "k-1", "100.0", repayment(HttpStatus.OK));
+
+        //A fresh instance has an empty cache, as after a restart or on another node
+        IdempotencyService restarted = new IdempotencyService(idempotencyKeyRepository, new SimpleMeterRegistry(), 1000,
+                Duration.ofHours(24), Clock.fixed(NOW.plusSeconds(3600), ZoneOffset.UTC));
+        when(idempotencyKeyRepository.reserve(anyLong(), anyString(), anyString(), anyString(), any())).thenReturn(false);
+        when(idempotencyKeyRepository.find(1L, "repayLoan:7", "k-1", Timestamp.from(NOW.plusSeconds(3600).minus(Duration.ofHours(24)))))
+                .thenReturn(Optional.of(new StoredResponse(sha256("100.0"), 200, original.getBody())));
+
+        ResponseEntity<String> retry = restarted.execute(1L, "repayLoan:7", "k-1", "100.0", repayment(HttpStatus.OK));
+
+        assertEquals(1, executions.get());
+        assertEquals(original.getBody(), retry.getBody());
+        assertEquals("true", retry.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+    }
+
+    @Test
+    public void testConflictIsNotStored() {
+        idempotencyService.execute(1L, "repayLoan:7", "k-1", "100.0", repayment(HttpStatus.CONFLICT));
+        ResponseEntity<String> retry = idempotencyService.execute(1L, "repayLoan:7", "k-1", "100.0", repayment(HttpStatus.OK));
+
+        assertEquals(2, executions.get());
+        assertEquals(HttpStatus.OK, retry.getStatusCode());
+        verify(idempotencyKeyRepository, times(1)).release(1L, "repayLoan:7", "k-1");
+        verify(idempotencyKeyRepository, times(1)).complete(anyLong(), anyString(), anyString(), anyInt(), any());
+    }
+
+    @Test
+    public void testClientErrorIsStored() {
+        idempotencyService.execute(1L, "repayLoan:7", "k-1", "1.0", repayment(HttpStatus.BAD_REQUEST));
+        ResponseEntity<String> retry = idempotencyService.execute(1L, "repayLoan:7", "k-1", "1.0", repayment(HttpStatus.OK));
+
+        assertEquals(1, executions.get());
+        assertEquals(HttpStatus.BAD_REQUEST, retry.getStatusCode());
+    }
+
+    @Test
+    public void testFailedCompletionKeepsTheReservation() {
+        when(idempotencyKeyRepository.complete(anyLong(), anyString(), anyString(), anyInt(), any()))
+                .thenThrow(new DataAccessResourceFailureException("connection lost"));
+
+        ResponseEntity<String> first = idempotencyService.execute(1L, "repayLoan:7", "k-1", "100.0", repayment(HttpStatus.OK));
+        ResponseEntity<String> retry = idempotencyService.execute(1L, "repayLoan:7", "k-1", "100.0", repayment(HttpStatus.OK));
+
+        assertEquals(HttpStatus.OK, first.getStatusCode());
+        assertEquals("true", retry.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals(1, executions.get());
+        verify(idempotencyKeyRepository, never()).release(anyLong(), anyString(), anyString());
+    }
+
+    @Test
+    public void testFailedReservationDoesNotRunTheRequest() {
+        when(idempotencyKeyRepository.reserve(anyLong(), anyString(), anyString(), anyString(), any()))
+                .thenThrow(new DataAccessResourceFailureException("connection lost"));
+
+        assertThrows(DataAccessResourceFailureException.class,
+                () -> idempotencyService.execute(1L, "repayLoan:7", "k-1", "100.0", repayment(HttpStatus.OK)));
+        assertEquals(0, executions.get());
+    }
+
+    @Test
+    public void testKeyHeldByAnotherNodeIsInProgress() {
+        when(idempotencyKeyRepository.reserve(anyLong(), anyString(), anyString(), anyString(), any())).thenReturn(false);
+        when(idempotencyKeyRepository.find(anyLong(), anyString(), anyString(), any()))
+                .thenReturn(Optional.of(StoredResponse.inProgress(sha256("100.0"))));
+
+        ResponseEntity<String> duplicate = idempotencyService.execute(1L, "repayLoan:7", "k-1", "100.0", repayment(HttpStatus.OK));
+
+        assertEquals(HttpStatus.CONFLICT, duplicate.getStatusCode());
+        assertEquals(0, executions.get());
+
+        //Not cached, so the retry after the other node finishes gets its response
+        when(idempotencyKeyRepository.find(anyLong(), anyString(), anyString(), any()))
+                .thenReturn(Optional.of(new StoredResponse(sha256("100.0"), 200, "Repayment successful")));
+        assertEquals(HttpStatus.OK, idempotencyService.execute(1L, "repayLoan:7", "k-1", "100.0", repayment(HttpStatus.OK)).getStatusCode());
+        assertEquals(0, executions.get());
+    }
+
+    @Test
+    public void testFailedRequestReleasesTheKey() {
+        Supplier<ResponseEntity<String>> failing = () -> {
+            executions.incrementAndGet();
+            throw new IllegalStateException("boom");
+        };
+
+        assertThrows(IllegalStateException.class, () -> idempotencyService.execute(1L, "repayLoan:7", "k-1", "100.0", failing));
+        idempotencyService.execute(1L, "repayLoan:7", "k-1", "100.0", repayment(HttpStatus.OK));
+
+        assertEquals(2, executions.get());
+        verify(idempotencyKeyRepository).release(1L, "repayLoan:7", "k-1");
+    }
+
+    @Test
+    public void testExpiredRowIsReplaced() {
+        when(idempotencyKeyRepository.reserve(anyLong(), anyString(), anyString(), anyString(), any())).thenReturn(false, true);
+
+        idempotencyService.execute(1L, "repayLoan:7", "k-1", "100.0", repayment(HttpStatus.OK));
+
+        assertEquals(1, executions.get());
+        verify(idempotencyKeyRepository).deleteExpired(1L, "repayLoan:7", "k-1", Timestamp.from(NOW.minus(Duration.ofHours(24))));
+    }
+
+    @Test
+    public void testInvalidKeyIsRejected() {
+        assertEquals(HttpStatus.BAD_REQUEST,
+                idempotencyService.execute(1L, "repayLoan:7", " ", "100.0", repayment(HttpStatus.OK)).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST,
+                idempotencyService.execute(1L, "repayLoan:7", "k".repeat(256), "100.0", repayment(HttpStatus.OK)).getStatusCode());
+        assertEquals(0, executions.get());
+    }
+
+    @Test
+    public void testConcurrentDuplicatesShareOneExecution() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<ResponseEntity<String>> slowRepayment = () -> {
+            executions.incrementAndGet();
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return ResponseEntity.ok("Repayment successful");
+        };
+
+        ExecutorService clients = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<ResponseEntity<String>>> responses = new ArrayList<>();
+            responses.add(clients.submit(() -> idempotencyService.execute(1L, "repayLoan:7", "k-1", "100.0", slowRepayment)));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 7; i++) {
+                responses.add(clients.submit(() -> idempotencyService.execute(1L, "repayLoan:7", "k-1", "100.0", slowRepayment)));
+            }
+            //Give the duplicates time to reach the in-flight execution before it finishes
+            Thread.sleep(100);
+            release.countDown();
+
+            for (Future<ResponseEntity<String>> response : responses) {
+                assertEquals(HttpStatus.OK, response.get().getStatusCode());
+                assertEquals("Repayment successful", response.get().getBody());
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    public void testPurgeDeletesRowsOlderThanRetention() {
+        when(idempotencyKeyRepository.deleteCreatedBefore(any())).thenReturn(3);
+
+        assertEquals(3, idempotencyService.purgeExpired());
+        verify(idempotencyKeyRepository).deleteCreatedBefore(Timestamp.from(NOW.minus(Duration.ofHours(24))));
+    }
+
+    private static String sha256(String request) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(request.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Supplier<ResponseEntity<String>> repayment(HttpStatus status) {
+        return () -> {
+            executions.incrementAndGet();
+            return ResponseEntity.status(status).body("Repayment " + executions.get());
+        };
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.loansystem.service;
+
+import com.example.loansystem.repository.IdBlockRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class LoanIdAllocatorTest {
+
+    @Mock
+    private IdBlockRepository idBlockRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private LoanIdAllocator loanIdAllocator;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        loanIdAllocator = new LoanIdAllocator(idBlockRepository, transactionManager, 3);
+    }
+
+    @Test
+    public void testIdsComeFromReservedBlocks() {
+        //Another node took 104..106 in between
+        when(idBlockRepository.reserveLoanIds(3)).thenReturn(101L, 107L);
+
+        long[] ids = new long[5];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = loanIdAllocator.nextId();
+        }
+
+        assertArrayEquals(new long[]{101, 102, 103, 107, 108}, ids);
+        verify(idBlockRepository, times(2)).reserveLoanIds(3);
+    }
+}
@@ -0,0 +1,293 @@
+package com.example.loansystem.service;
+
+import com.example.loansystem.exceptions.LoanIntakeFullException;
+import com.example.loansystem.model.Loan;
+import com.example.loansystem.model.LoanIntakeMode;
+import com.example.loansystem.repository.LoanBatchWriter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class LoanIntakeQueueTest {
+
+    @Mock
+    private LoanBatchWriter loanBatchWriter;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+    private final List<List<Long>> batches = Collections.synchronizedList(new ArrayList<>());
+    private LoanIntakeQueue loanIntakeQueue;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        when(loanBatchWriter.insertLoansWithIds(anyList())).thenAnswer(invocation -> {
+            List<Loan> loans = invocation.getArgument(0);
+            batches.add(loans.stream().map(Loan::getId).toList());
+            return loans.size();
+        });
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        if (loanIntakeQueue != null) {
+            loanIntakeQueue.destroy();
+        }
+    }
+
+    @Test
+    public void testSyncModeStartsNoWriter() {
+        loanIntakeQueue = queue(LoanIntakeMode.SYNC, 10, 5, Duration.ofMillis(20));
+
+        assertFalse(loanIntakeQueue.isEnabled());
+        assertTrue(Thread.getAllStackTraces().keySet().stream().noneMatch(thread -> thread.getName().startsWith("loan-intake-")));
+    }
+
+    @Test
+    public void testQueuedLoansAreInsertedInBatches() throws InterruptedException {
+        //Holds the writer in its first insert until every loan is queued
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            List<Loan> loans = invocation.getArgument(0);
+            batches.add(loans.stream().map(Loan::getId).toList());
+            return loans.size();
+        }).when(loanBatchWriter).insertLoansWithIds(anyList());
+        loanIntakeQueue = queue(LoanIntakeMode.QUEUED, 100, 5, Duration.ofMillis(20));
+
+        for (long id = 1; id <= 13; id++) {
+            loanIntakeQueue.submit(loan(id));
+        }
+        release.countDown();
+        loanIntakeQueue.destroy();
+
+        List<Long> written = batches.stream().flatMap(List::stream).toList();
+        assertEquals(13, written.size());
+        assertEquals(1L, written.get(0));
+        assertEquals(13L, written.get(12));
+        assertTrue(batches.stream().allMatch(batch -> batch.size() <= 5));
+        assertTrue(batches.size() <= 4, "expected batches of up to 5 after the first, got " + batches);
+        assertEquals(13, meterRegistry.counter("aspire.loan.intake.written").count());
+    }
+
+    @Test
+    public void testPartialBatchIsFlushedAfterMaxDelay() throws InterruptedException {
+        loanIntakeQueue = queue(LoanIntakeMode.QUEUED, 100, 500, Duration.ofMillis(20));
+
+        loanIntakeQueue.submit(loan(1));
+        loanIntakeQueue.submit(loan(2));
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (batches.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(List.of(List.of(1L, 2L)), batches);
+    }
+
+    @Test
+    public void testFullQueueRejectsInsteadOfBlocking() {
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return 1;
+        }).when(loanBatchWriter).insertLoansWithIds(anyList());
+        loanIntakeQueue = queue(LoanIntakeMode.QUEUED, 2, 1, Duration.ofMillis(20));
+        try {
+            //The writer takes at most one loan off the queue before it blocks in the insert
+            assertThrows(LoanIntakeFullException.class, () -> {
+                for (long id = 1; id <= 4; id++) {
+                    loanIntakeQueue.submit(loan(id));
+                }
+            });
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void testShutdownFlushesQueueAndRejectsNewLoans() throws InterruptedException {
+        loanIntakeQueue = queue(LoanIntakeMode.QUEUED, 100, 50, Duration.ofSeconds(1));
+        for (long id = 1; id <= 10; id++) {
+            loanIntakeQueue.submit(loan(id));
+        }
+
+        loanIntakeQueue.destroy();
+
+        assertEquals(10, batches.stream().mapToInt(List::size).sum());
+        assertEquals(0, loanIntakeQueue.queued());
+        assertThrows(LoanIntakeFullException.class, () -> loanIntakeQueue.submit(loan(11)));
+    }
+
+    @Test
+    public void testFailedBatchIsRetriedThenSetAside() throws InterruptedException {
+        doThrow(new DataAccessResourceFailureException("Connection refused"))
+                .doAnswer(invocation -> {
+                    List<Loan> loans = invocation.getArgument(0);
+                    batches.add(loans.stream().map(Loan::getId).toList());
+                    return loans.size();
+                })
+                .when(loanBatchWriter).insertLoansWithIds(anyList());
+        loanIntakeQueue = queue(LoanIntakeMode.QUEUED, 100, 50, Duration.ofMillis(20));
+        loanIntakeQueue.submit(loan(1));
+        loanIntakeQueue.destroy();
+        assertEquals(List.of(List.of(1L)), batches);
+
+        reset(loanBatchWriter);
+        doThrow(new DataAccessResourceFailureException("Connection refused")).when(loanBatchWriter).insertLoansWithIds(anyList());
+        loanIntakeQueue = queue(LoanIntakeMode.QUEUED, 100, 50, Duration.ofMillis(20));
+        loanIntakeQueue.submit(loan(2));
+        loanIntakeQueue.destroy();
+
+        //Two attempts at the batch, then the loan on its own
+        verify(loanBatchWriter, times(3)).insertLoansWithIds(anyList());
+        verify(loanBatchWriter).insertIntakeFailure(argThat(loan -> loan.getId() == 2L), contains("Connection refused"), any(Timestamp.class));
+        assertEquals(1, meterRegistry.counter("aspire.loan.intake.failed").count());
+        assertEquals(0, meterRegistry.counter("aspire.loan.intake.dropped").count());
+    }
+
+    @Test
+    public void testBadRowIsIsolatedFromItsBatch() throws InterruptedException {
+        doAnswer(invocation -> {
+            List<Loan> loans = invocation.getArgument(0);
+            if (loans.stream().anyMatch(loan -> loan.getId() == 2L)) {
+                throw new DuplicateKeyException("Duplicate entry for key PRIMARY");
+            }
+            batches.add(loans.stream().map(Loan::getId).toList());
+            return loans.size();
+        }).when(loanBatchWriter).insertLoansWithIds(anyList());
+        loanIntakeQueue = queue(LoanIntakeMode.QUEUED, 100, 50, Duration.ofSeconds(1));
+        for (long id = 1; id <= 3; id++) {
+            loanIntakeQueue.submit(loan(id));
+        }
+
+        loanIntakeQueue.destroy();
+
+        assertEquals(List.of(1L, 3L), batches.stream().flatMap(List::stream).toList());
+        verify(loanBatchWriter).insertIntakeFailure(argThat(loan -> loan.getId() == 2L), contains("Duplicate entry"), any(Timestamp.class));
+        assertEquals(2, meterRegistry.counter("aspire.loan.intake.written").count());
+        assertEquals(1, meterRegistry.counter("aspire.loan.intake.failed").count());
+    }
+
+    @Test
+    public void testLoansAreDroppedOnlyWhenTheyCannotBeSetAside() throws InterruptedException {
+        doThrow(new DataAccessResourceFailureException("Connection refused")).when(loanBatchWriter).insertLoansWithIds(anyList());
+        doThrow(new DataAccessResourceFailureException("Connection refused"))
+                .when(loanBatchWriter).insertIntakeFailure(any(Loan.class), anyString(), any(Timestamp.class));
+        loanIntakeQueue = queue(LoanIntakeMode.QUEUED, 100, 50, Duration.ofSeconds(1));
+        for (long id = 1; id <= 3; id++) {
+            loanIntakeQueue.submit(loan(id));
+        }
+
+        loanIntakeQueue.destroy();
+
+        //Once the failure table cannot be written either, the rest of the batch is not tried
+        verify(loanBatchWriter, times(3)).insertLoansWithIds(anyList());
+        verify(loanBatchWriter, times(1)).insertIntakeFailure(any(Loan.class), anyString(), any(Timestamp.class));
+        assertEquals(3, meterRegistry.counter("aspire.loan.intake.dropped").count());
+    }
+
+    @Test
+    public void testLoansStillQueuedAtShutdownTimeoutAreSetAside() throws InterruptedException {
+        //The writer is stuck in its first insert, as on a hung connection, and ignores the interrupt
+        CountDownLatch inInsert = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            inInsert.countDown();
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    release.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            List<Loan> loans = invocation.getArgument(0);
+            batches.add(loans.stream().map(Loan::getId).toList());
+            return loans.size();
+        }).when(loanBatchWriter).insertLoansWithIds(anyList());
+        loanIntakeQueue = queue(LoanIntakeMode.QUEUED, 100, 1, Duration.ofMillis(20), Duration.ofMillis(50));
+        loanIntakeQueue.submit(loan(1));
+        assertTrue(inInsert.await(5, TimeUnit.SECONDS));
+        for (long id = 2; id <= 4; id++) {
+            loanIntakeQueue.submit(loan(id));
+        }
+
+        loanIntakeQueue.destroy();
+
+        assertEquals(0, loanIntakeQueue.queued());
+        for (long id = 2; id <= 4; id++) {
+            long loanId = id;
+            verify(loanBatchWriter).insertIntakeFailure(argThat(loan -> loan.getId() == loanId), contains("shutdown"), any(Timestamp.class));
+        }
+        assertEquals(3, meterRegistry.counter("aspire.loan.intake.failed").count());
+        assertEquals(0, meterRegistry.counter("aspire.loan.intake.dropped").count());
+
+        //The insert in flight still completes; only the loans it never reached were set aside
+        release.countDown();
+        verify(loanBatchWriter, timeout(5000)).insertLoansWithIds(anyList());
+        verify(loanBatchWriter, never()).insertIntakeFailure(argThat(loan -> loan.getId() == 1L), anyString(), any(Timestamp.class));
+    }
+
+    @Test
+    public void testBatchInHandIsSetAsideWhenTheWriterIsInterrupted() throws InterruptedException {
+        //Every attempt fails, so the writer is backing off with the batch in hand when shutdown interrupts it
+        CountDownLatch failed = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            failed.countDown();
+            throw new DataAccessResourceFailureException("Connection refused");
+        }).when(loanBatchWriter).insertLoansWithIds(anyList());
+        loanIntakeQueue = new LoanIntakeQueue(loanBatchWriter, transactionManager, meterRegistry, LoanIntakeMode.QUEUED, 100, 50,
+                Duration.ofMillis(20), 10, Duration.ofMillis(50));
+        loanIntakeQueue.submit(loan(1));
+        loanIntakeQueue.submit(loan(2));
+        assertTrue(failed.await(5, TimeUnit.SECONDS));
+
+        loanIntakeQueue.destroy();
+
+        verify(loanBatchWriter, timeout(5000)).insertIntakeFailure(argThat(loan -> loan.getId() == 1L), contains("interrupted"), any(Timestamp.class));
+        //Loan 2 was either in the same batch or still queued; it is set aside once in both cases
+        verify(loanBatchWriter, timeout(5000)).insertIntakeFailure(argThat(loan -> loan.getId() == 2L), anyString(), any(Timestamp.class));
+        assertEquals(0, meterRegistry.counter("aspire.loan.intake.dropped").count());
+    }
+
+    private LoanIntakeQueue queue(LoanIntakeMode mode, int capacity, int batchSize, Duration maxDelay) {
+        return queue(mode, capacity, batchSize, maxDelay, Duration.ofSeconds(5));
+    }
+
+    private LoanIntakeQueue queue(LoanIntakeMode mode, int capacity, int batchSize, Duration maxDelay, Duration shutdownTimeout) {
+        meterRegistry = new SimpleMeterRegistry();
+        return new LoanIntakeQueue(loanBatchWriter, transactionManager, meterRegistry, mode, capacity, batchSize, maxDelay,
+                2, shutdownTimeout);
+    }
+
+    private static Loan loan(long id) {
+        Loan loan = new Loan();
+        loan.setId(id);
+        return loan;
+    }
+}
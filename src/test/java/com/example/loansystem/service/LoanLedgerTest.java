@@ -0,0 +1,179 @@
+package com.example.loansystem.service;
+
+import com.example.loansystem.dto.LoanBalance;
+import com.example.loansystem.model.InstallmentFrequency;
+import com.example.loansystem.model.LedgerEvent;
+import com.example.loansystem.model.LedgerEventType;
+import com.example.loansystem.model.LoanSchedule;
+import com.example.loansystem.repository.LoanLedgerRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class LoanLedgerTest {
+
+    private static final LocalDate FIRST_DUE = LocalDate.of(2024, 1, 1);
+
+    @Mock
+    private LoanLedgerRepository loanLedgerRepository;
+
+    private LoanLedger loanLedger;
+
+    //The repository's tables, kept in memory
+    private final List<LedgerEvent> ledger = new ArrayList<>();
+    private final List<LoanBalance> snapshots = new ArrayList<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(loanLedgerRepository.lastSeqs(any())).thenAnswer(invocation -> {
+            Map<Long, Long> lastSeqs = new HashMap<>();
+            for (LedgerEvent event : ledger) {
+                if (((Collection<Long>) invocation.getArgument(0)).contains(event.getLoanId())) {
+                    lastSeqs.merge(event.getLoanId(), event.getSeq(), Math::max);
+                }
+            }
+            return lastSeqs;
+        });
+        doAnswer(invocation -> ledger.addAll(invocation.getArgument(0)))
+                .when(loanLedgerRepository).append(anyList(), any());
+        doAnswer(invocation -> snapshots.addAll(invocation.getArgument(0)))
+                .when(loanLedgerRepository).insertSnapshots(anyList(), any());
+        when(loanLedgerRepository.eventsAfter(anyLong(), anyLong())).thenAnswer(invocation -> {
+            List<LedgerEvent> tail = new ArrayList<>();
+            for (LedgerEvent event : ledger) {
+                if (event.getLoanId() == (long) invocation.getArgument(0) && event.getSeq() > (long) invocation.getArgument(1)) {
+                    tail.add(event);
+                }
+            }
+            return tail;
+        });
+        when(loanLedgerRepository.latestSnapshot(anyLong())).thenAnswer(invocation -> snapshots.stream()
+                .filter(snapshot -> snapshot.getLoanId() == (long) invocation.getArgument(0))
+                .reduce((first, second) -> second));
+
+        loanLedger = new LoanLedger(loanLedgerRepository, 4, Clock.fixed(Instant.parse("2024-03-01T10:00:00Z"), ZoneOffset.UTC));
+    }
+
+    @Test
+    public void testFirstRepaymentOpensTheLedger() {
+        LoanSchedule schedule = schedule(7L);
+
+        loanLedger.record(List.of(LedgerEntry.forSchedule(schedule, 15_000)));
+
+        assertEquals(4, ledger.size());
+        assertEvent(ledger.get(0), 1, LedgerEventType.OPENING, 40_000);
+        assertEvent(ledger.get(1), 2, LedgerEventType.ALLOCATION, 10_000);
+        assertEquals(FIRST_DUE, ledger.get(1).getDueDate());
+        assertEvent(ledger.get(2), 3, LedgerEventType.ALLOCATION, 5_000);
+        assertEquals(FIRST_DUE.plusWeeks(1), ledger.get(2).getDueDate());
+        assertEvent(ledger.get(3), 4, LedgerEventType.REPAYMENT, 15_000);
+        assertEquals(FIRST_DUE.plusWeeks(1), ledger.get(3).getDueDate());
+        assertEquals(5_000, ledger.get(3).getInstallmentMinor());
+    }
+
+    @Test
+    public void testLaterRepaymentsContinueTheSequence() {
+        LoanSchedule schedule = schedule(7L);
+        loanLedger.record(List.of(LedgerEntry.forSchedule(schedule, 15_000)));
+        schedule.setAmountRepaidMinor(15_000);
+
+        loanLedger.record(List.of(LedgerEntry.forSchedule(schedule, 5_000)));
+
+        assertEquals(6, ledger.size());
+        assertEvent(ledger.get(4), 5, LedgerEventType.ALLOCATION, 5_000);
+        assertEvent(ledger.get(5), 6, LedgerEventType.REPAYMENT, 5_000);
+        assertEquals(FIRST_DUE.plusWeeks(2), ledger.get(5).getDueDate());
+        assertEquals(10_000, ledger.get(5).getInstallmentMinor());
+    }
+
+    @Test
+    public void testSnapshotIsStoredWhenTheSequenceCrossesTheInterval() {
+        LoanSchedule schedule = schedule(7L);
+
+        loanLedger.record(List.of(LedgerEntry.forSchedule(schedule, 15_000)));
+
+        assertEquals(1, snapshots.size());
+        assertEquals(4, snapshots.get(0).getLedgerSeq());
+        assertEquals(25_000, snapshots.get(0).getOutstandingMinor());
+
+        schedule.setAmountRepaidMinor(15_000);
+        loanLedger.record(List.of(LedgerEntry.forSchedule(schedule, 5_000)));
+        assertEquals(1, snapshots.size());
+    }
+
+    @Test
+    public void testBalanceIsTheSnapshotPlusTheTail() {
+        LoanSchedule schedule = schedule(7L);
+        loanLedger.record(List.of(LedgerEntry.forSchedule(schedule, 15_000)));
+        schedule.setAmountRepaidMinor(15_000);
+        loanLedger.record(List.of(LedgerEntry.forSchedule(schedule, 5_000)));
+
+        LoanBalance balance = loanLedger.balance(7L).orElseThrow();
+
+        assertEquals(6, balance.getLedgerSeq());
+        assertEquals(20_000, balance.getOutstandingMinor());
+        assertEquals(FIRST_DUE.plusWeeks(2), balance.getNextDueDate());
+        assertEquals(10_000, balance.getNextInstallmentMinor());
+        verify(loanLedgerRepository).eventsAfter(7L, 4L);
+    }
+
+    @Test
+    public void testFullRepaymentLeavesNoNextInstallment() {
+        loanLedger.record(List.of(LedgerEntry.forSchedule(schedule(7L), 50_000)));
+
+        LoanBalance balance = loanLedger.balance(7L).orElseThrow();
+
+        assertEquals(0, balance.getOutstandingMinor());
+        assertNull(balance.getNextDueDate());
+    }
+
+    @Test
+    public void testLoanWithoutLedgerHasNoBalance() {
+        assertEquals(Optional.empty(), loanLedger.balance(7L));
+    }
+
+    @Test
+    public void testEntriesOfManyLoansAreAppendedInOneBatch() {
+        loanLedger.record(List.of(LedgerEntry.forSchedule(schedule(7L), 10_000),
+                LedgerEntry.forSchedule(schedule(8L), 10_000)));
+
+        verify(loanLedgerRepository, times(1)).lastSeqs(any());
+        verify(loanLedgerRepository, times(1)).append(anyList(), any());
+        assertEquals(List.of(1L, 2L, 3L, 1L, 2L, 3L), ledger.stream().map(LedgerEvent::getSeq).toList());
+    }
+
+    @Test
+    public void testNothingToRecord() {
+        loanLedger.record(List.of());
+
+        verifyNoInteractions(loanLedgerRepository);
+    }
+
+    private static LoanSchedule schedule(long loanId) {
+        return new LoanSchedule(loanId, 1L, (int) FIRST_DUE.toEpochDay(), 4, 10_000, 10_000, InstallmentFrequency.WEEKLY, 0);
+    }
+
+    private static void assertEvent(LedgerEvent event, long seq, LedgerEventType type, long amountMinor) {
+        assertEquals(seq, event.getSeq());
+        assertEquals(type, event.getType());
+        assertEquals(amountMinor, event.getAmountMinor());
+    }
+}
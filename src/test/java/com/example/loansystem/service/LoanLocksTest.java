@@ -0,0 +1,41 @@
+package com.example.loansystem.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoanLocksTest {
+
+    @Test
+    public void testStripeCountIsPowerOfTwo() {
+        assertEquals(1, new LoanLocks(1, Duration.ofSeconds(1)).stripeCount());
+        assertEquals(1024, new LoanLocks(1000, Duration.ofSeconds(1)).stripeCount());
+        assertEquals(1024, new LoanLocks(1024, Duration.ofSeconds(1)).stripeCount());
+    }
+
+    @Test
+    public void testSequentialIdsSpreadOverStripes() {
+        LoanLocks loanLocks = new LoanLocks(64, Duration.ofSeconds(1));
+        Set<Integer> stripes = new HashSet<>();
+        for (long loanId = 1; loanId <= 64; loanId++) {
+            stripes.add(loanLocks.stripe(loanId));
+        }
+        assertTrue(stripes.size() > 32, "stripes used: " + stripes.size());
+    }
+
+    @Test
+    public void testLockIsReleasedWhenActionFails() {
+        LoanLocks loanLocks = new LoanLocks(1, Duration.ofMillis(10));
+        assertThrows(IllegalStateException.class, () -> loanLocks.withLock(1L, () -> {
+            throw new IllegalStateException("failed");
+        }));
+
+        boolean[] ran = {false};
+        loanLocks.withLock(2L, () -> ran[0] = true);
+        assertTrue(ran[0]);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.loansystem.service;
+
+import com.example.loansystem.dto.RepaymentRejectReason;
+import com.example.loansystem.exceptions.InvalidRepaymentAmountException;
+import com.example.loansystem.model.EMI;
+import com.example.loansystem.model.Loan;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoanMetricsTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private LoanMetrics loanMetrics;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        loanMetrics = new LoanMetrics(meterRegistry);
+    }
+
+    @Test
+    public void testRepaymentsAreCountedBySourceAndOutcome() {
+        loanMetrics.repaymentApplied();
+        loanMetrics.repaymentApplied();
+        loanMetrics.repaymentFailed(new InvalidRepaymentAmountException("too small"));
+        loanMetrics.fileRepaymentsApplied(5);
+        loanMetrics.fileRepaymentRejected(RepaymentRejectReason.MALFORMED);
+
+        assertEquals(2, repayments("api", "applied"));
+        assertEquals(1, repayments("api", "InvalidRepaymentAmountException"));
+        assertEquals(5, repayments("file", "applied"));
+        assertEquals(1, repayments("file", "MALFORMED"));
+    }
+
+    @Test
+    public void testEmisAreRecordedOncePerApprovedLoan() {
+        Loan first = loan(1L);
+        Loan second = loan(2L);
+        Loan virtual = loan(3L);
+
+        loanMetrics.emisWritten(List.of(first, second, virtual), List.of(emi(1L), emi(1L), emi(1L), emi(2L)));
+
+        DistributionSummary summary = meterRegistry.get("aspire.approval.emis").summary();
+        assertEquals(3, summary.count());
+        assertEquals(4, summary.totalAmount());
+        assertEquals(3, summary.max());
+    }
+
+    private double repayments(String source, String outcome) {
+        return meterRegistry.get("aspire.repayments").tag("source", source).tag("outcome", outcome).counter().count();
+    }
+
+    private static Loan loan(long id) {
+        Loan loan = new Loan();
+        loan.setId(id);
+        return loan;
+    }
+
+    private static EMI emi(long loanId) {
+        EMI emi = new EMI();
+        emi.setLoanId(loanId);
+        return emi;
+    }
+}
@@ -1,27 +1,62 @@
 package com.example.loansystem.service;
 
+import com.example.loansystem.dto.BatchItemResult;
+import com.example.loansystem.dto.BatchItemStatus;
+import com.example.loansystem.dto.CreatedLoan;
+import com.example.loansystem.dto.LoanBalance;
+import com.example.loansystem.dto.LoanCursor;
+import com.example.loansystem.dto.LoanPage;
 import com.example.loansystem.dto.LoanRequest;
+import com.example.loansystem.dto.LoanSummary;
 import com.example.loansystem.exceptions.*;
 import com.example.loansystem.factory.LoanFactory;
 import com.example.loansystem.factory.PersonalLoan;
+import com.example.loansystem.factory.RateCard;
 import com.example.loansystem.factory.loaninterfaces.LoanTypeInfo;
 import com.example.loansystem.model.*;
 import com.example.loansystem.repository.EMIRepository;
+import com.example.loansystem.repository.EMIScheduleWriter;
+import com.example.loansystem.repository.LoanBatchWriter;
 import com.example.loansystem.repository.LoanRepository;
+import com.example.loansystem.repository.LoanScheduleRepository;
+import com.example.loansystem.repository.LoanStreamRepository;
+import com.example.loansystem.repository.RepaymentBatchRepository;
 import com.example.loansystem.repository.UserRepository;
+import com.example.loansystem.strategy.AmortizedEMIStrategy;
+import com.example.loansystem.strategy.EMISchedule;
 import com.example.loansystem.strategy.FixedEMIStrategy;
 import com.example.loansystem.strategy.RepaymentStrategy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
-
+import org.mockito.Spy;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -32,18 +67,65 @@ public class LoanServiceTest {
     @Mock
     private LoanRepository loanRepository;
 
+    @Mock
+    private UserRoleCache userRoleCache;
+
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private LoanBatchWriter loanBatchWriter;
+
     @Mock
     private EMIRepository emiRepository;
 
+    @Mock
+    private EMIScheduleWriter emiScheduleWriter;
+
+    @Mock
+    private LoanScheduleRepository loanScheduleRepository;
+
+    @Mock
+    private LoanStreamRepository loanStreamRepository;
+
+    @Mock
+    private RateCardRegistry rateCardRegistry;
+
+    @Mock
+    private LoanLedger loanLedger;
+
+    @Mock
+    private RepaymentBatchRepository repaymentBatchRepository;
+
+    @Mock
+    private LoanIntakeQueue loanIntakeQueue;
+
+    @Mock
+    private LoanIdAllocator loanIdAllocator;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @Spy
+    private EMIScheduleGenerator emiScheduleGenerator = new EMIScheduleGenerator(2);
+
+    @Spy
+    private LoanLocks loanLocks = new LoanLocks(16, Duration.ofSeconds(1));
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
+    @Spy
+    private LoanMetrics loanMetrics = new LoanMetrics(new SimpleMeterRegistry());
+
     @InjectMocks
     private LoanService loanService;
 
     @BeforeEach
     public void setUp() {
         MockitoAnnotations.openMocks(this);
+        when(rateCardRegistry.rateFor(any(LoanType.class), anyLong(), anyInt())).thenReturn(0.10);
+        ReflectionTestUtils.setField(loanService, "maxRepaymentAttempts", 3);
     }
 
     @Test
@@ -53,15 +135,110 @@ public class LoanServiceTest {
         loanRequest.setUserId(1L);
         loanRequest.setLoanType(LoanType.PERSONAL);
 
-        User user = new User();
-        user.setId(1L);
-        when(userRepository.findById(anyLong())).thenReturn(Optional.of(user));
+        when(userRoleCache.exists(anyLong())).thenReturn(true);
+
+        when(loanRepository.save(any(Loan.class))).thenAnswer(invocation -> {
+            Loan loan = invocation.getArgument(0);
+            loan.setId(7L);
+            return loan;
+        });
 
         // Test the createLoan method
-        loanService.createLoan(loanRequest);
+        CreatedLoan createdLoan = loanService.createLoan(loanRequest);
 
         // Verify that save method was called on loanRepository
         verify(loanRepository, times(1)).save(any(Loan.class));
+        assertFalse(createdLoan.isQueued());
+        assertEquals(7L, createdLoan.getId());
+    }
+
+    @Test
+    public void testCreateLoanQueuedTakesIdFromBlockAndSkipsInsert() {
+        LoanRequest loanRequest = new LoanRequest(1000.0, 52, null, 1L, LoanType.PERSONAL);
+        when(userRoleCache.exists(1L)).thenReturn(true);
+        when(loanIntakeQueue.isEnabled()).thenReturn(true);
+        when(loanIdAllocator.nextId()).thenReturn(4001L);
+
+        CreatedLoan createdLoan = loanService.createLoan(loanRequest);
+
+        assertTrue(createdLoan.isQueued());
+        assertEquals(4001L, createdLoan.getId());
+
+        ArgumentCaptor<Loan> queued = ArgumentCaptor.forClass(Loan.class);
+        verify(loanIntakeQueue).submit(queued.capture());
+        assertEquals(4001L, queued.getValue().getId());
+        assertEquals(LoanStatus.PENDING, queued.getValue().getStatus());
+        verify(loanRepository, never()).save(any(Loan.class));
+    }
+
+    @Test
+    public void testCreateLoanQueuedFailsWhenIntakeIsFull() {
+        LoanRequest loanRequest = new LoanRequest(1000.0, 52, null, 1L, LoanType.PERSONAL);
+        when(userRoleCache.exists(1L)).thenReturn(true);
+        when(loanIntakeQueue.isEnabled()).thenReturn(true);
+        doThrow(new LoanIntakeFullException("Loan intake queue is full")).when(loanIntakeQueue).submit(any(Loan.class));
+
+        assertThrows(LoanIntakeFullException.class, () -> loanService.createLoan(loanRequest));
+        verify(loanRepository, never()).save(any(Loan.class));
+    }
+
+    @Test
+    public void testCreateLoanTakesRateFromRateCardTier() {
+        LoanRequest loanRequest = new LoanRequest(1000.0, 104, null, 1L, LoanType.PERSONAL);
+        when(userRoleCache.exists(1L)).thenReturn(true);
+        when(rateCardRegistry.rateFor(LoanType.PERSONAL, 100_000, 104)).thenReturn(0.07);
+
+        loanService.createLoan(loanRequest);
+
+        ArgumentCaptor<Loan> saved = ArgumentCaptor.forClass(Loan.class);
+        verify(loanRepository).save(saved.capture());
+        assertEquals(0.07, saved.getValue().getInterestRate());
+        assertEquals(LoanFactory.getLoanTypeInfo(LoanType.PERSONAL).getInterest(100_000, 0.07, 104),
+                saved.getValue().getAmountToBePaidMinor());
+    }
+
+    @Test
+    public void testCreateHomeLoanOwesItsScheduleTotal() {
+        LoanRequest loanRequest = new LoanRequest(100000.0, 12, null, 1L, LoanType.HOME);
+        when(userRoleCache.exists(1L)).thenReturn(true);
+        when(rateCardRegistry.rateFor(LoanType.HOME, 10_000_000, 12)).thenReturn(12.0);
+
+        loanService.createLoan(loanRequest);
+
+        ArgumentCaptor<Loan> saved = ArgumentCaptor.forClass(Loan.class);
+        verify(loanRepository).save(saved.capture());
+        Loan loan = saved.getValue();
+        loan.setStartDate(new Date());
+        EMISchedule schedule = new EMISchedule();
+        new AmortizedEMIStrategy().fillSchedule(loan, schedule);
+        //The EMIs the borrower is billed add up to what list endpoints report as owed
+        assertEquals(schedule.totalMinor(), loan.getAmountToBePaidMinor());
+        assertNotEquals(LoanFactory.getLoanTypeInfo(LoanType.HOME).getInterest(10_000_000, 12.0, 12), loan.getAmountToBePaidMinor());
+    }
+
+    @Test
+    public void testReloadRateCard() {
+        Long adminId = 1L;
+        User admin = new User();
+        admin.setUserRole(UserRole.ADMIN);
+        givenUser(adminId, admin);
+        when(rateCardRegistry.reload()).thenReturn(RateCard.of(List.of(
+                new RateTier(LoanType.PERSONAL, 0, 0, 0.10),
+                new RateTier(LoanType.CAR, 0, 0, 0.09),
+                new RateTier(LoanType.HOME, 0, 0, 0.08))));
+
+        assertEquals(3, loanService.reloadRateCard(adminId));
+    }
+
+    @Test
+    public void testReloadRateCardNotAdmin() {
+        Long userId = 2L;
+        User user = new User();
+        user.setUserRole(UserRole.BORROWER);
+        givenUser(userId, user);
+
+        assertThrows(InvalidUserAuthority.class, () -> loanService.reloadRateCard(userId));
+        verify(rateCardRegistry, never()).reload();
     }
 
     @Test
@@ -73,7 +250,7 @@ public class LoanServiceTest {
         loanRequest.setAmountRequired(1000.0);
         loanRequest.setLoanTerm(12);
 
-        when(userRepository.findById(loanRequest.getUserId())).thenReturn(Optional.empty());
+        when(userRoleCache.exists(loanRequest.getUserId())).thenReturn(false);
 
         assertThrows(UserNotFoundException.class, () -> {
             loanService.createLoan(loanRequest);
@@ -94,17 +271,222 @@ public class LoanServiceTest {
         loan.setStatus(LoanStatus.PENDING);
         loan.setLoanType(LoanType.PERSONAL);
 
-        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
+        givenUser(userId, user);
         when(loanRepository.findById(loanId)).thenReturn(Optional.of(loan));
 
-        when(emiRepository.saveAll(anyList())).thenReturn(new ArrayList<>());
-
         // Test the approveLoan method
         loanService.approveLoan(loanId, userId);
 
-        // Verify that save method was called on loanRepository and emiRepository
+        // Verify that the loan was saved and the schedule went through the batch writer
         verify(loanRepository, times(1)).save(any(Loan.class));
-        verify(emiRepository, times(1)).saveAll(anyList());
+        verify(emiScheduleWriter, times(1)).writeSchedule(anyList());
+        verify(emiRepository, never()).saveAll(anyList());
+        verify(loanMetrics).emisWritten(eq(List.of(loan)), anyList());
+    }
+
+    @Test
+    public void testApproveLoanWritesWholeScheduleInOneBatch() {
+        Long loanId = 1L;
+        Long userId = 1L;
+
+        User user = new User();
+        user.setId(userId);
+        user.setUserRole(UserRole.ADMIN);
+
+        Loan loan = new Loan();
+        loan.setId(loanId);
+        loan.setUserId(7L);
+        loan.setStatus(LoanStatus.PENDING);
+        loan.setLoanType(LoanType.PERSONAL);
+        loan.setLoanTerm(52);
+        loan.setAmountToBePaidMinor(520000);
+
+        givenUser(userId, user);
+        when(loanRepository.findById(loanId)).thenReturn(Optional.of(loan));
+
+        loanService.approveLoan(loanId, userId);
+
+        verify(emiScheduleWriter, times(1)).writeSchedule(argThat(emis -> emis.size() == 52));
+        verify(emiRepository, never()).save(any(EMI.class));
+    }
+
+    @Test
+    public void testApproveLoansUpdatesOnceAndWritesAllSchedules() {
+        Long adminId = 1L;
+        User adminUser = new User();
+        adminUser.setUserRole(UserRole.ADMIN);
+        givenUser(adminId, adminUser);
+
+        Loan pendingA = pendingLoan(10L, 52);
+        Loan pendingB = pendingLoan(11L, 12);
+        Loan alreadyApproved = pendingLoan(12L, 52);
+        alreadyApproved.setStatus(LoanStatus.APPROVED);
+        Loan carLoan = pendingLoan(13L, 36);
+        carLoan.setLoanType(LoanType.CAR);
+        carLoan.setAmountRequiredMinor(1_200_000);
+        carLoan.setInterestRate(9);
+        when(loanRepository.findByIdIn(Set.of(10L, 11L, 12L, 13L, 99L)))
+                .thenReturn(List.of(pendingA, pendingB, alreadyApproved, carLoan));
+        when(loanRepository.approvePending(eq(Set.of(10L, 11L, 13L)), any(Date.class))).thenReturn(3);
+
+        List<BatchItemResult> results = loanService.approveLoans(List.of(10L, 11L, 12L, 13L, 99L, 10L), adminId);
+
+        verify(loanRepository, times(1)).approvePending(anyCollection(), any(Date.class));
+        verify(loanRepository, never()).save(any(Loan.class));
+        verify(emiScheduleWriter, times(1)).writeSchedule(argThat(emis -> emis.size() == 100
+                && emis.get(0).getLoanId() == 10L
+                && emis.get(63).getLoanId() == 11L
+                && emis.get(64).getLoanId() == 13L
+                && emis.stream().skip(64).mapToLong(EMI::getAmountMinor).sum() > 1_200_000));
+        assertEquals(6, results.size());
+        assertEquals(BatchItemStatus.APPROVED, results.get(0).getStatus());
+        assertEquals(BatchItemStatus.APPROVED, results.get(1).getStatus());
+        assertEquals("Loan is not pending: APPROVED", results.get(2).getMessage());
+        assertEquals(BatchItemStatus.APPROVED, results.get(3).getStatus());
+        assertEquals("Loan Not Found for: 99", results.get(4).getMessage());
+        assertEquals("Duplicate loan id: 10", results.get(5).getMessage());
+        assertEquals(Long.valueOf(10L), results.get(5).getId());
+    }
+
+    @Test
+    public void testApproveLoansInVirtualModeWritesOneScheduleRowPerLoan() {
+        ReflectionTestUtils.setField(loanService, "scheduleMode", ScheduleMode.VIRTUAL);
+        Long adminId = 1L;
+        User adminUser = new User();
+        adminUser.setUserRole(UserRole.ADMIN);
+        givenUser(adminId, adminUser);
+        when(loanRepository.findByIdIn(Set.of(10L, 11L))).thenReturn(List.of(pendingLoan(10L, 520), pendingLoan(11L, 3)));
+        when(loanRepository.approvePending(eq(Set.of(10L, 11L)), any(Date.class))).thenReturn(2);
+
+        loanService.approveLoans(List.of(10L, 11L), adminId);
+
+        verify(loanScheduleRepository, times(1)).insertSchedules(argThat(schedules -> schedules.size() == 2
+                && schedules.get(0).getTerm() == 520
+                && schedules.get(0).getInstallmentMinor() == 10000
+                && schedules.get(1).getLoanId() == 11L));
+        verifyNoInteractions(emiScheduleWriter);
+    }
+
+    @Test
+    public void testRepayLoanAgainstVirtualScheduleOnlyUpdatesRepaidTotal() {
+        Loan loan = new Loan();
+        loan.setId(1L);
+        loan.setStatus(LoanStatus.PENDING);
+        LoanSchedule schedule = new LoanSchedule(1L, 7L, 19000, 52, 1000, 1000, InstallmentFrequency.WEEKLY, 0);
+        when(loanRepository.findByIdAndStatus(1L, LoanStatus.PENDING)).thenReturn(Optional.of(loan));
+        when(loanScheduleRepository.lockByLoanId(1L)).thenReturn(Optional.of(schedule));
+
+        //Covers 40 installments and half of the 41st
+        loanService.repayLoan(1L, 405.0);
+
+        assertEquals(40500, schedule.getAmountRepaidMinor());
+        verify(loanScheduleRepository, times(1)).updateAmountsRepaid(List.of(schedule));
+        verifyNoInteractions(emiRepository);
+        assertEquals(LoanStatus.PENDING, loan.getStatus());
+
+        //Only the 5 left on the part-paid installment is required next
+        assertThrows(RepaymentAmountException.class, () -> loanService.repayLoan(1L, 4.99));
+        loanService.repayLoan(1L, 5000.0);
+
+        assertEquals(52000, schedule.getAmountRepaidMinor());
+        assertEquals(LoanStatus.PAID, loan.getStatus());
+        verify(loanRepository, times(1)).save(loan);
+    }
+
+    @Test
+    public void testGetLoanBalanceReadsLedgerForBorrower() {
+        Loan loan = new Loan();
+        loan.setId(1L);
+        loan.setUserId(7L);
+        LoanBalance fromLedger = new LoanBalance(1L, 12, 30_000, LocalDate.of(2024, 2, 1), 5_000);
+        when(loanRepository.findById(1L)).thenReturn(Optional.of(loan));
+        when(loanLedger.balance(1L)).thenReturn(Optional.of(fromLedger));
+
+        assertSame(fromLedger, loanService.getLoanBalance(1L, 7L));
+        verifyNoInteractions(userRoleCache, loanScheduleRepository, repaymentBatchRepository);
+    }
+
+    @Test
+    public void testGetLoanBalanceOfAnotherUsersLoanRequiresAdmin() {
+        Loan loan = new Loan();
+        loan.setId(1L);
+        loan.setUserId(7L);
+        when(loanRepository.findById(1L)).thenReturn(Optional.of(loan));
+        when(userRoleCache.exists(8L)).thenReturn(true);
+        when(userRoleCache.getRole(8L)).thenReturn(UserRole.BORROWER);
+
+        assertThrows(InvalidUserAuthority.class, () -> loanService.getLoanBalance(1L, 8L));
+        verifyNoInteractions(loanLedger);
+    }
+
+    @Test
+    public void testGetLoanBalanceBeforeFirstRepaymentReadsSchedule() {
+        Loan loan = new Loan();
+        loan.setId(1L);
+        loan.setUserId(7L);
+        LoanSchedule schedule = new LoanSchedule(1L, 7L, 19000, 52, 1000, 1000, InstallmentFrequency.WEEKLY, 1500);
+        when(loanRepository.findById(1L)).thenReturn(Optional.of(loan));
+        when(loanLedger.balance(1L)).thenReturn(Optional.empty());
+        when(loanScheduleRepository.findByLoanId(1L)).thenReturn(Optional.of(schedule));
+
+        LoanBalance balance = loanService.getLoanBalance(1L, 7L);
+
+        assertEquals(0, balance.getLedgerSeq());
+        assertEquals(50500, balance.getOutstandingMinor());
+        assertEquals(LocalDate.ofEpochDay(19007), balance.getNextDueDate());
+        assertEquals(500, balance.getNextInstallmentMinor());
+        verifyNoInteractions(repaymentBatchRepository);
+    }
+
+    @Test
+    public void testGetLoanBalanceBeforeFirstRepaymentReadsOpenEmis() {
+        Loan loan = new Loan();
+        loan.setId(1L);
+        loan.setUserId(7L);
+        EMI overdue = new EMI(1L, 7L, 1000, new Date(0), EMIStatus.OVERDUE);
+        EMI pending = new EMI(1L, 7L, 2000, new Date(0), EMIStatus.PENDING);
+        when(loanRepository.findById(1L)).thenReturn(Optional.of(loan));
+        when(loanLedger.balance(1L)).thenReturn(Optional.empty());
+        when(loanScheduleRepository.findByLoanId(1L)).thenReturn(Optional.empty());
+        when(repaymentBatchRepository.findOpenEmis(List.of(1L))).thenReturn(Map.of(1L, List.of(overdue, pending)));
+
+        LoanBalance balance = loanService.getLoanBalance(1L, 7L);
+
+        assertEquals(3000, balance.getOutstandingMinor());
+        assertEquals(2000, balance.getNextInstallmentMinor());
+    }
+
+    @Test
+    public void testGetLoanBalanceLoanNotFound() {
+        when(loanRepository.findById(1L)).thenReturn(Optional.empty());
+
+        assertThrows(LoanNotFoundException.class, () -> loanService.getLoanBalance(1L, 7L));
+    }
+
+    @Test
+    public void testApproveLoansSkipsUpdateWhenNothingIsPending() {
+        Long adminId = 1L;
+        User adminUser = new User();
+        adminUser.setUserRole(UserRole.ADMIN);
+        givenUser(adminId, adminUser);
+        when(loanRepository.findByIdIn(Set.of(5L))).thenReturn(List.of());
+
+        List<BatchItemResult> results = loanService.approveLoans(List.of(5L), adminId);
+
+        assertEquals(BatchItemStatus.REJECTED, results.get(0).getStatus());
+        verify(loanRepository, never()).approvePending(anyCollection(), any(Date.class));
+        verifyNoInteractions(emiScheduleWriter);
+    }
+
+    @Test
+    public void testApproveLoansRequiresAdmin() {
+        Long userId = 2L;
+        User borrower = new User();
+        borrower.setUserRole(UserRole.BORROWER);
+        givenUser(userId, borrower);
+
+        assertThrows(InvalidUserAuthority.class, () -> loanService.approveLoans(List.of(1L), userId));
+        verify(loanRepository, never()).findByIdIn(anyCollection());
     }
 
     @Test
@@ -112,7 +494,7 @@ public class LoanServiceTest {
         Long loanId = 1L; // Specify an existing loan ID
         Long userId = 999L; // An ID for a non-existing user
 
-        when(userRepository.findById(userId)).thenReturn(Optional.empty());
+        when(userRoleCache.exists(userId)).thenReturn(false);
 
         assertThrows(UserNotFoundException.class, () -> {
             loanService.approveLoan(loanId, userId);
@@ -128,7 +510,7 @@ public class LoanServiceTest {
         nonAdminUser.setId(userId);
         nonAdminUser.setUserRole(UserRole.BORROWER);
 
-        when(userRepository.findById(userId)).thenReturn(Optional.of(nonAdminUser));
+        givenUser(userId, nonAdminUser);
 
         assertThrows(InvalidUserAuthority.class, () -> {
             loanService.approveLoan(loanId, userId);
@@ -144,7 +526,7 @@ public class LoanServiceTest {
         existingUser.setId(userId);
         existingUser.setUserRole(UserRole.ADMIN);
 
-        when(userRepository.findById(userId)).thenReturn(Optional.of(existingUser));
+        givenUser(userId, existingUser);
         when(loanRepository.findById(loanId)).thenReturn(Optional.empty());
 
         assertThrows(LoanNotFoundException.class, () -> {
@@ -158,14 +540,15 @@ public class LoanServiceTest {
         Long userId = 1L;
         LoanStatus status = LoanStatus.PENDING;
 
-        when(userRepository.findById(userId)).thenReturn(Optional.of(new User()));
-        when(loanRepository.findByUserIdAndStatus(userId, status)).thenReturn(new ArrayList<>());
+        givenUser(userId, new User());
+        when(loanRepository.findSummariesByUserIdAndStatus(userId, status)).thenReturn(new ArrayList<>());
 
         // Test the getLoansForUser method
-        List<Loan> loans = loanService.getLoansForUser(userId, status);
+        List<LoanSummary> loans = loanService.getLoansForUser(userId, status);
 
-        // Verify that findByUserIdAndStatus method was called on loanRepository
-        verify(loanRepository, times(1)).findByUserIdAndStatus(userId, status);
+        // Verify that the projection query was used instead of loading entities
+        verify(loanRepository, times(1)).findSummariesByUserIdAndStatus(userId, status);
+        verify(loanRepository, never()).findByUserIdAndStatus(anyLong(), any());
     }
 
     @Test
@@ -173,7 +556,7 @@ public class LoanServiceTest {
         Long userId = 999L; // An ID for a non-existing user
         LoanStatus status = LoanStatus.PENDING; // Specify a loan status
 
-        when(userRepository.findById(userId)).thenReturn(Optional.empty());
+        when(userRoleCache.exists(userId)).thenReturn(false);
 
         assertThrows(UserNotFoundException.class, () -> {
             loanService.getLoansForUser(userId, status);
@@ -189,13 +572,13 @@ public class LoanServiceTest {
         User adminUser = new User();
         adminUser.setUserRole(UserRole.ADMIN);
 
-        List<Loan> expectedLoans = new ArrayList<>();
+        List<LoanSummary> expectedLoans = new ArrayList<>();
         // Populate the expectedLoans list with some sample loans
 
-        when(userRepository.findById(userId)).thenReturn(Optional.of(adminUser));
-        when(loanRepository.findAllByStatus(status)).thenReturn(expectedLoans);
+        givenUser(userId, adminUser);
+        when(loanRepository.findSummariesByStatus(status)).thenReturn(expectedLoans);
 
-        List<Loan> actualLoans = loanService.getLoansForAdmin(userId, status);
+        List<LoanSummary> actualLoans = loanService.getLoansForAdmin(userId, status);
 
         assertEquals(expectedLoans, actualLoans);
     }
@@ -205,7 +588,7 @@ public class LoanServiceTest {
         Long userId = 123L; // Provide a non-existent user ID
         LoanStatus status = null; // Any status
 
-        when(userRepository.findById(userId)).thenReturn(Optional.empty());
+        when(userRoleCache.exists(userId)).thenReturn(false);
 
         assertThrows(UserNotFoundException.class, () -> loanService.getLoansForAdmin(userId, status));
     }
@@ -218,7 +601,7 @@ public class LoanServiceTest {
         User user = new User();
         user.setUserRole(UserRole.BORROWER); // Set user role to BORROWER
 
-        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
+        givenUser(userId, user);
 
         assertThrows(InvalidUserAuthority.class, () -> loanService.getLoansForAdmin(userId, status));
     }
@@ -233,23 +616,276 @@ public class LoanServiceTest {
         loan.setStatus(LoanStatus.PENDING);
 
         EMI emi1 = new EMI();
-        emi1.setAmount(50.0);
+        emi1.setAmountMinor(5000);
+
+        emi1.setDueDate(new Date(0));
         EMI emi2 = new EMI();
-        emi2.setAmount(60.0);
+        emi2.setAmountMinor(6000);
+        emi2.setDueDate(new Date(1));
 
         List<EMI> emiList = new ArrayList<>();
         emiList.add(emi1);
         emiList.add(emi2);
 
         when(loanRepository.findByIdAndStatus(loanId, LoanStatus.PENDING)).thenReturn(Optional.of(loan));
-        when(emiRepository.findByLoanIdAndEmiStatusOrderByDueDateAsc(loanId, EMIStatus.PENDING)).thenReturn(emiList);
+        when(emiRepository.findByLoanIdAndEmiStatusNotOrderByDueDateAscIdAsc(eq(loanId), eq(EMIStatus.PAID), any(Pageable.class))).thenReturn(emiList);
 
         // Test the repayLoan method
         loanService.repayLoan(loanId, repaymentAmount);
 
-        // Verify that save method was called on emiRepository and loanRepository
-        verify(emiRepository, times(2)).save(any(EMI.class));
-        verify(loanRepository, times(1)).save(any(Loan.class));
+        // First emi is paid in one bulk update, the rest of the payment comes off the second emi
+        verify(emiRepository, times(1)).markOpenPaidThrough(eq(loanId), any());
+        verify(emiRepository, times(1)).deductFromAmount(any(), eq(5000L));
+        verify(emiRepository, never()).save(any(EMI.class));
+        verify(loanRepository, never()).save(any(Loan.class));
+        verify(loanMetrics).repaymentApplied();
+    }
+
+    @Test
+    public void testRepayLoanRecordsLedgerEntryBeforeUpdatingEmis() {
+        Long loanId = 1L;
+        Loan loan = new Loan();
+        loan.setId(loanId);
+        loan.setStatus(LoanStatus.PENDING);
+        EMI first = new EMI(loanId, 1L, 5000, new Date(0), EMIStatus.PENDING);
+        first.setId(5L);
+        EMI second = new EMI(loanId, 1L, 6000, new Date(1), EMIStatus.PENDING);
+        second.setId(6L);
+        when(loanRepository.findByIdAndStatus(loanId, LoanStatus.PENDING)).thenReturn(Optional.of(loan));
+        when(emiRepository.findByLoanIdAndEmiStatusNotOrderByDueDateAscIdAsc(eq(loanId), eq(EMIStatus.PAID), any(Pageable.class))).thenReturn(List.of(first, second));
+        when(repaymentBatchRepository.sumOpenAmountMinor(loanId)).thenReturn(11000L);
+
+        loanService.repayLoan(loanId, 80.0);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<LedgerEntry>> recorded = ArgumentCaptor.forClass(List.class);
+        InOrder inOrder = inOrder(loanLedger, emiRepository);
+        inOrder.verify(loanLedger).record(recorded.capture());
+        inOrder.verify(emiRepository).markOpenPaidThrough(loanId, first.getDueDate());
+        LedgerEntry entry = recorded.getValue().get(0);
+        assertEquals(8000, entry.getAmountMinor());
+        assertEquals(2, entry.getAllocationCount());
+        assertEquals(3000, entry.getAllocationAmountMinor(1));
+        assertEquals(3000, entry.getNextInstallmentMinor());
+        assertEquals(11000, entry.outstandingBefore());
+    }
+
+    @Test
+    public void testRepayLoan_PrepaymentUsesConstantNumberOfStatements() {
+        Long loanId = 1L;
+
+        Loan loan = new Loan();
+        loan.setId(loanId);
+        loan.setStatus(LoanStatus.PENDING);
+
+        List<EMI> emiList = new ArrayList<>();
+        for (int week = 0; week < 52; week++) {
+            EMI emi = new EMI();
+            emi.setId((long) week);
+            emi.setAmountMinor(1000);
+            emi.setDueDate(new Date(week * 7L * 24 * 60 * 60 * 1000));
+            emi.setEmiStatus(EMIStatus.PENDING);
+            emiList.add(emi);
+        }
+
+        when(loanRepository.findByIdAndStatus(loanId, LoanStatus.PENDING)).thenReturn(Optional.of(loan));
+        givenOpenEmis(loanId, emiList);
+
+        // Covers 40 installments and half of the 41st
+        loanService.repayLoan(loanId, 405.0);
+
+        verify(emiRepository, times(1)).markOpenPaidThrough(loanId, emiList.get(39).getDueDate());
+        verify(emiRepository, times(1)).deductFromAmount(40L, 500L);
+        verify(emiRepository, never()).save(any(EMI.class));
+        verify(emiRepository, never()).findByLoanId(anyLong());
+        assertEquals(LoanStatus.PENDING, loan.getStatus());
+        //16 and 32 installments were not enough, 64 reach past the partly paid one
+        verify(emiRepository).findByLoanIdAndEmiStatusNotOrderByDueDateAscIdAsc(loanId, EMIStatus.PAID, PageRequest.of(0, 64));
+    }
+
+    @Test
+    public void testRepayLoan_ReadsOnlyTheInstallmentsThePaymentReaches() {
+        Long loanId = 1L;
+        Loan loan = new Loan();
+        loan.setId(loanId);
+        loan.setStatus(LoanStatus.PENDING);
+        List<EMI> emiList = new ArrayList<>();
+        for (int month = 0; month < 360; month++) {
+            EMI emi = new EMI(loanId, 1L, 1000, new Date(month * 30L * 24 * 60 * 60 * 1000), EMIStatus.PENDING);
+            emi.setId((long) month);
+            emiList.add(emi);
+        }
+        when(loanRepository.findByIdAndStatus(loanId, LoanStatus.PENDING)).thenReturn(Optional.of(loan));
+        givenOpenEmis(loanId, emiList);
+
+        loanService.repayLoan(loanId, 20.0);
+
+        verify(emiRepository, times(1)).findByLoanIdAndEmiStatusNotOrderByDueDateAscIdAsc(eq(loanId), eq(EMIStatus.PAID), any(Pageable.class));
+        verify(emiRepository).findByLoanIdAndEmiStatusNotOrderByDueDateAscIdAsc(loanId, EMIStatus.PAID, PageRequest.of(0, 16));
+        verify(emiRepository).markOpenPaidThrough(loanId, emiList.get(1).getDueDate());
+        assertEquals(LoanStatus.PENDING, loan.getStatus());
+    }
+
+    @Test
+    public void testRepayLoan_PayingEveryInstallmentReadsPastAFullPage() {
+        Long loanId = 1L;
+        Loan loan = new Loan();
+        loan.setId(loanId);
+        loan.setStatus(LoanStatus.PENDING);
+        List<EMI> emiList = new ArrayList<>();
+        for (int week = 0; week < 16; week++) {
+            EMI emi = new EMI(loanId, 1L, 1000, new Date(week * 7L * 24 * 60 * 60 * 1000), EMIStatus.PENDING);
+            emi.setId((long) week);
+            emiList.add(emi);
+        }
+        when(loanRepository.findByIdAndStatus(loanId, LoanStatus.PENDING)).thenReturn(Optional.of(loan));
+        givenOpenEmis(loanId, emiList);
+
+        loanService.repayLoan(loanId, 160.0);
+
+        //A full first page could hide more installments, the second read shows there are none
+        verify(emiRepository).findByLoanIdAndEmiStatusNotOrderByDueDateAscIdAsc(loanId, EMIStatus.PAID, PageRequest.of(0, 32));
+        assertEquals(LoanStatus.PAID, loan.getStatus());
+    }
+
+    @Test
+    public void testRepayLoan_RetriesLockConflict() {
+        Long loanId = 1L;
+        Loan loan = new Loan();
+        loan.setId(loanId);
+        loan.setStatus(LoanStatus.PENDING);
+        EMI first = new EMI(loanId, 1L, 10_000, new Date(0), EMIStatus.PENDING);
+        first.setId(5L);
+        EMI second = new EMI(loanId, 1L, 10_000, new Date(1), EMIStatus.PENDING);
+        second.setId(6L);
+
+        when(loanRepository.findByIdAndStatus(loanId, LoanStatus.PENDING))
+                .thenThrow(new CannotAcquireLockException("Lock wait timeout exceeded"))
+                .thenReturn(Optional.of(loan));
+        when(emiRepository.findByLoanIdAndEmiStatusNotOrderByDueDateAscIdAsc(eq(loanId), eq(EMIStatus.PAID), any(Pageable.class))).thenReturn(List.of(first, second));
+
+        loanService.repayLoan(loanId, 150.0);
+
+        verify(transactionTemplate, times(2)).executeWithoutResult(any());
+        verify(emiRepository, times(1)).markOpenPaidThrough(loanId, first.getDueDate());
+        verify(emiRepository, times(1)).deductFromAmount(6L, 5000L);
+    }
+
+    @Test
+    public void testRepayLoan_GivesUpAfterMaxAttempts() {
+        Long loanId = 1L;
+        when(loanRepository.findByIdAndStatus(loanId, LoanStatus.PENDING))
+                .thenThrow(new CannotAcquireLockException("Lock wait timeout exceeded"));
+
+        assertThrows(LoanBusyException.class, () -> loanService.repayLoan(loanId, 50.0));
+        verify(transactionTemplate, times(3)).executeWithoutResult(any());
+    }
+
+    @Test
+    public void testRepayLoan_BusyWhenLoanLockIsHeld() throws Exception {
+        Long loanId = 1L;
+        LoanLocks shortWait = new LoanLocks(16, Duration.ofMillis(50));
+        ReflectionTestUtils.setField(loanService, "loanLocks", shortWait);
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> shortWait.withLock(loanId, () -> {
+            locked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        holder.start();
+        locked.await();
+        try {
+            assertThrows(LoanBusyException.class, () -> loanService.repayLoan(loanId, 50.0));
+            verify(loanRepository, never()).findByIdAndStatus(anyLong(), any());
+        } finally {
+            release.countDown();
+            holder.join();
+        }
+    }
+
+    @Test
+    public void testRepayLoan_DecimalAmountsDoNotDrift() {
+        Long loanId = 1L;
+        Loan loan = new Loan();
+        loan.setId(loanId);
+        loan.setStatus(LoanStatus.PENDING);
+        EMI emi1 = new EMI();
+        emi1.setAmountMinor(10);
+        emi1.setDueDate(new Date(0));
+        EMI emi2 = new EMI();
+        emi2.setAmountMinor(20);
+        emi2.setDueDate(new Date(1));
+        when(loanRepository.findByIdAndStatus(loanId, LoanStatus.PENDING)).thenReturn(Optional.of(loan));
+        when(emiRepository.findByLoanIdAndEmiStatusNotOrderByDueDateAscIdAsc(eq(loanId), eq(EMIStatus.PAID), any(Pageable.class))).thenReturn(List.of(emi1, emi2));
+
+        //0.1 + 0.2 is just above 0.3 as doubles, which left the second installment part-paid
+        loanService.repayLoan(loanId, 0.1 + 0.2);
+
+        verify(emiRepository, times(1)).markOpenPaidThrough(eq(loanId), any());
+        verify(emiRepository, never()).deductFromAmount(any(), anyLong());
+    }
+
+    @Test
+    public void testRepayLoan_RejectsAmountsThatAreNotPositive() {
+        assertThrows(InvalidRepaymentAmountException.class, () -> loanService.repayLoan(1L, 0));
+        assertThrows(InvalidRepaymentAmountException.class, () -> loanService.repayLoan(1L, Double.NaN));
+        verifyNoInteractions(loanRepository);
+    }
+
+    @Test
+    public void testRepayLoan_FullRepaymentMarksLoanPaid() {
+        Long loanId = 1L;
+
+        Loan loan = new Loan();
+        loan.setId(loanId);
+        loan.setStatus(LoanStatus.PENDING);
+
+        EMI emi1 = new EMI();
+        emi1.setAmountMinor(5000);
+
+        emi1.setDueDate(new Date(0));
+        EMI emi2 = new EMI();
+        emi2.setAmountMinor(5000);
+        emi2.setDueDate(new Date(1));
+
+        List<EMI> emiList = new ArrayList<>();
+        emiList.add(emi1);
+        emiList.add(emi2);
+
+        when(loanRepository.findByIdAndStatus(loanId, LoanStatus.PENDING)).thenReturn(Optional.of(loan));
+        when(emiRepository.findByLoanIdAndEmiStatusNotOrderByDueDateAscIdAsc(eq(loanId), eq(EMIStatus.PAID), any(Pageable.class))).thenReturn(emiList);
+
+        loanService.repayLoan(loanId, 100.0);
+
+        verify(emiRepository, never()).deductFromAmount(any(), anyLong());
+        assertEquals(LoanStatus.PAID, loan.getStatus());
+        verify(loanRepository, times(1)).save(loan);
+    }
+
+    @Test
+    public void testRepayLoan_OverdueEmiIsPaidFirstAndClosesLoan() {
+        Long loanId = 1L;
+
+        Loan loan = new Loan();
+        loan.setId(loanId);
+        loan.setStatus(LoanStatus.PENDING);
+
+        //The sweep already marked the first installment overdue
+        EMI overdue = new EMI(loanId, 1L, 5000, new Date(0), EMIStatus.OVERDUE);
+        EMI pending = new EMI(loanId, 1L, 5000, new Date(1), EMIStatus.PENDING);
+
+        when(loanRepository.findByIdAndStatus(loanId, LoanStatus.PENDING)).thenReturn(Optional.of(loan));
+        when(emiRepository.findByLoanIdAndEmiStatusNotOrderByDueDateAscIdAsc(eq(loanId), eq(EMIStatus.PAID), any(Pageable.class))).thenReturn(List.of(overdue, pending));
+
+        loanService.repayLoan(loanId, 100.0);
+
+        verify(emiRepository).markOpenPaidThrough(loanId, pending.getDueDate());
+        assertEquals(LoanStatus.PAID, loan.getStatus());
+        verify(loanRepository, times(1)).save(loan);
     }
 
     @Test
@@ -262,7 +898,7 @@ public class LoanServiceTest {
         loan.setStatus(LoanStatus.PENDING);
 
         when(loanRepository.findByIdAndStatus(loanId, LoanStatus.PENDING)).thenReturn(Optional.of(loan));
-        when(emiRepository.findByLoanIdAndEmiStatusOrderByDueDateAsc(loanId, EMIStatus.PENDING)).thenReturn(new ArrayList<>());
+        when(emiRepository.findByLoanIdAndEmiStatusNotOrderByDueDateAscIdAsc(eq(loanId), eq(EMIStatus.PAID), any(Pageable.class))).thenReturn(new ArrayList<>());
 
         // Test the repayLoan method with no pending EMIs
         try {
@@ -290,6 +926,8 @@ public class LoanServiceTest {
             Assertions.fail("Expected LoanNotFoundException, but no exception was thrown.");
         } catch (LoanNotFoundException e) {
             assertEquals("No Pending Loan Found for: " + loanId, e.getMessage());
+            verify(loanMetrics).repaymentFailed(e);
+            verify(loanMetrics, never()).repaymentApplied();
         }
     }
 
@@ -306,7 +944,7 @@ public class LoanServiceTest {
         when(loanRepository.findByIdAndStatus(eq(loanId), eq(LoanStatus.PENDING))).thenReturn(Optional.of(loan));
 
         // Mock the emiRepository to return an empty list, simulating an EMINotFoundException
-        when(emiRepository.findByLoanIdAndEmiStatusOrderByDueDateAsc(eq(loanId), eq(EMIStatus.PENDING)))
+        when(emiRepository.findByLoanIdAndEmiStatusNotOrderByDueDateAscIdAsc(eq(loanId), eq(EMIStatus.PAID), any(Pageable.class)))
                 .thenReturn(new ArrayList<>());
 
         // Perform the repayLoan method and expect an EMINotFoundException
@@ -327,7 +965,7 @@ public class LoanServiceTest {
         // Prepare a list of pending EMIs
         List<EMI> emiList = new ArrayList<>();
         EMI emi1 = new EMI();
-        emi1.setAmount(60.0); // EMI amount is greater than repaymentAmount
+        emi1.setAmountMinor(6000); // EMI amount is greater than repaymentAmount
         emiList.add(emi1);
 
         // Mock the loanRepository to return a loan
@@ -337,7 +975,7 @@ public class LoanServiceTest {
         when(loanRepository.findByIdAndStatus(eq(loanId), eq(LoanStatus.PENDING))).thenReturn(Optional.of(loan));
 
         // Mock the emiRepository to return the list of pending EMIs
-        when(emiRepository.findByLoanIdAndEmiStatusOrderByDueDateAsc(eq(loanId), eq(EMIStatus.PENDING)))
+        when(emiRepository.findByLoanIdAndEmiStatusNotOrderByDueDateAscIdAsc(eq(loanId), eq(EMIStatus.PAID), any(Pageable.class)))
                 .thenReturn(emiList);
 
         // Perform the repayLoan method and expect a RepaymentAmountException
@@ -359,7 +997,7 @@ public class LoanServiceTest {
         List<EMI> emiList = new ArrayList<>();
         EMI emi1 = new EMI();
         emi1.setLoanId(loanId);
-        emi1.setAmount(50.0);
+        emi1.setAmountMinor(5000);
         emi1.setEmiStatus(EMIStatus.PAID);
         emiList.add(emi1);
 
@@ -370,7 +1008,7 @@ public class LoanServiceTest {
         when(loanRepository.findByIdAndStatus(eq(loanId), eq(LoanStatus.PENDING))).thenReturn(Optional.empty());
 
         // Mock the emiRepository to return the list of paid EMIs
-        when(emiRepository.findByLoanIdAndEmiStatusOrderByDueDateAsc(eq(loanId), eq(EMIStatus.PENDING)))
+        when(emiRepository.findByLoanIdAndEmiStatusNotOrderByDueDateAscIdAsc(eq(loanId), eq(EMIStatus.PAID), any(Pageable.class)))
                 .thenReturn(emiList);
 
         // Perform the repayLoan method and expect a LoanAlreadyPaidException
@@ -391,11 +1029,11 @@ public class LoanServiceTest {
         // Prepare a list of pending EMIs
         List<EMI> emiList = new ArrayList<>();
         EMI emi1 = new EMI();
-        emi1.setAmount(60.0);// EMI amount is greater than repaymentAmount
+        emi1.setAmountMinor(6000);// EMI amount is greater than repaymentAmount
         emi1.setLoanId(loanId);
         emi1.setEmiStatus(EMIStatus.PENDING);
         EMI emi2 = new EMI();
-        emi2.setAmount(70.0); // EMI amount is greater than repaymentAmount
+        emi2.setAmountMinor(7000); // EMI amount is greater than repaymentAmount
         emi2.setLoanId(loanId);
         emi2.setEmiStatus(EMIStatus.PENDING);
         emiList.add(emi1);
@@ -408,7 +1046,7 @@ public class LoanServiceTest {
         when(loanRepository.findByIdAndStatus(eq(loanId), eq(LoanStatus.PENDING))).thenReturn(Optional.of(loan));
 
         // Mock the emiRepository to return the list of pending EMIs
-        when(emiRepository.findByLoanIdAndEmiStatusOrderByDueDateAsc(eq(loanId), eq(EMIStatus.PENDING)))
+        when(emiRepository.findByLoanIdAndEmiStatusNotOrderByDueDateAscIdAsc(eq(loanId), eq(EMIStatus.PAID), any(Pageable.class)))
                 .thenReturn(emiList);
 
         // Perform the repayLoan method
@@ -419,4 +1057,224 @@ public class LoanServiceTest {
             assertEquals("Repayment Amount should be greater than or equal to EMI Amount", e.getMessage());
         }
     }
+
+    @Test
+    public void testGetLoansPageForAdminWithStatusFilter() {
+        Long userId = 1L;
+        User adminUser = new User();
+        adminUser.setUserRole(UserRole.ADMIN);
+        givenUser(userId, adminUser);
+
+        List<LoanSummary> firstPage = List.of(loan(10L, LoanStatus.APPROVED), loan(11L, LoanStatus.APPROVED));
+        when(loanRepository.findSummariesByStatusAndIdGreaterThanOrderByIdAsc(LoanStatus.APPROVED, 0L, PageRequest.of(0, 2)))
+                .thenReturn(firstPage);
+
+        LoanPage page = loanService.getLoansPageForAdmin(userId, LoanStatus.APPROVED, null, 2);
+
+        assertEquals(firstPage, page.getLoans());
+        LoanCursor next = LoanCursor.decode(page.getNextCursor());
+        assertEquals(LoanStatus.APPROVED, next.getStatus());
+        assertEquals(11L, next.getId());
+
+        when(loanRepository.findSummariesByStatusAndIdGreaterThanOrderByIdAsc(LoanStatus.APPROVED, 11L, PageRequest.of(0, 2)))
+                .thenReturn(List.of(loan(12L, LoanStatus.APPROVED)));
+
+        LoanPage lastPage = loanService.getLoansPageForAdmin(userId, LoanStatus.APPROVED, page.getNextCursor(), 2);
+
+        assertEquals(1, lastPage.getLoans().size());
+        assertNull(lastPage.getNextCursor());
+    }
+
+    @Test
+    public void testGetLoansPageForAdminWalksIntoNextStatus() {
+        Long userId = 1L;
+        User adminUser = new User();
+        adminUser.setUserRole(UserRole.ADMIN);
+        givenUser(userId, adminUser);
+
+        String cursor = new LoanCursor(LoanStatus.PENDING, 5L).encode();
+        when(loanRepository.findSummariesByStatusAndIdGreaterThanOrderByIdAsc(LoanStatus.PENDING, 5L, PageRequest.of(0, 3)))
+                .thenReturn(List.of(loan(7L, LoanStatus.PENDING)));
+        when(loanRepository.findSummariesByStatusAndIdGreaterThanOrderByIdAsc(LoanStatus.APPROVED, 0L, PageRequest.of(0, 2)))
+                .thenReturn(List.of(loan(2L, LoanStatus.APPROVED), loan(3L, LoanStatus.APPROVED)));
+
+        LoanPage page = loanService.getLoansPageForAdmin(userId, null, cursor, 3);
+
+        assertEquals(3, page.getLoans().size());
+        LoanCursor next = LoanCursor.decode(page.getNextCursor());
+        assertEquals(LoanStatus.APPROVED, next.getStatus());
+        assertEquals(3L, next.getId());
+    }
+
+    @Test
+    public void testGetLoansPageForAdminRejectsForeignCursor() {
+        Long userId = 1L;
+        User adminUser = new User();
+        adminUser.setUserRole(UserRole.ADMIN);
+        givenUser(userId, adminUser);
+
+        String cursor = new LoanCursor(LoanStatus.PENDING, 5L).encode();
+
+        assertThrows(InvalidCursorException.class, () -> loanService.getLoansPageForAdmin(userId, LoanStatus.PAID, cursor, 10));
+        assertThrows(InvalidCursorException.class, () -> loanService.getLoansPageForAdmin(userId, null, "not-a-cursor", 10));
+    }
+
+    @Test
+    public void testStreamLoansForAdminChecksRoleBeforeStreaming() {
+        Long userId = 1L;
+        User user = new User();
+        user.setUserRole(UserRole.BORROWER);
+        givenUser(userId, user);
+
+        assertThrows(InvalidUserAuthority.class, () -> loanService.streamLoansForAdmin(userId, null));
+        verifyNoInteractions(loanStreamRepository);
+    }
+
+    @Test
+    public void testStreamLoansForAdminWritesRowsAsJsonArray() throws Exception {
+        Long userId = 1L;
+        User adminUser = new User();
+        adminUser.setUserRole(UserRole.ADMIN);
+        givenUser(userId, adminUser);
+
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.getLong("id")).thenReturn(42L);
+        when(resultSet.getLong("user_id")).thenReturn(7L);
+        when(resultSet.getDouble("amount_required")).thenReturn(1000.0);
+        when(resultSet.getInt("loan_term")).thenReturn(3);
+        when(resultSet.getInt("status")).thenReturn(LoanStatus.APPROVED.ordinal());
+        when(resultSet.getInt("loan_type")).thenReturn(LoanType.PERSONAL.ordinal());
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            handler.processRow(resultSet);
+            handler.processRow(resultSet);
+            return null;
+        }).when(loanStreamRepository).streamLoans(eq(LoanStatus.APPROVED), any(RowCallbackHandler.class));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        loanService.streamLoansForAdmin(userId, LoanStatus.APPROVED).writeTo(out);
+
+        List<?> rows = objectMapper.readValue(out.toByteArray(), List.class);
+        assertEquals(2, rows.size());
+        assertEquals(42, ((Map<?, ?>) rows.get(0)).get("id"));
+        assertEquals("APPROVED", ((Map<?, ?>) rows.get(0)).get("status"));
+    }
+
+    @Test
+    public void testCreateLoansValidatesUsersOnceAndBatchesInserts() {
+        Long adminId = 1L;
+        User adminUser = new User();
+        adminUser.setUserRole(UserRole.ADMIN);
+        givenUser(adminId, adminUser);
+
+        List<LoanRequest> loanRequests = List.of(
+                new LoanRequest(1000.0, 52, null, 10L, LoanType.PERSONAL),
+                new LoanRequest(2000.0, 52, null, 11L, LoanType.PERSONAL),
+                new LoanRequest(3000.0, 12, null, 10L, LoanType.CAR),
+                new LoanRequest(0.0, 52, null, 10L, LoanType.PERSONAL),
+                new LoanRequest(1000.0, 52, null, 10L, null));
+        when(userRepository.findExistingIds(Set.of(10L, 11L))).thenReturn(Set.of(10L));
+        doAnswer(invocation -> {
+            List<Loan> inserted = invocation.getArgument(0);
+            inserted.get(0).setId(501L);
+            inserted.get(1).setId(502L);
+            return inserted.size();
+        }).when(loanBatchWriter).insertLoans(anyList());
+
+        List<BatchItemResult> results = loanService.createLoans(loanRequests, adminId);
+
+        verify(userRepository, times(1)).findExistingIds(anyCollection());
+        verify(userRepository, never()).findById(anyLong());
+        verify(loanBatchWriter, times(1)).insertLoans(argThat(loans -> loans.size() == 2
+                && loans.get(0).getUserId() == 10L
+                && loans.get(1).getLoanType() == LoanType.CAR
+                && loans.get(0).getAmountToBePaidMinor() > 0));
+        verify(loanRepository, never()).save(any(Loan.class));
+        assertEquals(5, results.size());
+        assertEquals(BatchItemStatus.CREATED, results.get(0).getStatus());
+        assertEquals(501L, results.get(0).getId());
+        assertEquals(BatchItemStatus.REJECTED, results.get(1).getStatus());
+        assertEquals("User not found: 11", results.get(1).getMessage());
+        assertNull(results.get(1).getId());
+        assertEquals(BatchItemStatus.CREATED, results.get(2).getStatus());
+        assertEquals(502L, results.get(2).getId());
+        assertEquals(BatchItemStatus.REJECTED, results.get(3).getStatus());
+        assertEquals(BatchItemStatus.REJECTED, results.get(4).getStatus());
+        assertEquals(4, results.get(4).getIndex());
+    }
+
+    @Test
+    public void testCreateLoansInQueuedModeTakesIdsFromTheSameBlocks() {
+        Long adminId = 1L;
+        User adminUser = new User();
+        adminUser.setUserRole(UserRole.ADMIN);
+        givenUser(adminId, adminUser);
+        when(userRepository.findExistingIds(Set.of(10L))).thenReturn(Set.of(10L));
+        when(loanIntakeQueue.isEnabled()).thenReturn(true);
+        when(loanIdAllocator.nextId()).thenReturn(7L, 8L);
+
+        List<BatchItemResult> results = loanService.createLoans(List.of(new LoanRequest(1000.0, 52, null, 10L, LoanType.PERSONAL),
+                new LoanRequest(2000.0, 52, null, 10L, LoanType.PERSONAL)), adminId);
+
+        verify(loanBatchWriter).insertLoansWithIds(argThat(loans -> loans.get(0).getId() == 7L && loans.get(1).getId() == 8L));
+        verify(loanBatchWriter, never()).insertLoans(anyList());
+        assertEquals(7L, results.get(0).getId());
+        assertEquals(8L, results.get(1).getId());
+    }
+
+    @Test
+    public void testCreateLoansRequiresAdmin() {
+        Long userId = 2L;
+        User borrower = new User();
+        borrower.setUserRole(UserRole.BORROWER);
+        givenUser(userId, borrower);
+
+        assertThrows(InvalidUserAuthority.class, () -> loanService.createLoans(new ArrayList<>(), userId));
+        verifyNoInteractions(loanBatchWriter);
+    }
+
+    @Test
+    public void testCreateLoansRejectsOversizedBatch() {
+        Long adminId = 1L;
+        User adminUser = new User();
+        adminUser.setUserRole(UserRole.ADMIN);
+        givenUser(adminId, adminUser);
+
+        List<LoanRequest> loanRequests = new ArrayList<>();
+        for (int i = 0; i < 5001; i++) {
+            loanRequests.add(new LoanRequest(1000.0, 52, null, 10L, LoanType.PERSONAL));
+        }
+
+        assertThrows(BatchSizeExceededException.class, () -> loanService.createLoans(loanRequests, adminId));
+        verifyNoInteractions(userRepository, loanBatchWriter);
+    }
+
+    private Loan pendingLoan(Long id, int term) {
+        Loan loan = new Loan();
+        loan.setId(id);
+        loan.setUserId(7L);
+        loan.setStatus(LoanStatus.PENDING);
+        loan.setLoanType(LoanType.PERSONAL);
+        loan.setLoanTerm(term);
+        loan.setAmountToBePaidMinor(term * 10000L);
+        return loan;
+    }
+
+    private LoanSummary loan(Long id, LoanStatus status) {
+        return new LoanSummary(id, 7L, 0, 52, 0, 0, null, null, status, LoanType.PERSONAL);
+    }
+
+    //Serves the open installments the way the query does, at most the page's limit of them
+    private void givenOpenEmis(Long loanId, List<EMI> openEmis) {
+        when(emiRepository.findByLoanIdAndEmiStatusNotOrderByDueDateAscIdAsc(eq(loanId), eq(EMIStatus.PAID), any(Pageable.class)))
+                .thenAnswer(invocation -> {
+                    Pageable pageable = invocation.getArgument(2);
+                    return openEmis.subList(0, Math.min(pageable.getPageSize(), openEmis.size()));
+                });
+    }
+
+    private void givenUser(Long userId, User user) {
+        when(userRoleCache.exists(userId)).thenReturn(true);
+        when(userRoleCache.getRole(userId)).thenReturn(user.getUserRole());
+    }
 }
@@ -0,0 +1,110 @@
+package com.example.loansystem.service;
+
+import com.example.loansystem.repository.OverdueEmiRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Builds a 3M-row table; run with -Pslow-tests
+@Tag("slow")
+public class OverdueEmiSweeperTest {
+
+    private static final int ROWS = 3_000_000;
+    private static final int INSERT_CHUNK = 250_000;
+    private static final Instant FIRST_DUE = Instant.parse("2020-01-01T00:00:00Z");
+
+    private static JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    public static void createEmis() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:overdue;DB_CLOSE_DELAY=-1;TIME ZONE=UTC");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE emi (id BIGINT PRIMARY KEY, loan_id BIGINT NOT NULL, user_id BIGINT NOT NULL, " +
+                "amount DOUBLE NOT NULL, due_date TIMESTAMP, emi_status INT)");
+        //One installment per minute from FIRST_DUE; every tenth one is already paid
+        for (int from = 1; from <= ROWS; from += INSERT_CHUNK) {
+            jdbcTemplate.execute("INSERT INTO emi SELECT X, X / 52, 1, 100.0, " +
+                    "DATEADD('MINUTE', X, TIMESTAMP '2020-01-01 00:00:00'), CASE WHEN MOD(X, 10) = 0 THEN 1 ELSE 0 END " +
+                    "FROM SYSTEM_RANGE(" + from + ", " + (from + INSERT_CHUNK - 1) + ")");
+        }
+        jdbcTemplate.execute("CREATE INDEX idx_emi_status_due_date ON emi (emi_status, due_date, id)");
+    }
+
+    @AfterAll
+    public static void dropEmis() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    public void testSweepsMillionsOfInstallmentsInChunksFromTheHighWaterMark() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        MovableClock clock = new MovableClock(FIRST_DUE.plus(Duration.ofMinutes(2_000_000)));
+        OverdueEmiSweeper sweeper = new OverdueEmiSweeper(new OverdueEmiRepository(jdbcTemplate), meterRegistry, 50_000, Duration.ofDays(2), clock);
+
+        //Rows 1..1_999_999 are due, minus the paid tenth
+        assertEquals(1_800_000, sweeper.sweep());
+        assertEquals(1_800_000, countInStatus(2));
+        assertEquals(300_000, countInStatus(1));
+        assertEquals(0, (int) jdbcTemplate.queryForObject("SELECT COUNT(*) FROM emi WHERE emi_status = 0 AND due_date < ?",
+                Integer.class, Timestamp.from(clock.instant())));
+        assertEquals(1_800_000, meterRegistry.counter("aspire.emi.overdue.sweep.scanned").count());
+        assertEquals(1_800_000, meterRegistry.counter("aspire.emi.overdue.sweep.updated").count());
+
+        //The next run reads only what fell due since the previous cut-off; the lag window holds no pending rows
+        clock.advance(Duration.ofMinutes(100_000));
+        assertEquals(90_000, sweeper.sweep());
+        assertEquals(1_890_000, meterRegistry.counter("aspire.emi.overdue.sweep.scanned").count());
+        assertEquals(clock.instant(), sweeper.getHighWaterMark().toInstant());
+        assertEquals(2, meterRegistry.timer("aspire.emi.overdue.sweep.duration").count());
+
+        //Nothing new is due, so a run right after scans nothing
+        assertEquals(0, sweeper.sweep());
+        assertEquals(1_890_000, meterRegistry.counter("aspire.emi.overdue.sweep.scanned").count());
+        assertEquals(300_000, countInStatus(1));
+    }
+
+    private int countInStatus(int status) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM emi WHERE emi_status = ?", Integer.class, status);
+    }
+
+    private static class MovableClock extends Clock {
+        private Instant now;
+
+        private MovableClock(Instant now) {
+            this.now = now;
+        }
+
+        private void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.loansystem.service;
+
+import com.example.loansystem.dto.LoanBalance;
+import com.example.loansystem.dto.RepaymentFileReport;
+import com.example.loansystem.model.Loan;
+import com.example.loansystem.model.UserRole;
+import com.example.loansystem.repository.EMIScheduleWriter;
+import com.example.loansystem.repository.LoanLedgerRepository;
+import com.example.loansystem.repository.LoanScheduleRepository;
+import com.example.loansystem.repository.OverdueEmiRepository;
+import com.example.loansystem.repository.RepaymentBatchRepository;
+import com.example.loansystem.strategy.EMISchedule;
+import com.example.loansystem.strategy.FixedEMIStrategy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Runs the overdue sweep and a repayment file against the migrated schema in H2, checking that an
+ * installment the sweep marked overdue is still paid and the loan still closes, and that a loan
+ * approved after a sweep still has its first installment marked.
+ */
+public class OverdueRepaymentTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private OverdueEmiSweeper sweeper;
+    private RepaymentFileService repaymentFileService;
+    private LoanLedger loanLedger;
+
+    @BeforeEach
+    public void setUp() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:overdue-repayment;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("INSERT INTO `user` (id, user_email, password, user_role) VALUES (1, 'admin@example.com', 'hash', 0)");
+        jdbcTemplate.execute("INSERT INTO loan (id, user_id, amount_required, loan_term, amount_to_be_paid, interest_rate, " +
+                "request_date, start_date, status, loan_type) VALUES (7, 1, 200, 2, 200, 0, DATE '2024-01-01', " +
+                "TIMESTAMP '2024-01-01 00:00:00', 0, 0)");
+        jdbcTemplate.execute("INSERT INTO emi (id, loan_id, user_id, amount, due_date, emi_status) VALUES " +
+                "(70, 7, 1, 100.00, TIMESTAMP '2024-01-01 00:00:00', 0), (71, 7, 1, 100.00, TIMESTAMP '2024-01-08 00:00:00', 0)");
+
+        NamedParameterJdbcTemplate namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        RepaymentBatchRepository repaymentBatchRepository = new RepaymentBatchRepository();
+        ReflectionTestUtils.setField(repaymentBatchRepository, "jdbcTemplate", namedJdbcTemplate);
+        LoanScheduleRepository loanScheduleRepository = new LoanScheduleRepository();
+        ReflectionTestUtils.setField(loanScheduleRepository, "jdbcTemplate", namedJdbcTemplate);
+        LoanLedgerRepository loanLedgerRepository = new LoanLedgerRepository();
+        ReflectionTestUtils.setField(loanLedgerRepository, "jdbcTemplate", namedJdbcTemplate);
+        UserRoleCache userRoleCache = mock(UserRoleCache.class);
+        when(userRoleCache.exists(1L)).thenReturn(true);
+        when(userRoleCache.getRole(1L)).thenReturn(UserRole.ADMIN);
+
+        Clock clock = Clock.fixed(Instant.parse("2024-01-05T00:00:00Z"), ZoneOffset.UTC);
+        sweeper = new OverdueEmiSweeper(new OverdueEmiRepository(jdbcTemplate), new SimpleMeterRegistry(), 100, Duration.ofDays(2), clock);
+        loanLedger = new LoanLedger(loanLedgerRepository, 64, clock);
+        repaymentFileService = new RepaymentFileService(repaymentBatchRepository, loanScheduleRepository, loanLedger,
+                new LoanMetrics(new SimpleMeterRegistry()), userRoleCache, new DataSourceTransactionManager(dataSource), 1, 500);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        repaymentFileService.destroy();
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    public void testSweptInstallmentIsRepaidAndClosesTheLoan() throws IOException {
+        assertEquals(1, sweeper.sweep());
+        assertEquals(2, emiStatus(70));
+
+        RepaymentFileReport report = repaymentFileService.ingest(
+                new ByteArrayInputStream("7,200\n".getBytes(StandardCharsets.UTF_8)), 1L);
+
+        assertEquals(1, report.getAppliedLines());
+        assertTrue(report.getRejections().isEmpty());
+        assertEquals(1, emiStatus(70));
+        assertEquals(1, emiStatus(71));
+        assertEquals(2, (int) jdbcTemplate.queryForObject("SELECT status FROM loan WHERE id = 7", Integer.class));
+        LoanBalance balance = loanLedger.balance(7L).orElseThrow();
+        assertEquals(0, balance.getOutstandingMinor());
+        assertNull(balance.getNextDueDate());
+    }
+
+    @Test
+    public void testPartialRepaymentPaysTheOverdueInstallmentFirst() throws IOException {
+        sweeper.sweep();
+
+        repaymentFileService.ingest(new ByteArrayInputStream("7,150\n".getBytes(StandardCharsets.UTF_8)), 1L);
+
+        assertEquals(1, emiStatus(70));
+        assertEquals(0, emiStatus(71));
+        LoanBalance balance = loanLedger.balance(7L).orElseThrow();
+        assertEquals(5_000, balance.getOutstandingMinor());
+        assertEquals(LocalDate.of(2024, 1, 8), balance.getNextDueDate());
+    }
+
+    @Test
+    public void testLoanApprovedAfterASweepStillGetsItsFirstInstallmentMarked() {
+        Clock clock = mock(Clock.class);
+        when(clock.millis()).thenReturn(Instant.parse("2024-01-05T12:00:00Z").toEpochMilli(),
+                Instant.parse("2024-01-05T13:05:00Z").toEpochMilli());
+        OverdueEmiSweeper sweeper = new OverdueEmiSweeper(new OverdueEmiRepository(jdbcTemplate), new SimpleMeterRegistry(),
+                100, Duration.ofDays(2), clock);
+        assertEquals(1, sweeper.sweep());
+
+        //Approved an hour after that sweep; the first installment is due at the start of the approval day
+        jdbcTemplate.execute("INSERT INTO loan (id, user_id, amount_required, loan_term, amount_to_be_paid, interest_rate, " +
+                "request_date, start_date, status, loan_type) VALUES (8, 1, 200, 2, 200, 0, DATE '2024-01-05', " +
+                "TIMESTAMP '2024-01-05 13:00:00', 0, 0)");
+        Loan loan = new Loan();
+        loan.setId(8L);
+        loan.setLoanTerm(2);
+        loan.setAmountToBePaidMinor(20_000);
+        loan.setStartDate(Date.from(Instant.parse("2024-01-05T13:00:00Z")));
+        EMISchedule schedule = new EMISchedule();
+        new FixedEMIStrategy().fillSchedule(loan, schedule);
+        EMIScheduleWriter emiScheduleWriter = new EMIScheduleWriter();
+        ReflectionTestUtils.setField(emiScheduleWriter, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(emiScheduleWriter, "batchSize", 10);
+        emiScheduleWriter.writeSchedule(schedule.toEMIs(8L, 1L, ZoneId.systemDefault()));
+
+        assertEquals(1, sweeper.sweep());
+        assertEquals(List.of(2, 0), jdbcTemplate.queryForList("SELECT emi_status FROM emi WHERE loan_id = 8 ORDER BY due_date", Integer.class));
+    }
+
+    private int emiStatus(long emiId) {
+        return jdbcTemplate.queryForObject("SELECT emi_status FROM emi WHERE id = ?", Integer.class, emiId);
+    }
+}
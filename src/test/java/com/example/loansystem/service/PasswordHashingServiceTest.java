@@ -0,0 +1,73 @@
+package com.example.loansystem.service;
+
+import com.example.loansystem.exceptions.HashingCapacityExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class PasswordHashingServiceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private PasswordHashingService passwordHashingService;
+
+    @AfterEach
+    public void tearDown() {
+        passwordHashingService.destroy();
+    }
+
+    @Test
+    public void testHashingRunsOnDedicatedPool() {
+        passwordHashingService = new PasswordHashingService(new BCryptPasswordEncoder(4), meterRegistry, 2, 10);
+        String callerThread = Thread.currentThread().getName();
+
+        String hashingThread = passwordHashingService.encode("password")
+                .thenApply(hash -> Thread.currentThread().getName())
+                .join();
+        String encoded = passwordHashingService.encode("password").join();
+
+        assertNotEquals(callerThread, hashingThread);
+        assertTrue(hashingThread.startsWith("password-hashing-"));
+        assertTrue(passwordHashingService.matches("password", encoded).join());
+        assertFalse(passwordHashingService.matches("wrong", encoded).join());
+        assertEquals(2, meterRegistry.get("aspire.password.hashing.duration").tag("operation", "encode").timer().count());
+        assertEquals(2, meterRegistry.get("aspire.password.hashing.duration").tag("operation", "match").timer().count());
+    }
+
+    @Test
+    public void testFullQueueFailsFast() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        PasswordEncoder slowEncoder = mock(PasswordEncoder.class);
+        when(slowEncoder.encode(any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return "hash";
+        });
+        passwordHashingService = new PasswordHashingService(slowEncoder, meterRegistry, 1, 1);
+
+        CompletableFuture<String> running = passwordHashingService.encode("a");
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> queued = passwordHashingService.encode("b");
+        CompletableFuture<String> rejected = passwordHashingService.encode("c");
+
+        assertEquals(1.0, meterRegistry.get("aspire.password.hashing.queue.depth").gauge().value());
+        CompletionException e = assertThrows(CompletionException.class, rejected::join);
+        assertInstanceOf(HashingCapacityExceededException.class, e.getCause());
+
+        release.countDown();
+        assertEquals("hash", running.join());
+        assertEquals("hash", queued.join());
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.loansystem.service;
+
+import com.example.loansystem.exceptions.InvalidRateCardException;
+import com.example.loansystem.factory.RateCard;
+import com.example.loansystem.model.LoanType;
+import com.example.loansystem.model.RateTier;
+import com.example.loansystem.repository.RateCardRepository;
+import org.flywaydb.core.Flyway;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class RateCardRegistryTest {
+
+    private static final List<RateTier> BASE_TIERS = List.of(
+            new RateTier(LoanType.PERSONAL, 0, 0, 0.10),
+            new RateTier(LoanType.CAR, 0, 0, 0.09),
+            new RateTier(LoanType.HOME, 0, 0, 0.08));
+
+    @Mock
+    private RateCardRepository rateCardRepository;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    public void testBaseRatesAtStartup() {
+        when(rateCardRepository.findAll()).thenReturn(BASE_TIERS);
+
+        RateCardRegistry registry = new RateCardRegistry(rateCardRepository);
+
+        assertEquals(0.10, registry.rateFor(LoanType.PERSONAL, 100_000, 52));
+        assertEquals(0.09, registry.rateFor(LoanType.CAR, 100_000, 36));
+        assertEquals(0.08, registry.rateFor(LoanType.HOME, 100_000, 360));
+    }
+
+    @Test
+    public void testTiersByAmountThenTerm() {
+        List<RateTier> tiers = new ArrayList<>(BASE_TIERS);
+        tiers.add(new RateTier(LoanType.HOME, 10_000_000, 0, 0.075));
+        tiers.add(new RateTier(LoanType.HOME, 10_000_000, 240, 0.07));
+        tiers.add(new RateTier(LoanType.HOME, 0, 240, 0.078));
+        RateCard rateCard = RateCard.of(tiers);
+
+        assertEquals(0.08, rateCard.rateFor(LoanType.HOME, 9_999_999, 120));
+        assertEquals(0.078, rateCard.rateFor(LoanType.HOME, 9_999_999, 240));
+        assertEquals(0.075, rateCard.rateFor(LoanType.HOME, 10_000_000, 239));
+        assertEquals(0.07, rateCard.rateFor(LoanType.HOME, 50_000_000, 360));
+        assertEquals(0.10, rateCard.rateFor(LoanType.PERSONAL, 50_000_000, 360));
+        assertEquals(6, rateCard.getTierCount());
+    }
+
+    @Test
+    public void testReloadPublishesNewCard() {
+        when(rateCardRepository.findAll()).thenReturn(BASE_TIERS);
+        RateCardRegistry registry = new RateCardRegistry(rateCardRepository);
+        RateCard before = registry.current();
+
+        when(rateCardRepository.findAll()).thenReturn(List.of(
+                new RateTier(LoanType.PERSONAL, 0, 0, 0.12),
+                new RateTier(LoanType.CAR, 0, 0, 0.09),
+                new RateTier(LoanType.HOME, 0, 0, 0.08)));
+        registry.reload();
+
+        assertEquals(0.12, registry.rateFor(LoanType.PERSONAL, 100_000, 52));
+        //A snapshot taken before the reload is unchanged
+        assertEquals(0.10, before.rateFor(LoanType.PERSONAL, 100_000, 52));
+    }
+
+    @Test
+    public void testInvalidReloadKeepsCurrentCard() {
+        when(rateCardRepository.findAll()).thenReturn(BASE_TIERS);
+        RateCardRegistry registry = new RateCardRegistry(rateCardRepository);
+
+        //No base tier for HOME
+        when(rateCardRepository.findAll()).thenReturn(List.of(
+                new RateTier(LoanType.PERSONAL, 0, 0, 0.12),
+                new RateTier(LoanType.CAR, 0, 0, 0.09),
+                new RateTier(LoanType.HOME, 10_000_000, 0, 0.07)));
+        assertThrows(InvalidRateCardException.class, registry::reload);
+
+        when(rateCardRepository.findAll()).thenReturn(List.of(
+                new RateTier(LoanType.PERSONAL, 0, 0, Double.NaN),
+                new RateTier(LoanType.CAR, 0, 0, 0.09),
+                new RateTier(LoanType.HOME, 0, 0, 0.08)));
+        assertThrows(InvalidRateCardException.class, registry::reload);
+
+        assertEquals(0.10, registry.rateFor(LoanType.PERSONAL, 100_000, 52));
+        assertEquals(0.08, registry.rateFor(LoanType.HOME, 100_000, 360));
+    }
+
+    @Test
+    public void testUnknownLoanTypeRowKeepsCurrentCard() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:rate-card;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        try {
+            RateCardRepository repository = new RateCardRepository();
+            ReflectionTestUtils.setField(repository, "jdbcTemplate", jdbcTemplate);
+            RateCardRegistry registry = new RateCardRegistry(repository);
+
+            jdbcTemplate.execute("INSERT INTO rate_card (loan_type, min_amount, min_term, interest_rate) VALUES (9, 0, 0, 0.05)");
+
+            assertThrows(InvalidRateCardException.class, registry::reload);
+            assertEquals(0.10, registry.rateFor(LoanType.PERSONAL, 100_000, 52));
+        } finally {
+            jdbcTemplate.execute("DROP ALL OBJECTS");
+        }
+    }
+
+    @Test
+    public void testDuplicateTierIsRejected() {
+        List<RateTier> tiers = new ArrayList<>(BASE_TIERS);
+        tiers.add(new RateTier(LoanType.CAR, 0, 0, 0.085));
+
+        assertThrows(InvalidRateCardException.class, () -> RateCard.of(tiers));
+    }
+
+    @Test
+    public void testLookupsDuringReloadsSeeWholeCards() throws Exception {
+        List<RateTier> low = List.of(
+                new RateTier(LoanType.PERSONAL, 0, 0, 0.10),
+                new RateTier(LoanType.CAR, 0, 0, 0.10),
+                new RateTier(LoanType.HOME, 0, 0, 0.10));
+        List<RateTier> high = List.of(
+                new RateTier(LoanType.PERSONAL, 0, 0, 0.20),
+                new RateTier(LoanType.CAR, 0, 0, 0.20),
+                new RateTier(LoanType.HOME, 0, 0, 0.20));
+        when(rateCardRepository.findAll()).thenReturn(low, high, low, high);
+        RateCardRegistry registry = new RateCardRegistry(rateCardRepository);
+
+        ExecutorService readers = Executors.newFixedThreadPool(4);
+        AtomicBoolean running = new AtomicBoolean(true);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                results.add(readers.submit(() -> {
+                    while (running.get()) {
+                        RateCard card = registry.current();
+                        double personal = card.rateFor(LoanType.PERSONAL, 100_000, 52);
+                        if (personal != card.rateFor(LoanType.HOME, 100_000, 52)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (int i = 0; i < 1000; i++) {
+                registry.reload();
+            }
+            running.set(false);
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            readers.shutdownNow();
+        }
+    }
+}
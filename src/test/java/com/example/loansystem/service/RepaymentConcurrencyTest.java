@@ -0,0 +1,235 @@
+package com.example.loansystem.service;
+
+import com.example.loansystem.exceptions.LoanBusyException;
+import com.example.loansystem.model.EMI;
+import com.example.loansystem.model.EMIStatus;
+import com.example.loansystem.model.Loan;
+import com.example.loansystem.model.LoanStatus;
+import com.example.loansystem.repository.EMIRepository;
+import com.example.loansystem.repository.LoanRepository;
+import com.example.loansystem.repository.LoanScheduleRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Fires thousands of parallel repayments at a few hot loans. The repositories are backed by an
+ * in-memory table where each statement is atomic but nothing isolates one repayment's read from
+ * another's write, so only {@link LoanLocks} keeps two repayments from paying the same installment.
+ * The database row lock is not modelled; its conflicts are simulated as lock exceptions from the
+ * loan read to drive the retry path under the same load.
+ */
+public class RepaymentConcurrencyTest {
+
+    private static final int HOT_LOANS = 4;
+    private static final int REPAYMENTS_PER_LOAN = 1000;
+    private static final int INSTALLMENTS_PER_LOAN = 1200;
+    private static final long INSTALLMENT_MINOR = 10_000;
+    private static final int THREADS = 32;
+
+    @Mock
+    private LoanRepository loanRepository;
+
+    @Mock
+    private EMIRepository emiRepository;
+
+    @Mock
+    private LoanScheduleRepository loanScheduleRepository;
+
+    @Mock
+    private LoanLedger loanLedger;
+
+    @Spy
+    private LoanLocks loanLocks = new LoanLocks(1024, Duration.ofSeconds(30));
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
+    @Spy
+    private LoanMetrics loanMetrics = new LoanMetrics(new SimpleMeterRegistry());
+
+    @InjectMocks
+    private LoanService loanService;
+
+    private final Map<Long, List<EMI>> emiTable = new HashMap<>();
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(loanService, "maxRepaymentAttempts", 3);
+
+        long emiId = 1;
+        for (long loanId = 1; loanId <= HOT_LOANS; loanId++) {
+            Loan loan = new Loan();
+            loan.setId(loanId);
+            loan.setStatus(LoanStatus.PENDING);
+            when(loanRepository.findByIdAndStatus(loanId, LoanStatus.PENDING)).thenReturn(Optional.of(loan));
+
+            List<EMI> emis = new ArrayList<>();
+            for (int week = 0; week < INSTALLMENTS_PER_LOAN; week++) {
+                EMI emi = new EMI(loanId, 1L, INSTALLMENT_MINOR, new Date(week * 7L * 24 * 60 * 60 * 1000), EMIStatus.PENDING);
+                emi.setId(emiId++);
+                emis.add(emi);
+            }
+            emiTable.put(loanId, emis);
+        }
+        when(loanScheduleRepository.lockByLoanId(anyLong())).thenReturn(Optional.empty());
+        when(emiRepository.findByLoanIdAndEmiStatusNotOrderByDueDateAscIdAsc(anyLong(), eq(EMIStatus.PAID), any(Pageable.class)))
+                .thenAnswer(invocation -> {
+                    List<EMI> pending = readPending(invocation.getArgument(0));
+                    //Widens the window between this read and the write that acts on it
+                    Thread.yield();
+                    return pending;
+                });
+        when(emiRepository.markOpenPaidThrough(anyLong(), any(Date.class)))
+                .thenAnswer(invocation -> markPaidThrough(invocation.getArgument(0), invocation.getArgument(1)));
+    }
+
+    @Test
+    public void testParallelRepaymentsOnHotLoans() throws Exception {
+        for (Future<?> repayment : repayAll()) {
+            //Rethrows whatever a repayment failed with, LoanBusyException included
+            repayment.get();
+        }
+
+        //Every repayment paid exactly one installment, none was paid twice
+        for (long loanId = 1; loanId <= HOT_LOANS; loanId++) {
+            assertEquals(REPAYMENTS_PER_LOAN, paidInstallments(loanId), "loan " + loanId);
+        }
+        verify(emiRepository, never()).deductFromAmount(anyLong(), anyLong());
+    }
+
+    @Test
+    public void testLockConflictsAreRetriedUnderLoad() throws Exception {
+        //Every third read of a loan hits a lock wait timeout; reads of one loan are serialized, so no
+        //repayment conflicts twice in a row and every one of them goes through on a retry at worst
+        Map<Long, AtomicInteger> reads = new HashMap<>();
+        for (long loanId = 1; loanId <= HOT_LOANS; loanId++) {
+            Loan loan = loanRepository.findByIdAndStatus(loanId, LoanStatus.PENDING).orElseThrow();
+            AtomicInteger loanReads = new AtomicInteger();
+            reads.put(loanId, loanReads);
+            when(loanRepository.findByIdAndStatus(loanId, LoanStatus.PENDING)).thenAnswer(invocation -> {
+                if (loanReads.incrementAndGet() % 3 == 0) {
+                    throw new CannotAcquireLockException("Lock wait timeout exceeded");
+                }
+                return Optional.of(loan);
+            });
+        }
+
+        for (Future<?> repayment : repayAll()) {
+            repayment.get();
+        }
+
+        int attempts = 0;
+        for (long loanId = 1; loanId <= HOT_LOANS; loanId++) {
+            assertEquals(REPAYMENTS_PER_LOAN, paidInstallments(loanId), "loan " + loanId);
+            attempts += reads.get(loanId).get();
+        }
+        //A rolled back attempt wrote nothing, so the retries add reads but no extra payments
+        assertTrue(attempts > HOT_LOANS * REPAYMENTS_PER_LOAN, "attempts: " + attempts);
+        verify(transactionTemplate, times(attempts)).executeWithoutResult(any());
+        verify(emiRepository, times(HOT_LOANS * REPAYMENTS_PER_LOAN)).markOpenPaidThrough(anyLong(), any(Date.class));
+    }
+
+    @Test
+    public void testLoanThatStaysLockedGivesUpWithLoanBusy() throws Exception {
+        when(loanRepository.findByIdAndStatus(1L, LoanStatus.PENDING))
+                .thenThrow(new CannotAcquireLockException("Lock wait timeout exceeded"));
+
+        int busy = 0;
+        for (Future<?> repayment : repayAll()) {
+            try {
+                repayment.get();
+            } catch (ExecutionException e) {
+                assertInstanceOf(LoanBusyException.class, e.getCause());
+                busy++;
+            }
+        }
+
+        //Loan 1 never got through, each of its repayments tried maxRepaymentAttempts times; the others were unaffected
+        assertEquals(REPAYMENTS_PER_LOAN, busy);
+        assertEquals(0, paidInstallments(1L));
+        verify(loanRepository, times(3 * REPAYMENTS_PER_LOAN)).findByIdAndStatus(1L, LoanStatus.PENDING);
+        for (long loanId = 2; loanId <= HOT_LOANS; loanId++) {
+            assertEquals(REPAYMENTS_PER_LOAN, paidInstallments(loanId), "loan " + loanId);
+        }
+    }
+
+    private List<Future<?>> repayAll() throws InterruptedException {
+        ExecutorService clients = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> repayments = new ArrayList<>();
+        for (int i = 0; i < HOT_LOANS * REPAYMENTS_PER_LOAN; i++) {
+            long loanId = i % HOT_LOANS + 1;
+            repayments.add(clients.submit(() -> loanService.repayLoan(loanId, 100.0)));
+        }
+        clients.shutdown();
+        assertTrue(clients.awaitTermination(1, TimeUnit.MINUTES), "repayments did not finish");
+        return repayments;
+    }
+
+    private int paidInstallments(long loanId) {
+        synchronized (emiTable) {
+            int paid = 0;
+            for (EMI emi : emiTable.get(loanId)) {
+                if (emi.getEmiStatus() == EMIStatus.PAID) {
+                    paid++;
+                }
+            }
+            return paid;
+        }
+    }
+
+    private List<EMI> readPending(long loanId) {
+        synchronized (emiTable) {
+            List<EMI> pending = new ArrayList<>();
+            for (EMI row : emiTable.get(loanId)) {
+                if (row.getEmiStatus() == EMIStatus.PENDING) {
+                    EMI copy = new EMI(row.getLoanId(), row.getUserId(), row.getAmountMinor(), row.getDueDate(), row.getEmiStatus());
+                    copy.setId(row.getId());
+                    pending.add(copy);
+                }
+            }
+            return pending;
+        }
+    }
+
+    private int markPaidThrough(long loanId, Date dueDate) {
+        synchronized (emiTable) {
+            int updated = 0;
+            for (EMI row : emiTable.get(loanId)) {
+                if (row.getEmiStatus() == EMIStatus.PENDING && !row.getDueDate().after(dueDate)) {
+                    row.setEmiStatus(EMIStatus.PAID);
+                    updated++;
+                }
+            }
+            return updated;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.loansystem.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RepaymentFileParserTest {
+
+    @Test
+    public void testParsesLinesIntoMinorUnits() {
+        RepaymentFileParser parser = parse("loan_id,amount,reference\r\n"
+                + "42,100.5,TXN-1\r\n"
+                + "7,12\n"
+                + "\n"
+                + "1000000000001,0.07,TXN-3");
+
+        assertEquals(3, parser.size());
+        assertEquals(42L, parser.loanId(0));
+        assertEquals(10050L, parser.amountMinor(0));
+        assertEquals(2, parser.lineNumber(0));
+        assertEquals(1200L, parser.amountMinor(1));
+        assertEquals(1000000000001L, parser.loanId(2));
+        assertEquals(7L, parser.amountMinor(2));
+        assertEquals(5, parser.lineNumber(2));
+        //A header is not skipped silently, it comes back like any other line that does not parse
+        assertArrayEquals(new int[]{1}, parser.malformedLineNumbers());
+    }
+
+    @Test
+    public void testReportsMalformedLines() {
+        RepaymentFileParser parser = parse("abc,10\n1,10\n2\n3,1.234\n4,-5\n5,1.2.3\n6,20\n");
+
+        assertEquals(2, parser.size());
+        assertEquals(1L, parser.loanId(0));
+        assertEquals(6L, parser.loanId(1));
+        assertArrayEquals(new int[]{1, 3, 4, 5, 6}, parser.malformedLineNumbers());
+    }
+
+    @Test
+    public void testBlanksMaySurroundButNotSplitAField() {
+        RepaymentFileParser parser = parse(" 42 , 100.50 ,TXN-1\n4 2,100\n42,10 0\n42,10. 5\n\t\n7,\t12\r\n");
+
+        assertEquals(2, parser.size());
+        assertEquals(42L, parser.loanId(0));
+        assertEquals(10050L, parser.amountMinor(0));
+        assertEquals(7L, parser.loanId(1));
+        assertEquals(1200L, parser.amountMinor(1));
+        assertEquals(6, parser.lineNumber(1));
+        assertArrayEquals(new int[]{2, 3, 4}, parser.malformedLineNumbers());
+    }
+
+    @Test
+    public void testLinesMaySpanBuffers() {
+        byte[] bytes = "id,amount\n123,45.60\n9,1\n".getBytes(StandardCharsets.US_ASCII);
+        RepaymentFileParser parser = new RepaymentFileParser();
+        for (byte b : bytes) {
+            parser.feed(ByteBuffer.wrap(new byte[]{b}));
+        }
+        parser.finish();
+
+        assertEquals(2, parser.size());
+        assertEquals(123L, parser.loanId(0));
+        assertEquals(4560L, parser.amountMinor(0));
+        assertEquals(100L, parser.amountMinor(1));
+        assertArrayEquals(new int[]{1}, parser.malformedLineNumbers());
+    }
+
+    @Test
+    public void testGrowsPastInitialCapacity() {
+        StringBuilder file = new StringBuilder();
+        for (int i = 1; i <= 5000; i++) {
+            file.append(i).append(',').append(i).append(".01\n");
+        }
+        RepaymentFileParser parser = parse(file.toString());
+
+        assertEquals(5000, parser.size());
+        assertEquals(5000L, parser.loanId(4999));
+        assertEquals(500001L, parser.amountMinor(4999));
+    }
+
+    private RepaymentFileParser parse(String content) {
+        RepaymentFileParser parser = new RepaymentFileParser();
+        parser.feed(ByteBuffer.wrap(content.getBytes(StandardCharsets.US_ASCII)));
+        parser.finish();
+        return parser;
+    }
+}
@@ -0,0 +1,260 @@
+package com.example.loansystem.service;
+
+import com.example.loansystem.dto.RepaymentFileReport;
+import com.example.loansystem.dto.RepaymentRejectReason;
+import com.example.loansystem.exceptions.InvalidUserAuthority;
+import com.example.loansystem.model.EMI;
+import com.example.loansystem.model.EMIStatus;
+import com.example.loansystem.model.InstallmentFrequency;
+import com.example.loansystem.model.LoanSchedule;
+import com.example.loansystem.model.LoanStatus;
+import com.example.loansystem.model.UserRole;
+import com.example.loansystem.repository.LoanScheduleRepository;
+import com.example.loansystem.repository.RepaymentBatchRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class RepaymentFileServiceTest {
+
+    @Mock
+    private RepaymentBatchRepository repaymentBatchRepository;
+
+    @Mock
+    private LoanScheduleRepository loanScheduleRepository;
+
+    @Mock
+    private LoanLedger loanLedger;
+
+    @Spy
+    private LoanMetrics loanMetrics = new LoanMetrics(new SimpleMeterRegistry());
+
+    @Mock
+    private UserRoleCache userRoleCache;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private RepaymentFileService repaymentFileService;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(userRoleCache.exists(1L)).thenReturn(true);
+        when(userRoleCache.getRole(1L)).thenReturn(UserRole.ADMIN);
+        repaymentFileService = new RepaymentFileService(repaymentBatchRepository, loanScheduleRepository, loanLedger, loanMetrics, userRoleCache, transactionManager, 2, 2);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        repaymentFileService.destroy();
+    }
+
+    @Test
+    public void testAppliesLinesPerLoanWithBatchedWrites() throws IOException {
+        when(repaymentBatchRepository.lockLoansInStatus(anyCollection(), eq(LoanStatus.PENDING)))
+                .thenAnswer(invocation -> {
+                    Set<Long> pending = new HashSet<>(invocation.<Collection<Long>>getArgument(0));
+                    pending.remove(30L);
+                    return pending;
+                });
+        when(repaymentBatchRepository.findOpenEmis(anyCollection())).thenAnswer(invocation -> {
+            Map<Long, List<EMI>> emis = new HashMap<>();
+            for (Long loanId : invocation.<Collection<Long>>getArgument(0)) {
+                if (loanId == 10L) {
+                    emis.put(10L, schedule(10L, 100L, 10000, 10000, 10000));
+                } else if (loanId == 20L) {
+                    emis.put(20L, schedule(20L, 200L, 5000, 5000));
+                }
+            }
+            return emis;
+        });
+
+        RepaymentFileReport report = repaymentFileService.ingest(file("loan_id,amount\n"
+                + "10,150\n"
+                + "20,100\n"
+                + "30,100\n"
+                + "10,40\n"
+                + "oops\n"
+                + "10,150\n"
+                + "20,50\n"), 1L);
+
+        assertEquals(8, report.getTotalLines());
+        assertEquals(3, report.getAppliedLines());
+        assertEquals(5, report.getRejections().size());
+        //The header is reported, not skipped
+        assertEquals(1, report.getRejections().get(0).getLineNumber());
+        assertEquals(RepaymentRejectReason.MALFORMED, report.getRejections().get(0).getReason());
+        assertEquals(4, report.getRejections().get(1).getLineNumber());
+        assertEquals(RepaymentRejectReason.LOAN_NOT_FOUND, report.getRejections().get(1).getReason());
+        assertEquals(RepaymentRejectReason.BELOW_EMI_AMOUNT, report.getRejections().get(2).getReason());
+        assertEquals(RepaymentRejectReason.MALFORMED, report.getRejections().get(3).getReason());
+        assertNull(report.getRejections().get(3).getLoanId());
+        assertEquals(RepaymentRejectReason.NO_PENDING_EMI, report.getRejections().get(4).getReason());
+        assertEquals(8, report.getRejections().get(4).getLineNumber());
+
+        //Loans 10 and 20 fall in one chunk of two loans, loan 30 in another
+        verify(repaymentBatchRepository, times(2)).lockLoansInStatus(anyCollection(), eq(LoanStatus.PENDING));
+        verify(repaymentBatchRepository).markEmisPaid(argThat(ids -> ids.containsAll(List.of(100L, 101L, 102L, 200L, 201L))
+                && ids.size() == 5));
+        verify(repaymentBatchRepository, never()).updateEmiAmounts(anyMap());
+        verify(repaymentBatchRepository).updateLoanStatus(argThat(ids -> ids.containsAll(List.of(10L, 20L))), eq(LoanStatus.PAID));
+        verify(loanMetrics).fileRepaymentsApplied(3);
+        verify(loanMetrics, times(2)).fileRepaymentRejected(RepaymentRejectReason.MALFORMED);
+        verify(loanMetrics, times(5)).fileRepaymentRejected(any(RepaymentRejectReason.class));
+    }
+
+    @Test
+    public void testFailedChunkIsReportedWhileOthersApply() throws IOException {
+        when(repaymentBatchRepository.lockLoansInStatus(anyCollection(), eq(LoanStatus.PENDING)))
+                .thenAnswer(invocation -> {
+                    Collection<Long> loanIds = invocation.getArgument(0);
+                    if (loanIds.contains(30L)) {
+                        throw new CannotAcquireLockException("lock wait timeout");
+                    }
+                    return new HashSet<>(loanIds);
+                });
+        when(repaymentBatchRepository.findOpenEmis(anyCollection())).thenAnswer(invocation -> {
+            Map<Long, List<EMI>> emis = new HashMap<>();
+            for (Long loanId : invocation.<Collection<Long>>getArgument(0)) {
+                emis.put(loanId, schedule(loanId, loanId * 10, 10000));
+            }
+            return emis;
+        });
+
+        //Loans 10 and 20 form one chunk, 30 and 40 the one that fails
+        RepaymentFileReport report = repaymentFileService.ingest(file("10,100\n20,100\n30,100\n40,100\n30,100\n"), 1L);
+
+        assertEquals(5, report.getTotalLines());
+        assertEquals(2, report.getAppliedLines());
+        assertEquals(3, report.getRejections().size());
+        assertEquals(3, report.getRejections().get(0).getLineNumber());
+        assertEquals(30L, report.getRejections().get(0).getLoanId());
+        assertEquals(4, report.getRejections().get(1).getLineNumber());
+        assertEquals(5, report.getRejections().get(2).getLineNumber());
+        assertTrue(report.getRejections().stream().allMatch(r -> r.getReason() == RepaymentRejectReason.APPLY_FAILED));
+        verify(repaymentBatchRepository).markEmisPaid(argThat(ids -> ids.containsAll(List.of(100L, 200L)) && ids.size() == 2));
+        verify(loanMetrics, times(3)).fileRepaymentRejected(RepaymentRejectReason.APPLY_FAILED);
+    }
+
+    @Test
+    public void testOverdueInstallmentIsPaidFirst() throws IOException {
+        when(repaymentBatchRepository.lockLoansInStatus(anyCollection(), eq(LoanStatus.PENDING))).thenReturn(Set.of(10L));
+        List<EMI> emis = schedule(10L, 100L, 10000, 10000);
+        EMI overdue = emis.get(0);
+        overdue.setEmiStatus(EMIStatus.OVERDUE);
+        when(repaymentBatchRepository.findOpenEmis(anyCollection())).thenReturn(Map.of(10L, emis));
+
+        RepaymentFileReport report = repaymentFileService.ingest(file("10,100.25\n10,99.75\n"), 1L);
+
+        //The overdue installment goes first, the rest of the file clears the loan
+        assertEquals(2, report.getAppliedLines());
+        verify(repaymentBatchRepository).markEmisPaid(List.of(100L, 101L));
+        verify(repaymentBatchRepository, never()).updateEmiAmounts(anyMap());
+        verify(repaymentBatchRepository).updateLoanStatus(List.of(10L), LoanStatus.PAID);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testPartialPaymentCarriesIntoLaterLines() throws IOException {
+        when(repaymentBatchRepository.lockLoansInStatus(anyCollection(), eq(LoanStatus.PENDING))).thenReturn(Set.of(10L));
+        when(repaymentBatchRepository.findOpenEmis(anyCollection())).thenReturn(Map.of(10L, schedule(10L, 100L, 10000, 10000, 10000)));
+
+        RepaymentFileReport report = repaymentFileService.ingest(file("10,120\n10,90\n"), 1L);
+
+        //The second line only has to cover the 80 left on the part-paid installment
+        assertEquals(2, report.getAppliedLines());
+        verify(repaymentBatchRepository).markEmisPaid(List.of(100L, 101L));
+        verify(repaymentBatchRepository).updateEmiAmounts(Map.of(102L, 9000L));
+
+        //Both lines reach the ledger in the chunk's one record call, each built before its updates
+        ArgumentCaptor<List<LedgerEntry>> recorded = ArgumentCaptor.forClass(List.class);
+        verify(loanLedger).record(recorded.capture());
+        assertEquals(2, recorded.getValue().size());
+        assertEquals(12000, recorded.getValue().get(0).getAmountMinor());
+        assertEquals(8000, recorded.getValue().get(0).getNextInstallmentMinor());
+        assertEquals(30000, recorded.getValue().get(0).outstandingBefore());
+        assertEquals(9000, recorded.getValue().get(1).getAmountMinor());
+        assertEquals(9000, recorded.getValue().get(1).getNextInstallmentMinor());
+    }
+
+    @Test
+    public void testVirtualSchedulesAreRepaidThroughTheirTotals() throws IOException {
+        when(repaymentBatchRepository.lockLoansInStatus(anyCollection(), eq(LoanStatus.PENDING))).thenReturn(Set.of(10L, 20L));
+        when(repaymentBatchRepository.findOpenEmis(anyCollection())).thenReturn(Map.of());
+        LoanSchedule open = new LoanSchedule(10L, 5L, 19000, 3, 10000, 10000, InstallmentFrequency.WEEKLY, 0);
+        LoanSchedule nearlyPaid = new LoanSchedule(20L, 5L, 19000, 2, 5000, 5000, InstallmentFrequency.WEEKLY, 9000);
+        when(loanScheduleRepository.lockByLoanIds(anyCollection())).thenReturn(Map.of(10L, open, 20L, nearlyPaid));
+
+        RepaymentFileReport report = repaymentFileService.ingest(file("10,150\n10,40\n10,50\n20,10\n20,10\n"), 1L);
+
+        assertEquals(3, report.getAppliedLines());
+        assertEquals(RepaymentRejectReason.BELOW_EMI_AMOUNT, report.getRejections().get(0).getReason());
+        assertEquals(RepaymentRejectReason.NO_PENDING_EMI, report.getRejections().get(1).getReason());
+        assertEquals(20000, open.getAmountRepaidMinor());
+        assertEquals(10000, nearlyPaid.getAmountRepaidMinor());
+        verify(loanScheduleRepository).updateAmountsRepaid(argThat(schedules -> schedules.size() == 2));
+        verify(repaymentBatchRepository).updateLoanStatus(List.of(20L), LoanStatus.PAID);
+        verify(repaymentBatchRepository, never()).markEmisPaid(anyList());
+    }
+
+    @Test
+    public void testRequiresAdmin() {
+        when(userRoleCache.exists(2L)).thenReturn(true);
+        when(userRoleCache.getRole(2L)).thenReturn(UserRole.BORROWER);
+
+        assertThrows(InvalidUserAuthority.class, () -> repaymentFileService.ingest(file("10,100\n"), 2L));
+        verifyNoInteractions(repaymentBatchRepository);
+    }
+
+    @Test
+    public void testReportCsvListsOnlyRejectedLines() throws IOException {
+        when(repaymentBatchRepository.lockLoansInStatus(anyCollection(), eq(LoanStatus.PENDING))).thenReturn(Set.of());
+
+        RepaymentFileReport report = repaymentFileService.ingest(file("10,100\nx\n"), 1L);
+        StringWriter csv = new StringWriter();
+        report.writeCsv(csv);
+
+        assertEquals("total_lines,applied_lines,rejected_lines\n2,0,2\n"
+                + "line,loan_id,reason\n1,10,LOAN_NOT_FOUND\n2,,MALFORMED\n", csv.toString());
+    }
+
+    private InputStream file(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private List<EMI> schedule(Long loanId, long firstEmiId, long... amountsMinor) {
+        List<EMI> emis = new ArrayList<>();
+        for (int i = 0; i < amountsMinor.length; i++) {
+            EMI emi = new EMI(loanId, 5L, amountsMinor[i], new Date(i * 7L * 24 * 60 * 60 * 1000), EMIStatus.PENDING);
+            emi.setId(firstEmiId + i);
+            emis.add(emi);
+        }
+        return emis;
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.loansystem.service;
+
+import com.example.loansystem.model.User;
+import com.example.loansystem.model.UserRole;
+import com.example.loansystem.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class UserRoleCacheTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private UserRoleCache userRoleCache;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        userRoleCache = new UserRoleCache(userRepository, meterRegistry, 100, Duration.ofMinutes(5));
+    }
+
+    @Test
+    public void testRoleIsLoadedOnceAndThenServedFromCache() {
+        User admin = new User();
+        admin.setId(1L);
+        admin.setUserRole(UserRole.ADMIN);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(admin));
+
+        assertTrue(userRoleCache.exists(1L));
+        assertEquals(UserRole.ADMIN, userRoleCache.getRole(1L));
+        assertEquals(UserRole.ADMIN, userRoleCache.getRole(1L));
+
+        verify(userRepository, times(1)).findById(1L);
+        assertEquals(1, userRoleCache.stats().missCount());
+        assertEquals(2, userRoleCache.stats().hitCount());
+        assertEquals(2.0, meterRegistry.get("cache.gets").tag("cache", "userRoles").tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    public void testMissingUserIsNotCached() {
+        when(userRepository.findById(2L)).thenReturn(Optional.empty());
+
+        assertFalse(userRoleCache.exists(2L));
+        assertNull(userRoleCache.getRole(2L));
+        verify(userRepository, times(2)).findById(2L);
+
+        //Registered on another node, or not yet on the replica the first lookups read
+        User borrower = new User();
+        borrower.setId(2L);
+        borrower.setUserRole(UserRole.BORROWER);
+        when(userRepository.findById(2L)).thenReturn(Optional.of(borrower));
+
+        assertTrue(userRoleCache.exists(2L));
+        assertEquals(UserRole.BORROWER, userRoleCache.getRole(2L));
+        verify(userRepository, times(3)).findById(2L);
+    }
+}
@@ -4,16 +4,20 @@ import com.example.loansystem.dto.UserDTO;
 import com.example.loansystem.exceptions.BadCredentialsException;
 import com.example.loansystem.exceptions.UserAlreadyExistsException;
 import com.example.loansystem.model.User;
-import com.example.loansystem.model.UserRole;
 import com.example.loansystem.repository.UserRepository;
+import com.example.loansystem.security.TokenService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -24,7 +28,13 @@ public class UserServiceTest {
     private UserRepository userRepository;
 
     @Mock
-    private PasswordEncoder passwordEncoder;
+    private PasswordHashingService passwordHashingService;
+
+    @Mock
+    private UserRoleCache userRoleCache;
+
+    @Mock
+    private TokenService tokenService;
 
     @InjectMocks
     private UserService userService;
@@ -32,6 +42,7 @@ public class UserServiceTest {
     @BeforeEach
     public void setUp() {
         MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(userService, "taskExecutor", (Executor) Runnable::run);
     }
 
     @Test
@@ -42,14 +53,33 @@ public class UserServiceTest {
         userDTO.setPassword("password");
 
         when(userRepository.findByUserEmail(userDTO.getUserEmail())).thenReturn(Optional.empty());
-        when(passwordEncoder.encode(userDTO.getPassword())).thenReturn("hashedPassword");
-        when(userRepository.save(any(User.class))).thenReturn(new User());
+        when(passwordHashingService.encode(userDTO.getPassword())).thenReturn(CompletableFuture.completedFuture("hashedPassword"));
+        User savedUser = new User();
+        savedUser.setId(5L);
+        when(userRepository.save(any(User.class))).thenReturn(savedUser);
 
         // Test the registerUser method
-        userService.registerUser(userDTO);
+        userService.registerUser(userDTO).join();
 
-        // Verify that save method was called on userRepository
+        // Verify that save method was called on userRepository and any cached miss for the id is dropped
         verify(userRepository, times(1)).save(any(User.class));
+        verify(userRoleCache, times(1)).invalidate(5L);
+    }
+
+    @Test
+    public void testRegisterUserConcurrentDuplicateEmail() {
+        UserDTO userDTO = new UserDTO();
+        userDTO.setUserEmail("race@example.com");
+        userDTO.setPassword("password");
+
+        //Both registrations passed the lookup, the unique key stops the second insert
+        when(userRepository.findByUserEmail(userDTO.getUserEmail())).thenReturn(Optional.empty());
+        when(passwordHashingService.encode(userDTO.getPassword())).thenReturn(CompletableFuture.completedFuture("hashedPassword"));
+        when(userRepository.save(any(User.class))).thenThrow(new DataIntegrityViolationException("uk_user_email"));
+
+        CompletionException e = assertThrows(CompletionException.class, () -> userService.registerUser(userDTO).join());
+        assertInstanceOf(UserAlreadyExistsException.class, e.getCause());
+        verify(userRoleCache, never()).invalidate(any());
     }
 
     @Test
@@ -61,8 +91,10 @@ public class UserServiceTest {
 
         when(userRepository.findByUserEmail(userDTO.getUserEmail())).thenReturn(Optional.of(new User()));
 
-        // Test the registerUser method with an existing user
-        assertThrows(UserAlreadyExistsException.class, () -> userService.registerUser(userDTO));
+        // Test the registerUser method with an existing user, no hashing should be done
+        CompletionException e = assertThrows(CompletionException.class, () -> userService.registerUser(userDTO).join());
+        assertInstanceOf(UserAlreadyExistsException.class, e.getCause());
+        verifyNoInteractions(passwordHashingService);
     }
 
     @Test
@@ -77,13 +109,14 @@ public class UserServiceTest {
         user.setPassword(hashedPassword);
 
         when(userRepository.findByUserEmail(username)).thenReturn(Optional.of(user));
-        when(passwordEncoder.matches(password, hashedPassword)).thenReturn(true);
+        when(passwordHashingService.matches(password, hashedPassword)).thenReturn(CompletableFuture.completedFuture(true));
+        when(tokenService.issueToken(user)).thenReturn("signed-token");
 
         // Test the loginUser method
-        String authToken = userService.loginUser(username, password);
+        String authToken = userService.loginUser(username, password).join();
 
-        // Verify that the method returns a non-null authentication token
-        assertNotNull(authToken);
+        // Verify that the method returns the token signed for this user
+        assertEquals("signed-token", authToken);
     }
 
     @Test
@@ -98,10 +131,20 @@ public class UserServiceTest {
         user.setPassword(hashedPassword);
 
         when(userRepository.findByUserEmail(username)).thenReturn(Optional.of(user));
-        when(passwordEncoder.matches(password, hashedPassword)).thenReturn(false);
+        when(passwordHashingService.matches(password, hashedPassword)).thenReturn(CompletableFuture.completedFuture(false));
 
         // Test the loginUser method with invalid credentials
-        assertThrows(BadCredentialsException.class, () -> userService.loginUser(username, password));
+        CompletionException e = assertThrows(CompletionException.class, () -> userService.loginUser(username, password).join());
+        assertInstanceOf(BadCredentialsException.class, e.getCause());
+        verify(tokenService, never()).issueToken(any());
     }
-}
 
+    @Test
+    public void testLoginUserUnknownUserSkipsHashing() {
+        when(userRepository.findByUserEmail("nobody@example.com")).thenReturn(Optional.empty());
+
+        CompletionException e = assertThrows(CompletionException.class, () -> userService.loginUser("nobody@example.com", "password").join());
+        assertInstanceOf(BadCredentialsException.class, e.getCause());
+        verifyNoInteractions(passwordHashingService);
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.loansystem.strategy;
+
+import com.example.loansystem.model.EMIStatus;
+import com.example.loansystem.model.InstallmentFrequency;
+import com.example.loansystem.model.Loan;
+import com.example.loansystem.model.LoanSchedule;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AmortizedEMIStrategyTest {
+
+    private final AmortizedEMIStrategy strategy = new AmortizedEMIStrategy();
+
+    @Test
+    public void testLevelPaymentSplitsIntoInterestAndPrincipal() {
+        //100,000.00 at 12% a year over 12 months: 1% a month, level payment 8,884.88
+        EMISchedule schedule = new EMISchedule();
+        strategy.fillSchedule(loan(10_000_000, 12, 12, LocalDate.of(2024, 1, 15)), schedule);
+
+        assertEquals(12, schedule.size());
+        assertEquals(888_488, schedule.amountMinor(0));
+        assertEquals(100_000, schedule.interestMinor(0));
+        assertEquals(788_488, schedule.principalMinor(0));
+        assertEquals(92_115, schedule.interestMinor(1));
+        assertEquals(888_488, schedule.amountMinor(10));
+        assertEquals(LocalDate.of(2024, 2, 15).toEpochDay(), schedule.dueEpochDay(0));
+        assertEquals(LocalDate.of(2025, 1, 15).toEpochDay(), schedule.dueEpochDay(11));
+        assertEquals(EMIStatus.PENDING, schedule.status(11));
+        assertPrincipalAddsUpTo(10_000_000, schedule);
+    }
+
+    @Test
+    public void testThirtyYearScheduleIsExactToTheCent() {
+        EMISchedule schedule = new EMISchedule();
+        strategy.fillSchedule(loan(45_000_000, 6.5, 360, LocalDate.of(2024, 1, 31)), schedule);
+
+        assertEquals(360, schedule.size());
+        assertEquals(284_431, schedule.amountMinor(0));
+        assertPrincipalAddsUpTo(45_000_000, schedule);
+        long lastDifference = schedule.amountMinor(359) - schedule.amountMinor(0);
+        //The half cent the level payment was rounded by compounds over 360 months, at most about 5.16 here
+        assertTrue(Math.abs(lastDifference) <= 516, "last installment only absorbs rounding: " + lastDifference);
+        //A start on the 31st clamps the first due date, and later installments keep its day
+        assertEquals(LocalDate.of(2024, 2, 29).toEpochDay(), schedule.dueEpochDay(0));
+        assertEquals(LocalDate.of(2024, 3, 29).toEpochDay(), schedule.dueEpochDay(1));
+    }
+
+    @Test
+    public void testZeroRateSplitsThePrincipalEvenly() {
+        EMISchedule schedule = new EMISchedule();
+        strategy.fillSchedule(loan(100_000, 0, 3, LocalDate.of(2024, 1, 1)), schedule);
+
+        assertEquals(33_333, schedule.amountMinor(0));
+        assertEquals(33_334, schedule.amountMinor(2));
+        assertEquals(0, schedule.interestMinor(2));
+        assertPrincipalAddsUpTo(100_000, schedule);
+    }
+
+    @Test
+    public void testScheduleCompactsToAMonthlyVirtualSchedule() {
+        Loan loan = loan(45_000_000, 6.5, 360, LocalDate.of(2024, 1, 31));
+        EMISchedule schedule = new EMISchedule();
+        strategy.fillSchedule(loan, schedule);
+
+        LoanSchedule loanSchedule = LoanSchedule.fromSchedule(loan, schedule);
+
+        assertEquals(InstallmentFrequency.MONTHLY, loanSchedule.getFrequency());
+        assertEquals(schedule.totalMinor(), loanSchedule.totalMinor());
+        assertEquals(schedule.dueEpochDay(359), loanSchedule.dueEpochDay(359));
+    }
+
+    @Test
+    public void testTotalMatchesTheScheduleWithoutAStartDate() {
+        EMISchedule schedule = new EMISchedule();
+        strategy.fillSchedule(loan(45_000_000, 6.5, 360, LocalDate.of(2024, 1, 31)), schedule);
+        Loan pending = loan(45_000_000, 6.5, 360, LocalDate.of(2024, 1, 31));
+        pending.setStartDate(null);
+
+        assertEquals(schedule.totalMinor(), strategy.totalMinor(pending));
+        assertEquals(100_000, strategy.totalMinor(loan(100_000, 0, 3, LocalDate.of(2024, 1, 1))));
+    }
+
+    private void assertPrincipalAddsUpTo(long principalMinor, EMISchedule schedule) {
+        long principal = 0;
+        for (int i = 0; i < schedule.size(); i++) {
+            principal += schedule.principalMinor(i);
+        }
+        assertEquals(principalMinor, principal);
+    }
+
+    private Loan loan(long amountRequiredMinor, double annualRatePercent, int months, LocalDate startDate) {
+        Loan loan = new Loan();
+        loan.setId(1L);
+        loan.setUserId(7L);
+        loan.setAmountRequiredMinor(amountRequiredMinor);
+        loan.setInterestRate(annualRatePercent);
+        loan.setLoanTerm(months);
+        loan.setStartDate(Date.from(startDate.atStartOfDay(ZoneId.systemDefault()).toInstant()));
+        return loan;
+    }
+}
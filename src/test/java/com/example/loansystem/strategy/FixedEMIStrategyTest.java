@@ -0,0 +1,80 @@
+package com.example.loansystem.strategy;
+
+import com.example.loansystem.model.EMI;
+import com.example.loansystem.model.EMIStatus;
+import com.example.loansystem.model.Loan;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FixedEMIStrategyTest {
+
+    private final FixedEMIStrategy strategy = new FixedEMIStrategy();
+
+    @Test
+    public void testWeeklyInstallmentsAddUpToTheAmountToBePaid() {
+        Loan loan = loan(3, 10000, LocalDate.of(2024, 2, 26));
+        EMISchedule schedule = new EMISchedule();
+
+        strategy.fillSchedule(loan, schedule);
+
+        assertEquals(3, schedule.size());
+        assertEquals(LocalDate.of(2024, 2, 26).toEpochDay(), schedule.dueEpochDay(0));
+        assertEquals(LocalDate.of(2024, 3, 4).toEpochDay(), schedule.dueEpochDay(1));
+        assertEquals(3333, schedule.amountMinor(0));
+        assertEquals(3333, schedule.amountMinor(1));
+        assertEquals(3334, schedule.amountMinor(2));
+        assertEquals(10000, schedule.totalMinor());
+        assertEquals(EMIStatus.PENDING, schedule.status(2));
+    }
+
+    @Test
+    public void testRefillingAScheduleReusesItsArrays() {
+        EMISchedule schedule = new EMISchedule();
+        strategy.fillSchedule(loan(520, 5200000, LocalDate.of(2024, 1, 1)), schedule);
+
+        strategy.fillSchedule(loan(4, 40000, LocalDate.of(2024, 1, 1)), schedule);
+
+        assertEquals(4, schedule.size());
+        assertEquals(40000, schedule.totalMinor());
+    }
+
+    @Test
+    public void testGenerateEMIsConvertsAtTheBoundary() {
+        Loan loan = loan(2, 5050, LocalDate.of(2024, 1, 1));
+        loan.setId(7L);
+        loan.setUserId(9L);
+
+        List<EMI> emis = strategy.generateEMIs(loan);
+
+        assertEquals(2, emis.size());
+        assertEquals(7L, emis.get(0).getLoanId());
+        assertEquals(9L, emis.get(0).getUserId());
+        assertEquals(2525, emis.get(1).getAmountMinor());
+        assertEquals(Date.from(LocalDate.of(2024, 1, 8).atStartOfDay(ZoneId.systemDefault()).toInstant()), emis.get(1).getDueDate());
+    }
+
+    @Test
+    public void testNonPositiveTermHasNoInstallments() {
+        EMISchedule schedule = new EMISchedule();
+
+        strategy.fillSchedule(loan(0, 10000, LocalDate.of(2024, 1, 1)), schedule);
+
+        assertEquals(0, schedule.size());
+    }
+
+    private Loan loan(int termWeeks, long amountToBePaidMinor, LocalDate startDate) {
+        Loan loan = new Loan();
+        loan.setId(1L);
+        loan.setUserId(2L);
+        loan.setLoanTerm(termWeeks);
+        loan.setAmountToBePaidMinor(amountToBePaidMinor);
+        loan.setStartDate(Date.from(startDate.atStartOfDay(ZoneId.systemDefault()).toInstant().plusSeconds(3600 * 10)));
+        return loan;
+    }
+}